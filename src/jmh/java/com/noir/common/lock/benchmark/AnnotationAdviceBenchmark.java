@@ -0,0 +1,90 @@
+package com.noir.common.lock.benchmark;
+
+import com.noir.common.lock.annotation.DLock;
+import com.noir.common.lock.aop.DLockAnnotationAdvice;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link DLockAnnotationAdvice} 的拦截开销
+ *
+ * 后端为无操作的可重入锁，结果仅包含代理、注解元数据与SpEL解析的耗时
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class AnnotationAdviceBenchmark {
+
+    private AnnotationConfigApplicationContext context;
+
+    private AccountService direct;
+
+    private AccountService proxied;
+
+    @Setup
+    public void setUp() {
+        context = new AnnotationConfigApplicationContext();
+        context.registerBean(NoopDLockFactory.class);
+        context.registerBean(DLockAnnotationAdvice.class);
+        context.refresh();
+
+        direct = new AccountService();
+        ProxyFactory proxyFactory = new ProxyFactory(direct);
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAdvice(context.getBean(DLockAnnotationAdvice.class));
+        proxied = (AccountService) proxyFactory.getProxy();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public long direct() {
+        return direct.constantKey(10086L);
+    }
+
+    @Benchmark
+    public long constantKey() {
+        return proxied.constantKey(10086L);
+    }
+
+    @Benchmark
+    public long spelKey() {
+        return proxied.spelKey(10086L);
+    }
+
+    @Benchmark
+    public long multiKey() {
+        return proxied.multiKey(10086L, 10010L);
+    }
+
+    public static class AccountService {
+
+        @DLock("account")
+        public long constantKey(long accountId) {
+            return accountId;
+        }
+
+        @DLock("account_#{#accountId}")
+        public long spelKey(long accountId) {
+            return accountId;
+        }
+
+        @DLock({"account_#{#from}", "account_#{#to}"})
+        public long multiKey(long from, long to) {
+            return from + to;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.noir.common.lock.benchmark;
+
+import com.noir.common.lock.impl.support.ZookeeperConnectionManager;
+import org.apache.zookeeper.server.ServerCnxnFactory;
+import org.apache.zookeeper.server.ZooKeeperServer;
+import org.redisson.Redisson;
+import org.redisson.api.RedissonClient;
+import org.redisson.config.Config;
+import redis.embedded.RedisServer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+
+/**
+ * 基准测试使用的本地redis与进程内zookeeper
+ */
+public final class BenchmarkServers {
+
+    private BenchmarkServers() {
+    }
+
+    public static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    /**
+     * 嵌入式redis
+     */
+    public static class Redis implements AutoCloseable {
+        private final RedisServer server;
+
+        private final RedissonClient client;
+
+        public Redis() throws IOException {
+            int port = freePort();
+            server = new RedisServer(port);
+            server.start();
+            Config config = new Config();
+            config.useSingleServer()
+                    .setAddress("redis://127.0.0.1:" + port)
+                    .setConnectionPoolSize(128);
+            client = Redisson.create(config);
+        }
+
+        public RedissonClient client() {
+            return client;
+        }
+
+        @Override
+        public void close() {
+            client.shutdown();
+            try {
+                server.stop();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * 进程内zookeeper
+     */
+    public static class Zookeeper implements AutoCloseable {
+        private final ZooKeeperServer server;
+
+        private final ServerCnxnFactory factory;
+
+        private final ZookeeperConnectionManager connections;
+
+        public Zookeeper() throws IOException, InterruptedException {
+            File dir = Files.createTempDirectory("dlock-zk-bench").toFile();
+            int port = freePort();
+            server = new ZooKeeperServer(dir, dir, 2000);
+            factory = ServerCnxnFactory.createFactory(port, 1000);
+            factory.startup(server);
+
+            connections = new ZookeeperConnectionManager("127.0.0.1:" + port, 30000);
+            connections.start();
+        }
+
+        public ZookeeperConnectionManager connections() {
+            return connections;
+        }
+
+        @Override
+        public void close() {
+            connections.close();
+            factory.shutdown();
+            server.shutdown();
+        }
+    }
+}
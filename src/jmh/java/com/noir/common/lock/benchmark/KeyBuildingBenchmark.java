@@ -0,0 +1,47 @@
+package com.noir.common.lock.benchmark;
+
+import com.noir.common.lock.impl.locks.RedisSetNXExpireLock;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.expression.Expression;
+import org.springframework.expression.common.TemplateParserContext;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * 锁名解析与锁对象构建的开销
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class KeyBuildingBenchmark {
+
+    private final Expression expression = new SpelExpressionParser()
+            .parseExpression("order_#{#orderId}", new TemplateParserContext());
+
+    private long orderId = 10086L;
+
+    @Benchmark
+    public String concat() {
+        return "order_" + orderId;
+    }
+
+    @Benchmark
+    public String spelTemplate() {
+        StandardEvaluationContext context = new StandardEvaluationContext();
+        context.setVariable("orderId", orderId);
+        return expression.getValue(context, String.class);
+    }
+
+    @Benchmark
+    public Lock redisLockHandle() {
+        return new RedisSetNXExpireLock(null, null, null, "dlock", "order_" + orderId);
+    }
+}
@@ -0,0 +1,66 @@
+package com.noir.common.lock.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * 获取与释放吞吐量的公共基准
+ *
+ * shared下所有线程竞争同一把锁，distinct下每个线程使用独立的锁
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public abstract class LockThroughputBenchmark {
+    private static final AtomicInteger THREAD_IDS = new AtomicInteger();
+
+    @Param({"shared", "distinct"})
+    public String contention;
+
+    /**
+     * 创建被测锁
+     */
+    protected abstract Lock newLock(String name) throws Exception;
+
+    @Benchmark
+    @Threads(1)
+    public boolean threads1(ThreadKey key) throws Exception {
+        return acquireRelease(key);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public boolean threads8(ThreadKey key) throws Exception {
+        return acquireRelease(key);
+    }
+
+    @Benchmark
+    @Threads(64)
+    public boolean threads64(ThreadKey key) throws Exception {
+        return acquireRelease(key);
+    }
+
+    private boolean acquireRelease(ThreadKey key) throws Exception {
+        Lock lock = newLock("shared".equals(contention) ? "bench_shared" : key.name);
+        if (!lock.tryLock(30, TimeUnit.SECONDS)) {
+            return false;
+        }
+        lock.unlock();
+        return true;
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadKey {
+        private final String name = "bench_" + THREAD_IDS.incrementAndGet();
+    }
+}
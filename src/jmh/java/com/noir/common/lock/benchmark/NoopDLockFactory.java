@@ -0,0 +1,22 @@
+package com.noir.common.lock.benchmark;
+
+import com.noir.common.lock.DLockFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * 返回 {@link NoopReentrantLock} 的工厂
+ */
+public class NoopDLockFactory implements DLockFactory {
+
+    @Override
+    public Lock getLock(String name) {
+        return new NoopReentrantLock(name);
+    }
+
+    @Override
+    public Lock getLock(String name, long expire, TimeUnit unit) {
+        return new NoopReentrantLock(name);
+    }
+}
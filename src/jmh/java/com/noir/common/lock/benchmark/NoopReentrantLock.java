@@ -0,0 +1,50 @@
+package com.noir.common.lock.benchmark;
+
+import com.noir.common.lock.ReentrantDLock;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+
+/**
+ * 无后端的可重入锁，仅保留重入记录的开销
+ */
+public class NoopReentrantLock extends ReentrantDLock {
+    private final String name;
+
+    public NoopReentrantLock(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public void lock() {
+        tryLock();
+    }
+
+    @Override
+    public void lockInterruptibly() {
+        tryLock();
+    }
+
+    @Override
+    public boolean tryLock() {
+        if (!reenter(name)) {
+            enter(name);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean tryLock(long time, TimeUnit unit) {
+        return tryLock();
+    }
+
+    @Override
+    public void unlock() {
+        exit(name);
+    }
+
+    @Override
+    public Condition newCondition() {
+        return null;
+    }
+}
@@ -0,0 +1,50 @@
+package com.noir.common.lock.benchmark;
+
+import com.noir.common.lock.impl.locks.RedisSetNXExpireLock;
+import com.noir.common.lock.impl.locks.RedisSetNXGetSetLock;
+import com.noir.common.lock.impl.support.RedisLockReleaseSubscriber;
+import com.noir.common.lock.impl.support.RedisScriptRegistry;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * redis-expire与redis-get-set的吞吐量
+ */
+public class RedisLockBenchmark extends LockThroughputBenchmark {
+    private static final String NAMESPACE = "dlock";
+
+    @Param({"redis-expire", "redis-get-set"})
+    public String type;
+
+    private BenchmarkServers.Redis redis;
+
+    private RedisScriptRegistry scripts;
+
+    private RedisLockReleaseSubscriber subscriber;
+
+    @Setup
+    public void setUp() throws IOException {
+        redis = new BenchmarkServers.Redis();
+        scripts = new RedisScriptRegistry(redis.client());
+        scripts.load(RedisSetNXExpireLock.SCRIPTS);
+        scripts.load(RedisSetNXGetSetLock.SCRIPTS);
+        subscriber = new RedisLockReleaseSubscriber(redis.client());
+    }
+
+    @TearDown
+    public void tearDown() {
+        redis.close();
+    }
+
+    @Override
+    protected Lock newLock(String name) {
+        if ("redis-get-set".equals(type)) {
+            return new RedisSetNXGetSetLock(scripts, NAMESPACE, name);
+        }
+        return new RedisSetNXExpireLock(scripts, subscriber, null, NAMESPACE, name);
+    }
+}
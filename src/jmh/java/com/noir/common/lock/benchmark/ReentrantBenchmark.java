@@ -0,0 +1,51 @@
+package com.noir.common.lock.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * 重入记录的开销
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ReentrantBenchmark {
+
+    private final Lock outer = new NoopReentrantLock("order_1");
+
+    private final Lock inner = new NoopReentrantLock("order_1");
+
+    private final Lock other = new NoopReentrantLock("order_2");
+
+    @Benchmark
+    public boolean acquireRelease() {
+        boolean locked = outer.tryLock();
+        outer.unlock();
+        return locked;
+    }
+
+    @Benchmark
+    public boolean reentrantAcquireRelease() {
+        outer.tryLock();
+        boolean locked = inner.tryLock();
+        inner.unlock();
+        outer.unlock();
+        return locked;
+    }
+
+    @Benchmark
+    public boolean nestedDistinctLocks() {
+        outer.tryLock();
+        boolean locked = other.tryLock();
+        other.unlock();
+        outer.unlock();
+        return locked;
+    }
+}
@@ -0,0 +1,31 @@
+package com.noir.common.lock.benchmark;
+
+import com.noir.common.lock.impl.locks.ZookeeperLock;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * zookeeper锁的吞吐量
+ */
+public class ZookeeperLockBenchmark extends LockThroughputBenchmark {
+
+    private BenchmarkServers.Zookeeper zookeeper;
+
+    @Setup
+    public void setUp() throws IOException, InterruptedException {
+        zookeeper = new BenchmarkServers.Zookeeper();
+    }
+
+    @TearDown
+    public void tearDown() {
+        zookeeper.close();
+    }
+
+    @Override
+    protected Lock newLock(String name) {
+        return new ZookeeperLock(zookeeper.connections(), name);
+    }
+}
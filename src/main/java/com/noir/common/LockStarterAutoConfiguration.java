@@ -1,13 +1,13 @@
 package com.noir.common;
 
+import com.noir.common.lock.impl.support.ZookeeperConnectionManager;
 import com.noir.common.lock.properties.DLockProperties;
 import com.noir.common.lock.properties.RedLockProperties;
 import com.noir.common.lock.properties.RedisDLockProperties;
+import com.noir.common.lock.properties.RedisShardedProperties;
 import com.noir.common.lock.properties.ZookeeperDLockProperties;
 import lombok.extern.slf4j.Slf4j;
 
-import org.apache.zookeeper.Watcher;
-import org.apache.zookeeper.ZooKeeper;
 import org.redisson.Redisson;
 import org.redisson.api.RedissonClient;
 import org.redisson.config.*;
@@ -21,7 +21,6 @@ import org.springframework.util.StringUtils;
 
 import java.util.Arrays;
 import java.util.List;
-import java.util.concurrent.CountDownLatch;
 import java.util.stream.Collectors;
 
 /**
@@ -42,7 +41,7 @@ import java.util.stream.Collectors;
 @Configuration
 @ComponentScan("com.noir.common.lock")
 @ConditionalOnProperty(prefix = "locker", value = "enabled", havingValue = "true")
-@EnableConfigurationProperties({DLockProperties.class, RedisDLockProperties.class, RedLockProperties.class, ZookeeperDLockProperties.class})
+@EnableConfigurationProperties({DLockProperties.class, RedisDLockProperties.class, RedLockProperties.class, RedisShardedProperties.class, ZookeeperDLockProperties.class})
 public class LockStarterAutoConfiguration {
     @Autowired(required = false)
     private RedisDLockProperties redisDLockProperties;
@@ -50,6 +49,9 @@ public class LockStarterAutoConfiguration {
     @Autowired(required = false)
     private RedLockProperties redLockProperties;
 
+    @Autowired(required = false)
+    private RedisShardedProperties redisShardedProperties;
+
     @Autowired(required = false)
     private ZookeeperDLockProperties zookeeperDLockProperties;
 
@@ -71,29 +73,26 @@ public class LockStarterAutoConfiguration {
         return redLockProperties.getClients().stream().map(this::createRedissonClient).collect(Collectors.toList());
     }
 
+    /**
+     * 各分片的客户端，顺序与 {@code locker.sharded.shards} 一致
+     */
     @Bean
-    @ConditionalOnProperty(prefix = "locker", value = "type", havingValue = "zookeeper")
-    public ZooKeeper zooKeeper() {
-        return createZooKeeper(zookeeperDLockProperties);
+    @ConditionalOnProperty(prefix = "locker", value = "type", havingValue = "redis-sharded")
+    public List<RedissonClient> redissonShardClients() {
+        return redisShardedProperties.getShards().stream().map(this::createRedissonClient).collect(Collectors.toList());
     }
 
-    private ZooKeeper createZooKeeper(ZookeeperDLockProperties zookeeperDLockProperties) {
-        ZooKeeper zooKeeper = null;
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(prefix = "locker", value = "type", havingValue = "zookeeper")
+    public ZookeeperConnectionManager zookeeperConnectionManager() {
+        ZookeeperConnectionManager connectionManager = new ZookeeperConnectionManager(
+                zookeeperDLockProperties.getAddress(), zookeeperDLockProperties.getTimeout());
         try {
-            final CountDownLatch countDownLatch = new CountDownLatch(1);
-            zooKeeper = new ZooKeeper(zookeeperDLockProperties.getAddress(), zookeeperDLockProperties.getTimeout(), event -> {
-                if(Watcher.Event.KeeperState.SyncConnected==event.getState()){
-                    //如果收到了服务端的响应事件,连接成功
-                    countDownLatch.countDown();
-                }
-            });
-            countDownLatch.await();
-            log.info("【初始化ZooKeeper连接状态....】={}", zooKeeper.getState());
+            connectionManager.start();
         } catch (Exception e){
-            e.printStackTrace();
             log.error("【初始化ZooKeeper连接异常....】= {}", e.getMessage());
         }
-        return zooKeeper;
+        return connectionManager;
     }
 
     private RedissonClient createRedissonClient(RedisDLockProperties redisDLockProperties) {
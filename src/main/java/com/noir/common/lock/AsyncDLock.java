@@ -0,0 +1,29 @@
+package com.noir.common.lock;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * 非阻塞的异步锁
+ *
+ * 基于redisson的异步命令与zookeeper的异步回调实现，
+ * 等待期间不占用调用线程，适用于Netty/WebFlux等
+ * 事件驱动的服务。
+ *
+ * 异步获取的持有权属于返回的 {@link AsyncLockHandle} 而非
+ * 线程或锁实例，不参与 {@link ReentrantDLock} 的重入计数，
+ * 请以 {@link AsyncLockHandle#unlockAsync()} 释放，
+ * 不要与同步的 {@link Lock#unlock()} 混用。
+ */
+public interface AsyncDLock extends Lock {
+
+    /**
+     * 异步尝试获取锁
+     *
+     * @param time 最长等待时间
+     * @param unit 时间单位
+     * @return 本次获取的持有凭证，未获取到时为null
+     */
+    CompletableFuture<AsyncLockHandle> tryLockAsync(long time, TimeUnit unit);
+}
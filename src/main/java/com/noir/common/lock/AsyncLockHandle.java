@@ -0,0 +1,22 @@
+package com.noir.common.lock;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 一次异步获取的持有凭证
+ *
+ * 持有者标识属于本次获取而非锁实例，同一实例上的多次
+ * 异步获取各自持有凭证，释放时互不影响
+ * @see AsyncDLock#tryLockAsync(long, java.util.concurrent.TimeUnit)
+ */
+@FunctionalInterface
+public interface AsyncLockHandle {
+
+    /**
+     * 异步释放本次获取
+     *
+     * @return 释放结果，超过租期时以
+     * {@link com.noir.common.lock.excptions.LockExpiredException} 异常完成
+     */
+    CompletableFuture<Void> unlockAsync();
+}
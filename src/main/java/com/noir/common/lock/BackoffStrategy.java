@@ -0,0 +1,28 @@
+package com.noir.common.lock;
+
+/**
+ * 获取失败后的等待策略
+ *
+ * 锁在每次获取失败后向策略询问下一次重试前的等待时间，
+ * 支持发布/订阅的锁在等待期间收到释放通知时会提前醒来。
+ *
+ * 可通过 {@code locker.backoff.*} 全局配置，或通过
+ * {@link com.noir.common.lock.annotation.DLock#backoff()} 为单个方法指定
+ *
+ * 提供的实现
+ * @see com.noir.common.lock.impl.support.FixedBackoffStrategy
+ * @see com.noir.common.lock.impl.support.ExponentialBackoffStrategy
+ * @see com.noir.common.lock.impl.support.TtlBackoffStrategy
+ */
+public interface BackoffStrategy {
+
+    /**
+     * 下一次重试前的等待时间
+     *
+     * @param attempt 第几次等待，从1开始
+     * @param ttl 当前持有者的剩余租期(毫秒)，-1为永不过期，其余负数为未知
+     * @param remaining 剩余等待时间(毫秒)，大于0
+     * @return 等待时间(毫秒)，不超过remaining
+     */
+    long nextDelay(int attempt, long ttl, long remaining);
+}
@@ -1,7 +1,13 @@
 package com.noir.common.lock;
 
+import com.noir.common.lock.impl.locks.CompositeDLock;
+import com.noir.common.lock.impl.support.LockKeys;
+
+import java.util.Collection;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.stream.Collectors;
 
 /**
  * DLock工厂
@@ -15,6 +21,7 @@ import java.util.concurrent.locks.Lock;
  * @see com.noir.common.lock.impl.factorys.RedisSetNXExpireLockFactory
  * @see com.noir.common.lock.impl.factorys.RedisSetNXGetSetLockFactory
  * @see com.noir.common.lock.impl.factorys.RedLockFactory
+ * @see com.noir.common.lock.impl.factorys.RedisShardedLockFactory
  * @see com.noir.common.lock.impl.factorys.ZookeeperLockFactory
  */
 public interface DLockFactory {
@@ -37,4 +44,90 @@ public interface DLockFactory {
      */
     public Lock getLock(String name, long expire, TimeUnit unit);
 
+    /**
+     * 获取多资源锁，全部获取或全部不获取
+     *
+     * 默认按 {@link LockKeys#canonical(Collection)} 的顺序逐个获取，
+     * 支持的实现会以一次原子操作完成
+     *
+     * @param names 锁名称
+     * @return 锁对象
+     */
+    default Lock getMultiLock(Collection<String> names) {
+        return new CompositeDLock(LockKeys.canonical(names).stream().map(this::getLock).collect(Collectors.toList()));
+    }
+
+    /**
+     * 获取多资源锁，全部获取或全部不获取
+     *
+     * 默认按 {@link LockKeys#canonical(Collection)} 的顺序逐个获取，
+     * 支持的实现会以一次原子操作完成
+     *
+     * @param names 锁名称
+     * @param expire 过期时间
+     * @param unit 时间单位
+     * @return 锁对象
+     */
+    default Lock getMultiLock(Collection<String> names, long expire, TimeUnit unit) {
+        return new CompositeDLock(LockKeys.canonical(names).stream().map(name -> getLock(name, expire, unit)).collect(Collectors.toList()));
+    }
+
+    /**
+     * 是否支持读写锁，不支持时使用读写锁模式注解的应用在启动时失败
+     *
+     * @return 默认不支持
+     */
+    default boolean supportsReadWriteLock() {
+        return false;
+    }
+
+    /**
+     * 是否支持信号量，不支持时使用信号量注解的应用在启动时失败
+     *
+     * @return 默认不支持
+     */
+    default boolean supportsSemaphore() {
+        return false;
+    }
+
+    /**
+     * 获取读写锁，读锁之间互不等待
+     *
+     * 默认不支持，支持的实现会覆盖，并同时覆盖 {@link #supportsReadWriteLock()}
+     *
+     * @param name 锁名称
+     * @return 读写锁对象
+     */
+    default ReadWriteLock getReadWriteLock(String name) {
+        throw new UnsupportedOperationException("read write lock is not supported by " + getClass().getSimpleName());
+    }
+
+    /**
+     * 获取信号量，集群范围内最多limit个许可同时被持有
+     *
+     * 默认不支持，支持的实现会覆盖，并同时覆盖 {@link #supportsSemaphore()}
+     *
+     * @param name 信号量名称
+     * @param limit 总许可数
+     * @return 信号量对象
+     */
+    default DistributedSemaphore getSemaphore(String name, int limit) {
+        throw new UnsupportedOperationException("semaphore is not supported by " + getClass().getSimpleName());
+    }
+
+    /**
+     * 获取信号量，集群范围内最多limit个许可同时被持有
+     *
+     * 默认不支持，支持的实现会覆盖
+     *
+     * @param name 信号量名称
+     * @param limit 总许可数
+     * @param lease 许可租期
+     * @param unit 时间单位
+     * @return 信号量对象
+     */
+    default DistributedSemaphore getSemaphore(String name, int limit, long lease, TimeUnit unit) {
+        throw new UnsupportedOperationException("semaphore is not supported by " + getClass().getSimpleName());
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,38 @@
+package com.noir.common.lock;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 分布式信号量
+ *
+ * 限制集群范围内同时持有许可的数量，用于"最多N个并发"
+ * 而非互斥的场景，如调用限流的外部接口。
+ *
+ * 每个许可带有租期(redis)或随会话存在(zookeeper)，持有者
+ * 宕机后许可自动归还。许可不属于线程，可以在其他线程释放，
+ * 不可重入。
+ *
+ * 具体实现
+ * @see com.noir.common.lock.impl.locks.RedisSemaphore
+ * @see com.noir.common.lock.impl.locks.ZookeeperSemaphore
+ */
+public interface DistributedSemaphore {
+
+    /**
+     * 获取许可
+     *
+     * @param permits 许可数量，不能超过信号量的总许可数
+     * @param timeout 最长等待时间
+     * @param unit 时间单位
+     * @return 是否获取成功
+     * @throws InterruptedException interruptedException
+     */
+    boolean acquire(int permits, long timeout, TimeUnit unit) throws InterruptedException;
+
+    /**
+     * 归还通过本实例获取的许可
+     *
+     * @param permits 许可数量
+     */
+    void release(int permits);
+}
@@ -1,6 +1,10 @@
 package com.noir.common.lock;
 
+import java.util.Collection;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Supplier;
 
 /**
  * 具有加锁逻辑的服务接口
@@ -8,10 +12,18 @@ import java.util.concurrent.Callable;
  * 提供了lambda表达式的上锁支持，标定锁名称
  * 与对应的Callable或者Runnable即可实现对
  * 块级逻辑的资源锁定，对于多个资源的锁定可以
- * 通过多级嵌套进行实现，同样的，因为默认实现
+ * 传入key集合一次性获取(全部获取或全部不获取)，
+ * 也可以通过多级嵌套进行实现，同样的，因为默认实现
  * 的工程均实现了可重入接口 {@link ReentrantDLock}
  * 在未使用自定义的DLockFactory时均可重入
  *
+ * 等待时间为 {@code locker.acquire-timeout}，多个key共用，
+ * 且不超过当前线程的截止时间，也可以通过lockAndExecuteUntil
+ * 直接指定截止时间
+ *
+ * 异步接口要求锁实现 {@link AsyncDLock}，等待锁与
+ * 执行任务期间均不占用调用线程，异步持有属于本次获取，不可重入
+ *
  * 具体的实现
  * @see com.noir.common.lock.impl.LockableServiceImpl
  */
@@ -37,6 +49,96 @@ public interface LockableService {
      */
     void lockAndExecute(String key, LockerRunnable runnable) throws Exception;
 
+    /**
+     * 根据多个key一次性加锁(全部获取或全部不获取), 执行callable任务
+     *
+     * @param keys     加锁的键值
+     * @param callable 执行的操作
+     * @param <T>      callable任务返回的结果类型
+     * @return callable任务返回的结果
+     * @throws Exception callable任务执行过程中产生的异常
+     */
+    <T> T lockAndExecute(Collection<String> keys, Callable<T> callable) throws Exception;
+
+    /**
+     * 根据多个key一次性加锁(全部获取或全部不获取)，执行runnable任务
+     *
+     * @param keys     加锁的键值
+     * @param runnable 执行的操作
+     * @throws Exception runnable任务执行过程中产生的异常
+     */
+    void lockAndExecute(Collection<String> keys, LockerRunnable runnable) throws Exception;
+
+    /**
+     * 根据key在截止时间前加锁, 执行callable任务
+     *
+     * @param key      加锁的键值
+     * @param deadline 获取锁的截止时间(毫秒时间戳)
+     * @param callable 执行的操作
+     * @param <T>      callable任务返回的结果类型
+     * @return callable任务返回的结果
+     * @throws Exception callable任务执行过程中产生的异常
+     */
+    <T> T lockAndExecuteUntil(String key, long deadline, Callable<T> callable) throws Exception;
+
+    /**
+     * 根据多个key在截止时间前一次性加锁(全部获取或全部不获取), 执行callable任务
+     *
+     * @param keys     加锁的键值
+     * @param deadline 获取全部锁的截止时间(毫秒时间戳)
+     * @param callable 执行的操作
+     * @param <T>      callable任务返回的结果类型
+     * @return callable任务返回的结果
+     * @throws Exception callable任务执行过程中产生的异常
+     */
+    <T> T lockAndExecuteUntil(Collection<String> keys, long deadline, Callable<T> callable) throws Exception;
+
+    /**
+     * 根据key仅尝试一次加锁，获取到时执行callable任务，不等待
+     *
+     * @param key      加锁的键值
+     * @param callable 执行的操作
+     * @param <T>      callable任务返回的结果类型
+     * @return callable任务返回的结果
+     * @throws Exception 锁已被占用时为
+     * {@link com.noir.common.lock.excptions.TryLockFailException}，
+     * 或callable任务执行过程中产生的异常
+     */
+    <T> T tryLockAndExecute(String key, Callable<T> callable) throws Exception;
+
+    /**
+     * 根据key仅尝试一次加锁，获取到时执行runnable任务，不等待
+     *
+     * @param key      加锁的键值
+     * @param runnable 执行的操作
+     * @return 是否执行，锁已被占用时跳过并返回false
+     * @throws Exception runnable任务执行过程中产生的异常
+     */
+    boolean tryLockAndExecute(String key, LockerRunnable runnable) throws Exception;
+
+    /**
+     * 根据key异步加锁，获取后执行异步任务，任务完成后异步解锁
+     *
+     * @param key    加锁的键值
+     * @param action 返回异步结果的操作
+     * @param <T>    任务返回的结果类型
+     * @return 任务的结果，未获取到锁时以
+     * {@link com.noir.common.lock.excptions.TryLockFailException} 异常完成
+     */
+    <T> CompletableFuture<T> lockAndExecuteAsync(String key, Supplier<? extends CompletionStage<T>> action);
+
+    /**
+     * 根据key获取信号量许可(集群范围内最多limit个同时执行)，执行callable任务
+     *
+     * @param key      信号量的键值
+     * @param limit    总许可数
+     * @param callable 执行的操作
+     * @param <T>      callable任务返回的结果类型
+     * @return callable任务返回的结果
+     * @throws Exception callable任务执行过程中产生的异常
+     */
+    <T> T acquireAndExecute(String key, int limit, Callable<T> callable) throws Exception;
+
     /**
      * 带异常抛出的runnable
      */
@@ -1,16 +1,43 @@
 package com.noir.common.lock;
 
-import java.util.ArrayList;
-import java.util.List;
+import com.noir.common.lock.impl.support.BackoffContext;
+import com.noir.common.lock.impl.support.DeadlineContext;
+import com.noir.common.lock.impl.support.TtlBackoffStrategy;
+
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.Lock;
 
 /**
  * 可重入DLock拓展
  *
- * 使用thread local实现锁状态标定，如拓展实现
- * 自定义的锁实现，请务必在解锁后 {@link ReentrantDLock#exit(String)}
- * 以保证状态的清除
+ * 使用thread local记录当前线程对每把锁(以锁名标识)
+ * 的持有次数，仅在首次获取时访问后端，重入时只累加
+ * 计数且不产生新的对象，仅在最后一次释放时释放后端资源。
+ * 线程不再持有任何锁时清除thread local，避免线程池中
+ * 的线程残留状态。
+ *
+ * 锁实例可能被工厂缓存并由多个线程共用，本次获取在后端
+ * 的持有者标识(如owner id、节点路径)应随持有记录保存在
+ * thread local中({@link ReentrantDLock#enter(String, Object)})，
+ * 而非锁实例上，避免租期过期后其他线程以同一实例获取时被误释放。
+ *
+ * 如拓展实现自定义的锁实现，请在获取前通过
+ * {@link ReentrantDLock#reenter(String)} 判断重入，
+ * 首次获取成功后 {@link ReentrantDLock#enter(String)}，
+ * 解锁时仅在 {@link ReentrantDLock#exit(String)} 返回
+ * true时释放后端资源，每次等待重试前调用
+ * {@link ReentrantDLock#onRetry()} 以便统计，等待时间通过
+ * {@link ReentrantDLock#backoffStrategy(BackoffStrategy)} 获取
+ *
+ * {@link Lock#tryLock()} 应仅尝试一次、不等待，
+ * {@link ReentrantDLock#lock()} 与 {@link ReentrantDLock#lockInterruptibly()}
+ * 默认以 {@link Lock#tryLock(long, TimeUnit)} 分段等待直到获取，
+ * 等待的截止时间通过 {@link DeadlineContext#deadline(long, TimeUnit)} 计算，
+ * 不超过当前线程的截止时间
  *
  * 提供的四种实现
  * @see com.noir.common.lock.impl.locks.RedLockWrapper
@@ -19,29 +46,235 @@ import java.util.concurrent.locks.Lock;
  * @see com.noir.common.lock.impl.locks.ZookeeperLock
  */
 public abstract class ReentrantDLock implements Lock {
-    private static final ThreadLocal<List<String>> localLocks = new ThreadLocal<>();
+    private static final ThreadLocal<Map<String, Hold>> localHolds = new ThreadLocal<>();
+
+    /**
+     * 阻塞获取时每段的等待时间(毫秒)
+     */
+    private static final long LOCK_WAIT_MILLIS = 30000;
+
+    /**
+     * 等待重试的监听，未设置时为null
+     */
+    private final AtomicReference<Runnable> retryListener = new AtomicReference<>();
+
+    /**
+     * 配置的等待策略，未设置时为null
+     */
+    private volatile BackoffStrategy backoffStrategy;
+
+    /**
+     * 阻塞直到获取，等待期间不响应中断，返回前恢复中断标记
+     *
+     * 不受当前线程的截止时间限制
+     */
+    @Override
+    public void lock() {
+        boolean interrupted = false;
+        long deadline = DeadlineContext.clear();
+        try {
+            while (true) {
+                try {
+                    if (tryLock(LOCK_WAIT_MILLIS, TimeUnit.MILLISECONDS)) {
+                        break;
+                    }
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } finally {
+            DeadlineContext.restore(deadline);
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 阻塞直到获取或被中断
+     *
+     * 不受当前线程的截止时间限制
+     */
+    @Override
+    public void lockInterruptibly() throws InterruptedException {
+        long deadline = DeadlineContext.clear();
+        try {
+            while (!tryLock(LOCK_WAIT_MILLIS, TimeUnit.MILLISECONDS)) {
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+            }
+        } finally {
+            DeadlineContext.restore(deadline);
+        }
+    }
+
+    /**
+     * 在截止时间前获取
+     *
+     * @param deadline 毫秒时间戳
+     * @return 是否获取成功
+     * @throws InterruptedException interruptedException
+     */
+    public boolean tryLockUntil(long deadline) throws InterruptedException {
+        return DeadlineContext.tryLockUntil(this, deadline);
+    }
+
+    /**
+     * 设置等待重试的监听，用于指标统计
+     *
+     * 锁实例可能被工厂缓存并共用，仅首次设置生效，已设置时不覆盖
+     *
+     * @return 是否由本次调用设置
+     */
+    public boolean installRetryListener(Runnable retryListener) {
+        return this.retryListener.compareAndSet(null, retryListener);
+    }
+
+    /**
+     * 设置获取失败后的等待策略，为null时使用锁的默认策略
+     */
+    public void setBackoffStrategy(BackoffStrategy backoffStrategy) {
+        this.backoffStrategy = backoffStrategy;
+    }
+
+    /**
+     * 本次获取使用的等待策略，依次为当前线程指定的策略、
+     * 锁上配置的策略、锁的默认策略
+     *
+     * @param defaultStrategy 锁的默认策略
+     */
+    protected BackoffStrategy backoffStrategy(BackoffStrategy defaultStrategy) {
+        BackoffStrategy strategy = BackoffContext.current();
+        if (Objects.nonNull(strategy)) {
+            return strategy;
+        }
+        strategy = backoffStrategy;
+        return Objects.nonNull(strategy) ? strategy : defaultStrategy;
+    }
 
+    /**
+     * 没有释放通知、只能轮询的锁使用的等待策略
+     *
+     * 忽略等待至租期到期的 {@link TtlBackoffStrategy}，轮询时
+     * 它会一直等到持有者的租期结束，租期未知时则不停重试
+     *
+     * @param defaultStrategy 锁的默认策略
+     */
+    protected BackoffStrategy pollingBackoffStrategy(BackoffStrategy defaultStrategy) {
+        BackoffStrategy strategy = backoffStrategy(defaultStrategy);
+        return strategy instanceof TtlBackoffStrategy ? defaultStrategy : strategy;
+    }
+
+    /**
+     * 记录一次等待重试
+     */
+    protected void onRetry() {
+        Runnable listener = retryListener.get();
+        if (Objects.nonNull(listener)) {
+            listener.run();
+        }
+    }
+
+    /**
+     * 当前线程是否持有该锁
+     */
     protected boolean isEntered(String lockName) {
-        List<String> locks = localLocks.get();
-        if (Objects.isNull(locks)) {
+        Map<String, Hold> holds = localHolds.get();
+        return Objects.nonNull(holds) && holds.containsKey(lockName);
+    }
+
+    /**
+     * 当前线程已持有时累加持有次数
+     *
+     * @return 是否为重入
+     */
+    protected boolean reenter(String lockName) {
+        Map<String, Hold> holds = localHolds.get();
+        if (Objects.isNull(holds)) {
+            return false;
+        }
+        Hold hold = holds.get(lockName);
+        if (Objects.isNull(hold)) {
             return false;
         }
-        return locks.contains(lockName);
+        hold.count++;
+        return true;
     }
 
+    /**
+     * 记录一次获取
+     */
     protected void enter(String lockName) {
-        List<String> locks = localLocks.get();
-        if (Objects.isNull(locks)) {
-            localLocks.set(new ArrayList<>());
-            locks = localLocks.get();
+        enter(lockName, null);
+    }
+
+    /**
+     * 记录一次获取，首次获取时同时记录后端的持有者标识
+     *
+     * @param token 持有者标识，重入时忽略
+     */
+    protected void enter(String lockName, Object token) {
+        Map<String, Hold> holds = localHolds.get();
+        if (Objects.isNull(holds)) {
+            holds = new HashMap<>(4);
+            localHolds.set(holds);
+        }
+        Hold hold = holds.get(lockName);
+        if (Objects.isNull(hold)) {
+            holds.put(lockName, new Hold(token));
+        } else {
+            hold.count++;
         }
-        locks.add(lockName);
     }
 
-    protected void exit(String lockName) {
-        List<String> locks = localLocks.get();
-        if (Objects.nonNull(locks)) {
-            locks.remove(lockName);
+    /**
+     * 当前线程首次获取时记录的持有者标识，未持有时为null
+     */
+    protected Object holdToken(String lockName) {
+        Map<String, Hold> holds = localHolds.get();
+        if (Objects.isNull(holds)) {
+            return null;
+        }
+        Hold hold = holds.get(lockName);
+        return Objects.isNull(hold) ? null : hold.token;
+    }
+
+    /**
+     * 记录一次释放
+     *
+     * @return 是否需要释放后端资源，即最后一次释放
+     * @throws IllegalMonitorStateException 当前线程并未持有
+     */
+    protected boolean exit(String lockName) {
+        Map<String, Hold> holds = localHolds.get();
+        Hold hold = Objects.isNull(holds) ? null : holds.get(lockName);
+        if (Objects.isNull(hold)) {
+            throw new IllegalMonitorStateException("current thread does not hold lock " + lockName);
+        }
+        if (--hold.count > 0) {
+            return false;
+        }
+        holds.remove(lockName);
+        if (holds.isEmpty()) {
+            localHolds.remove();
+        }
+        return true;
+    }
+
+    /**
+     * 持有次数
+     */
+    private static final class Hold {
+        private int count = 1;
+
+        /**
+         * 后端的持有者标识
+         */
+        private final Object token;
+
+        private Hold(Object token) {
+            this.token = token;
         }
     }
-}
\ No newline at end of file
+}
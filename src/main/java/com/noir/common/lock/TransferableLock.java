@@ -0,0 +1,27 @@
+package com.noir.common.lock;
+
+import java.util.concurrent.locks.Lock;
+
+/**
+ * 可跨线程移交持有权的锁
+ *
+ * 后端资源的持有者标识绑定在锁实例而非线程上时，
+ * 可以在不释放后端资源的前提下将持有权从一个线程
+ * 移交给另一个线程，本地合并层以此将分布式锁直接
+ * 交给在本JVM内排队的下一个线程。
+ *
+ * 持有者与线程绑定的实现(如redisson红锁)不应实现该接口
+ * @see com.noir.common.lock.impl.locks.LocalCoalescingLock
+ */
+public interface TransferableLock extends Lock {
+
+    /**
+     * 当前线程放弃持有标记，后端资源保持锁定
+     */
+    void detach();
+
+    /**
+     * 当前线程接管已锁定的后端资源
+     */
+    void attach();
+}
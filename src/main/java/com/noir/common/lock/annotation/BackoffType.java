@@ -0,0 +1,28 @@
+package com.noir.common.lock.annotation;
+
+/**
+ * 获取失败后的等待策略
+ *
+ * @see com.noir.common.lock.BackoffStrategy
+ */
+public enum BackoffType {
+    /**
+     * 使用全局配置，未配置时使用锁的默认策略
+     */
+    DEFAULT,
+
+    /**
+     * 固定间隔，间隔为 {@code locker.backoff.base}
+     */
+    FIXED,
+
+    /**
+     * 指数退避与随机抖动
+     */
+    EXPONENTIAL,
+
+    /**
+     * 等待至持有者的租期到期
+     */
+    TTL
+}
@@ -41,5 +41,26 @@ import java.lang.annotation.*;
 public @interface DLock {
     String[] value();
 
+    /**
+     * 等待时间(秒)，多个资源共用，不超过当前请求的剩余时间
+     */
     int timeOutSecond() default 30;
+
+    /**
+     * 锁模式，默认互斥
+     */
+    LockMode mode() default LockMode.EXCLUSIVE;
+
+    /**
+     * 仅尝试一次，已被其他持有者占用时不等待，直接抛出
+     * {@link com.noir.common.lock.excptions.TryLockFailException}，
+     * 适用于应跳过而非排队的幂等任务
+     */
+    boolean failFast() default false;
+
+    /**
+     * 获取失败后的等待策略，默认使用 {@code locker.backoff.type}
+     * 全局配置，对zookeeper不生效
+     */
+    BackoffType backoff() default BackoffType.DEFAULT;
 }
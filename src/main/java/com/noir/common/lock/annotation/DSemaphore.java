@@ -0,0 +1,33 @@
+package com.noir.common.lock.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * 注解式分布式信号量支持
+ *
+ * 在标定的方法执行前获取许可，执行结束后归还，
+ * 集群范围内最多limit个调用同时执行，资源名同样
+ * 支持SpEL解析，如 {@code @DSemaphore(value = "partner_#{#partnerId}", limit = 10)}
+ *
+ * 许可不可重入，嵌套使用时每层各占用许可
+ * @see com.noir.common.lock.aop.DSemaphoreAnnotationAdvice
+ * @see com.noir.common.lock.DistributedSemaphore
+ */
+@Target({ElementType.METHOD, ElementType.ANNOTATION_TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+@Inherited
+public @interface DSemaphore {
+    String value();
+
+    /**
+     * 总许可数
+     */
+    int limit();
+
+    /**
+     * 每次调用占用的许可数
+     */
+    int permits() default 1;
+
+    int timeOutSecond() default 30;
+}
@@ -0,0 +1,24 @@
+package com.noir.common.lock.annotation;
+
+/**
+ * 注解式锁的模式
+ *
+ * READ与WRITE通过 {@link com.noir.common.lock.DLockFactory#getReadWriteLock(String)}
+ * 获取读写锁，读锁之间互不等待
+ */
+public enum LockMode {
+    /**
+     * 互斥锁
+     */
+    EXCLUSIVE,
+
+    /**
+     * 读锁
+     */
+    READ,
+
+    /**
+     * 写锁
+     */
+    WRITE
+}
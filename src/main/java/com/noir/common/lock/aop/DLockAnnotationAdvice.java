@@ -1,30 +1,34 @@
 package com.noir.common.lock.aop;
 
+import com.noir.common.lock.BackoffStrategy;
 import com.noir.common.lock.DLockFactory;
+import com.noir.common.lock.annotation.BackoffType;
 import com.noir.common.lock.annotation.DLock;
+import com.noir.common.lock.annotation.LockMode;
 import com.noir.common.lock.excptions.ErrorParseLockKey;
 import com.noir.common.lock.excptions.TryLockFailException;
+import com.noir.common.lock.impl.locks.CompositeDLock;
+import com.noir.common.lock.impl.support.BackoffContext;
+import com.noir.common.lock.impl.support.BackoffStrategies;
+import com.noir.common.lock.impl.support.DeadlineContext;
+import com.noir.common.lock.impl.support.LockKeys;
 import org.aopalliance.intercept.MethodInterceptor;
 import org.aopalliance.intercept.MethodInvocation;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.context.ApplicationContext;
-import org.springframework.context.expression.BeanFactoryResolver;
-import org.springframework.core.LocalVariableTableParameterNameDiscoverer;
 import org.springframework.core.annotation.AnnotatedElementUtils;
-import org.springframework.expression.ExpressionParser;
-import org.springframework.expression.ParseException;
-import org.springframework.expression.common.TemplateParserContext;
-import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.expression.Expression;
 import org.springframework.expression.spel.support.StandardEvaluationContext;
 import org.springframework.stereotype.Component;
-import org.springframework.util.StringUtils;
 
 import java.lang.reflect.Method;
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
 
 /**
  * 具体的注解解析advice
@@ -36,6 +40,21 @@ import java.util.concurrent.locks.Lock;
  * 拓展提供了对方法参数的SpEL解析，可以通过如
  * {@code @DLock("#{#xxx}")} 来获取传入参
  * 数的解析与资源的上锁
+ * @see LockKeyResolver
+ *
+ * 参数为null时资源名中解析为"null"。标定多个资源时去重并按
+ * {@link LockKeys#canonical(java.util.Collection)} 排序，通过
+ * {@link DLockFactory#getMultiLock(java.util.Collection)}
+ * 一次性获取，全部获取或全部不获取
+ *
+ * {@code mode}为READ或WRITE时通过 {@link DLockFactory#getReadWriteLock(String)}
+ * 获取读锁或写锁，多个资源时逐个获取
+ *
+ * {@code timeOutSecond}为全部资源共用的等待时间，并且不超过
+ * {@link DeadlineContext} 中当前线程的截止时间
+ *
+ * {@code backoff}不为DEFAULT时通过 {@link BackoffContext} 为本次
+ * 获取指定等待策略
  *
  * 资源锁依赖 {@link DLockFactory}来获取实现了
  * {@link Lock} 的实例并对资源进行后续操作，如有
@@ -48,10 +67,13 @@ public class DLockAnnotationAdvice implements MethodInterceptor {
     private DLockFactory lockFactory;
 
     @Autowired
-    private ApplicationContext applicationContext;
+    private LockKeyResolver keyResolver;
 
-    // method params discover
-    private final LocalVariableTableParameterNameDiscoverer parameterNameDiscoverer = new LocalVariableTableParameterNameDiscoverer();
+    @Autowired
+    private BackoffStrategies backoffStrategies;
+
+    // 方法 -> 注解元数据，避免每次调用重复查找注解、读取class文件与解析表达式
+    private final Map<Method, LockMetadata> metadataCache = new ConcurrentHashMap<>();
 
     @Override
     public Object invoke(MethodInvocation invocation) throws Throwable {
@@ -61,71 +83,105 @@ public class DLockAnnotationAdvice implements MethodInterceptor {
     private Object doLock(MethodInvocation invocation) throws Throwable {
         Object[] args = invocation.getArguments();
         Method method = invocation.getMethod();
-        Class<?> clz = method.getDeclaringClass();
 
-        DLock dLock = AnnotatedElementUtils.findMergedAnnotation(clz, DLock.class);
-        DLock methodDLock = AnnotatedElementUtils.findMergedAnnotation(method, DLock.class);
-        if (Objects.nonNull(methodDLock)) {
-            dLock = methodDLock;
-        }
-        assert dLock != null;
+        LockMetadata metadata = getMetadata(method);
+        DLock dLock = metadata.dLock;
 
-        // 创建解析器
-        ExpressionParser parser = new SpelExpressionParser();
         // 创建上下文
-        StandardEvaluationContext ctx = creteCtx(method, args);
+        StandardEvaluationContext ctx = keyResolver.createContext(metadata.parameterNames, args);
 
-        List<Lock> locks = new LinkedList<>();
-        for (String lockResourceEL : dLock.value()) {
+        List<String> lockResources = new ArrayList<>(metadata.keyExpressions.length);
+        for (Expression keyExpression : metadata.keyExpressions) {
             // el parse
-            String lockResource = parseKey(parser, ctx, lockResourceEL);
-            locks.add(lockFactory.getLock(lockResource));
+            lockResources.add(keyResolver.resolve(keyExpression, ctx));
         }
 
+        // 单个资源无需规范化
+        Lock lock = getLock(dLock.mode(), lockResources.size() == 1 ? lockResources : LockKeys.canonical(lockResources));
+        boolean locked = dLock.failFast() ? lock.tryLock() : tryLock(lock, dLock);
+        if (!locked) {
+            throw new TryLockFailException();
+        }
         try {
-            for (Lock lock:locks) {
-                if (!lock.tryLock(dLock.timeOutSecond(), TimeUnit.SECONDS)) {
-                    throw new TryLockFailException();
-                }
-            }
             return invocation.proceed();
         } finally {
-            for (Lock lock:locks) {
-                if (lock != null) {
-                    lock.unlock();
-                }
-            }
+            lock.unlock();
         }
     }
 
     /**
-     * SpEL解析
+     * 在同一截止时间前获取全部资源，注解指定了等待策略时仅在本次获取期间生效
      */
-    private String parseKey(ExpressionParser parser, StandardEvaluationContext ctx, String key) throws ErrorParseLockKey {
-        if (StringUtils.isEmpty(key)) return "";
+    private boolean tryLock(Lock lock, DLock dLock) throws InterruptedException {
+        long deadline = DeadlineContext.deadline(dLock.timeOutSecond(), TimeUnit.SECONDS);
+        if (dLock.backoff() == BackoffType.DEFAULT) {
+            return DeadlineContext.tryLockUntil(lock, deadline);
+        }
+        BackoffStrategy previous = BackoffContext.set(backoffStrategies.get(dLock.backoff()));
         try {
-            return parser.parseExpression(key, new TemplateParserContext()).getValue(ctx, String.class);
-        } catch (ParseException e) {
-            throw new ErrorParseLockKey();
+            return DeadlineContext.tryLockUntil(lock, deadline);
+        } finally {
+            BackoffContext.restore(previous);
         }
     }
 
     /**
-     * 初始化解析上下文
+     * 按模式获取锁
      */
-    private StandardEvaluationContext creteCtx(Method method, Object[] args) {
-        String[] paraNameArr = parameterNameDiscoverer.getParameterNames(method);
-
-        //SpEL上下文
-        StandardEvaluationContext context = new StandardEvaluationContext();
-        //把方法参数放入SpEL上下文中
-        if (Objects.nonNull(paraNameArr)) {
-            for (int i = 0; i < paraNameArr.length; i++) {
-                context.setVariable(paraNameArr[i], args[i]);
-            }
+    private Lock getLock(LockMode mode, List<String> lockResources) {
+        if (mode == LockMode.EXCLUSIVE) {
+            // 多个资源时一次性获取，全部获取或全部不获取
+            return lockResources.size() == 1
+                    ? lockFactory.getLock(lockResources.get(0))
+                    : lockFactory.getMultiLock(lockResources);
+        }
+        List<Lock> locks = new ArrayList<>(lockResources.size());
+        for (String lockResource : lockResources) {
+            ReadWriteLock readWriteLock = lockFactory.getReadWriteLock(lockResource);
+            locks.add(mode == LockMode.READ ? readWriteLock.readLock() : readWriteLock.writeLock());
+        }
+        return locks.size() == 1 ? locks.get(0) : new CompositeDLock(locks);
+    }
+
+    /**
+     * 获取方法的注解元数据，首次调用时解析并缓存
+     */
+    private LockMetadata getMetadata(Method method) throws ErrorParseLockKey {
+        LockMetadata metadata = metadataCache.get(method);
+        if (Objects.nonNull(metadata)) {
+            return metadata;
+        }
+
+        DLock dLock = AnnotatedElementUtils.findMergedAnnotation(method, DLock.class);
+        if (Objects.isNull(dLock)) {
+            dLock = AnnotatedElementUtils.findMergedAnnotation(method.getDeclaringClass(), DLock.class);
+        }
+        assert dLock != null;
+
+        Expression[] keyExpressions = new Expression[dLock.value().length];
+        for (int i = 0; i < keyExpressions.length; i++) {
+            keyExpressions[i] = keyResolver.parseExpression(dLock.value()[i]);
+        }
+
+        metadata = new LockMetadata(dLock, keyResolver.parameterNames(method), keyExpressions);
+        LockMetadata existing = metadataCache.putIfAbsent(method, metadata);
+        return Objects.nonNull(existing) ? existing : metadata;
+    }
+
+    /**
+     * 方法上解析后的锁元数据
+     */
+    private static class LockMetadata {
+        private final DLock dLock;
+
+        private final String[] parameterNames;
+
+        private final Expression[] keyExpressions;
+
+        private LockMetadata(DLock dLock, String[] parameterNames, Expression[] keyExpressions) {
+            this.dLock = dLock;
+            this.parameterNames = parameterNames;
+            this.keyExpressions = keyExpressions;
         }
-        // bean ctx support
-        context.setBeanResolver(new BeanFactoryResolver(applicationContext));
-        return context;
     }
 }
@@ -0,0 +1,77 @@
+package com.noir.common.lock.aop;
+
+import com.noir.common.lock.DLockFactory;
+import com.noir.common.lock.annotation.DLock;
+import com.noir.common.lock.annotation.DSemaphore;
+import com.noir.common.lock.annotation.LockMode;
+import org.springframework.aop.framework.autoproxy.AutoProxyUtils;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Method;
+import java.util.Objects;
+
+/**
+ * 启动时校验注解用到的锁特性
+ *
+ * 方法或类上的 {@link DLock} 为READ/WRITE模式、或方法上有
+ * {@link DSemaphore}，而当前 {@link DLockFactory} 不支持读写锁
+ * 或信号量时，在容器启动完成前失败，而非在首次调用时才抛出
+ * {@link UnsupportedOperationException}
+ */
+@Component
+public class DLockFeatureVerifier implements SmartInitializingSingleton {
+    @Autowired
+    private DLockFactory lockFactory;
+
+    @Autowired
+    private ConfigurableListableBeanFactory beanFactory;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        boolean readWrite = lockFactory.supportsReadWriteLock();
+        boolean semaphore = lockFactory.supportsSemaphore();
+        if (readWrite && semaphore) {
+            return;
+        }
+        for (String beanName : beanFactory.getBeanDefinitionNames()) {
+            Class<?> type;
+            try {
+                // 代理时取原始类，注解位于原始类上
+                type = AutoProxyUtils.determineTargetClass(beanFactory, beanName);
+            } catch (Throwable e) {
+                // 无法解析类型的bean不做校验
+                continue;
+            }
+            if (Objects.nonNull(type)) {
+                verify(beanName, ClassUtils.getUserClass(type), readWrite, semaphore);
+            }
+        }
+    }
+
+    private void verify(String beanName, Class<?> type, boolean readWrite, boolean semaphore) {
+        DLock classLock = AnnotatedElementUtils.findMergedAnnotation(type, DLock.class);
+        ReflectionUtils.doWithMethods(type, method -> {
+            DLock dLock = AnnotatedElementUtils.findMergedAnnotation(method, DLock.class);
+            if (Objects.isNull(dLock)) {
+                dLock = classLock;
+            }
+            if (!readWrite && Objects.nonNull(dLock) && dLock.mode() != LockMode.EXCLUSIVE) {
+                throw unsupported("read write lock", beanName, method);
+            }
+            if (!semaphore && AnnotatedElementUtils.hasAnnotation(method, DSemaphore.class)) {
+                throw unsupported("semaphore", beanName, method);
+            }
+        });
+    }
+
+    private IllegalStateException unsupported(String feature, String beanName, Method method) {
+        return new IllegalStateException(feature + " is not supported by " + lockFactory.getClass().getSimpleName()
+                + ", used by bean '" + beanName + "' at " + method);
+    }
+}
@@ -0,0 +1,93 @@
+package com.noir.common.lock.aop;
+
+import com.noir.common.lock.DLockFactory;
+import com.noir.common.lock.DistributedSemaphore;
+import com.noir.common.lock.annotation.DSemaphore;
+import com.noir.common.lock.excptions.ErrorParseLockKey;
+import com.noir.common.lock.excptions.TryLockFailException;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.expression.Expression;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 信号量注解解析advice
+ *
+ * 方法执行前通过 {@link DLockFactory#getSemaphore(String, int)}
+ * 获取许可，执行结束后归还，资源名的SpEL解析与
+ * {@link DLockAnnotationAdvice} 共用 {@link LockKeyResolver}
+ * @see com.noir.common.lock.annotation.DSemaphore
+ */
+@Component
+public class DSemaphoreAnnotationAdvice implements MethodInterceptor {
+    @Autowired
+    private DLockFactory lockFactory;
+
+    @Autowired
+    private LockKeyResolver keyResolver;
+
+    // 方法 -> 注解元数据
+    private final Map<Method, SemaphoreMetadata> metadataCache = new ConcurrentHashMap<>();
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        SemaphoreMetadata metadata = getMetadata(invocation.getMethod());
+        DSemaphore dSemaphore = metadata.dSemaphore;
+
+        String resource = keyResolver.resolve(metadata.keyExpression, keyResolver.createContext(metadata.parameterNames, invocation.getArguments()));
+
+        DistributedSemaphore semaphore = lockFactory.getSemaphore(resource, dSemaphore.limit());
+        if (!semaphore.acquire(dSemaphore.permits(), dSemaphore.timeOutSecond(), TimeUnit.SECONDS)) {
+            throw new TryLockFailException();
+        }
+        try {
+            return invocation.proceed();
+        } finally {
+            semaphore.release(dSemaphore.permits());
+        }
+    }
+
+    /**
+     * 获取方法的注解元数据，首次调用时解析并缓存
+     */
+    private SemaphoreMetadata getMetadata(Method method) throws ErrorParseLockKey {
+        SemaphoreMetadata metadata = metadataCache.get(method);
+        if (Objects.nonNull(metadata)) {
+            return metadata;
+        }
+
+        DSemaphore dSemaphore = AnnotatedElementUtils.findMergedAnnotation(method, DSemaphore.class);
+        assert dSemaphore != null;
+
+        Expression keyExpression = keyResolver.parseExpression(dSemaphore.value());
+
+        metadata = new SemaphoreMetadata(dSemaphore, keyResolver.parameterNames(method), keyExpression);
+        SemaphoreMetadata existing = metadataCache.putIfAbsent(method, metadata);
+        return Objects.nonNull(existing) ? existing : metadata;
+    }
+
+    /**
+     * 方法上解析后的信号量元数据
+     */
+    private static class SemaphoreMetadata {
+        private final DSemaphore dSemaphore;
+
+        private final String[] parameterNames;
+
+        private final Expression keyExpression;
+
+        private SemaphoreMetadata(DSemaphore dSemaphore, String[] parameterNames, Expression keyExpression) {
+            this.dSemaphore = dSemaphore;
+            this.parameterNames = parameterNames;
+            this.keyExpression = keyExpression;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.noir.common.lock.aop;
+
+import com.noir.common.lock.annotation.DSemaphore;
+import org.aopalliance.aop.Advice;
+import org.springframework.aop.Pointcut;
+import org.springframework.aop.support.AbstractPointcutAdvisor;
+import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * 信号量方法注解advisor
+ *
+ * 用于标定方法上有 {@link com.noir.common.lock.annotation.DSemaphore}
+ * 的切点与对应AnnotationAdvice
+ *
+ * @see com.noir.common.lock.aop.DSemaphoreAnnotationAdvice
+ */
+@Component
+public class DSemaphoreMethodAnnotationAdvisor extends AbstractPointcutAdvisor {
+
+    @Autowired
+    private DSemaphoreAnnotationAdvice dSemaphoreAnnotationAdvice;
+
+    @Override
+    public Pointcut getPointcut() {
+        return new AnnotationMatchingPointcut(null, DSemaphore.class, true);
+    }
+
+    @Override
+    public Advice getAdvice() {
+        return dSemaphoreAnnotationAdvice;
+    }
+}
@@ -0,0 +1,98 @@
+package com.noir.common.lock.aop;
+
+import com.noir.common.lock.excptions.ErrorParseLockKey;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.expression.BeanFactoryResolver;
+import org.springframework.core.LocalVariableTableParameterNameDiscoverer;
+import org.springframework.expression.Expression;
+import org.springframework.expression.ExpressionParser;
+import org.springframework.expression.ParseException;
+import org.springframework.expression.common.TemplateParserContext;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelParserConfiguration;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.lang.reflect.Method;
+import java.util.Objects;
+
+/**
+ * 注解资源名的SpEL解析
+ *
+ * 可以通过如 {@code "#{#xxx}"} 引用方法参数，{@code "#{@xxx}"}
+ * 引用容器中的bean。表达式与参数名应在首次调用时解析并随
+ * 方法的注解元数据缓存，每次调用仅创建上下文并求值。
+ *
+ * 由 {@link DLockAnnotationAdvice} 与 {@link DSemaphoreAnnotationAdvice} 共用
+ */
+@Component
+public class LockKeyResolver {
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    // method params discover
+    private final LocalVariableTableParameterNameDiscoverer parameterNameDiscoverer = new LocalVariableTableParameterNameDiscoverer();
+
+    // 解析器线程安全，开启编译模式以在多次执行后编译为字节码
+    private final ExpressionParser parser = new SpelExpressionParser(
+            new SpelParserConfiguration(SpelCompilerMode.MIXED, LockKeyResolver.class.getClassLoader()));
+
+    private final TemplateParserContext templateParserContext = new TemplateParserContext();
+
+    private volatile BeanFactoryResolver beanFactoryResolver;
+
+    /**
+     * 方法的参数名，编译时未保留参数名时为null
+     */
+    public String[] parameterNames(Method method) {
+        return parameterNameDiscoverer.getParameterNames(method);
+    }
+
+    /**
+     * SpEL预解析，空key返回null
+     */
+    public Expression parseExpression(String key) throws ErrorParseLockKey {
+        if (StringUtils.isEmpty(key)) return null;
+        try {
+            return parser.parseExpression(key, templateParserContext);
+        } catch (ParseException e) {
+            throw new ErrorParseLockKey();
+        }
+    }
+
+    /**
+     * 初始化解析上下文
+     *
+     * @param parameterNames 方法的参数名
+     * @param args 方法的参数
+     */
+    public StandardEvaluationContext createContext(String[] parameterNames, Object[] args) {
+        //SpEL上下文
+        StandardEvaluationContext context = new StandardEvaluationContext();
+        //把方法参数放入SpEL上下文中
+        if (Objects.nonNull(parameterNames)) {
+            for (int i = 0; i < parameterNames.length; i++) {
+                context.setVariable(parameterNames[i], args[i]);
+            }
+        }
+        // bean ctx support
+        BeanFactoryResolver resolver = beanFactoryResolver;
+        if (Objects.isNull(resolver)) {
+            resolver = new BeanFactoryResolver(applicationContext);
+            beanFactoryResolver = resolver;
+        }
+        context.setBeanResolver(resolver);
+        return context;
+    }
+
+    /**
+     * SpEL解析，空key为空字符串，求值为null时为"null"，与拼接锁名时一致
+     */
+    public String resolve(Expression keyExpression, StandardEvaluationContext ctx) {
+        if (Objects.isNull(keyExpression)) return "";
+        return String.valueOf(keyExpression.getValue(ctx, String.class));
+    }
+}
@@ -1,17 +1,25 @@
 package com.noir.common.lock.impl;
 
+import com.noir.common.lock.AsyncDLock;
 import com.noir.common.lock.DLockFactory;
+import com.noir.common.lock.DistributedSemaphore;
 import com.noir.common.lock.LockableService;
 import com.noir.common.lock.excptions.NotGetLocException;
 import com.noir.common.lock.excptions.TryLockFailException;
+import com.noir.common.lock.impl.support.DeadlineContext;
+import com.noir.common.lock.properties.DLockProperties;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
+import java.util.function.Supplier;
 
 /**
  * 加锁逻辑的服务
@@ -27,33 +35,56 @@ import java.util.concurrent.locks.Lock;
 @ConditionalOnProperty(prefix = "locker", value = "enabled", havingValue = "true")
 public class LockableServiceImpl implements LockableService {
 
-    /**
-     * 默认获取redis锁的等待时间(秒)
-     */
-    private static final long DEFAULT_ACQUIRE_LOCK_TIME_OUT = 30;
-
-    /**
-     * 默认的redis锁有效时间(分钟)
-     */
-    private static final long DEFAULT_LOCK_EXPIRED_TIME = 5;
-
     @Autowired
     private DLockFactory lockFactory;
 
+    @Autowired
+    private DLockProperties properties;
+
     @Override
     public <T> T lockAndExecute(String key, Callable<T> callable) throws Exception {
-        Lock lock = lockFactory.getLock(key, DEFAULT_LOCK_EXPIRED_TIME, TimeUnit.MINUTES);
+        return execute(lockFactory.getLock(key, properties.getLeaseTime(), TimeUnit.MINUTES), key, callable);
+    }
+
+    @Override
+    public void lockAndExecute(String key, LockerRunnable runnable) throws Exception {
+        execute(lockFactory.getLock(key, properties.getLeaseTime(), TimeUnit.MINUTES), key, () -> {
+            runnable.run();
+            return null;
+        });
+    }
+
+    @Override
+    public <T> T lockAndExecute(Collection<String> keys, Callable<T> callable) throws Exception {
+        return execute(lockFactory.getMultiLock(keys, properties.getLeaseTime(), TimeUnit.MINUTES), keys, callable);
+    }
+
+    @Override
+    public void lockAndExecute(Collection<String> keys, LockerRunnable runnable) throws Exception {
+        execute(lockFactory.getMultiLock(keys, properties.getLeaseTime(), TimeUnit.MINUTES), keys, () -> {
+            runnable.run();
+            return null;
+        });
+    }
+
+    @Override
+    public <T> T lockAndExecuteUntil(String key, long deadline, Callable<T> callable) throws Exception {
+        return execute(lockFactory.getLock(key, properties.getLeaseTime(), TimeUnit.MINUTES), key, deadline, callable);
+    }
+
+    @Override
+    public <T> T lockAndExecuteUntil(Collection<String> keys, long deadline, Callable<T> callable) throws Exception {
+        return execute(lockFactory.getMultiLock(keys, properties.getLeaseTime(), TimeUnit.MINUTES), keys, deadline, callable);
+    }
+
+    @Override
+    public <T> T tryLockAndExecute(String key, Callable<T> callable) throws Exception {
+        Lock lock = tryAcquire(key);
         if (lock == null) {
-            log.error("获取锁失败. key: {}", key);
-            throw new NotGetLocException();
+            throw new TryLockFailException();
         }
 
         try {
-            if (!lock.tryLock(DEFAULT_ACQUIRE_LOCK_TIME_OUT, TimeUnit.SECONDS)) {
-                log.error("尝试加锁失败. key: {}", key);
-                throw new TryLockFailException();
-            }
-
             return callable.call();
         } finally {
             lock.unlock();
@@ -61,20 +92,119 @@ public class LockableServiceImpl implements LockableService {
     }
 
     @Override
-    public void lockAndExecute(String key, LockerRunnable runnable) throws Exception {
-        Lock lock = lockFactory.getLock(key, DEFAULT_LOCK_EXPIRED_TIME, TimeUnit.MINUTES);
+    public boolean tryLockAndExecute(String key, LockerRunnable runnable) throws Exception {
+        Lock lock = tryAcquire(key);
+        if (lock == null) {
+            log.info("锁已被占用，跳过执行. key: {}", key);
+            return false;
+        }
+
+        try {
+            runnable.run();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 仅尝试一次加锁
+     *
+     * @return 获取到的锁，已被占用时为null
+     */
+    private Lock tryAcquire(String key) throws NotGetLocException {
+        Lock lock = lockFactory.getLock(key, properties.getLeaseTime(), TimeUnit.MINUTES);
         if (lock == null) {
             log.error("获取锁失败. key: {}", key);
             throw new NotGetLocException();
         }
+        return lock.tryLock() ? lock : null;
+    }
 
-        try {
-            if (!lock.tryLock(DEFAULT_ACQUIRE_LOCK_TIME_OUT, TimeUnit.SECONDS)) {
+    @Override
+    public <T> CompletableFuture<T> lockAndExecuteAsync(String key, Supplier<? extends CompletionStage<T>> action) {
+        Lock lock = lockFactory.getLock(key, properties.getLeaseTime(), TimeUnit.MINUTES);
+        if (lock == null) {
+            log.error("获取锁失败. key: {}", key);
+            return failed(new NotGetLocException());
+        }
+        if (!(lock instanceof AsyncDLock)) {
+            return failed(new UnsupportedOperationException(lock.getClass().getName() + " does not support async locking"));
+        }
+
+        AsyncDLock asyncLock = (AsyncDLock) lock;
+        return asyncLock.tryLockAsync(properties.getAcquireTimeout(), TimeUnit.SECONDS).thenCompose(handle -> {
+            if (handle == null) {
                 log.error("尝试加锁失败. key: {}", key);
-                throw new TryLockFailException();
+                return failed(new TryLockFailException());
             }
 
-            runnable.run();
+            CompletionStage<T> stage;
+            try {
+                stage = action.get();
+            } catch (Throwable e) {
+                stage = failed(e);
+            }
+            if (stage == null) {
+                // 未返回stage同样视为失败，锁仍需释放
+                stage = failed(new NullPointerException("action returned null stage. key: " + key));
+            }
+
+            CompletableFuture<T> result = new CompletableFuture<>();
+            stage.whenComplete((value, error) -> handle.unlockAsync().whenComplete((ignored, unlockError) -> {
+                if (error != null) {
+                    result.completeExceptionally(error);
+                } else if (unlockError != null) {
+                    result.completeExceptionally(unlockError);
+                } else {
+                    result.complete(value);
+                }
+            }));
+            return result;
+        });
+    }
+
+    @Override
+    public <T> T acquireAndExecute(String key, int limit, Callable<T> callable) throws Exception {
+        DistributedSemaphore semaphore = lockFactory.getSemaphore(key, limit, properties.getLeaseTime(), TimeUnit.MINUTES);
+        if (!semaphore.acquire(1, properties.getAcquireTimeout(), TimeUnit.SECONDS)) {
+            log.error("尝试获取许可失败. key: {}", key);
+            throw new TryLockFailException();
+        }
+
+        try {
+            return callable.call();
+        } finally {
+            semaphore.release(1);
+        }
+    }
+
+    private static <T> CompletableFuture<T> failed(Throwable error) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        result.completeExceptionally(error);
+        return result;
+    }
+
+    private <T> T execute(Lock lock, Object key, Callable<T> callable) throws Exception {
+        return execute(lock, key, DeadlineContext.deadline(properties.getAcquireTimeout(), TimeUnit.SECONDS), callable);
+    }
+
+    /**
+     * 截止时间对多资源锁的全部key共用
+     */
+    private <T> T execute(Lock lock, Object key, long deadline, Callable<T> callable) throws Exception {
+        if (lock == null) {
+            log.error("获取锁失败. key: {}", key);
+            throw new NotGetLocException();
+        }
+
+        if (!DeadlineContext.tryLockUntil(lock, deadline)) {
+            log.error("尝试加锁失败. key: {}", key);
+            throw new TryLockFailException();
+        }
+
+        try {
+            return callable.call();
         } finally {
             lock.unlock();
         }
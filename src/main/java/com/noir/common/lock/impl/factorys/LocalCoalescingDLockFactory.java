@@ -0,0 +1,93 @@
+package com.noir.common.lock.impl.factorys;
+
+import com.noir.common.lock.DLockFactory;
+import com.noir.common.lock.DistributedSemaphore;
+import com.noir.common.lock.impl.locks.LocalCoalescingLock;
+import com.noir.common.lock.impl.support.LocalLockSlots;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+
+/**
+ * JVM内竞争合并的工厂装饰
+ *
+ * 包装任意 {@link DLockFactory}，返回 {@link LocalCoalescingLock}，
+ * 在 {@code locker.local.enabled=true} 时由
+ * {@link LocalCoalescingPostProcessor} 包装IoC容器中的工厂。
+ *
+ * 同名锁在本JVM内共享一把分布式锁实例，其租期以首个
+ * 创建者传入的为准。
+ */
+public class LocalCoalescingDLockFactory implements DLockFactory {
+
+    private final DLockFactory delegate;
+
+    private final int maxHandoff;
+
+    private final LocalLockSlots slots = new LocalLockSlots();
+
+    public LocalCoalescingDLockFactory(DLockFactory delegate, int maxHandoff) {
+        this.delegate = delegate;
+        this.maxHandoff = maxHandoff;
+    }
+
+    @Override
+    public Lock getLock(String name) {
+        return new LocalCoalescingLock(slots, name, () -> delegate.getLock(name), maxHandoff);
+    }
+
+    @Override
+    public Lock getLock(String name, long expire, TimeUnit unit) {
+        return new LocalCoalescingLock(slots, name, () -> delegate.getLock(name, expire, unit), maxHandoff);
+    }
+
+    /**
+     * 多资源锁使用被包装工厂的实现(如一次往返的原子多锁)，不做合并
+     */
+    @Override
+    public Lock getMultiLock(Collection<String> names) {
+        return delegate.getMultiLock(names);
+    }
+
+    @Override
+    public Lock getMultiLock(Collection<String> names, long expire, TimeUnit unit) {
+        return delegate.getMultiLock(names, expire, unit);
+    }
+
+    @Override
+    public boolean supportsReadWriteLock() {
+        return delegate.supportsReadWriteLock();
+    }
+
+    @Override
+    public boolean supportsSemaphore() {
+        return delegate.supportsSemaphore();
+    }
+
+    /**
+     * 读锁之间本就互不等待，不做合并
+     */
+    @Override
+    public ReadWriteLock getReadWriteLock(String name) {
+        return delegate.getReadWriteLock(name);
+    }
+
+    /**
+     * 信号量允许多个持有者，不做合并
+     */
+    @Override
+    public DistributedSemaphore getSemaphore(String name, int limit) {
+        return delegate.getSemaphore(name, limit);
+    }
+
+    @Override
+    public DistributedSemaphore getSemaphore(String name, int limit, long lease, TimeUnit unit) {
+        return delegate.getSemaphore(name, limit, lease, unit);
+    }
+
+    public DLockFactory getDelegate() {
+        return delegate;
+    }
+}
@@ -0,0 +1,40 @@
+package com.noir.common.lock.impl.factorys;
+
+import com.noir.common.lock.DLockFactory;
+import com.noir.common.lock.properties.DLockProperties;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+
+/**
+ * 竞争合并的工厂包装
+ *
+ * 在 {@code locker.local.enabled=true} 时将容器中的
+ * {@link DLockFactory} 包装为 {@link LocalCoalescingDLockFactory}，
+ * 对自定义拓展的工厂同样生效。
+ */
+@Component
+@ConditionalOnProperty(prefix = "locker.local", value = "enabled", havingValue = "true")
+public class LocalCoalescingPostProcessor implements BeanPostProcessor, Ordered {
+
+    static final int ORDER = 0;
+
+    @Autowired
+    private ObjectProvider<DLockProperties> properties;
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof DLockFactory && !(bean instanceof LocalCoalescingDLockFactory)) {
+            return new LocalCoalescingDLockFactory((DLockFactory) bean, properties.getObject().getLocal().getMaxHandoff());
+        }
+        return bean;
+    }
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+}
@@ -0,0 +1,99 @@
+package com.noir.common.lock.impl.factorys;
+
+import com.noir.common.lock.DLockFactory;
+import com.noir.common.lock.DistributedSemaphore;
+import com.noir.common.lock.impl.locks.MeteredLock;
+import com.noir.common.lock.impl.support.DLockMetrics;
+import com.noir.common.lock.impl.support.LockKeys;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+
+/**
+ * 记录指标的工厂装饰
+ *
+ * 包装任意 {@link DLockFactory}，返回 {@link MeteredLock}，
+ * 在 {@code locker.metrics.enabled=true} 时由
+ * {@link MeteredPostProcessor} 包装IoC容器中的工厂。
+ */
+public class MeteredDLockFactory implements DLockFactory {
+
+    private final DLockFactory delegate;
+
+    private final DLockMetrics metrics;
+
+    public MeteredDLockFactory(DLockFactory delegate, DLockMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Lock getLock(String name) {
+        return new MeteredLock(delegate.getLock(name), metrics, name);
+    }
+
+    @Override
+    public Lock getLock(String name, long expire, TimeUnit unit) {
+        return new MeteredLock(delegate.getLock(name, expire, unit), metrics, name);
+    }
+
+    @Override
+    public Lock getMultiLock(Collection<String> names) {
+        return new MeteredLock(delegate.getMultiLock(names), metrics, String.join(",", LockKeys.canonical(names)));
+    }
+
+    @Override
+    public Lock getMultiLock(Collection<String> names, long expire, TimeUnit unit) {
+        return new MeteredLock(delegate.getMultiLock(names, expire, unit), metrics, String.join(",", LockKeys.canonical(names)));
+    }
+
+    @Override
+    public boolean supportsReadWriteLock() {
+        return delegate.supportsReadWriteLock();
+    }
+
+    @Override
+    public boolean supportsSemaphore() {
+        return delegate.supportsSemaphore();
+    }
+
+    /**
+     * 读锁与写锁分别以 {@code name:read}、{@code name:write} 记录
+     */
+    @Override
+    public ReadWriteLock getReadWriteLock(String name) {
+        ReadWriteLock delegateLock = delegate.getReadWriteLock(name);
+        Lock readLock = new MeteredLock(delegateLock.readLock(), metrics, name + ":read");
+        Lock writeLock = new MeteredLock(delegateLock.writeLock(), metrics, name + ":write");
+        return new ReadWriteLock() {
+            @Override
+            public Lock readLock() {
+                return readLock;
+            }
+
+            @Override
+            public Lock writeLock() {
+                return writeLock;
+            }
+        };
+    }
+
+    /**
+     * 信号量不记录锁指标
+     */
+    @Override
+    public DistributedSemaphore getSemaphore(String name, int limit) {
+        return delegate.getSemaphore(name, limit);
+    }
+
+    @Override
+    public DistributedSemaphore getSemaphore(String name, int limit, long lease, TimeUnit unit) {
+        return delegate.getSemaphore(name, limit, lease, unit);
+    }
+
+    public DLockFactory getDelegate() {
+        return delegate;
+    }
+}
@@ -0,0 +1,54 @@
+package com.noir.common.lock.impl.factorys;
+
+import com.noir.common.lock.DLockFactory;
+import com.noir.common.lock.impl.support.DLockMetrics;
+import com.noir.common.lock.properties.DLockProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+
+import java.util.Objects;
+
+/**
+ * 指标记录的工厂包装
+ *
+ * 在 {@code locker.metrics.enabled=true} 且存在 {@link MeterRegistry}
+ * 时将容器中的 {@link DLockFactory} 包装为 {@link MeteredDLockFactory}，
+ * 在竞争合并之后包装，使指标覆盖本地排队的等待。
+ */
+@Component
+@ConditionalOnClass(name = "io.micrometer.core.instrument.MeterRegistry")
+@ConditionalOnProperty(prefix = "locker.metrics", value = "enabled", havingValue = "true")
+public class MeteredPostProcessor implements BeanPostProcessor, Ordered {
+
+    @Autowired
+    private ObjectProvider<MeterRegistry> meterRegistry;
+
+    @Autowired
+    private ObjectProvider<DLockProperties> properties;
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!(bean instanceof DLockFactory) || bean instanceof MeteredDLockFactory) {
+            return bean;
+        }
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        if (Objects.isNull(registry)) {
+            return bean;
+        }
+        DLockProperties lockProperties = properties.getObject();
+        String type = Objects.nonNull(lockProperties.getType()) ? lockProperties.getType() : beanName;
+        DLockMetrics metrics = new DLockMetrics(registry, type, lockProperties.getMetrics().getMaxNameTags());
+        return new MeteredDLockFactory((DLockFactory) bean, metrics);
+    }
+
+    @Override
+    public int getOrder() {
+        return LocalCoalescingPostProcessor.ORDER + 1;
+    }
+}
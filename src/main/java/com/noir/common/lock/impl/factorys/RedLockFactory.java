@@ -4,12 +4,17 @@ import com.noir.common.lock.DLockFactory;
 import com.noir.common.lock.ReentrantDLock;
 import com.noir.common.lock.impl.locks.RedLockWrapper;
 import com.noir.common.lock.impl.locks.RedisSetNXExpireLock;
+import com.noir.common.lock.annotation.BackoffType;
+import com.noir.common.lock.impl.support.BackoffStrategies;
+import com.noir.common.lock.impl.support.LockHandleCache;
+import com.noir.common.lock.properties.DLockProperties;
 import org.redisson.api.RLock;
 import org.redisson.api.RedissonClient;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PostConstruct;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
@@ -27,19 +32,37 @@ public class RedLockFactory implements DLockFactory {
     @Autowired
     private List<RedissonClient> clients;
 
+    @Autowired
+    private DLockProperties properties;
+
+    @Autowired
+    private BackoffStrategies backoffStrategies;
+
+    private LockHandleCache<Lock> handles;
+
+    /**
+     * 租期，即redisson看门狗的超时时间(毫秒)
+     */
+    private long leaseMillis;
+
+    @PostConstruct
+    public void init() {
+        handles = new LockHandleCache<>(properties.getHandleCacheSize());
+        leaseMillis = clients.get(0).getConfig().getLockWatchdogTimeout();
+    }
+
     /**
-     * 获取锁
+     * 获取锁，同名的锁实例被缓存复用
      *
      * @param name 资源名称
      * @return ReentrantDLock
      */
     public Lock getLock(String name) {
-        RLock[] rLocks = clients.stream().map(client -> client.getLock(getLockKey(name))).toArray(RLock[]::new);
-        return new RedLockWrapper(name, rLocks);
+        return handles.get(name, () -> createLock(name));
     }
 
     /**
-     * 获取锁
+     * 获取锁，红锁以redisson的看门狗续约，忽略过期时间
      *
      * @param name 资源名称
      * @param expire 过期时间
@@ -47,8 +70,20 @@ public class RedLockFactory implements DLockFactory {
      * @return ReentrantDLock
      */
     public Lock getLock(String name, long expire, TimeUnit unit) {
-        RLock[] rLocks = clients.stream().map(client -> client.getLock(getLockKey(name))).toArray(RLock[]::new);
-        return new RedLockWrapper(name, rLocks);
+        return handles.get(name, () -> createLock(name));
+    }
+
+    /**
+     * redisson的持有者为线程，锁实例可被多个线程共用
+     */
+    private Lock createLock(String name) {
+        RLock[] rLocks = new RLock[clients.size()];
+        for (int i = 0; i < rLocks.length; i++) {
+            rLocks[i] = clients.get(i).getLock(getLockKey(name));
+        }
+        RedLockWrapper lock = new RedLockWrapper(name, leaseMillis, rLocks);
+        lock.setBackoffStrategy(backoffStrategies.get(BackoffType.DEFAULT));
+        return lock;
     }
 
 
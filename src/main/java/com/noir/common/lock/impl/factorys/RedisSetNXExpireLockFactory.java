@@ -1,14 +1,33 @@
 package com.noir.common.lock.impl.factorys;
 
 import com.noir.common.lock.DLockFactory;
+import com.noir.common.lock.DistributedSemaphore;
 import com.noir.common.lock.ReentrantDLock;
+import com.noir.common.lock.annotation.BackoffType;
+import com.noir.common.lock.impl.locks.RedisReadWriteLock;
+import com.noir.common.lock.impl.locks.RedisSemaphore;
+import com.noir.common.lock.impl.locks.RedisSetNXExpireFairLock;
 import com.noir.common.lock.impl.locks.RedisSetNXExpireLock;
+import com.noir.common.lock.impl.locks.RedisSetNXExpireMultiLock;
+import com.noir.common.lock.impl.support.BackoffStrategies;
+import com.noir.common.lock.impl.support.LockHandleCache;
+import com.noir.common.lock.impl.support.LockKeys;
+import com.noir.common.lock.impl.support.RedisLockReleaseSubscriber;
+import com.noir.common.lock.impl.support.RedisLockWatchdog;
+import com.noir.common.lock.impl.support.RedisScriptRegistry;
+import com.noir.common.lock.properties.DLockProperties;
+import com.noir.common.lock.properties.RedisDLockProperties;
 import org.redisson.api.RedissonClient;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Collection;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
 
 /**
  * nx expire lock factory
@@ -25,18 +44,66 @@ public class RedisSetNXExpireLockFactory implements DLockFactory {
     @Autowired
     private RedissonClient client;
 
+    @Autowired
+    private RedisDLockProperties redisDLockProperties;
+
+    @Autowired
+    private DLockProperties properties;
+
+    @Autowired
+    private BackoffStrategies backoffStrategies;
+
+    private RedisScriptRegistry scripts;
+
+    private RedisLockReleaseSubscriber subscriber;
+
+    private RedisLockWatchdog watchdog;
+
+    private LockHandleCache<ReentrantDLock> handles;
+
+    @PostConstruct
+    public void init() {
+        // 预加载锁脚本，之后以EVALSHA调用
+        scripts = new RedisScriptRegistry(client);
+        scripts.load(RedisSetNXExpireLock.SCRIPTS);
+        scripts.load(RedisSetNXExpireMultiLock.SCRIPTS);
+        scripts.load(RedisSetNXExpireFairLock.SCRIPTS);
+        scripts.load(RedisReadWriteLock.SCRIPTS);
+        scripts.load(RedisSemaphore.SCRIPTS);
+        // 锁释放通知的订阅在工厂范围内共享
+        subscriber = new RedisLockReleaseSubscriber(client);
+        handles = new LockHandleCache<>(properties.getHandleCacheSize());
+        // 开启续约时整个工厂共用一个看门狗
+        if (properties.getWatchdog().isEnabled()) {
+            watchdog = new RedisLockWatchdog(client, scripts, properties.getWatchdog().getInterval());
+            watchdog.start();
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (watchdog != null) {
+            watchdog.shutdown();
+        }
+    }
+
     /**
-     * 获取锁
+     * 获取锁，同名的锁实例被缓存复用
      *
      * @param name 资源名称
      * @return ReentrantDLock
      */
     public ReentrantDLock getLock(String name) {
-        return new RedisSetNXExpireLock(client, nameSpace, name);
+        return handles.get(name, () -> {
+            if (isFair()) {
+                return withBackoff(new RedisSetNXExpireFairLock(scripts, subscriber, watchdog, nameSpace, name));
+            }
+            return withBackoff(new RedisSetNXExpireLock(scripts, subscriber, watchdog, nameSpace, name));
+        });
     }
 
     /**
-     * 获取锁
+     * 获取锁，同名同租期的锁实例被缓存复用
      *
      * @param name 资源名称
      * @param expire 过期时间
@@ -44,7 +111,113 @@ public class RedisSetNXExpireLockFactory implements DLockFactory {
      * @return ReentrantDLock
      */
     public ReentrantDLock getLock(String name, long expire, TimeUnit unit) {
-        return new RedisSetNXExpireLock(client, nameSpace, name, expire, unit);
+        return handles.get(LockHandleCache.key(name, expire, unit), () -> {
+            if (isFair()) {
+                return withBackoff(new RedisSetNXExpireFairLock(scripts, subscriber, watchdog, nameSpace, name, expire, unit));
+            }
+            return withBackoff(new RedisSetNXExpireLock(scripts, subscriber, watchdog, nameSpace, name, expire, unit));
+        });
+    }
+
+    /**
+     * 获取多资源锁，以一次脚本调用原子地获取全部key
+     *
+     * cluster模式下多key脚本可能跨slot，退化为逐个获取
+     *
+     * @param names 资源名称
+     * @return Lock
+     */
+    @Override
+    public Lock getMultiLock(Collection<String> names) {
+        if (isCluster()) {
+            return DLockFactory.super.getMultiLock(names);
+        }
+        return withBackoff(new RedisSetNXExpireMultiLock(scripts, subscriber, watchdog, nameSpace, LockKeys.canonical(names)));
+    }
+
+    /**
+     * 获取多资源锁，以一次脚本调用原子地获取全部key
+     *
+     * cluster模式下多key脚本可能跨slot，退化为逐个获取
+     *
+     * @param names 资源名称
+     * @param expire 过期时间
+     * @param unit 时间单位
+     * @return Lock
+     */
+    @Override
+    public Lock getMultiLock(Collection<String> names, long expire, TimeUnit unit) {
+        if (isCluster()) {
+            return DLockFactory.super.getMultiLock(names, expire, unit);
+        }
+        return withBackoff(new RedisSetNXExpireMultiLock(scripts, subscriber, watchdog, nameSpace, LockKeys.canonical(names), expire, unit));
+    }
+
+    @Override
+    public boolean supportsReadWriteLock() {
+        return true;
     }
-}
 
+    @Override
+    public boolean supportsSemaphore() {
+        return true;
+    }
+
+    /**
+     * 获取读写锁，读锁计数与写锁标记记录在同一个hash中
+     *
+     * @param name 资源名称
+     * @return ReadWriteLock
+     */
+    @Override
+    public ReadWriteLock getReadWriteLock(String name) {
+        RedisReadWriteLock lock = new RedisReadWriteLock(scripts, subscriber, nameSpace, name);
+        lock.setBackoffStrategy(backoffStrategies.get(BackoffType.DEFAULT));
+        return lock;
+    }
+
+    /**
+     * 获取信号量，许可记录在有序集合中，到期自动回收
+     *
+     * @param name 资源名称
+     * @param limit 总许可数
+     * @return DistributedSemaphore
+     */
+    @Override
+    public DistributedSemaphore getSemaphore(String name, int limit) {
+        return new RedisSemaphore(scripts, subscriber, nameSpace, name, limit);
+    }
+
+    /**
+     * 获取信号量，许可记录在有序集合中，到期自动回收
+     *
+     * @param name 资源名称
+     * @param limit 总许可数
+     * @param lease 许可租期
+     * @param unit 时间单位
+     * @return DistributedSemaphore
+     */
+    @Override
+    public DistributedSemaphore getSemaphore(String name, int limit, long lease, TimeUnit unit) {
+        return new RedisSemaphore(scripts, subscriber, nameSpace, name, limit, lease, unit);
+    }
+
+    /**
+     * 设置全局配置的等待策略，未配置时为null，即使用锁的默认策略
+     */
+    private <T extends ReentrantDLock> T withBackoff(T lock) {
+        lock.setBackoffStrategy(backoffStrategies.get(BackoffType.DEFAULT));
+        return lock;
+    }
+
+    /**
+     * 公平锁的脚本涉及锁、队列等多个key，cluster模式下退化为非公平锁
+     */
+    private boolean isFair() {
+        return properties.isFair() && !isCluster();
+    }
+
+    private boolean isCluster() {
+        return "cluster".equals(redisDLockProperties.getMode());
+    }
+}
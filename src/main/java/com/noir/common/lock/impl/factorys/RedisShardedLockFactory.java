@@ -0,0 +1,343 @@
+package com.noir.common.lock.impl.factorys;
+
+import com.noir.common.lock.DLockFactory;
+import com.noir.common.lock.DistributedSemaphore;
+import com.noir.common.lock.ReentrantDLock;
+import com.noir.common.lock.annotation.BackoffType;
+import com.noir.common.lock.impl.locks.CompositeDLock;
+import com.noir.common.lock.impl.locks.CompositeReadWriteLock;
+import com.noir.common.lock.impl.locks.CompositeSemaphore;
+import com.noir.common.lock.impl.locks.RedisReadWriteLock;
+import com.noir.common.lock.impl.locks.RedisSemaphore;
+import com.noir.common.lock.impl.locks.RedisSetNXExpireFairLock;
+import com.noir.common.lock.impl.locks.RedisSetNXExpireLock;
+import com.noir.common.lock.impl.locks.RedisSetNXExpireMultiLock;
+import com.noir.common.lock.impl.support.BackoffStrategies;
+import com.noir.common.lock.impl.support.ConsistentHashRing;
+import com.noir.common.lock.impl.support.LockHandleCache;
+import com.noir.common.lock.impl.support.LockKeys;
+import com.noir.common.lock.impl.support.RedisLockReleaseSubscriber;
+import com.noir.common.lock.impl.support.RedisLockWatchdog;
+import com.noir.common.lock.impl.support.RedisScriptRegistry;
+import com.noir.common.lock.properties.DLockProperties;
+import com.noir.common.lock.properties.RedisShardProperties;
+import com.noir.common.lock.properties.RedisShardedProperties;
+import com.noir.common.lock.properties.WatchdogProperties;
+import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.util.CollectionUtils;
+import org.springframework.util.StringUtils;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * sharded redis lock factory
+ *
+ * 以一致性哈希将锁名分布到多个独立的redis上，每个锁只在
+ * 所属分片上以 {@link RedisSetNXExpireLock} 获取，锁的吞吐
+ * 随分片数线性扩展。
+ *
+ * 分片在环上的位置由分片id决定，增删分片只影响相邻区间的锁；
+ * 配置了迁移前的环时，新旧环归属不同的锁在两个分片上依次获取，
+ * 与仍使用旧环或已使用新环的实例均互斥，滚动变更分片期间不会
+ * 出现同一把锁被两处同时持有。
+ */
+@Component
+@ConditionalOnProperty(prefix = "locker", value = "type", havingValue = "redis-sharded")
+public class RedisShardedLockFactory implements DLockFactory {
+
+    private final String nameSpace = "distributed:lock:";
+
+    @Autowired
+    private List<RedissonClient> clients;
+
+    @Autowired
+    private RedisShardedProperties shardedProperties;
+
+    @Autowired
+    private DLockProperties properties;
+
+    @Autowired
+    private BackoffStrategies backoffStrategies;
+
+    private final List<Shard> shards = new ArrayList<>();
+
+    private ConsistentHashRing<Shard> ring;
+
+    /**
+     * 迁移前的环，不在迁移中时为null
+     */
+    private ConsistentHashRing<Shard> previousRing;
+
+    private LockHandleCache<Lock> handles;
+
+    @PostConstruct
+    public void init() {
+        List<RedisShardProperties> configs = shardedProperties.getShards();
+        Map<String, Shard> byId = new LinkedHashMap<>();
+        for (int i = 0; i < configs.size(); i++) {
+            RedisShardProperties config = configs.get(i);
+            String id = StringUtils.hasText(config.getId()) ? config.getId() : "shard-" + i;
+            if (byId.containsKey(id)) {
+                throw new IllegalStateException("duplicate redis shard id " + id);
+            }
+            Shard shard = new Shard(id, clients.get(i), "cluster".equals(config.getMode()), properties.getWatchdog());
+            byId.put(id, shard);
+            shards.add(shard);
+        }
+        ring = new ConsistentHashRing<>(select(byId, shardedProperties.getRing()), shardedProperties.getVirtualNodes());
+        if (!CollectionUtils.isEmpty(shardedProperties.getPreviousRing())) {
+            previousRing = new ConsistentHashRing<>(select(byId, shardedProperties.getPreviousRing()), shardedProperties.getVirtualNodes());
+        }
+        handles = new LockHandleCache<>(properties.getHandleCacheSize());
+    }
+
+    @PreDestroy
+    public void destroy() {
+        shards.forEach(Shard::shutdown);
+    }
+
+    /**
+     * 获取锁，同名的锁实例被缓存复用
+     *
+     * @param name 资源名称
+     * @return Lock
+     */
+    public Lock getLock(String name) {
+        return handles.get(name, () -> route(name, shard -> createLock(shard, name), this::combine));
+    }
+
+    /**
+     * 获取锁，同名同租期的锁实例被缓存复用
+     *
+     * @param name 资源名称
+     * @param expire 过期时间
+     * @param unit 时间单位
+     * @return Lock
+     */
+    public Lock getLock(String name, long expire, TimeUnit unit) {
+        return handles.get(LockHandleCache.key(name, expire, unit),
+                () -> route(name, shard -> createLock(shard, name, expire, unit), this::combine));
+    }
+
+    /**
+     * 获取多资源锁，同一分片的key以一次脚本调用原子获取，
+     * 分片之间按分片id顺序逐个获取
+     *
+     * 迁移中或分片为cluster模式时退化为逐个获取
+     *
+     * @param names 资源名称
+     * @return Lock
+     */
+    @Override
+    public Lock getMultiLock(Collection<String> names) {
+        if (previousRing != null) {
+            return DLockFactory.super.getMultiLock(names);
+        }
+        List<Lock> locks = new ArrayList<>();
+        groupByShard(names).forEach((shard, group) -> locks.add(shard.cluster
+                ? DLockFactory.super.getMultiLock(group)
+                : withBackoff(new RedisSetNXExpireMultiLock(shard.scripts, shard.subscriber, shard.watchdog, nameSpace, group))));
+        return locks.size() == 1 ? locks.get(0) : new CompositeDLock(locks);
+    }
+
+    /**
+     * 获取多资源锁，同一分片的key以一次脚本调用原子获取，
+     * 分片之间按分片id顺序逐个获取
+     *
+     * 迁移中或分片为cluster模式时退化为逐个获取
+     *
+     * @param names 资源名称
+     * @param expire 过期时间
+     * @param unit 时间单位
+     * @return Lock
+     */
+    @Override
+    public Lock getMultiLock(Collection<String> names, long expire, TimeUnit unit) {
+        if (previousRing != null) {
+            return DLockFactory.super.getMultiLock(names, expire, unit);
+        }
+        List<Lock> locks = new ArrayList<>();
+        groupByShard(names).forEach((shard, group) -> locks.add(shard.cluster
+                ? DLockFactory.super.getMultiLock(group, expire, unit)
+                : withBackoff(new RedisSetNXExpireMultiLock(shard.scripts, shard.subscriber, shard.watchdog, nameSpace, group, expire, unit))));
+        return locks.size() == 1 ? locks.get(0) : new CompositeDLock(locks);
+    }
+
+    @Override
+    public boolean supportsReadWriteLock() {
+        return true;
+    }
+
+    @Override
+    public boolean supportsSemaphore() {
+        return true;
+    }
+
+    /**
+     * 获取读写锁，读锁计数与写锁标记记录在所属分片的同一个hash中
+     *
+     * @param name 资源名称
+     * @return ReadWriteLock
+     */
+    @Override
+    public ReadWriteLock getReadWriteLock(String name) {
+        return this.<ReadWriteLock>route(name, shard -> {
+            RedisReadWriteLock lock = new RedisReadWriteLock(shard.scripts, shard.subscriber, nameSpace, name);
+            lock.setBackoffStrategy(backoffStrategies.get(BackoffType.DEFAULT));
+            return lock;
+        }, (previous, current) -> new CompositeReadWriteLock(Arrays.asList(previous, current)));
+    }
+
+    /**
+     * 获取信号量，许可记录在所属分片的有序集合中
+     *
+     * @param name 资源名称
+     * @param limit 总许可数
+     * @return DistributedSemaphore
+     */
+    @Override
+    public DistributedSemaphore getSemaphore(String name, int limit) {
+        return this.<DistributedSemaphore>route(name, shard -> new RedisSemaphore(shard.scripts, shard.subscriber, nameSpace, name, limit),
+                (previous, current) -> new CompositeSemaphore(Arrays.asList(previous, current)));
+    }
+
+    /**
+     * 获取信号量，许可记录在所属分片的有序集合中
+     *
+     * @param name 资源名称
+     * @param limit 总许可数
+     * @param lease 许可租期
+     * @param unit 时间单位
+     * @return DistributedSemaphore
+     */
+    @Override
+    public DistributedSemaphore getSemaphore(String name, int limit, long lease, TimeUnit unit) {
+        return this.<DistributedSemaphore>route(name, shard -> new RedisSemaphore(shard.scripts, shard.subscriber, nameSpace, name, limit, lease, unit),
+                (previous, current) -> new CompositeSemaphore(Arrays.asList(previous, current)));
+    }
+
+    /**
+     * 按环路由，迁移中且新旧环归属不同时先旧后新组合两个分片
+     */
+    private <T> T route(String name, Function<Shard, T> create, BiFunction<T, T, T> combine) {
+        Shard current = ring.get(name);
+        if (previousRing == null) {
+            return create.apply(current);
+        }
+        Shard previous = previousRing.get(name);
+        if (previous == current) {
+            return create.apply(current);
+        }
+        return combine.apply(create.apply(previous), create.apply(current));
+    }
+
+    private Lock combine(Lock previous, Lock current) {
+        return new CompositeDLock(Arrays.asList(previous, current));
+    }
+
+    /**
+     * 按所属分片分组，分片按id排序使各实例的获取顺序一致
+     */
+    private Map<Shard, List<String>> groupByShard(Collection<String> names) {
+        Map<Shard, List<String>> groups = new TreeMap<>((a, b) -> a.id.compareTo(b.id));
+        for (String name : LockKeys.canonical(names)) {
+            groups.computeIfAbsent(ring.get(name), shard -> new ArrayList<>()).add(name);
+        }
+        return groups;
+    }
+
+    private ReentrantDLock createLock(Shard shard, String name) {
+        if (isFair(shard)) {
+            return withBackoff(new RedisSetNXExpireFairLock(shard.scripts, shard.subscriber, shard.watchdog, nameSpace, name));
+        }
+        return withBackoff(new RedisSetNXExpireLock(shard.scripts, shard.subscriber, shard.watchdog, nameSpace, name));
+    }
+
+    private ReentrantDLock createLock(Shard shard, String name, long expire, TimeUnit unit) {
+        if (isFair(shard)) {
+            return withBackoff(new RedisSetNXExpireFairLock(shard.scripts, shard.subscriber, shard.watchdog, nameSpace, name, expire, unit));
+        }
+        return withBackoff(new RedisSetNXExpireLock(shard.scripts, shard.subscriber, shard.watchdog, nameSpace, name, expire, unit));
+    }
+
+    /**
+     * 设置全局配置的等待策略，未配置时为null，即使用锁的默认策略
+     */
+    private <T extends ReentrantDLock> T withBackoff(T lock) {
+        lock.setBackoffStrategy(backoffStrategies.get(BackoffType.DEFAULT));
+        return lock;
+    }
+
+    /**
+     * 公平锁的脚本涉及锁、队列等多个key，cluster模式的分片退化为非公平锁
+     */
+    private boolean isFair(Shard shard) {
+        return properties.isFair() && !shard.cluster;
+    }
+
+    private static Map<String, Shard> select(Map<String, Shard> shards, List<String> ids) {
+        if (CollectionUtils.isEmpty(ids)) {
+            return shards;
+        }
+        Map<String, Shard> selected = new LinkedHashMap<>();
+        for (String id : ids) {
+            Shard shard = shards.get(id);
+            if (shard == null) {
+                throw new IllegalStateException("unknown redis shard id " + id);
+            }
+            selected.put(id, shard);
+        }
+        return selected;
+    }
+
+    /**
+     * 单个分片，脚本、释放通知订阅与看门狗在分片内共享
+     */
+    private static final class Shard {
+        private final String id;
+        private final boolean cluster;
+        private final RedisScriptRegistry scripts;
+        private final RedisLockReleaseSubscriber subscriber;
+        private final RedisLockWatchdog watchdog;
+
+        private Shard(String id, RedissonClient client, boolean cluster, WatchdogProperties watchdogProperties) {
+            this.id = id;
+            this.cluster = cluster;
+            this.scripts = new RedisScriptRegistry(client);
+            scripts.load(RedisSetNXExpireLock.SCRIPTS);
+            scripts.load(RedisSetNXExpireMultiLock.SCRIPTS);
+            scripts.load(RedisSetNXExpireFairLock.SCRIPTS);
+            scripts.load(RedisReadWriteLock.SCRIPTS);
+            scripts.load(RedisSemaphore.SCRIPTS);
+            this.subscriber = new RedisLockReleaseSubscriber(client);
+            if (watchdogProperties.isEnabled()) {
+                this.watchdog = new RedisLockWatchdog(client, scripts, watchdogProperties.getInterval());
+                watchdog.start();
+            } else {
+                this.watchdog = null;
+            }
+        }
+
+        private void shutdown() {
+            if (watchdog != null) {
+                watchdog.shutdown();
+            }
+        }
+    }
+}
@@ -1,16 +1,25 @@
 package com.noir.common.lock.impl.factorys;
 
 import com.noir.common.lock.DLockFactory;
+import com.noir.common.lock.DistributedSemaphore;
 import com.noir.common.lock.impl.locks.RedLockWrapper;
 import com.noir.common.lock.impl.locks.ZookeeperLock;
-import lombok.SneakyThrows;
-import org.apache.zookeeper.ZooKeeper;
+import com.noir.common.lock.impl.locks.ZookeeperMultiLock;
+import com.noir.common.lock.impl.locks.ZookeeperReadWriteLock;
+import com.noir.common.lock.impl.locks.ZookeeperSemaphore;
+import com.noir.common.lock.impl.support.LockHandleCache;
+import com.noir.common.lock.impl.support.LockKeys;
+import com.noir.common.lock.impl.support.ZookeeperConnectionManager;
+import com.noir.common.lock.properties.DLockProperties;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PostConstruct;
+import java.util.Collection;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
 
 /**
  * zookeeper lock factory
@@ -23,18 +32,78 @@ import java.util.concurrent.locks.Lock;
 public class ZookeeperLockFactory implements DLockFactory {
 
     @Autowired
-    ZooKeeper zk;
+    ZookeeperConnectionManager connections;
 
-    @SneakyThrows
+    @Autowired
+    private DLockProperties properties;
+
+    private LockHandleCache<Lock> handles;
+
+    @PostConstruct
+    public void init() {
+        handles = new LockHandleCache<>(properties.getHandleCacheSize());
+    }
+
+    /**
+     * 同名的锁实例被缓存复用
+     */
     @Override
     public Lock getLock(String name) {
-        return new ZookeeperLock(zk, name);
+        return handles.get(name, () -> new ZookeeperLock(connections, name));
     }
 
-    @SneakyThrows
+    /**
+     * zk锁没有租期，与不带过期时间的获取共用缓存
+     */
     @Override
     public Lock getLock(String name, long expire, TimeUnit unit) {
-        return new ZookeeperLock(zk, name, expire, unit);
+        return handles.get(name, () -> new ZookeeperLock(connections, name, expire, unit));
+    }
+
+    /**
+     * 一次multi事务创建全部节点
+     */
+    @Override
+    public Lock getMultiLock(Collection<String> names) {
+        return new ZookeeperMultiLock(connections, LockKeys.canonical(names));
     }
-}
 
+    /**
+     * zk锁没有租期，忽略过期时间
+     */
+    @Override
+    public Lock getMultiLock(Collection<String> names, long expire, TimeUnit unit) {
+        return new ZookeeperMultiLock(connections, LockKeys.canonical(names));
+    }
+
+    @Override
+    public boolean supportsReadWriteLock() {
+        return true;
+    }
+
+    @Override
+    public boolean supportsSemaphore() {
+        return true;
+    }
+
+    /**
+     * 读写节点以不同前缀在同一目录下排序
+     */
+    @Override
+    public ReadWriteLock getReadWriteLock(String name) {
+        return new ZookeeperReadWriteLock(connections, name);
+    }
+
+    @Override
+    public DistributedSemaphore getSemaphore(String name, int limit) {
+        return new ZookeeperSemaphore(connections, name, limit);
+    }
+
+    /**
+     * 许可节点随会话存在，忽略租期
+     */
+    @Override
+    public DistributedSemaphore getSemaphore(String name, int limit, long lease, TimeUnit unit) {
+        return new ZookeeperSemaphore(connections, name, limit);
+    }
+}
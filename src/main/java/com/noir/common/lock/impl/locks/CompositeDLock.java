@@ -0,0 +1,188 @@
+package com.noir.common.lock.impl.locks;
+
+import com.noir.common.lock.BackoffStrategy;
+import com.noir.common.lock.excptions.LockExpiredException;
+import com.noir.common.lock.impl.support.BackoffContext;
+import com.noir.common.lock.impl.support.DeadlineContext;
+import com.noir.common.lock.impl.support.ExponentialBackoffStrategy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * 多资源组合锁
+ *
+ * 不支持原子多key上锁的工厂的默认多锁实现，要么全部持有
+ * 要么全部不持有。
+ *
+ * 持有部分锁时不等待：仅在一把锁都未持有时等待被占用的锁，
+ * 获取后其余锁各尝试一次，任一失败时释放已获取的部分，退避后
+ * 再等待新的被占用锁。不同节点即使以相反顺序获取同一组资源
+ * 也不会互相等待至超时。
+ * @see com.noir.common.lock.DLockFactory#getMultiLock(java.util.Collection)
+ */
+public class CompositeDLock implements Lock {
+
+    /**
+     * 阻塞获取时每段的等待时间(毫秒)
+     */
+    private static final long LOCK_WAIT_MILLIS = 30000;
+
+    /**
+     * 释放部分持有后的默认退避，随机抖动避免多个节点同步重试
+     */
+    private static final BackoffStrategy DEFAULT_BACKOFF = new ExponentialBackoffStrategy(10, 500, 1);
+
+    private final List<Lock> locks;
+
+    public CompositeDLock(List<Lock> locks) {
+        this.locks = locks;
+    }
+
+    /**
+     * 阻塞直到获取，等待期间不响应中断，返回前恢复中断标记
+     */
+    @Override
+    public void lock() {
+        boolean interrupted = false;
+        long deadline = DeadlineContext.clear();
+        try {
+            while (true) {
+                try {
+                    if (tryLock(LOCK_WAIT_MILLIS, TimeUnit.MILLISECONDS)) {
+                        break;
+                    }
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } finally {
+            DeadlineContext.restore(deadline);
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void lockInterruptibly() throws InterruptedException {
+        long deadline = DeadlineContext.clear();
+        try {
+            while (!tryLock(LOCK_WAIT_MILLIS, TimeUnit.MILLISECONDS)) {
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+            }
+        } finally {
+            DeadlineContext.restore(deadline);
+        }
+    }
+
+    @Override
+    public boolean tryLock() {
+        return acquireOthers(-1) < 0;
+    }
+
+    @Override
+    public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+        if (locks.isEmpty()) {
+            return true;
+        }
+        long deadline = DeadlineContext.deadline(time, unit);
+        BackoffStrategy backoff = BackoffContext.current();
+        if (Objects.isNull(backoff)) {
+            backoff = DEFAULT_BACKOFF;
+        }
+        int blocked = 0;
+        int attempt = 0;
+        while (true) {
+            // 未持有任何锁，可以安全地等待
+            Lock lock = locks.get(blocked);
+            if (!lock.tryLock(Math.max(deadline - System.currentTimeMillis(), 0), TimeUnit.MILLISECONDS)) {
+                return false;
+            }
+            int failed;
+            try {
+                failed = acquireOthers(blocked);
+            } catch (RuntimeException e) {
+                lock.unlock();
+                throw e;
+            }
+            if (failed < 0) {
+                return true;
+            }
+            lock.unlock();
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                return false;
+            }
+            long wait = backoff.nextDelay(++attempt, -2, remaining);
+            if (wait > 0) {
+                Thread.sleep(wait);
+            }
+            blocked = failed;
+        }
+    }
+
+    /**
+     * 按顺序各尝试一次获取除held外的锁，任一失败时释放本次已获取的部分
+     *
+     * @param held 已持有的锁的下标，没有时为-1
+     * @return 全部获取时为-1，否则为获取失败的锁的下标
+     */
+    private int acquireOthers(int held) {
+        List<Lock> acquired = new ArrayList<>(locks.size());
+        boolean locked = false;
+        try {
+            for (int i = 0; i < locks.size(); i++) {
+                if (i == held) {
+                    continue;
+                }
+                if (!locks.get(i).tryLock()) {
+                    return i;
+                }
+                acquired.add(locks.get(i));
+            }
+            locked = true;
+            return -1;
+        } finally {
+            if (!locked) {
+                release(acquired);
+            }
+        }
+    }
+
+    @Override
+    public void unlock() {
+        release(locks);
+    }
+
+    @Override
+    public Condition newCondition() {
+        // pass
+        return null;
+    }
+
+    /**
+     * 逆序释放，全部释放后再抛出租期过期异常
+     */
+    private void release(List<Lock> acquired) {
+        LockExpiredException expired = null;
+        ListIterator<Lock> iterator = acquired.listIterator(acquired.size());
+        while (iterator.hasPrevious()) {
+            try {
+                iterator.previous().unlock();
+            } catch (LockExpiredException e) {
+                expired = e;
+            }
+        }
+        if (expired != null) {
+            throw expired;
+        }
+    }
+}
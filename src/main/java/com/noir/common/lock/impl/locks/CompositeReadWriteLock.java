@@ -0,0 +1,35 @@
+package com.noir.common.lock.impl.locks;
+
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.stream.Collectors;
+
+/**
+ * 多后端组合读写锁
+ *
+ * 读锁与写锁分别在每个后端上按顺序获取，任一获取失败时
+ * 释放已获取的部分。
+ * @see CompositeDLock
+ */
+public class CompositeReadWriteLock implements ReadWriteLock {
+
+    private final Lock readLock;
+
+    private final Lock writeLock;
+
+    public CompositeReadWriteLock(List<ReadWriteLock> locks) {
+        this.readLock = new CompositeDLock(locks.stream().map(ReadWriteLock::readLock).collect(Collectors.toList()));
+        this.writeLock = new CompositeDLock(locks.stream().map(ReadWriteLock::writeLock).collect(Collectors.toList()));
+    }
+
+    @Override
+    public Lock readLock() {
+        return readLock;
+    }
+
+    @Override
+    public Lock writeLock() {
+        return writeLock;
+    }
+}
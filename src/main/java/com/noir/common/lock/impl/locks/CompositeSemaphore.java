@@ -0,0 +1,58 @@
+package com.noir.common.lock.impl.locks;
+
+import com.noir.common.lock.DistributedSemaphore;
+import com.noir.common.lock.impl.support.DeadlineContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 多后端组合信号量
+ *
+ * 在每个后端上按顺序获取相同数量的许可，任一获取失败时
+ * 归还已获取的部分，释放时逆序归还全部。
+ */
+public class CompositeSemaphore implements DistributedSemaphore {
+
+    private final List<DistributedSemaphore> semaphores;
+
+    public CompositeSemaphore(List<DistributedSemaphore> semaphores) {
+        this.semaphores = semaphores;
+    }
+
+    @Override
+    public boolean acquire(int permits, long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = DeadlineContext.deadline(timeout, unit);
+        List<DistributedSemaphore> acquired = new ArrayList<>(semaphores.size());
+        boolean success = false;
+        try {
+            for (DistributedSemaphore semaphore : semaphores) {
+                long remaining = Math.max(deadline - System.currentTimeMillis(), 0);
+                if (!semaphore.acquire(permits, remaining, TimeUnit.MILLISECONDS)) {
+                    return false;
+                }
+                acquired.add(semaphore);
+            }
+            success = true;
+            return true;
+        } finally {
+            if (!success) {
+                release(acquired, permits);
+            }
+        }
+    }
+
+    @Override
+    public void release(int permits) {
+        release(semaphores, permits);
+    }
+
+    private void release(List<DistributedSemaphore> acquired, int permits) {
+        ListIterator<DistributedSemaphore> iterator = acquired.listIterator(acquired.size());
+        while (iterator.hasPrevious()) {
+            iterator.previous().release(permits);
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.noir.common.lock.impl.locks;
+
+import com.noir.common.lock.TransferableLock;
+import com.noir.common.lock.impl.support.DeadlineContext;
+import com.noir.common.lock.impl.support.LocalLockSlots;
+import lombok.SneakyThrows;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Supplier;
+
+/**
+ * JVM内竞争合并的锁
+ *
+ * 包装任意 {@link Lock}，同一JVM内同名锁的竞争者先在
+ * 本地公平锁上排队，仅队首线程与其他节点竞争分布式锁，
+ * 使热点key上发往redis/zk的请求量不随单机线程数增长。
+ *
+ * 分布式锁实现了 {@link TransferableLock} 时，释放时若本地
+ * 仍有排队线程，则不释放后端资源而是直接移交给下一个线程，
+ * 移交次数达到上限后释放后端资源以避免其他节点饿死；
+ * 移交后的线程沿用当前租期，未开启续约时请注意租期长度。
+ *
+ * 可重入由本地锁保证，嵌套的加解锁不会访问后端。
+ * @see com.noir.common.lock.impl.factorys.LocalCoalescingDLockFactory
+ */
+public class LocalCoalescingLock implements Lock {
+
+    private final LocalLockSlots slots;
+
+    private final String name;
+
+    private final Supplier<Lock> supplier;
+
+    private final int maxHandoff;
+
+    public LocalCoalescingLock(LocalLockSlots slots, String name, Supplier<Lock> supplier, int maxHandoff) {
+        this.slots = slots;
+        this.name = name;
+        this.supplier = supplier;
+        this.maxHandoff = maxHandoff;
+    }
+
+    @Override
+    @SneakyThrows
+    public void lock() {
+        acquire(local -> {
+            local.lock();
+            return true;
+        }, inner -> {
+            inner.lock();
+            return true;
+        });
+    }
+
+    @Override
+    public void lockInterruptibly() throws InterruptedException {
+        acquire(local -> {
+            local.lockInterruptibly();
+            return true;
+        }, inner -> {
+            inner.lockInterruptibly();
+            return true;
+        });
+    }
+
+    @Override
+    @SneakyThrows
+    public boolean tryLock() {
+        return acquire(Lock::tryLock, Lock::tryLock);
+    }
+
+    @Override
+    public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+        long deadline = DeadlineContext.deadline(time, unit);
+        return acquire(
+                local -> local.tryLock(time, unit),
+                inner -> inner.tryLock(Math.max(deadline - System.currentTimeMillis(), 0), TimeUnit.MILLISECONDS));
+    }
+
+    @Override
+    public void unlock() {
+        LocalLockSlots.Slot slot = slots.get(name);
+        if (slot == null || !slot.getLocal().isHeldByCurrentThread()) {
+            throw new IllegalMonitorStateException();
+        }
+        try {
+            if (slot.getLocal().getHoldCount() == 1) {
+                release(slot);
+            }
+        } finally {
+            slot.getLocal().unlock();
+            slots.leave(slot);
+        }
+    }
+
+    @Override
+    public Condition newCondition() {
+        // pass
+        return null;
+    }
+
+    private boolean acquire(Acquirer local, Acquirer inner) throws InterruptedException {
+        LocalLockSlots.Slot slot = slots.enter(name, supplier);
+        boolean locked = false;
+        try {
+            if (!local.acquire(slot.getLocal())) {
+                return false;
+            }
+            try {
+                locked = takeOver(slot);
+                if (!locked && inner.acquire(slot.getInner())) {
+                    slot.setOwned(true);
+                    slot.setHandoffs(0);
+                    locked = true;
+                }
+            } finally {
+                if (!locked) {
+                    slot.getLocal().unlock();
+                }
+            }
+            return locked;
+        } finally {
+            if (!locked) {
+                slots.leave(slot);
+            }
+        }
+    }
+
+    /**
+     * 本地重入或接手上一个线程移交的分布式锁
+     */
+    private boolean takeOver(LocalLockSlots.Slot slot) {
+        if (slot.getLocal().getHoldCount() > 1) {
+            return true;
+        }
+        if (slot.isOwned()) {
+            if (slot.getInner() instanceof TransferableLock) {
+                ((TransferableLock) slot.getInner()).attach();
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 最外层释放，本地有排队线程时移交，否则释放后端资源
+     */
+    private void release(LocalLockSlots.Slot slot) {
+        Lock inner = slot.getInner();
+        if (inner instanceof TransferableLock
+                && slot.getLocal().hasQueuedThreads()
+                && slot.getHandoffs() < maxHandoff) {
+            ((TransferableLock) inner).detach();
+            slot.setHandoffs(slot.getHandoffs() + 1);
+            return;
+        }
+        slot.setOwned(false);
+        slot.setHandoffs(0);
+        inner.unlock();
+    }
+
+    @FunctionalInterface
+    private interface Acquirer {
+        boolean acquire(Lock lock) throws InterruptedException;
+    }
+}
@@ -0,0 +1,207 @@
+package com.noir.common.lock.impl.locks;
+
+import com.noir.common.lock.AsyncDLock;
+import com.noir.common.lock.AsyncLockHandle;
+import com.noir.common.lock.ReentrantDLock;
+import com.noir.common.lock.excptions.LockExpiredException;
+import com.noir.common.lock.impl.support.DLockMetrics;
+import lombok.SneakyThrows;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * 记录指标的锁
+ *
+ * 包装任意 {@link Lock}，记录获取耗时、持有时长、超时、
+ * 超过租期与重入次数，被包装的锁继承自 {@link ReentrantDLock}
+ * 时同时记录其等待重试次数。
+ *
+ * 以独立的key记录重入，仅最外层的获取与释放计入持有时长，
+ * 获取时间随当前线程的持有记录(异步获取随持有凭证)保存，
+ * 读锁等可被多个线程同时持有的锁各自计时。
+ *
+ * 被包装的锁实例可能被工厂缓存并共用，重试监听仅在首次包装时设置
+ * @see com.noir.common.lock.impl.factorys.MeteredDLockFactory
+ */
+public class MeteredLock extends ReentrantDLock implements AsyncDLock {
+    private static final String KEY_PREFIX = "metered@";
+
+    private final Lock delegate;
+
+    private final DLockMetrics metrics;
+
+    private final String key;
+
+    private final String nameTag;
+
+    public MeteredLock(Lock delegate, DLockMetrics metrics, String name) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+        this.key = KEY_PREFIX + name;
+        this.nameTag = metrics.nameTag(name);
+        if (delegate instanceof ReentrantDLock) {
+            ((ReentrantDLock) delegate).installRetryListener(() -> metrics.countRetry(nameTag));
+        }
+    }
+
+    @Override
+    @SneakyThrows
+    public void lock() {
+        acquire(inner -> {
+            inner.lock();
+            return true;
+        });
+    }
+
+    @Override
+    public void lockInterruptibly() throws InterruptedException {
+        acquire(inner -> {
+            inner.lockInterruptibly();
+            return true;
+        });
+    }
+
+    @Override
+    @SneakyThrows
+    public boolean tryLock() {
+        return acquire(Lock::tryLock);
+    }
+
+    @Override
+    public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+        return acquire(inner -> inner.tryLock(time, unit));
+    }
+
+    private boolean acquire(Acquirer acquirer) throws InterruptedException {
+        if (isEntered(key)) {
+            metrics.countReentrant(nameTag);
+            boolean locked = acquirer.acquire(delegate);
+            if (locked) {
+                enter(key);
+            }
+            return locked;
+        }
+
+        long start = System.nanoTime();
+        metrics.waiting().incrementAndGet();
+        boolean locked;
+        try {
+            locked = acquirer.acquire(delegate);
+        } catch (InterruptedException | RuntimeException e) {
+            metrics.recordAcquire(nameTag, System.nanoTime() - start, "error");
+            throw e;
+        } finally {
+            metrics.waiting().decrementAndGet();
+        }
+        long acquiredAt = onAcquired(start, locked);
+        if (locked) {
+            enter(key, acquiredAt);
+        }
+        return locked;
+    }
+
+    /**
+     * @return 获取时间
+     */
+    private long onAcquired(long start, boolean locked) {
+        long now = System.nanoTime();
+        if (locked) {
+            metrics.recordAcquire(nameTag, now - start, "acquired");
+            metrics.held().incrementAndGet();
+        } else {
+            metrics.recordAcquire(nameTag, now - start, "timeout");
+            metrics.countTimeout(nameTag);
+        }
+        return now;
+    }
+
+    @Override
+    public void unlock() {
+        Object acquiredAt = holdToken(key);
+        boolean outermost = isEntered(key) && exit(key);
+        try {
+            delegate.unlock();
+        } catch (LockExpiredException e) {
+            metrics.countExpired(nameTag);
+            throw e;
+        } finally {
+            if (outermost) {
+                onReleased((Long) acquiredAt);
+            }
+        }
+    }
+
+    private void onReleased(long acquiredAt) {
+        metrics.held().decrementAndGet();
+        metrics.recordHold(nameTag, System.nanoTime() - acquiredAt);
+    }
+
+    @Override
+    public CompletableFuture<AsyncLockHandle> tryLockAsync(long time, TimeUnit unit) {
+        if (!(delegate instanceof AsyncDLock)) {
+            CompletableFuture<AsyncLockHandle> result = new CompletableFuture<>();
+            result.completeExceptionally(new UnsupportedOperationException(delegate.getClass().getName() + " does not support async locking"));
+            return result;
+        }
+        long start = System.nanoTime();
+        metrics.waiting().incrementAndGet();
+        CompletableFuture<AsyncLockHandle> acquired = ((AsyncDLock) delegate).tryLockAsync(time, unit);
+        acquired.whenComplete((handle, error) -> {
+            metrics.waiting().decrementAndGet();
+            if (error != null) {
+                metrics.recordAcquire(nameTag, System.nanoTime() - start, "error");
+            } else {
+                onAcquired(start, handle != null);
+            }
+        });
+        return acquired.thenApply(handle -> handle == null ? null : new MeteredHandle(handle, System.nanoTime()));
+    }
+
+    @Override
+    public Condition newCondition() {
+        return delegate.newCondition();
+    }
+
+    /**
+     * 记录释放的持有凭证，重复释放仅计入一次
+     */
+    private final class MeteredHandle implements AsyncLockHandle {
+        private final AsyncLockHandle delegate;
+
+        private final long acquiredAt;
+
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private MeteredHandle(AsyncLockHandle delegate, long acquiredAt) {
+            this.delegate = delegate;
+            this.acquiredAt = acquiredAt;
+        }
+
+        @Override
+        public CompletableFuture<Void> unlockAsync() {
+            boolean first = released.compareAndSet(false, true);
+            return delegate.unlockAsync().whenComplete((ignored, error) -> {
+                if (first) {
+                    onReleased(acquiredAt);
+                }
+                Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                if (cause instanceof LockExpiredException) {
+                    metrics.countExpired(nameTag);
+                }
+            });
+        }
+    }
+
+    /**
+     * 对被包装锁的获取动作
+     */
+    @FunctionalInterface
+    private interface Acquirer {
+        boolean acquire(Lock lock) throws InterruptedException;
+    }
+}
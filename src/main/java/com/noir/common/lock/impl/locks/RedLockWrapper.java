@@ -1,71 +1,224 @@
 package com.noir.common.lock.impl.locks;
 
 
+import com.noir.common.lock.AsyncDLock;
+import com.noir.common.lock.AsyncLockHandle;
+import com.noir.common.lock.BackoffStrategy;
 import com.noir.common.lock.ReentrantDLock;
-import lombok.SneakyThrows;
-import org.redisson.RedissonRedLock;
+import com.noir.common.lock.impl.support.AsyncLockTimer;
+import com.noir.common.lock.impl.support.DeadlineContext;
+import com.noir.common.lock.impl.support.RedisFutures;
 import org.redisson.api.RLock;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Condition;
 
 /**
  * redisson red lock wrapper
  *
  * 封装支持重入
+ *
+ * 每轮获取并行向各节点发起异步请求，多数节点确认且耗时
+ * 仍在租期有效范围内即视为上锁成功，不再等待其余节点；
+ * 多数已不可能达成时提前失败并异步释放已获取的节点，多数
+ * 达成后才返回的节点同样异步释放。获取耗时取决于较快的
+ * 多数节点，而非全部节点之和。
+ *
+ * 单个节点的等待时间由租期按节点数均分，未获取时在剩余
+ * 等待时间内随机退避后开始下一轮。
+ *
+ * 每次获取以独立的负数owner id代替线程id，同步获取的id
+ * 记录在当前线程的持有记录中，异步获取的id属于返回的持有凭证
  */
-public class RedLockWrapper extends ReentrantDLock {
-    private static final Long DEFAULT_TIMEOUT_SECONDS = 30L;
-
+public class RedLockWrapper extends ReentrantDLock implements AsyncDLock {
     private static final Logger log = LoggerFactory.getLogger(RedLockWrapper.class);
 
+    // 持有者id，取负数避免与线程id冲突
+    private static final AtomicLong OWNER_IDS = new AtomicLong();
+
     private final String lockName;
-    private final RedissonRedLock redissonRedLock;
+    private final RLock[] locks;
 
-    public RedLockWrapper(String lockName, RLock... locks) {
+    /**
+     * 租期(毫秒)，即redisson看门狗的超时时间
+     */
+    private final long leaseMillis;
+
+    private final int quorum;
+
+    public RedLockWrapper(String lockName, long leaseMillis, RLock... locks) {
         this.lockName = lockName;
-        this.redissonRedLock = new RedissonRedLock(locks);
+        this.locks = locks;
+        this.leaseMillis = leaseMillis;
+        this.quorum = locks.length / 2 + 1;
     }
 
+    /**
+     * 各节点仅尝试一次，不等待
+     */
     @Override
-    public void lock() {
-        while (!tryLock()) {
-            // pass
-            log.info("retry get dLock");
+    public boolean tryLock() {
+        if (reenter(lockName)) {
+            return true;
         }
-    }
 
-    @Override
-    public void lockInterruptibly() throws InterruptedException {
-        // pass
-    }
+        long ownerId = OWNER_IDS.decrementAndGet();
+        boolean locked = acquireQuorum(ownerId, 0).join();
 
-    @Override
-    @SneakyThrows
-    public boolean tryLock() {
-        return tryLock(DEFAULT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        if (locked) {
+            enter(lockName, ownerId);
+        }
+        return locked;
     }
 
     @Override
     public boolean tryLock(long l, TimeUnit timeUnit) throws InterruptedException {
-        if (isEntered(lockName)) {
+        if (reenter(lockName)) {
             return true;
         }
 
-        boolean locked = redissonRedLock.tryLock(l, timeUnit);
+        CompletableFuture<Long> result = new CompletableFuture<>();
+        attemptAsync(DeadlineContext.deadline(l, timeUnit), 0, pollingBackoffStrategy(RedisSetNXGetSetLock.DEFAULT_BACKOFF), result);
+        Long ownerId;
+        try {
+            ownerId = result.get();
+        } catch (InterruptedException e) {
+            if (!result.complete(null)) {
+                // 中断时恰好获取成功，释放后再抛出
+                Long acquired = result.join();
+                if (Objects.nonNull(acquired)) {
+                    unlockAll(acquired);
+                }
+            }
+            throw e;
+        } catch (ExecutionException e) {
+            log.error("try lock {} failed", lockName, e.getCause());
+            return false;
+        }
 
-        if (locked) {
-            enter(lockName);
+        if (Objects.isNull(ownerId)) {
+            return false;
         }
-        return locked;
+        enter(lockName, ownerId);
+        return true;
     }
 
     @Override
     public void unlock() {
-        exit(lockName);
-        redissonRedLock.unlock();
+        Long ownerId = (Long) holdToken(lockName);
+        if (!exit(lockName)) {
+            // 仍被当前线程重入持有
+            return;
+        }
+        unlockAll(ownerId).join();
+    }
+
+    @Override
+    public CompletableFuture<AsyncLockHandle> tryLockAsync(long time, TimeUnit unit) {
+        CompletableFuture<Long> result = new CompletableFuture<>();
+        attemptAsync(DeadlineContext.deadline(time, unit), 0, pollingBackoffStrategy(RedisSetNXGetSetLock.DEFAULT_BACKOFF), result);
+        return result.thenApply(ownerId -> Objects.isNull(ownerId) ? null : () -> unlockAll(ownerId));
+    }
+
+    /**
+     * 一轮获取，失败时退避后调度下一轮
+     *
+     * @param attempt 已等待的次数
+     * @param result 成功时以本次的owner id完成，超时以null完成
+     */
+    private void attemptAsync(long deadline, int attempt, BackoffStrategy backoff, CompletableFuture<Long> result) {
+        if (result.isDone()) {
+            return;
+        }
+        long ownerId = OWNER_IDS.decrementAndGet();
+        long nodeWait = Math.max(Math.min(deadline - System.currentTimeMillis(), leaseMillis / locks.length), 0);
+        acquireQuorum(ownerId, nodeWait).thenAccept(locked -> {
+            if (locked) {
+                if (!result.complete(ownerId)) {
+                    // 已超时或被中断
+                    unlockAll(ownerId);
+                }
+                return;
+            }
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                result.complete(null);
+                return;
+            }
+            onRetry();
+            AsyncLockTimer.schedule(() -> attemptAsync(deadline, attempt + 1, backoff, result),
+                    backoff.nextDelay(attempt + 1, -2, remaining));
+        });
+    }
+
+    /**
+     * 并行向各节点获取，多数节点确认时提前完成
+     *
+     * 多数达成后才获取成功的节点、本轮失败后才获取成功的节点均异步释放，
+     * 本轮失败时释放全部节点
+     *
+     * @param ownerId 持有者id
+     * @param nodeWait 单个节点的等待时间(毫秒)
+     * @return 是否获取成功，不会以异常完成
+     */
+    private CompletableFuture<Boolean> acquireQuorum(long ownerId, long nodeWait) {
+        long start = System.currentTimeMillis();
+        AtomicInteger acquired = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        for (RLock lock : locks) {
+            RedisFutures.toCompletable(lock.tryLockAsync(nodeWait, -1, TimeUnit.MILLISECONDS, ownerId)).whenComplete((locked, error) -> {
+                if (Objects.isNull(error) && Boolean.TRUE.equals(locked)) {
+                    int count = acquired.incrementAndGet();
+                    if (count == quorum) {
+                        // 扣除时钟漂移后仍在租期内才视为有效
+                        result.complete(System.currentTimeMillis() - start < validityMillis());
+                    } else if (count > quorum || (result.isDone() && !result.join())) {
+                        release(lock, ownerId);
+                    }
+                } else if (failed.incrementAndGet() == locks.length - quorum + 1) {
+                    result.complete(false);
+                }
+            });
+        }
+        result.thenAccept(locked -> {
+            if (!locked) {
+                unlockAll(ownerId);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * 租期扣除时钟漂移
+     */
+    private long validityMillis() {
+        return leaseMillis - leaseMillis / 100 - 2;
+    }
+
+    private void release(RLock lock, long ownerId) {
+        lock.unlockAsync(ownerId);
+    }
+
+    /**
+     * 释放所有节点，未持有的节点忽略
+     */
+    private CompletableFuture<Void> unlockAll(long ownerId) {
+        List<CompletableFuture<Void>> releases = new ArrayList<>(locks.length);
+        for (RLock lock : locks) {
+            releases.add(RedisFutures.toCompletable(lock.unlockAsync(ownerId))
+                    .exceptionally(e -> null));
+        }
+        return CompletableFuture.allOf(releases.toArray(new CompletableFuture[0]));
     }
 
     @Override
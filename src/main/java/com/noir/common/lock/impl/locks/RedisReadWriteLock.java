@@ -0,0 +1,305 @@
+package com.noir.common.lock.impl.locks;
+
+import com.noir.common.lock.BackoffStrategy;
+import com.noir.common.lock.ReentrantDLock;
+import com.noir.common.lock.excptions.LockExpiredException;
+import com.noir.common.lock.impl.support.DeadlineContext;
+import com.noir.common.lock.impl.support.LockOwners;
+import com.noir.common.lock.impl.support.RedisLockReleaseSubscriber;
+import com.noir.common.lock.impl.support.RedisScriptRegistry;
+import com.noir.common.lock.impl.support.TtlBackoffStrategy;
+import org.redisson.api.RScript;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+
+/**
+ * redis read write lock
+ *
+ * 以一个hash记录锁状态，{@code writer} 字段为写锁持有者，
+ * 其余字段为各读锁持有者及其持有次数，加解锁均在lua脚本中完成。
+ * 没有写锁时读锁可被任意多个持有者同时获取，互不等待；写锁
+ * 仅在hash不存在(无读无写)时获取。
+ *
+ * 每个读锁持有者的租期到期时间记录在有序集合中，加锁时先移除
+ * 租期已到的读锁，进程退出未释放的读锁不会因其他读锁持续获取
+ * 而一直保留、使写锁无法获取。到期时间以redis服务端的 {@code TIME}
+ * 计算(需要redis 3.2+)，cluster模式下需保证两个key位于同一slot。
+ *
+ * 等待方共享订阅锁的释放channel，写锁释放时唤醒全部等待者，
+ * 最后一个读锁释放时唤醒一个等待者(此时等待的只有写锁)重试。
+ *
+ * 每次获取以新的持有者标识写入，标识记录在当前线程的持有记录中，
+ * 实例可被多个线程共用。持有写锁的线程以写锁的持有者标识获取读锁
+ * (降级)，持有记录按锁名查找，不要求为同一实例；持有读锁的线程
+ * 获取写锁会一直等待，与 {@link java.util.concurrent.locks.ReentrantReadWriteLock} 一致。
+ * 读锁持续被获取时写锁可能等待较久，不支持续约。
+ */
+public class RedisReadWriteLock implements ReadWriteLock {
+    private static final Long DEFAULT_TIMEOUT_SECONDS = 30L;
+
+    private static final String KEY_SUFFIX = ":rw";
+
+    private static final String READERS_SUFFIX = ":readers";
+
+    private final RedisScriptRegistry scripts;
+
+    private final RedisLockReleaseSubscriber subscriber;
+
+    private final String lockKey;
+
+    /**
+     * 锁与读锁租期的key
+     */
+    private final List<Object> keys;
+
+    /**
+     * 锁失效时间(毫秒)
+     */
+    private final long lockExpiresMilliseconds;
+
+    private final Mode readLock;
+
+    private final Mode writeLock;
+
+    public RedisReadWriteLock(RedisScriptRegistry scripts, RedisLockReleaseSubscriber subscriber, String nameSpace, String name) {
+        //默认30分钟
+        this(scripts, subscriber, nameSpace, name, DEFAULT_TIMEOUT_SECONDS, TimeUnit.MINUTES);
+    }
+
+    public RedisReadWriteLock(RedisScriptRegistry scripts, RedisLockReleaseSubscriber subscriber, String nameSpace, String name, long expire, TimeUnit unit) {
+        this.scripts = scripts;
+        this.subscriber = subscriber;
+        this.lockKey = nameSpace + ":" + name + KEY_SUFFIX;
+        this.keys = Arrays.asList(lockKey, lockKey + READERS_SUFFIX);
+        this.lockExpiresMilliseconds = unit.toMillis(expire);
+        this.readLock = new Mode(lockKey + ":read", READ_LOCK_LUA_SCRIPT, READ_UNLOCK_LUA_SCRIPT);
+        this.writeLock = new Mode(lockKey + ":write", WRITE_LOCK_LUA_SCRIPT, WRITE_UNLOCK_LUA_SCRIPT);
+    }
+
+    /**
+     * 设置读锁与写锁获取失败后的等待策略
+     */
+    public void setBackoffStrategy(BackoffStrategy backoffStrategy) {
+        readLock.setBackoffStrategy(backoffStrategy);
+        writeLock.setBackoffStrategy(backoffStrategy);
+    }
+
+    @Override
+    public Lock readLock() {
+        return readLock;
+    }
+
+    @Override
+    public Lock writeLock() {
+        return writeLock;
+    }
+
+    /**
+     * 读锁或写锁，重入以各自的名称记录
+     */
+    private final class Mode extends ReentrantDLock {
+        private final String reentrantName;
+
+        private final String lockScript;
+
+        private final String unlockScript;
+
+        private Mode(String reentrantName, String lockScript, String unlockScript) {
+            this.reentrantName = reentrantName;
+            this.lockScript = lockScript;
+            this.unlockScript = unlockScript;
+        }
+
+        /**
+         * 仅尝试一次，不等待
+         */
+        @Override
+        public boolean tryLock() {
+            if (reenter(reentrantName)) {
+                return true;
+            }
+            String owner = newOwner();
+            if (Objects.isNull(trySetLockRecode(owner))) {
+                enter(reentrantName, owner);
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public boolean tryLock(long l, TimeUnit timeUnit) throws InterruptedException {
+            if (reenter(reentrantName)) {
+                return true;
+            }
+
+            long deadline = DeadlineContext.deadline(l, timeUnit);
+
+            String owner = newOwner();
+            if (Objects.isNull(trySetLockRecode(owner))) {
+                enter(reentrantName, owner);
+                return true;
+            }
+
+            // 先订阅再重试，避免错过两次尝试之间的释放通知
+            RedisLockReleaseSubscriber.Entry entry = subscriber.subscribe(lockKey + RedisSetNXExpireLock.CHANNEL_SUFFIX);
+            int attempt = 0;
+            try {
+                while (true) {
+                    Long ttl = trySetLockRecode(owner);
+                    if (Objects.isNull(ttl)) {
+                        enter(reentrantName, owner);
+                        return true;
+                    }
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (remaining <= 0) {
+                        return false;
+                    }
+                    long wait = backoffStrategy(TtlBackoffStrategy.INSTANCE).nextDelay(++attempt, ttl, remaining);
+                    onRetry();
+                    if (wait > 0) {
+                        entry.await(wait);
+                    }
+                }
+            } finally {
+                subscriber.unsubscribe(entry);
+            }
+        }
+
+        /**
+         * 本次获取的持有者，当前线程持有同名写锁时读锁沿用写锁的持有者(降级)
+         */
+        private String newOwner() {
+            if (this == readLock) {
+                Object writeOwner = holdToken(writeLock.reentrantName);
+                if (Objects.nonNull(writeOwner)) {
+                    return (String) writeOwner;
+                }
+            }
+            return LockOwners.next();
+        }
+
+        @Override
+        public void unlock() {
+            Object owner = holdToken(reentrantName);
+            if (!exit(reentrantName)) {
+                // 仍被当前线程重入持有
+                return;
+            }
+            boolean unlocked = scripts.eval(
+                    RScript.Mode.READ_WRITE,
+                    unlockScript,
+                    RScript.ReturnType.BOOLEAN,
+                    keys,
+                    owner);
+            if (!unlocked) {
+                throw new LockExpiredException();
+            }
+        }
+
+        @Override
+        public Condition newCondition() {
+            // pass
+            return null;
+        }
+
+        /**
+         * @return 成功时为null，否则为当前锁的剩余租期(毫秒)
+         */
+        private Long trySetLockRecode(String owner) {
+            return scripts.eval(
+                    RScript.Mode.READ_WRITE,
+                    lockScript,
+                    RScript.ReturnType.INTEGER,
+                    keys,
+                    owner,
+                    lockExpiresMilliseconds);
+        }
+    }
+
+    /**
+     * 以redis服务端时间(毫秒)作为当前时间now，须位于脚本开头、任何写命令之前
+     */
+    private static final String SERVER_NOW =
+            "redis.replicate_commands(); " +
+            "local time = redis.call('time'); " +
+            "local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000); ";
+    /**
+     * 移除租期已到的读锁持有者，需先执行 {@link #SERVER_NOW}
+     */
+    private static final String EVICT_EXPIRED_READERS =
+            "local expired = redis.call('zrangebyscore', KEYS[2], '-inf', now); " +
+            "for i = 1, #expired do " +
+                "redis.call('hdel', KEYS[1], expired[i]); " +
+            "end; " +
+            "redis.call('zremrangebyscore', KEYS[2], '-inf', now); ";
+    /**
+     * 无写锁或写锁为自己持有时累加读锁持有次数并刷新该持有者的租期
+     *
+     * KEYS[1] 锁，KEYS[2] 读锁租期，ARGV[1] 持有者，ARGV[2] 租期
+     */
+    private static final String READ_LOCK_LUA_SCRIPT =
+            SERVER_NOW +
+            EVICT_EXPIRED_READERS +
+            "local writer = redis.call('hget', KEYS[1], 'writer'); " +
+            "if writer == false or writer == ARGV[1] then " +
+                "redis.call('hincrby', KEYS[1], ARGV[1], 1); " +
+                "redis.call('zadd', KEYS[2], now + tonumber(ARGV[2]), ARGV[1]); " +
+                "if redis.call('pttl', KEYS[1]) < tonumber(ARGV[2]) then " +
+                    "redis.call('pexpire', KEYS[1], ARGV[2]); " +
+                "end; " +
+                "if redis.call('pttl', KEYS[2]) < tonumber(ARGV[2]) then " +
+                    "redis.call('pexpire', KEYS[2], ARGV[2]); " +
+                "end; " +
+                "return nil; " +
+            "end; " +
+            "return redis.call('pttl', KEYS[1]);";
+    /**
+     * 移除租期已到的读锁后，无读无写时写入写锁持有者
+     */
+    private static final String WRITE_LOCK_LUA_SCRIPT =
+            SERVER_NOW +
+            EVICT_EXPIRED_READERS +
+            "if redis.call('exists', KEYS[1]) == 0 then " +
+                "redis.call('hset', KEYS[1], 'writer', ARGV[1]); " +
+                "redis.call('pexpire', KEYS[1], ARGV[2]); " +
+                "return nil; " +
+            "end; " +
+            "return redis.call('pttl', KEYS[1]);";
+    /**
+     * 扣减读锁持有次数，最后一个读锁释放时通知等待者
+     */
+    private static final String READ_UNLOCK_LUA_SCRIPT =
+            "if redis.call('hexists', KEYS[1], ARGV[1]) == 0 then " +
+                "return false; " +
+            "end; " +
+            "if redis.call('hincrby', KEYS[1], ARGV[1], -1) <= 0 then " +
+                "redis.call('hdel', KEYS[1], ARGV[1]); " +
+                "redis.call('zrem', KEYS[2], ARGV[1]); " +
+            "end; " +
+            "if redis.call('hlen', KEYS[1]) == 0 then " +
+                "redis.call('publish', KEYS[1] .. '" + RedisSetNXExpireLock.CHANNEL_SUFFIX + "', 1); " +
+            "end; " +
+            "return true;";
+    /**
+     * 校验持有者后移除写锁，唤醒全部等待者，等待的读锁可同时获取
+     */
+    private static final String WRITE_UNLOCK_LUA_SCRIPT =
+            "if redis.call('hget', KEYS[1], 'writer') ~= ARGV[1] then " +
+                "return false; " +
+            "end; " +
+            "redis.call('hdel', KEYS[1], 'writer'); " +
+            "redis.call('publish', KEYS[1] .. '" + RedisSetNXExpireLock.CHANNEL_SUFFIX + "', " + RedisLockReleaseSubscriber.WAKE_ALL + "); " +
+            "return true;";
+
+    /**
+     * 需要在启动时预加载的脚本
+     */
+    public static final List<String> SCRIPTS = Arrays.asList(
+            READ_LOCK_LUA_SCRIPT, WRITE_LOCK_LUA_SCRIPT, READ_UNLOCK_LUA_SCRIPT, WRITE_UNLOCK_LUA_SCRIPT);
+}
@@ -0,0 +1,199 @@
+package com.noir.common.lock.impl.locks;
+
+import com.noir.common.lock.DistributedSemaphore;
+import com.noir.common.lock.excptions.LockExpiredException;
+import com.noir.common.lock.impl.support.DeadlineContext;
+import com.noir.common.lock.impl.support.LockOwners;
+import com.noir.common.lock.impl.support.RedisLockReleaseSubscriber;
+import com.noir.common.lock.impl.support.RedisScriptRegistry;
+import org.redisson.api.RScript;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * redis semaphore
+ *
+ * 以有序集合记录已发放的许可，成员为许可id，分值为租期
+ * 到期时间，获取时先移除已到期的许可，剩余数量足够时一次
+ * 写入全部许可，否则返回最早到期许可的剩余时间。到期时间以
+ * redis服务端的 {@code TIME} 计算，不受各客户端时钟偏差影响(需要redis 3.2+)。
+ *
+ * 等待方共享订阅信号量的释放channel，归还许可时publish
+ * 通知唤醒全部等待者重试，未收到通知时最多等待至最早的许可到期。
+ * 不保证公平。
+ */
+public class RedisSemaphore implements DistributedSemaphore {
+    private static final Long DEFAULT_TIMEOUT_SECONDS = 30L;
+
+    private static final String KEY_SUFFIX = ":semaphore";
+
+    private final RedisScriptRegistry scripts;
+
+    private final RedisLockReleaseSubscriber subscriber;
+
+    private final String semaphoreKey;
+
+    private final int limit;
+
+    private final String lockerName = LockOwners.next();
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * 许可租期(毫秒)
+     */
+    private final long leaseMilliseconds;
+
+    /**
+     * 通过本实例获取且未归还的许可id
+     */
+    private final Queue<String> heldPermits = new ConcurrentLinkedQueue<>();
+
+    public RedisSemaphore(RedisScriptRegistry scripts, RedisLockReleaseSubscriber subscriber, String nameSpace, String name, int limit) {
+        //默认30分钟
+        this(scripts, subscriber, nameSpace, name, limit, DEFAULT_TIMEOUT_SECONDS, TimeUnit.MINUTES);
+    }
+
+    public RedisSemaphore(RedisScriptRegistry scripts, RedisLockReleaseSubscriber subscriber, String nameSpace, String name, int limit, long lease, TimeUnit unit) {
+        this.scripts = scripts;
+        this.subscriber = subscriber;
+        this.semaphoreKey = nameSpace + ":" + name + KEY_SUFFIX;
+        this.limit = limit;
+        this.leaseMilliseconds = unit.toMillis(lease);
+    }
+
+    @Override
+    public boolean acquire(int permits, long timeout, TimeUnit unit) throws InterruptedException {
+        if (permits <= 0 || permits > limit) {
+            throw new IllegalArgumentException("permits must be between 1 and " + limit);
+        }
+        List<String> ids = new ArrayList<>(permits);
+        for (int i = 0; i < permits; i++) {
+            ids.add(lockerName + ":" + sequence.incrementAndGet());
+        }
+
+        long deadline = DeadlineContext.deadline(timeout, unit);
+
+        if (Objects.isNull(tryAcquire(ids))) {
+            heldPermits.addAll(ids);
+            return true;
+        }
+
+        // 先订阅再重试，避免错过两次尝试之间的释放通知
+        RedisLockReleaseSubscriber.Entry entry = subscriber.subscribe(semaphoreKey + RedisSetNXExpireLock.CHANNEL_SUFFIX);
+        try {
+            while (true) {
+                Long ttl = tryAcquire(ids);
+                if (Objects.isNull(ttl)) {
+                    heldPermits.addAll(ids);
+                    return true;
+                }
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return false;
+                }
+                long wait = Math.min(Math.max(ttl, 0), remaining);
+                if (wait > 0) {
+                    entry.await(wait);
+                }
+            }
+        } finally {
+            subscriber.unsubscribe(entry);
+        }
+    }
+
+    @Override
+    public void release(int permits) {
+        List<String> ids = new ArrayList<>(permits);
+        for (int i = 0; i < permits; i++) {
+            String id = heldPermits.poll();
+            if (Objects.isNull(id)) {
+                break;
+            }
+            ids.add(id);
+        }
+        if (ids.size() < permits) {
+            heldPermits.addAll(ids);
+            throw new IllegalStateException("release " + permits + " permits but only " + ids.size() + " held");
+        }
+        long released = scripts.eval(
+                RScript.Mode.READ_WRITE,
+                RELEASE_LUA_SCRIPT,
+                RScript.ReturnType.INTEGER,
+                Collections.singletonList(semaphoreKey),
+                ids.toArray());
+        if (released < permits) {
+            // 部分许可已超过租期被回收
+            throw new LockExpiredException();
+        }
+    }
+
+    /**
+     * @return 成功时为null，否则为最早到期许可的剩余时间(毫秒)
+     */
+    private Long tryAcquire(List<String> ids) {
+        Object[] args = new Object[ids.size() + 2];
+        args[0] = limit;
+        args[1] = leaseMilliseconds;
+        for (int i = 0; i < ids.size(); i++) {
+            args[i + 2] = ids.get(i);
+        }
+        return scripts.eval(
+                RScript.Mode.READ_WRITE,
+                ACQUIRE_LUA_SCRIPT,
+                RScript.ReturnType.INTEGER,
+                Collections.singletonList(semaphoreKey),
+                args);
+    }
+
+    /**
+     * 移除已到期的许可，剩余数量足够时写入全部许可
+     *
+     * ARGV[1] 总许可数，ARGV[2] 租期，ARGV[3..] 许可id
+     */
+    private static final String ACQUIRE_LUA_SCRIPT =
+            "redis.replicate_commands(); " +
+            "local time = redis.call('time'); " +
+            "local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000); " +
+            "redis.call('zremrangebyscore', KEYS[1], '-inf', now); " +
+            "if redis.call('zcard', KEYS[1]) + #ARGV - 2 <= tonumber(ARGV[1]) then " +
+                "local expireAt = now + tonumber(ARGV[2]); " +
+                "for i = 3, #ARGV do " +
+                    "redis.call('zadd', KEYS[1], expireAt, ARGV[i]); " +
+                "end; " +
+                "if redis.call('pttl', KEYS[1]) < tonumber(ARGV[2]) then " +
+                    "redis.call('pexpire', KEYS[1], ARGV[2]); " +
+                "end; " +
+                "return nil; " +
+            "end; " +
+            "local first = redis.call('zrange', KEYS[1], 0, 0, 'WITHSCORES'); " +
+            "return tonumber(first[2]) - now;";
+    /**
+     * 移除许可并唤醒全部等待者，返回移除数量
+     *
+     * 等待者所需的许可数各不相同，按归还数量唤醒时可能唤醒许可不足的
+     * 等待者而遗漏可以获取的等待者
+     */
+    private static final String RELEASE_LUA_SCRIPT =
+            "local released = 0; " +
+            "for i = 1, #ARGV do " +
+                "released = released + redis.call('zrem', KEYS[1], ARGV[i]); " +
+            "end; " +
+            "if released > 0 then " +
+                "redis.call('publish', KEYS[1] .. '" + RedisSetNXExpireLock.CHANNEL_SUFFIX + "', " + RedisLockReleaseSubscriber.WAKE_ALL + "); " +
+            "end; " +
+            "return released;";
+
+    /**
+     * 需要在启动时预加载的脚本
+     */
+    public static final List<String> SCRIPTS = Arrays.asList(ACQUIRE_LUA_SCRIPT, RELEASE_LUA_SCRIPT);
+}
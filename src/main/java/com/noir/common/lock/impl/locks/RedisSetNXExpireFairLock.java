@@ -0,0 +1,218 @@
+package com.noir.common.lock.impl.locks;
+
+import com.noir.common.lock.excptions.LockExpiredException;
+import com.noir.common.lock.impl.support.RedisLockReleaseSubscriber;
+import com.noir.common.lock.impl.support.RedisLockWatchdog;
+import com.noir.common.lock.impl.support.RedisScriptRegistry;
+import org.redisson.api.RScript;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * setNX expire fair lock
+ *
+ * 公平模式的 {@link RedisSetNXExpireLock}，获取失败的等待者在
+ * 上锁脚本中进入锁的FIFO队列(list)，仅当锁空闲且自己位于队首时
+ * 才能获取；解锁时只向队首等待者的专属channel发送通知，其余等待者
+ * 不会被唤醒重试。
+ *
+ * 每个等待者在有序集合中记录存活期限，每次重试时刷新，进程退出
+ * 或放弃等待而未刷新的等待者到达队首时被自动移除。存活期限以
+ * redis服务端的 {@code TIME} 计算，不受各客户端时钟偏差影响(需要redis 3.2+)。
+ * 阻塞获取({@link #lock()})全程使用同一持有者标识，不会重新排到队尾。
+ *
+ * 脚本涉及锁、队列、期限多个key，cluster模式下需保证key位于同一slot。
+ */
+public class RedisSetNXExpireFairLock extends RedisSetNXExpireLock {
+
+    /**
+     * 等待者的存活期限(毫秒)，等待者至少每半个期限重试刷新一次
+     */
+    private static final long WAITER_TIMEOUT_MILLIS = 5000;
+
+    public RedisSetNXExpireFairLock(RedisScriptRegistry scripts, RedisLockReleaseSubscriber subscriber, RedisLockWatchdog watchdog, String nameSpace, String name) {
+        super(scripts, subscriber, watchdog, nameSpace, name);
+    }
+
+    public RedisSetNXExpireFairLock(RedisScriptRegistry scripts, RedisLockReleaseSubscriber subscriber, RedisLockWatchdog watchdog, String nameSpace, String name, long expire, TimeUnit unit) {
+        super(scripts, subscriber, watchdog, nameSpace, name, expire, unit);
+    }
+
+    private List<Object> keys(String lockKey, String owner) {
+        return Arrays.asList(lockKey, lockKey + QUEUE_SUFFIX, lockKey + TIMEOUT_SUFFIX, getChannelName(owner));
+    }
+
+    /**
+     * 每次获取专属的通知channel，同时作为队列中的元素
+     */
+    @Override
+    protected String getChannelName(String owner) {
+        return getLockKey() + CHANNEL_SUFFIX + ":" + owner;
+    }
+
+    /**
+     * 锁空闲但未排到队首(-2)时同样等待通知，最长不超过半个存活期限以刷新
+     */
+    @Override
+    protected long waitMillis(int attempt, long ttl, long remaining) {
+        long wait = Math.min(remaining, WAITER_TIMEOUT_MILLIS / 2);
+        return ttl > 0 ? super.waitMillis(attempt, ttl, wait) : wait;
+    }
+
+    @Override
+    protected void abandon(String lockKey, String owner) {
+        scripts.evalAsync(
+                RScript.Mode.READ_WRITE,
+                CANCEL_LUA_SCRIPT,
+                RScript.ReturnType.BOOLEAN,
+                keys(lockKey, owner));
+    }
+
+    @Override
+    protected Long trySetLockRecode(String key, String owner) {
+        return scripts.eval(
+                RScript.Mode.READ_WRITE,
+                LOCK_LUA_SCRIPT,
+                RScript.ReturnType.INTEGER,
+                keys(key, owner),
+                owner,
+                lockExpiresMilliseconds,
+                WAITER_TIMEOUT_MILLIS);
+    }
+
+    @Override
+    protected CompletableFuture<Long> trySetLockRecodeAsync(String key, String owner) {
+        return scripts.evalAsync(
+                RScript.Mode.READ_WRITE,
+                LOCK_LUA_SCRIPT,
+                RScript.ReturnType.INTEGER,
+                keys(key, owner),
+                owner,
+                lockExpiresMilliseconds,
+                WAITER_TIMEOUT_MILLIS);
+    }
+
+    @Override
+    protected void cleanLockRecode(String key, String owner) throws LockExpiredException {
+        boolean unlocked = scripts.eval(
+                RScript.Mode.READ_WRITE,
+                UNLOCK_LUA_SCRIPT,
+                RScript.ReturnType.BOOLEAN,
+                keys(key, owner),
+                owner);
+        if (!unlocked) {
+            throw new LockExpiredException();
+        }
+    }
+
+    @Override
+    protected CompletableFuture<Boolean> cleanLockRecodeAsync(String key, String owner) {
+        return scripts.evalAsync(
+                RScript.Mode.READ_WRITE,
+                UNLOCK_LUA_SCRIPT,
+                RScript.ReturnType.BOOLEAN,
+                keys(key, owner),
+                owner);
+    }
+
+    private static final String QUEUE_SUFFIX = ":queue";
+
+    private static final String TIMEOUT_SUFFIX = ":timeouts";
+
+    /**
+     * 以redis服务端时间(毫秒)作为当前时间now，须位于脚本开头、任何写命令之前
+     */
+    private static final String SERVER_NOW =
+            "redis.replicate_commands(); " +
+            "local time = redis.call('time'); " +
+            "local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000); ";
+
+    /**
+     * 移除队首已过存活期限的等待者
+     *
+     * KEYS[2] 队列，KEYS[3] 期限，需先执行 {@link #SERVER_NOW}
+     */
+    private static final String EVICT_EXPIRED_WAITERS =
+            "while true do " +
+                "local first = redis.call('lindex', KEYS[2], 0); " +
+                "if first == false then break; end; " +
+                "local timeout = tonumber(redis.call('zscore', KEYS[3], first)); " +
+                "if timeout ~= nil and timeout > now then break; end; " +
+                "redis.call('lpop', KEYS[2]); " +
+                "redis.call('zrem', KEYS[3], first); " +
+            "end; ";
+
+    /**
+     * 锁空闲且队列为空或自己位于队首时上锁并出队，返回nil；
+     * 否则入队(已在队列中时仅刷新存活期限)并返回当前持有者的
+     * 剩余租期，锁空闲时为-2
+     *
+     * KEYS[1] 锁，KEYS[2] 队列，KEYS[3] 期限，KEYS[4] 自身channel
+     * ARGV[1] 持有者，ARGV[2] 租期，ARGV[3] 等待者存活期限
+     */
+    private static final String LOCK_LUA_SCRIPT =
+            SERVER_NOW +
+            EVICT_EXPIRED_WAITERS +
+            "if redis.call('exists', KEYS[1]) == 0 then " +
+                "local first = redis.call('lindex', KEYS[2], 0); " +
+                "if first == false or first == KEYS[4] then " +
+                    "if first then " +
+                        "redis.call('lpop', KEYS[2]); " +
+                        "redis.call('zrem', KEYS[3], KEYS[4]); " +
+                    "end; " +
+                    "redis.call('set', KEYS[1], ARGV[1], 'PX', ARGV[2]); " +
+                    "return nil; " +
+                "end; " +
+            "end; " +
+            "if redis.call('zscore', KEYS[3], KEYS[4]) == false then " +
+                "redis.call('rpush', KEYS[2], KEYS[4]); " +
+            "end; " +
+            "redis.call('zadd', KEYS[3], now + tonumber(ARGV[3]), KEYS[4]); " +
+            "redis.call('pexpire', KEYS[2], ARGV[3]); " +
+            "redis.call('pexpire', KEYS[3], ARGV[3]); " +
+            "return redis.call('pttl', KEYS[1]);";
+
+    /**
+     * 校验持有者后删除锁，通知队首等待者与非公平模式的等待者
+     *
+     * ARGV[1] 持有者
+     */
+    private static final String UNLOCK_LUA_SCRIPT =
+            SERVER_NOW +
+            "if redis.call('get', KEYS[1]) ~= ARGV[1] then " +
+                "return false; " +
+            "end; " +
+            "redis.call('del', KEYS[1]); " +
+            EVICT_EXPIRED_WAITERS +
+            "local head = redis.call('lindex', KEYS[2], 0); " +
+            "if head then " +
+                "redis.call('publish', head, 0); " +
+            "end; " +
+            "redis.call('publish', KEYS[1] .. '" + CHANNEL_SUFFIX + "', 0); " +
+            "return true;";
+
+    /**
+     * 放弃等待时出队，自己位于队首且锁空闲时通知下一个等待者
+     */
+    private static final String CANCEL_LUA_SCRIPT =
+            SERVER_NOW +
+            "local first = redis.call('lindex', KEYS[2], 0); " +
+            "redis.call('lrem', KEYS[2], 0, KEYS[4]); " +
+            "redis.call('zrem', KEYS[3], KEYS[4]); " +
+            "if first == KEYS[4] and redis.call('exists', KEYS[1]) == 0 then " +
+                EVICT_EXPIRED_WAITERS +
+                "local head = redis.call('lindex', KEYS[2], 0); " +
+                "if head then " +
+                    "redis.call('publish', head, 0); " +
+                "end; " +
+            "end; " +
+            "return true;";
+
+    /**
+     * 需要在启动时预加载的脚本
+     */
+    public static final List<String> SCRIPTS = Arrays.asList(LOCK_LUA_SCRIPT, UNLOCK_LUA_SCRIPT, CANCEL_LUA_SCRIPT);
+}
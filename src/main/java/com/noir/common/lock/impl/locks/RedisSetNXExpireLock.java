@@ -1,16 +1,26 @@
 package com.noir.common.lock.impl.locks;
 
+import com.noir.common.lock.AsyncDLock;
+import com.noir.common.lock.AsyncLockHandle;
 import com.noir.common.lock.ReentrantDLock;
+import com.noir.common.lock.TransferableLock;
 import com.noir.common.lock.excptions.LockExpiredException;
-import lombok.SneakyThrows;
+import com.noir.common.lock.impl.support.AsyncLockTimer;
+import com.noir.common.lock.impl.support.DeadlineContext;
+import com.noir.common.lock.impl.support.LockOwners;
+import com.noir.common.lock.impl.support.RedisLockReleaseSubscriber;
+import com.noir.common.lock.impl.support.RedisLockWatchdog;
+import com.noir.common.lock.impl.support.RedisScriptRegistry;
+import com.noir.common.lock.impl.support.TtlBackoffStrategy;
 import org.redisson.api.RScript;
-import org.redisson.api.RedissonClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 import java.util.Objects;
-import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Condition;
 
@@ -18,34 +28,59 @@ import java.util.concurrent.locks.Condition;
  * setNX and getSet lock
  *
  * 依赖过期时间，过短会使大量长调用链业务回滚，过长影响资源可用性
+ *
+ * 等待方通过 {@link RedisLockReleaseSubscriber} 共享订阅锁的
+ * 释放channel，解锁时publish通知唤醒等待者重试，未收到通知时
+ * 最多等待至当前持有者的剩余租期
+ *
+ * 开启续约时上锁成功后登记到 {@link RedisLockWatchdog}，
+ * 由其在租期内统一批量续约，解锁时取消登记
+ *
+ * 异步获取时以释放通知或剩余租期到期触发下一次尝试，
+ * 等待期间不占用线程
+ *
+ * 每次获取使用新的持有者标识，同步获取的标识记录在当前线程的
+ * 持有记录中，异步获取的标识属于返回的持有凭证，实例可被多个线程共用
  */
-public class RedisSetNXExpireLock extends ReentrantDLock {
+public class RedisSetNXExpireLock extends ReentrantDLock implements TransferableLock, AsyncDLock {
     private static final Long DEFAULT_TIMEOUT_SECONDS = 30L;
 
     private static final Logger log = LoggerFactory.getLogger(RedisSetNXExpireLock.class);
 
-    private static final int DEFAULT_SLEEP_MILLIS = 100;
+    static final String CHANNEL_SUFFIX = ":channel";
+
+    protected final RedisScriptRegistry scripts;
 
-    private final RedissonClient client;
+    private final RedisLockReleaseSubscriber subscriber;
+
+    /**
+     * 续约看门狗，未开启续约时为null
+     */
+    private final RedisLockWatchdog watchdog;
 
     private final String nameSpace;
 
     private final String name;
 
-    private final String lockerName = UUID.randomUUID().toString();
+    /**
+     * 移交中的持有者标识，由 {@link #detach()} 写入、{@link #attach()} 取出
+     */
+    private volatile String detachedOwner;
 
     /**
      * 锁失效时间(毫秒)
      */
-    private final long lockExpiresMilliseconds;
+    protected final long lockExpiresMilliseconds;
 
-    public RedisSetNXExpireLock(RedissonClient client, String nameSpace, String name) {
+    public RedisSetNXExpireLock(RedisScriptRegistry scripts, RedisLockReleaseSubscriber subscriber, RedisLockWatchdog watchdog, String nameSpace, String name) {
         //默认30分钟
-        this(client, nameSpace, name, DEFAULT_TIMEOUT_SECONDS, TimeUnit.MINUTES);
+        this(scripts, subscriber, watchdog, nameSpace, name, DEFAULT_TIMEOUT_SECONDS, TimeUnit.MINUTES);
     }
 
-    public RedisSetNXExpireLock(RedissonClient client, String nameSpace, String name, long expire, TimeUnit unit) {
-        this.client = client;
+    public RedisSetNXExpireLock(RedisScriptRegistry scripts, RedisLockReleaseSubscriber subscriber, RedisLockWatchdog watchdog, String nameSpace, String name, long expire, TimeUnit unit) {
+        this.scripts = scripts;
+        this.subscriber = subscriber;
+        this.watchdog = watchdog;
         this.nameSpace = nameSpace;
         this.name = name;
         this.lockExpiresMilliseconds = unit.toMillis(expire);
@@ -56,27 +91,38 @@ public class RedisSetNXExpireLock extends ReentrantDLock {
      *
      * @return str
      */
-    private String getLockKey() {
+    protected String getLockKey() {
         return nameSpace + ":" + name;
     }
 
-    @Override
-    public void lock() {
-        while (!tryLock()) {
-            // pass
-            log.info("retry get dLock");
-        }
-    }
-
-    @Override
-    public void lockInterruptibly() {
-        // pass
+    /**
+     * 获取锁释放通知的channel，与解锁脚本中的拼接保持一致
+     *
+     * @param owner 本次获取的持有者标识
+     * @return str
+     */
+    protected String getChannelName(String owner) {
+        return getLockKey() + CHANNEL_SUFFIX;
     }
 
+    /**
+     * 仅尝试一次，不等待
+     */
     @Override
-    @SneakyThrows
     public boolean tryLock() {
-        return tryLock(DEFAULT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        String lockKey = getLockKey();
+
+        if (reenter(lockKey)) {
+            return true;
+        }
+        String owner = LockOwners.next();
+        if (Objects.isNull(trySetLockRecode(lockKey, owner))) {
+            log.info(lockKey + " locked by setNX");
+            onLocked(lockKey, owner);
+            return true;
+        }
+        abandon(lockKey, owner);
+        return false;
     }
 
     /**
@@ -90,21 +136,224 @@ public class RedisSetNXExpireLock extends ReentrantDLock {
     public boolean tryLock(long l, TimeUnit timeUnit) throws InterruptedException {
         String lockKey = getLockKey();
 
-        if (isEntered(lockKey)) {
+        if (reenter(lockKey)) {
             return true;
         }
 
-        long deadline = System.currentTimeMillis() + timeUnit.toMillis(l);
+        return acquire(lockKey, DeadlineContext.deadline(l, timeUnit), true);
+    }
 
-        while (deadline >= System.currentTimeMillis()) {
-            if (trySetLockRecode(lockKey)) {
+    /**
+     * 阻塞直到获取，等待期间不响应中断，返回前恢复中断标记
+     *
+     * 整个等待使用同一持有者标识，公平模式下不会因分段等待失去队列中的位置
+     */
+    @Override
+    public void lock() {
+        String lockKey = getLockKey();
+        if (reenter(lockKey)) {
+            return;
+        }
+        try {
+            acquire(lockKey, DeadlineContext.NONE, false);
+        } catch (InterruptedException e) {
+            // 不响应中断时不会抛出
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 阻塞直到获取或被中断，整个等待使用同一持有者标识
+     */
+    @Override
+    public void lockInterruptibly() throws InterruptedException {
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+        String lockKey = getLockKey();
+        if (reenter(lockKey)) {
+            return;
+        }
+        acquire(lockKey, DeadlineContext.NONE, true);
+    }
+
+    /**
+     * 以同一持有者标识等待至截止时间
+     *
+     * @param deadline 毫秒时间戳，{@link DeadlineContext#NONE} 时一直等待
+     * @param interruptible 是否响应中断，否则在返回前恢复中断标记
+     * @return 是否获取成功
+     * @throws InterruptedException interruptedException
+     */
+    private boolean acquire(String lockKey, long deadline, boolean interruptible) throws InterruptedException {
+        String owner = LockOwners.next();
+
+        if (Objects.isNull(trySetLockRecode(lockKey, owner))) {
+            log.info(lockKey + " locked by setNX");
+            onLocked(lockKey, owner);
+            return true;
+        }
+
+        // 先订阅再重试，避免错过两次尝试之间的释放通知
+        RedisLockReleaseSubscriber.Entry entry = subscriber.subscribe(getChannelName(owner));
+        boolean locked = false;
+        boolean interrupted = false;
+        int attempt = 0;
+        try {
+            while (true) {
+                Long ttl = trySetLockRecode(lockKey, owner);
+                if (Objects.isNull(ttl)) {
+                    log.info(lockKey + " locked by setNX");
+                    onLocked(lockKey, owner);
+                    locked = true;
+                    return true;
+                }
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return false;
+                }
+                long wait = waitMillis(++attempt, ttl, remaining);
+                onRetry();
+                if (wait > 0) {
+                    try {
+                        entry.await(wait);
+                    } catch (InterruptedException e) {
+                        if (interruptible) {
+                            throw e;
+                        }
+                        interrupted = true;
+                    }
+                }
+            }
+        } finally {
+            subscriber.unsubscribe(entry);
+            if (!locked) {
+                abandon(lockKey, owner);
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * 下一次重试前的最长等待时间，期间收到释放通知时提前重试
+     *
+     * 默认等待至持有者的租期到期，未设置过期(-1)时仅依赖通知与剩余等待时间，
+     * key已消失(-2)时立即重试
+     *
+     * @param attempt 第几次等待
+     * @param ttl 当前持有者的剩余租期
+     * @param remaining 剩余等待时间
+     * @return 毫秒
+     */
+    protected long waitMillis(int attempt, long ttl, long remaining) {
+        return backoffStrategy(TtlBackoffStrategy.INSTANCE).nextDelay(attempt, ttl, remaining);
+    }
+
+    /**
+     * 放弃等待(超时或中断)时调用，不得阻塞
+     *
+     * @param lockKey 锁名
+     * @param owner 本次获取的持有者标识
+     */
+    protected void abandon(String lockKey, String owner) {
+        // pass
+    }
+
+    private void onLocked(String lockKey, String owner) {
+        enter(lockKey, owner);
+        track(lockKey, owner);
+    }
+
+    private void track(String lockKey, String owner) {
+        if (Objects.nonNull(watchdog)) {
+            watchdog.track(lockKey, owner, lockExpiresMilliseconds);
+        }
+    }
+
+    @Override
+    public CompletableFuture<AsyncLockHandle> tryLockAsync(long time, TimeUnit unit) {
+        CompletableFuture<AsyncLockHandle> result = new CompletableFuture<>();
+        attemptAsync(getLockKey(), LockOwners.next(), DeadlineContext.deadline(time, unit), 0, null, result);
+        return result;
+    }
+
+    /**
+     * 一次异步尝试，失败时登记释放通知与租期到期的重试
+     *
+     * @param attempt 已等待的次数
+     * @param entry 已订阅的释放通知，首次尝试时为null
+     */
+    private void attemptAsync(String lockKey, String owner, long deadline, int attempt, RedisLockReleaseSubscriber.Entry entry, CompletableFuture<AsyncLockHandle> result) {
+        // 先登记再尝试，尝试期间的释放通知不会丢失
+        RedisLockReleaseSubscriber.AsyncWaiter waiter = Objects.isNull(entry) ? null : entry.newWaiter();
+        trySetLockRecodeAsync(lockKey, owner).whenComplete((ttl, error) -> {
+            if (Objects.nonNull(error)) {
+                cancel(waiter);
+                unsubscribe(entry);
+                abandon(lockKey, owner);
+                result.completeExceptionally(error);
+                return;
+            }
+            if (Objects.isNull(ttl)) {
+                cancel(waiter);
+                unsubscribe(entry);
                 log.info(lockKey + " locked by setNX");
-                enter(lockKey);
-                return true;
+                track(lockKey, owner);
+                result.complete(() -> unlockAsync(lockKey, owner));
+                return;
+            }
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                cancel(waiter);
+                unsubscribe(entry);
+                abandon(lockKey, owner);
+                result.complete(null);
+                return;
+            }
+            if (Objects.isNull(entry)) {
+                subscriber.subscribeAsync(getChannelName(owner)).whenComplete((subscribed, subscribeError) -> {
+                    if (Objects.nonNull(subscribeError)) {
+                        abandon(lockKey, owner);
+                        result.completeExceptionally(subscribeError);
+                        return;
+                    }
+                    attemptAsync(lockKey, owner, deadline, attempt, subscribed, result);
+                });
+                return;
             }
-            Thread.sleep(DEFAULT_SLEEP_MILLIS);
+            long wait = waitMillis(attempt + 1, ttl, remaining);
+            onRetry();
+            waiter.arm(() -> attemptAsync(lockKey, owner, deadline, attempt + 1, entry, result));
+            AsyncLockTimer.schedule(waiter::fire, wait);
+        });
+    }
+
+    private void cancel(RedisLockReleaseSubscriber.AsyncWaiter waiter) {
+        if (Objects.nonNull(waiter)) {
+            waiter.cancel();
         }
-        return false;
+    }
+
+    private void unsubscribe(RedisLockReleaseSubscriber.Entry entry) {
+        if (Objects.nonNull(entry)) {
+            subscriber.unsubscribeAsync(entry);
+        }
+    }
+
+    /**
+     * 释放一次异步获取
+     */
+    private CompletableFuture<Void> unlockAsync(String lockKey, String owner) {
+        if (Objects.nonNull(watchdog)) {
+            watchdog.untrack(lockKey, owner);
+        }
+        return cleanLockRecodeAsync(lockKey, owner).thenAccept(unlocked -> {
+            if (!Boolean.TRUE.equals(unlocked)) {
+                throw new LockExpiredException();
+            }
+        });
     }
 
     /**
@@ -112,8 +361,29 @@ public class RedisSetNXExpireLock extends ReentrantDLock {
      */
     @Override
     public void unlock() {
-        exit(getLockKey());
-        cleanLockRecode(getLockKey());
+        String lockKey = getLockKey();
+        String owner = (String) holdToken(lockKey);
+        if (!exit(lockKey)) {
+            // 仍被当前线程重入持有
+            return;
+        }
+        if (Objects.nonNull(watchdog)) {
+            watchdog.untrack(lockKey, owner);
+        }
+        cleanLockRecode(lockKey, owner);
+    }
+
+    @Override
+    public void detach() {
+        String lockKey = getLockKey();
+        String owner = (String) holdToken(lockKey);
+        exit(lockKey);
+        detachedOwner = owner;
+    }
+
+    @Override
+    public void attach() {
+        enter(getLockKey(), detachedOwner);
     }
 
     @Override
@@ -122,39 +392,77 @@ public class RedisSetNXExpireLock extends ReentrantDLock {
         return null;
     }
 
-    private boolean trySetLockRecode(String key) {
-        String status = client
-                .getScript()
-                .eval(
-                        RScript.Mode.READ_WRITE,
-                        LOCK_LUA_SCRIPT,
-                        RScript.ReturnType.STATUS,
-                        Collections.singletonList(key),
-                        lockerName,
-                        lockExpiresMilliseconds);
-        return !Objects.isNull(status);
+    /**
+     * 尝试写入锁记录
+     *
+     * @return 成功时为null，否则为当前持有者的剩余租期(毫秒)
+     */
+    protected Long trySetLockRecode(String key, String owner) {
+        return scripts.eval(
+                RScript.Mode.READ_WRITE,
+                LOCK_LUA_SCRIPT,
+                RScript.ReturnType.INTEGER,
+                Collections.singletonList(key),
+                owner,
+                lockExpiresMilliseconds);
+    }
+
+    protected CompletableFuture<Long> trySetLockRecodeAsync(String key, String owner) {
+        return scripts.evalAsync(
+                RScript.Mode.READ_WRITE,
+                LOCK_LUA_SCRIPT,
+                RScript.ReturnType.INTEGER,
+                Collections.singletonList(key),
+                owner,
+                lockExpiresMilliseconds);
     }
 
-    private void cleanLockRecode(String key) throws LockExpiredException {
-        boolean unlocked = client.getScript().eval(
+    protected void cleanLockRecode(String key, String owner) throws LockExpiredException {
+        boolean unlocked = scripts.eval(
                 RScript.Mode.READ_WRITE,
                 UNLOCK_LUA_SCRIPT,
                 RScript.ReturnType.BOOLEAN,
                 Collections.singletonList(key),
-                lockerName);
+                owner);
         if (!unlocked) {
             throw new LockExpiredException();
         }
     }
 
+    protected CompletableFuture<Boolean> cleanLockRecodeAsync(String key, String owner) {
+        return scripts.evalAsync(
+                RScript.Mode.READ_WRITE,
+                UNLOCK_LUA_SCRIPT,
+                RScript.ReturnType.BOOLEAN,
+                Collections.singletonList(key),
+                owner);
+    }
+
     /**
-     * 设置超时时间使用lua脚本保证操作原子性
+     * 设置超时时间使用lua脚本保证操作原子性，
+     * 上锁失败时返回当前持有者的剩余租期(毫秒)
      */
-    private static final String LOCK_LUA_SCRIPT = "return redis.call('SET', KEYS[1], ARGV[1], 'EX', ARGV[2], 'NX')";
+    private static final String LOCK_LUA_SCRIPT =
+            "if redis.call('SET', KEYS[1], ARGV[1], 'PX', ARGV[2], 'NX') then " +
+                "return nil; " +
+            "end; " +
+            "return redis.call('PTTL', KEYS[1]);";
     /**
      * 解锁时对当前锁持有者进行check，仅在
-     * 持有方为自己时释放锁，并返回释放状态
-     * 以供上层做业务回滚
+     * 持有方为自己时释放锁并publish释放通知，
+     * 返回释放状态以供上层做业务回滚
+     */
+    private static final String UNLOCK_LUA_SCRIPT =
+            "if redis.call('get', KEYS[1]) == ARGV[1] then " +
+                "redis.call('del', KEYS[1]); " +
+                "redis.call('publish', KEYS[1] .. '" + CHANNEL_SUFFIX + "', 0); " +
+                "return true; " +
+            "else " +
+                "return false " +
+            "end";
+
+    /**
+     * 需要在启动时预加载的脚本
      */
-    private static final String UNLOCK_LUA_SCRIPT = "if redis.call('get', KEYS[1]) == ARGV[1] then redis.call('del', KEYS[1]); return true; else return false end";
+    public static final List<String> SCRIPTS = Arrays.asList(LOCK_LUA_SCRIPT, UNLOCK_LUA_SCRIPT);
 }
\ No newline at end of file
@@ -0,0 +1,266 @@
+package com.noir.common.lock.impl.locks;
+
+import com.noir.common.lock.ReentrantDLock;
+import com.noir.common.lock.excptions.LockExpiredException;
+import com.noir.common.lock.impl.support.DeadlineContext;
+import com.noir.common.lock.impl.support.LockOwners;
+import com.noir.common.lock.impl.support.RedisLockReleaseSubscriber;
+import com.noir.common.lock.impl.support.RedisLockWatchdog;
+import com.noir.common.lock.impl.support.RedisScriptRegistry;
+import com.noir.common.lock.impl.support.TtlBackoffStrategy;
+import org.redisson.api.RScript;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+
+/**
+ * setNX expire multi lock
+ *
+ * 多资源的 {@link RedisSetNXExpireLock}，通过一次lua脚本
+ * 原子地获取或释放全部key，全部空闲时才全部写入，否则一个
+ * 都不写入，避免逐个获取时部分持有阻塞其他调用方。
+ *
+ * 失败时脚本返回首个被占用的key及其剩余租期，等待方订阅
+ * 该key的释放通知后重试。
+ *
+ * 脚本涉及多个key，cluster模式下需保证key位于同一slot。
+ */
+public class RedisSetNXExpireMultiLock extends ReentrantDLock {
+    private static final Long DEFAULT_TIMEOUT_SECONDS = 30L;
+
+    private static final Logger log = LoggerFactory.getLogger(RedisSetNXExpireMultiLock.class);
+
+    private final RedisScriptRegistry scripts;
+
+    private final RedisLockReleaseSubscriber subscriber;
+
+    /**
+     * 续约看门狗，未开启续约时为null
+     */
+    private final RedisLockWatchdog watchdog;
+
+    private final List<String> lockKeys;
+
+    private final String lockerName = LockOwners.next();
+
+    /**
+     * 锁失效时间(毫秒)
+     */
+    private final long lockExpiresMilliseconds;
+
+    /**
+     * 本次上锁实际写入的key，当前线程已持有的key仅累加持有次数
+     */
+    private List<String> acquiredKeys = Collections.emptyList();
+
+    public RedisSetNXExpireMultiLock(RedisScriptRegistry scripts, RedisLockReleaseSubscriber subscriber, RedisLockWatchdog watchdog, String nameSpace, Collection<String> names) {
+        //默认30分钟
+        this(scripts, subscriber, watchdog, nameSpace, names, DEFAULT_TIMEOUT_SECONDS, TimeUnit.MINUTES);
+    }
+
+    public RedisSetNXExpireMultiLock(RedisScriptRegistry scripts, RedisLockReleaseSubscriber subscriber, RedisLockWatchdog watchdog, String nameSpace, Collection<String> names, long expire, TimeUnit unit) {
+        this.scripts = scripts;
+        this.subscriber = subscriber;
+        this.watchdog = watchdog;
+        this.lockKeys = new ArrayList<>(names.size());
+        for (String name : new LinkedHashSet<>(names)) {
+            this.lockKeys.add(nameSpace + ":" + name);
+        }
+        this.lockExpiresMilliseconds = unit.toMillis(expire);
+    }
+
+    /**
+     * 仅尝试一次，不等待
+     */
+    @Override
+    public boolean tryLock() {
+        List<String> keys = unheldKeys();
+        if (keys.isEmpty()) {
+            // 全部重入
+            acquiredKeys = keys;
+            lockKeys.forEach(this::enter);
+            return true;
+        }
+        if (trySetLockRecodes(keys).get(0) == 0) {
+            log.info(keys + " locked by setNX");
+            onLocked(keys);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 当前线程尚未持有的key
+     */
+    private List<String> unheldKeys() {
+        List<String> keys = new ArrayList<>(lockKeys.size());
+        for (String lockKey : lockKeys) {
+            if (!isEntered(lockKey)) {
+                keys.add(lockKey);
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * 尝试获取全部锁
+     * @param l 时间长度
+     * @param timeUnit 单位
+     * @return 是否上锁成功
+     * @throws InterruptedException interruptedException
+     */
+    @Override
+    public boolean tryLock(long l, TimeUnit timeUnit) throws InterruptedException {
+        List<String> keys = unheldKeys();
+        if (keys.isEmpty()) {
+            // 全部重入
+            acquiredKeys = keys;
+            lockKeys.forEach(this::enter);
+            return true;
+        }
+
+        long deadline = DeadlineContext.deadline(l, timeUnit);
+
+        RedisLockReleaseSubscriber.Entry entry = null;
+        String channel = null;
+        int attempt = 0;
+        try {
+            while (true) {
+                List<Long> result = trySetLockRecodes(keys);
+                if (result.get(0) == 0) {
+                    log.info(keys + " locked by setNX");
+                    onLocked(keys);
+                    return true;
+                }
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return false;
+                }
+                // 订阅首个被占用key的释放通知，切换订阅后立即重试一次避免错过通知
+                String blocking = keys.get(result.get(0).intValue() - 1) + RedisSetNXExpireLock.CHANNEL_SUFFIX;
+                if (!blocking.equals(channel)) {
+                    if (Objects.nonNull(entry)) {
+                        subscriber.unsubscribe(entry);
+                    }
+                    entry = subscriber.subscribe(blocking);
+                    channel = blocking;
+                    continue;
+                }
+                long ttl = result.get(1);
+                long wait = backoffStrategy(TtlBackoffStrategy.INSTANCE).nextDelay(++attempt, ttl, remaining);
+                if (wait > 0) {
+                    onRetry();
+                    entry.await(wait);
+                }
+            }
+        } finally {
+            if (Objects.nonNull(entry)) {
+                subscriber.unsubscribe(entry);
+            }
+        }
+    }
+
+    private void onLocked(List<String> keys) {
+        acquiredKeys = keys;
+        lockKeys.forEach(this::enter);
+        if (Objects.nonNull(watchdog)) {
+            for (String key : keys) {
+                watchdog.track(key, lockerName, lockExpiresMilliseconds);
+            }
+        }
+    }
+
+    /**
+     * 解锁删除本次获取且不再被当前线程持有的key
+     */
+    @Override
+    public void unlock() {
+        List<String> keys = new ArrayList<>(acquiredKeys.size());
+        for (String lockKey : lockKeys) {
+            if (exit(lockKey) && acquiredKeys.contains(lockKey)) {
+                keys.add(lockKey);
+            }
+        }
+        acquiredKeys = Collections.emptyList();
+        if (keys.isEmpty()) {
+            return;
+        }
+        if (Objects.nonNull(watchdog)) {
+            for (String key : keys) {
+                watchdog.untrack(key, lockerName);
+            }
+        }
+        long released = scripts.eval(
+                RScript.Mode.READ_WRITE,
+                UNLOCK_LUA_SCRIPT,
+                RScript.ReturnType.INTEGER,
+                new ArrayList<>(keys),
+                lockerName);
+        if (released < keys.size()) {
+            throw new LockExpiredException();
+        }
+    }
+
+    @Override
+    public Condition newCondition() {
+        // pass
+        return null;
+    }
+
+    /**
+     * 尝试写入全部锁记录
+     *
+     * @return 成功时为{0}，否则为{首个被占用key的序号(从1开始), 剩余租期(毫秒)}
+     */
+    private List<Long> trySetLockRecodes(List<String> keys) {
+        return scripts.eval(
+                RScript.Mode.READ_WRITE,
+                LOCK_LUA_SCRIPT,
+                RScript.ReturnType.MULTI,
+                new ArrayList<>(keys),
+                lockerName,
+                lockExpiresMilliseconds);
+    }
+
+    /**
+     * 任一key被占用时返回其序号与剩余租期，全部空闲时全部写入
+     */
+    private static final String LOCK_LUA_SCRIPT =
+            "for i = 1, #KEYS do " +
+                "local ttl = redis.call('PTTL', KEYS[i]); " +
+                "if ttl ~= -2 then " +
+                    "return {i, ttl}; " +
+                "end; " +
+            "end; " +
+            "for i = 1, #KEYS do " +
+                "redis.call('SET', KEYS[i], ARGV[1], 'PX', ARGV[2]); " +
+            "end; " +
+            "return {0};";
+    /**
+     * 释放持有者为自己的key并publish释放通知，返回释放数量
+     */
+    private static final String UNLOCK_LUA_SCRIPT =
+            "local released = 0; " +
+            "for i = 1, #KEYS do " +
+                "if redis.call('get', KEYS[i]) == ARGV[1] then " +
+                    "redis.call('del', KEYS[i]); " +
+                    "redis.call('publish', KEYS[i] .. '" + RedisSetNXExpireLock.CHANNEL_SUFFIX + "', 0); " +
+                    "released = released + 1; " +
+                "end; " +
+            "end; " +
+            "return released;";
+
+    /**
+     * 需要在启动时预加载的脚本
+     */
+    public static final List<String> SCRIPTS = Arrays.asList(LOCK_LUA_SCRIPT, UNLOCK_LUA_SCRIPT);
+}
@@ -1,15 +1,26 @@
 package com.noir.common.lock.impl.locks;
 
 
+import com.noir.common.lock.AsyncDLock;
+import com.noir.common.lock.AsyncLockHandle;
+import com.noir.common.lock.BackoffStrategy;
 import com.noir.common.lock.ReentrantDLock;
+import com.noir.common.lock.TransferableLock;
 import com.noir.common.lock.excptions.LockExpiredException;
-import lombok.SneakyThrows;
+import com.noir.common.lock.impl.support.AsyncLockTimer;
+import com.noir.common.lock.impl.support.DeadlineContext;
+import com.noir.common.lock.impl.support.ExponentialBackoffStrategy;
+import com.noir.common.lock.impl.support.LockOwners;
+import com.noir.common.lock.impl.support.RedisScriptRegistry;
 import org.redisson.api.RScript;
-import org.redisson.api.RedissonClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Condition;
 
@@ -17,35 +28,51 @@ import java.util.concurrent.locks.Condition;
  * setNX and getSet lock
  *
  * 依赖过期时间，过短会导致大量业务超过租期使业务回滚，
- * 过长影响资源可用性；大量getSet操作对redis的资源消耗高；
+ * 过长影响资源可用性；
+ *
+ * 值为 {@code 失效时间戳:持有者}，判断是否失效与抢占在一次
+ * lua脚本中完成，时间取redis服务端的 {@code TIME}，每次尝试
+ * 一次往返且不受各节点时钟偏差影响(需要redis 3.2+)。
+ * 每次获取以新的持有者标识写入，同步获取的标识记录在当前
+ * 线程的持有记录中，异步获取的标识属于返回的持有凭证，
+ * 实例可被多个线程共用
+ *
+ * 没有释放通知，获取失败后轮询，默认以指数退避与随机抖动
+ * 决定轮询间隔；异步获取时以定时器代替sleep轮询
  */
-public class RedisSetNXGetSetLock extends ReentrantDLock {
+public class RedisSetNXGetSetLock extends ReentrantDLock implements TransferableLock, AsyncDLock {
     private static final Long DEFAULT_TIMEOUT_SECONDS = 30L;
 
     private static final Logger log = LoggerFactory.getLogger(RedisSetNXGetSetLock.class);
 
-    private static final int DEFAULT_SLEEP_MILLIS = 100;
+    /**
+     * 默认等待策略，轮询锁不宜等待至租期到期
+     */
+    static final BackoffStrategy DEFAULT_BACKOFF = new ExponentialBackoffStrategy(50, 1000, 0.5);
 
-    private final RedissonClient client;
+    private final RedisScriptRegistry scripts;
 
     private final String namespace;
 
     private final String name;
 
-    private Long lockValue;
+    /**
+     * 移交中的持有者，由 {@link #detach()} 写入、{@link #attach()} 取出
+     */
+    private volatile String detachedOwner;
 
     /**
      * 锁失效时间(毫秒)
      */
     private final long lockExpiresMilliseconds;
 
-    public RedisSetNXGetSetLock(RedissonClient client, String namespace, String name) {
+    public RedisSetNXGetSetLock(RedisScriptRegistry scripts, String namespace, String name) {
         //默认30分钟
-        this(client, namespace, name, DEFAULT_TIMEOUT_SECONDS, TimeUnit.MINUTES);
+        this(scripts, namespace, name, DEFAULT_TIMEOUT_SECONDS, TimeUnit.MINUTES);
     }
 
-    public RedisSetNXGetSetLock(RedissonClient client, String namespace, String name, long expire, TimeUnit unit) {
-        this.client = client;
+    public RedisSetNXGetSetLock(RedisScriptRegistry scripts, String namespace, String name, long expire, TimeUnit unit) {
+        this.scripts = scripts;
         this.namespace = namespace;
         this.name = name;
         this.lockExpiresMilliseconds = unit.toMillis(expire);
@@ -60,23 +87,14 @@ public class RedisSetNXGetSetLock extends ReentrantDLock {
         return namespace + ":" + name;
     }
 
+    /**
+     * 仅尝试一次，不等待
+     */
     @Override
-    public void lock() {
-        while (!tryLock()) {
-            // pass
-            log.info("retry get dLock");
-        }
-    }
-
-    @Override
-    public void lockInterruptibly() throws InterruptedException {
-        // pass
-    }
-
-    @Override
-    @SneakyThrows
     public boolean tryLock() {
-        return tryLock(DEFAULT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        String lockKey = getLockKey();
+
+        return reenter(lockKey) || Objects.isNull(attempt(lockKey));
     }
 
     /**
@@ -90,34 +108,108 @@ public class RedisSetNXGetSetLock extends ReentrantDLock {
     public boolean tryLock(long l, TimeUnit timeUnit) throws InterruptedException {
         String lockKey = getLockKey();
 
-        if (isEntered(lockKey)) {
+        if (reenter(lockKey)) {
             return true;
         }
 
-        long deadline = System.currentTimeMillis() + timeUnit.toMillis(l);
-
-        while (deadline >= System.currentTimeMillis()) {
-            long serverTime = System.currentTimeMillis();
-            lockValue = serverTime + lockExpiresMilliseconds;
+        long deadline = DeadlineContext.deadline(l, timeUnit);
 
-            if (client.getBucket(lockKey).trySet(lockValue)) {
-                log.info(lockKey + " locked by setNX");
-                enter(lockKey);
+        int attempt = 0;
+        while (true) {
+            Long ttl = attempt(lockKey);
+            if (Objects.isNull(ttl)) {
                 return true;
             }
-            Long currentValue = (Long) client.getBucket(lockKey).get();
-            //判断锁是否失效
-            if (currentValue != null && currentValue < serverTime) {
-                Long oldValueStr = (Long) client.getBucket(lockKey).getAndSet(lockValue);
-                if (oldValueStr != null && oldValueStr.equals(currentValue)) {
-                    log.info("locked by getSet");
-                    enter(lockKey);
-                    return true;
-                }
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                return false;
+            }
+            onRetry();
+            long wait = pollingBackoffStrategy(DEFAULT_BACKOFF).nextDelay(++attempt, ttl, remaining);
+            if (wait > 0) {
+                Thread.sleep(wait);
             }
-            Thread.sleep(DEFAULT_SLEEP_MILLIS);
         }
-        return false;
+    }
+
+    /**
+     * 一次脚本调用，锁不存在或已失效时写入
+     *
+     * @return 成功时为null，否则为当前持有者的剩余租期(毫秒)
+     */
+    private Long attempt(String lockKey) {
+        String owner = LockOwners.next();
+        Long ttl = scripts.eval(
+                RScript.Mode.READ_WRITE,
+                LOCK_LUA_SCRIPT,
+                RScript.ReturnType.INTEGER,
+                Collections.singletonList(lockKey),
+                lockExpiresMilliseconds,
+                owner);
+        if (Objects.isNull(ttl)) {
+            log.info(lockKey + " locked");
+            enter(lockKey, owner);
+        }
+        return ttl;
+    }
+
+    @Override
+    public CompletableFuture<AsyncLockHandle> tryLockAsync(long time, TimeUnit unit) {
+        CompletableFuture<AsyncLockHandle> result = new CompletableFuture<>();
+        attemptAsync(getLockKey(), DeadlineContext.deadline(time, unit), 0, result);
+        return result;
+    }
+
+    /**
+     * 一次异步尝试，失败时由定时器调度下一次
+     *
+     * @param attempt 已等待的次数
+     */
+    private void attemptAsync(String lockKey, long deadline, int attempt, CompletableFuture<AsyncLockHandle> result) {
+        String owner = LockOwners.next();
+
+        // 成功时为null，否则为当前持有者的剩余租期
+        scripts.<Long>evalAsync(
+                RScript.Mode.READ_WRITE,
+                LOCK_LUA_SCRIPT,
+                RScript.ReturnType.INTEGER,
+                Collections.singletonList(lockKey),
+                lockExpiresMilliseconds,
+                owner).whenComplete((ttl, error) -> {
+            if (Objects.nonNull(error)) {
+                result.completeExceptionally(error);
+                return;
+            }
+            if (Objects.isNull(ttl)) {
+                log.info(lockKey + " locked asynchronously");
+                result.complete(() -> unlockAsync(lockKey, owner));
+                return;
+            }
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                result.complete(null);
+                return;
+            }
+            onRetry();
+            long wait = pollingBackoffStrategy(DEFAULT_BACKOFF).nextDelay(attempt + 1, ttl, remaining);
+            AsyncLockTimer.schedule(() -> attemptAsync(lockKey, deadline, attempt + 1, result), wait);
+        });
+    }
+
+    /**
+     * 释放一次异步获取
+     */
+    private CompletableFuture<Void> unlockAsync(String lockKey, String owner) {
+        return scripts.<Boolean>evalAsync(
+                RScript.Mode.READ_WRITE,
+                UNLOCK_LUA_SCRIPT,
+                RScript.ReturnType.BOOLEAN,
+                Collections.singletonList(lockKey),
+                owner).thenAccept(unlocked -> {
+            if (!Boolean.TRUE.equals(unlocked)) {
+                throw new LockExpiredException();
+            }
+        });
     }
 
     /**
@@ -126,19 +218,36 @@ public class RedisSetNXGetSetLock extends ReentrantDLock {
     @Override
     public void unlock() {
         String lockKey = getLockKey();
-        exit(lockKey);
-        boolean unlocked = client.getScript().eval(
+        Object owner = holdToken(lockKey);
+        if (!exit(lockKey)) {
+            // 仍被当前线程重入持有
+            return;
+        }
+        boolean unlocked = scripts.eval(
                 RScript.Mode.READ_WRITE,
                 UNLOCK_LUA_SCRIPT,
                 RScript.ReturnType.BOOLEAN,
                 Collections.singletonList(lockKey),
-                lockValue);
+                owner);
         if (!unlocked) {
             throw new LockExpiredException();
         }
         log.info(lockKey + " unlock");
     }
 
+    @Override
+    public void detach() {
+        String lockKey = getLockKey();
+        String owner = (String) holdToken(lockKey);
+        exit(lockKey);
+        detachedOwner = owner;
+    }
+
+    @Override
+    public void attach() {
+        enter(getLockKey(), detachedOwner);
+    }
+
     @Override
     public Condition newCondition() {
         // pass
@@ -146,8 +255,42 @@ public class RedisSetNXGetSetLock extends ReentrantDLock {
     }
 
     /**
-     * 保证原子性的解锁lua
+     * 以服务端时间判断锁是否失效，失效或不存在时写入 {@code 失效时间戳:持有者}，
+     * 成功返回nil，否则返回剩余租期，无法解析时为-2
+     *
+     * 仅含时间戳的值视为旧版本写入，同样按时间戳判断
+     */
+    private static final String LOCK_LUA_SCRIPT =
+            "redis.replicate_commands(); " +
+            "local time = redis.call('time'); " +
+            "local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000); " +
+            "local current = redis.call('get', KEYS[1]); " +
+            "if current then " +
+                "local expiresAt = tonumber(string.match(current, '^%d+')); " +
+                "if not expiresAt then " +
+                    "return -2; " +
+                "end; " +
+                "if expiresAt >= now then " +
+                    "return expiresAt - now; " +
+                "end; " +
+            "end; " +
+            "redis.call('set', KEYS[1], (now + tonumber(ARGV[1])) .. ':' .. ARGV[2]); " +
+            "return nil;";
+
+    /**
+     * 保证原子性的解锁lua，持有者一致时删除
+     */
+    private static final String UNLOCK_LUA_SCRIPT =
+            "local current = redis.call('get', KEYS[1]); " +
+            "if current and string.match(current, '^%d+:(.*)$') == ARGV[1] then " +
+                "redis.call('del', KEYS[1]); " +
+                "return true; " +
+            "end; " +
+            "return false;";
+
+    /**
+     * 需要在启动时预加载的脚本
      */
-    private static final String UNLOCK_LUA_SCRIPT = "if redis.call('get', KEYS[1]) == ARGV[1] then redis.call('del', KEYS[1]); return true; else return false end";
+    public static final List<String> SCRIPTS = Arrays.asList(LOCK_LUA_SCRIPT, UNLOCK_LUA_SCRIPT);
 
-}
\ No newline at end of file
+}
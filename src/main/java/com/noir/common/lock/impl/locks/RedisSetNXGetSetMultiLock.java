@@ -0,0 +1,234 @@
+package com.noir.common.lock.impl.locks;
+
+import com.noir.common.lock.ReentrantDLock;
+import com.noir.common.lock.excptions.LockExpiredException;
+import com.noir.common.lock.impl.support.DeadlineContext;
+import com.noir.common.lock.impl.support.LockOwners;
+import com.noir.common.lock.impl.support.RedisScriptRegistry;
+import org.redisson.api.RScript;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+
+/**
+ * setNX and getSet multi lock
+ *
+ * 多资源的 {@link RedisSetNXGetSetLock}，通过一次lua脚本
+ * 以服务端时间原子地检查全部key的时间戳，全部空闲或已过期时
+ * 才全部写入，否则一个都不写入。
+ *
+ * 脚本涉及多个key，cluster模式下需保证key位于同一slot。
+ */
+public class RedisSetNXGetSetMultiLock extends ReentrantDLock {
+    private static final Long DEFAULT_TIMEOUT_SECONDS = 30L;
+
+    private static final Logger log = LoggerFactory.getLogger(RedisSetNXGetSetMultiLock.class);
+
+    private final RedisScriptRegistry scripts;
+
+    private final List<String> lockKeys;
+
+    /**
+     * 本次上锁的持有者
+     */
+    private String lockOwner;
+
+    /**
+     * 本次上锁实际写入的key，当前线程已持有的key仅累加持有次数
+     */
+    private List<String> acquiredKeys = Collections.emptyList();
+
+    /**
+     * 锁失效时间(毫秒)
+     */
+    private final long lockExpiresMilliseconds;
+
+    public RedisSetNXGetSetMultiLock(RedisScriptRegistry scripts, String namespace, Collection<String> names) {
+        //默认30分钟
+        this(scripts, namespace, names, DEFAULT_TIMEOUT_SECONDS, TimeUnit.MINUTES);
+    }
+
+    public RedisSetNXGetSetMultiLock(RedisScriptRegistry scripts, String namespace, Collection<String> names, long expire, TimeUnit unit) {
+        this.scripts = scripts;
+        this.lockKeys = new ArrayList<>(names.size());
+        for (String name : new LinkedHashSet<>(names)) {
+            this.lockKeys.add(namespace + ":" + name);
+        }
+        this.lockExpiresMilliseconds = unit.toMillis(expire);
+    }
+
+    /**
+     * 仅尝试一次，不等待
+     */
+    @Override
+    public boolean tryLock() {
+        List<String> keys = unheldKeys();
+        if (keys.isEmpty()) {
+            // 全部重入
+            acquiredKeys = keys;
+            lockKeys.forEach(this::enter);
+            return true;
+        }
+        return Objects.isNull(attempt(keys));
+    }
+
+    /**
+     * 当前线程尚未持有的key
+     */
+    private List<String> unheldKeys() {
+        List<String> keys = new ArrayList<>(lockKeys.size());
+        for (String lockKey : lockKeys) {
+            if (!isEntered(lockKey)) {
+                keys.add(lockKey);
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * 尝试获取全部锁
+     * @param l 时间长度
+     * @param timeUnit 单位
+     * @return 是否上锁成功
+     * @throws InterruptedException interruptedException
+     */
+    @Override
+    public boolean tryLock(long l, TimeUnit timeUnit) throws InterruptedException {
+        List<String> keys = unheldKeys();
+        if (keys.isEmpty()) {
+            // 全部重入
+            acquiredKeys = keys;
+            lockKeys.forEach(this::enter);
+            return true;
+        }
+
+        long deadline = DeadlineContext.deadline(l, timeUnit);
+
+        int attempt = 0;
+        while (true) {
+            Long ttl = attempt(keys);
+            if (Objects.isNull(ttl)) {
+                return true;
+            }
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                return false;
+            }
+            onRetry();
+            long wait = pollingBackoffStrategy(RedisSetNXGetSetLock.DEFAULT_BACKOFF).nextDelay(++attempt, ttl, remaining);
+            if (wait > 0) {
+                Thread.sleep(wait);
+            }
+        }
+    }
+
+    /**
+     * 一次脚本调用尝试获取全部key
+     *
+     * @return 成功时为null，否则为首个被占用key的剩余租期(毫秒)
+     */
+    private Long attempt(List<String> keys) {
+        String owner = LockOwners.next();
+
+        Long ttl = scripts.eval(
+                RScript.Mode.READ_WRITE,
+                LOCK_LUA_SCRIPT,
+                RScript.ReturnType.INTEGER,
+                new ArrayList<>(keys),
+                lockExpiresMilliseconds,
+                owner);
+        if (Objects.isNull(ttl)) {
+            log.info(keys + " locked");
+            lockOwner = owner;
+            acquiredKeys = keys;
+            lockKeys.forEach(this::enter);
+        }
+        return ttl;
+    }
+
+    /**
+     * 解锁删除本次获取且不再被当前线程持有的key
+     */
+    @Override
+    public void unlock() {
+        List<String> keys = new ArrayList<>(acquiredKeys.size());
+        for (String lockKey : lockKeys) {
+            if (exit(lockKey) && acquiredKeys.contains(lockKey)) {
+                keys.add(lockKey);
+            }
+        }
+        acquiredKeys = Collections.emptyList();
+        if (keys.isEmpty()) {
+            return;
+        }
+        long released = scripts.eval(
+                RScript.Mode.READ_WRITE,
+                UNLOCK_LUA_SCRIPT,
+                RScript.ReturnType.INTEGER,
+                new ArrayList<>(keys),
+                lockOwner);
+        if (released < keys.size()) {
+            throw new LockExpiredException();
+        }
+        log.info(keys + " unlock");
+    }
+
+    @Override
+    public Condition newCondition() {
+        // pass
+        return null;
+    }
+
+    /**
+     * 以服务端时间判断，全部key不存在或已失效时全部写入 {@code 失效时间戳:持有者}，
+     * 否则返回首个被占用key的剩余租期，无法解析时为-2
+     */
+    private static final String LOCK_LUA_SCRIPT =
+            "redis.replicate_commands(); " +
+            "local time = redis.call('time'); " +
+            "local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000); " +
+            "for i = 1, #KEYS do " +
+                "local current = redis.call('get', KEYS[i]); " +
+                "if current then " +
+                    "local expiresAt = tonumber(string.match(current, '^%d+')); " +
+                    "if not expiresAt then " +
+                        "return -2; " +
+                    "end; " +
+                    "if expiresAt >= now then " +
+                        "return expiresAt - now; " +
+                    "end; " +
+                "end; " +
+            "end; " +
+            "local value = (now + tonumber(ARGV[1])) .. ':' .. ARGV[2]; " +
+            "for i = 1, #KEYS do " +
+                "redis.call('set', KEYS[i], value); " +
+            "end; " +
+            "return nil;";
+    /**
+     * 释放持有者仍为自己的key，返回释放数量
+     */
+    private static final String UNLOCK_LUA_SCRIPT =
+            "local released = 0; " +
+            "for i = 1, #KEYS do " +
+                "local current = redis.call('get', KEYS[i]); " +
+                "if current and string.match(current, '^%d+:(.*)$') == ARGV[1] then " +
+                    "redis.call('del', KEYS[i]); " +
+                    "released = released + 1; " +
+                "end; " +
+            "end; " +
+            "return released;";
+
+    /**
+     * 需要在启动时预加载的脚本
+     */
+    public static final List<String> SCRIPTS = Arrays.asList(LOCK_LUA_SCRIPT, UNLOCK_LUA_SCRIPT);
+}
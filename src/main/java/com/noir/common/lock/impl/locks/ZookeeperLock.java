@@ -1,145 +1,387 @@
 package com.noir.common.lock.impl.locks;
 
+import com.noir.common.lock.AsyncDLock;
+import com.noir.common.lock.AsyncLockHandle;
 import com.noir.common.lock.ReentrantDLock;
-import org.apache.zookeeper.*;
-import org.apache.zookeeper.data.Stat;
+import com.noir.common.lock.TransferableLock;
+import com.noir.common.lock.excptions.LockExpiredException;
+import com.noir.common.lock.impl.support.AsyncLockTimer;
+import com.noir.common.lock.impl.support.DeadlineContext;
+import com.noir.common.lock.impl.support.ZookeeperConnectionManager;
+import com.noir.common.lock.impl.support.ZookeeperLockPaths;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.Watcher;
+import org.apache.zookeeper.ZooKeeper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.Condition;
 
 /**
  * zookeeper lock
  *
  * 依赖zk，发生死锁场景低，并发支持不如缓存
+ *
+ * 每个锁名在独立目录下创建顺序节点，获取时仅列出
+ * 同名锁的竞争者，开销不随锁名数量增长
+ * @see ZookeeperLockPaths
+ *
+ * 会话由 {@link ZookeeperConnectionManager} 统一维护，
+ * 加解锁不会建立或关闭连接
+ *
+ * 等待时以本次获取独有的监听器监听前一节点，前一节点
+ * 删除后由zk客户端的事件线程重新检查，直到成为最小节点
+ * 或超时；超时或中断时删除自身节点。同步获取与异步获取
+ * 共用同一流程，同步获取仅阻塞等待其结果。
+ *
+ * 同步获取的节点记录在当前线程的持有记录中，异步获取的节点属于
+ * 返回的持有凭证，实例可被多个线程共用
  */
-public class ZookeeperLock extends ReentrantDLock implements Watcher {
-    private final ZooKeeper zk;
-    private final String root = "/locks";//根
+public class ZookeeperLock extends ReentrantDLock implements TransferableLock, AsyncDLock {
+    private static final Logger log = LoggerFactory.getLogger(ZookeeperLock.class);
+
+    private final ZookeeperConnectionManager connections;
+    private final ZookeeperLockPaths paths;
     private final String lockName;//竞争资源的标志
-    private String waitNode;//等待前一个锁
-    private String myZNode;//当前锁
-    private CountDownLatch latch;//计数器
-    private final long sessionTimeout;
+    private final String lockDir;//锁目录
+    private volatile String detachedZNode;//移交中的节点
 
-    public ZookeeperLock(ZooKeeper zk, String lockName) throws KeeperException, InterruptedException {
-        this(zk, lockName, DEFAULT_TIMEOUT, TimeUnit.MILLISECONDS);
+    public ZookeeperLock(ZookeeperConnectionManager connections, String lockName) {
+        this(connections, lockName, DEFAULT_TIMEOUT, TimeUnit.MILLISECONDS);
     }
 
-    public ZookeeperLock(ZooKeeper zk, String lockName, long expire, TimeUnit unit) throws KeeperException, InterruptedException {
+    /**
+     * zk锁的节点随会话存在，没有租期，expire仅为与工厂接口保持一致
+     */
+    public ZookeeperLock(ZookeeperConnectionManager connections, String lockName, long expire, TimeUnit unit) {
         this.lockName = lockName;
-        this.zk = zk;
-        Stat stat = zk.exists(root, false);
-        if(stat == null){
-            // 创建根节点
-            zk.create(root, new byte[0], ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
-        }
-        this.sessionTimeout = unit.toMillis(expire);
+        this.connections = connections;
+        this.paths = connections.getPaths();
+        this.lockDir = paths.lockDir(lockName);
     }
 
     /**
-     * zookeeper节点的监视器
+     * 当前会话，会话过期重建后自动切换
      */
-    public void process(WatchedEvent event) {
-        if(this.latch != null) {
-            this.latch.countDown();
-        }
+    private ZooKeeper zk() {
+        return connections.getZooKeeper();
     }
 
-    public void lock() {
+    /**
+     * 仅尝试一次，未获取到时删除自身节点
+     */
+    @Override
+    public boolean tryLock() {
+        if (reenter(lockName)) {
+            return true;
+        }
+        String node = null;
+        boolean locked = false;
         try {
-            if(this.tryLock()) {
-                System.out.println("Thread " + Thread.currentThread().getId() + " " + myZNode + " get lock true");
-            } else {
-                waitForLock(waitNode, sessionTimeout);//等待锁
+            //创建临时子节点
+            node = paths.createSequential(lockDir);
+            //取出同名锁的所有子节点
+            List<String> lockObjNodes = zk().getChildren(lockDir, false);
+            lockObjNodes.sort(ZookeeperLockPaths.BY_SEQUENCE);
+            if (node.equals(lockDir + "/" + lockObjNodes.get(0))) {
+                //如果是最小的节点,则表示取得锁
+                enter(lockName, node);
+                locked = true;
+            }
+        } catch (KeeperException e) {
+            log.error("try lock {} failed", lockName, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (!locked && node != null) {
+                // 含创建后查询失败或中断的情况
+                deleteAsync(node);
             }
-        } catch (KeeperException | InterruptedException e) {
-            e.printStackTrace();
         }
+        return locked;
     }
 
-    public boolean tryLock() {
-        if (isEntered(lockName)) {
+    @Override
+    public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+        if (reenter(lockName)) {
             return true;
         }
+        Acquisition acquisition = acquire(DeadlineContext.remaining(time, unit));
+        boolean locked;
         try {
-            String splitStr = "_lock_";
-            //创建临时子节点
-            myZNode = zk.create(root + "/" + lockName + splitStr, new byte[0], ZooDefs.Ids.OPEN_ACL_UNSAFE,CreateMode.EPHEMERAL_SEQUENTIAL);
-            System.out.println(myZNode + " is created ");
-            //取出所有子节点
-            List<String> subNodes = zk.getChildren(root, false);
-            //取出所有lockName的锁
-            List<String> lockObjNodes = new ArrayList<>();
-            for (String node : subNodes) {
-                String _node = node.split(splitStr)[0];
-                if(_node.equals(lockName)){
-                    lockObjNodes.add(node);
-                }
+            locked = acquisition.result.get();
+        } catch (InterruptedException e) {
+            if (!acquisition.cancel()) {
+                // 中断时恰好获取成功，释放后再抛出
+                acquisition.release();
             }
-            Collections.sort(lockObjNodes);
-            System.out.println(myZNode + "==" + lockObjNodes.get(0));
-            if(myZNode.equals(root+"/"+lockObjNodes.get(0))) {
-                enter(lockName);
-                //如果是最小的节点,则表示取得锁
-                return true;
+            throw e;
+        } catch (ExecutionException e) {
+            log.error("try lock {} failed", lockName, e.getCause());
+            return false;
+        }
+        if (locked) {
+            enter(lockName, acquisition.node.get());
+        }
+        return locked;
+    }
+
+    /**
+     * 阻塞直到获取，等待期间不响应中断，返回前恢复中断标记
+     *
+     * 整个等待只创建一次节点，不会因分段等待失去在队列中的位置
+     */
+    @Override
+    public void lock() {
+        if (reenter(lockName)) {
+            return;
+        }
+        boolean interrupted = false;
+        Acquisition acquisition = acquire(DeadlineContext.NONE);
+        while (true) {
+            boolean locked = false;
+            try {
+                locked = acquisition.result.get();
+            } catch (InterruptedException e) {
+                interrupted = true;
+                continue;
+            } catch (ExecutionException e) {
+                log.error("lock {} failed, retry", lockName, e.getCause());
             }
-            //如果不是最小的节点，找到比自己小1的节点
-            String subMyZNode = myZNode.substring(myZNode.lastIndexOf("/") + 1);
-            waitNode = lockObjNodes.get(Collections.binarySearch(lockObjNodes, subMyZNode) - 1);
-        } catch (KeeperException | InterruptedException e) {
-            e.printStackTrace();
+            if (locked) {
+                enter(lockName, acquisition.node.get());
+                break;
+            }
+            // 节点已丢失(如会话过期)，重新排队
+            acquisition = acquire(DeadlineContext.NONE);
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
         }
-        return false;
     }
 
-    public boolean tryLock(long time, TimeUnit unit) {
-        try {
-            if(this.tryLock()) {
-                return true;
+    /**
+     * 阻塞直到获取或被中断，整个等待只创建一次节点
+     */
+    @Override
+    public void lockInterruptibly() throws InterruptedException {
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+        if (reenter(lockName)) {
+            return;
+        }
+        while (true) {
+            Acquisition acquisition = acquire(DeadlineContext.NONE);
+            try {
+                if (acquisition.result.get()) {
+                    enter(lockName, acquisition.node.get());
+                    return;
+                }
+            } catch (InterruptedException e) {
+                if (!acquisition.cancel()) {
+                    // 中断时恰好获取成功，释放后再抛出
+                    acquisition.release();
+                }
+                throw e;
+            } catch (ExecutionException e) {
+                log.error("lock {} failed, retry", lockName, e.getCause());
             }
-            return waitForLock(waitNode, time);
-        } catch (Exception e) {
-            e.printStackTrace();
         }
-        return false;
     }
 
-    private boolean waitForLock(String lower, long waitTime) throws InterruptedException, KeeperException {
-        Stat stat = zk.exists(root + "/" + lower,true);
-        //判断比自己小一个数的节点是否存在,如果不存在则无需等待锁,同时注册监听
-        if(stat != null) {
-            System.out.println("Thread " + Thread.currentThread().getId() + " waiting for " + root + "/" + lower);
-            this.latch = new CountDownLatch(1);
-            this.latch.await(waitTime, TimeUnit.MILLISECONDS);
-            this.latch = null;
+    @Override
+    public CompletableFuture<AsyncLockHandle> tryLockAsync(long time, TimeUnit unit) {
+        Acquisition acquisition = acquire(DeadlineContext.remaining(time, unit));
+        return acquisition.result.thenApply(locked -> {
+            if (!locked) {
+                return null;
+            }
+            String node = acquisition.node.get();
+            return () -> unlockAsync(node);
+        });
+    }
+
+    /**
+     * 创建顺序节点并开始检查，超时后以false完成
+     *
+     * @param waitMillis 等待时间，{@link DeadlineContext#NONE} 时不超时
+     */
+    private Acquisition acquire(long waitMillis) {
+        Acquisition acquisition = new Acquisition();
+        paths.createSequentialAsync(lockDir, (rc, path, ctx, name) -> {
+            if (rc != KeeperException.Code.OK.intValue()) {
+                acquisition.fail(KeeperException.create(KeeperException.Code.get(rc), path));
+                return;
+            }
+            acquisition.node.set(name);
+            if (acquisition.result.isDone()) {
+                // 创建完成前已超时
+                deleteAsync(name);
+                return;
+            }
+            check(acquisition);
+        });
+        if (waitMillis != DeadlineContext.NONE) {
+            AsyncLockTimer.schedule(acquisition::cancel, waitMillis);
         }
-        return true;
+        return acquisition;
+    }
+
+    /**
+     * 检查当前节点是否为最小节点，否则监听前一节点
+     */
+    private void check(Acquisition acquisition) {
+        String node = acquisition.node.get();
+        zk().getChildren(lockDir, false, (rc, path, ctx, lockObjNodes) -> {
+            if (acquisition.result.isDone()) {
+                return;
+            }
+            if (rc != KeeperException.Code.OK.intValue()) {
+                acquisition.fail(KeeperException.create(KeeperException.Code.get(rc), path));
+                return;
+            }
+            lockObjNodes.sort(ZookeeperLockPaths.BY_SEQUENCE);
+            int index = Collections.binarySearch(lockObjNodes, node.substring(node.lastIndexOf("/") + 1), ZookeeperLockPaths.BY_SEQUENCE);
+            if (index == 0) {
+                //如果是最小的节点,则表示取得锁
+                acquisition.result.complete(true);
+                return;
+            }
+            if (index < 0) {
+                // 自身节点已丢失(会话过期)
+                acquisition.fail(KeeperException.create(KeeperException.Code.NONODE, node));
+                return;
+            }
+            //如果不是最小的节点，监听比自己小1的节点
+            String lower = lockDir + "/" + lockObjNodes.get(index - 1);
+            onRetry();
+            zk().exists(lower, acquisition.watcher, (existsRc, existsPath, existsCtx, stat) -> {
+                if (existsRc == KeeperException.Code.NONODE.intValue()) {
+                    // 前一节点已在注册监听前删除
+                    check(acquisition);
+                } else if (existsRc != KeeperException.Code.OK.intValue()) {
+                    acquisition.fail(KeeperException.create(KeeperException.Code.get(existsRc), existsPath));
+                }
+            }, null);
+        }, null);
+    }
+
+    private void deleteAsync(String node) {
+        zk().delete(node, -1, (rc, path, ctx) -> {
+            // pass
+        }, null);
     }
 
+    /**
+     * 释放一次异步获取
+     */
+    private CompletableFuture<Void> unlockAsync(String node) {
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        zk().delete(node, -1, (rc, path, ctx) -> {
+            if (rc == KeeperException.Code.OK.intValue()) {
+                result.complete(null);
+            } else if (rc == KeeperException.Code.NONODE.intValue() || rc == KeeperException.Code.SESSIONEXPIRED.intValue()) {
+                // 节点已随过期的会话删除
+                result.completeExceptionally(new LockExpiredException());
+            } else {
+                result.completeExceptionally(KeeperException.create(KeeperException.Code.get(rc), path));
+            }
+        }, null);
+        return result;
+    }
+
+    @Override
     public void unlock() {
+        String node = (String) holdToken(lockName);
+        if (!exit(lockName)) {
+            // 仍被当前线程重入持有
+            return;
+        }
+        if (node == null) {
+            return;
+        }
         try {
-            exit(lockName);
-            System.out.println("unlock " + myZNode);
-            zk.delete(myZNode,-1);
-            myZNode = null;
-            zk.close();
-        } catch (InterruptedException | KeeperException e) {
-            e.printStackTrace();
+            zk().delete(node, -1);
+        } catch (KeeperException e) {
+            if (e.code() == KeeperException.Code.NONODE || e.code() == KeeperException.Code.SESSIONEXPIRED) {
+                // 节点已随过期的会话删除，锁在释放前已失效
+                log.warn("lock node {} already removed, session may have expired", node);
+                throw new LockExpiredException();
+            }
+            log.error("unlock {} failed", node, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
     }
 
-    public void lockInterruptibly() {
-        this.lock();
+    @Override
+    public void detach() {
+        String node = (String) holdToken(lockName);
+        exit(lockName);
+        detachedZNode = node;
+    }
+
+    @Override
+    public void attach() {
+        enter(lockName, detachedZNode);
     }
 
+    @Override
     public Condition newCondition() {
         // pass
         return null;
     }
 
+    /**
+     * 一次获取的状态，监听器仅属于本次获取
+     */
+    private final class Acquisition {
+        private final CompletableFuture<Boolean> result = new CompletableFuture<>();
+
+        private final AtomicReference<String> node = new AtomicReference<>();
+
+        private final Watcher watcher = event -> {
+            if (event.getType() != Watcher.Event.EventType.None) {
+                // 前一节点变化后重新检查
+                check(this);
+            } else if (event.getState() == Watcher.Event.KeeperState.Expired) {
+                fail(KeeperException.create(KeeperException.Code.SESSIONEXPIRED));
+            }
+        };
+
+        /**
+         * 以false完成并删除节点
+         *
+         * @return 是否由本次调用完成
+         */
+        private boolean cancel() {
+            if (!result.complete(false)) {
+                return false;
+            }
+            release();
+            return true;
+        }
+
+        private void fail(Throwable error) {
+            if (result.completeExceptionally(error)) {
+                release();
+            }
+        }
+
+        private void release() {
+            String created = node.get();
+            if (created != null) {
+                deleteAsync(created);
+            }
+        }
+    }
+
     private static final long DEFAULT_TIMEOUT = 30000;
-}
\ No newline at end of file
+}
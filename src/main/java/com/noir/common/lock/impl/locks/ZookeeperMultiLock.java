@@ -0,0 +1,373 @@
+package com.noir.common.lock.impl.locks;
+
+import com.noir.common.lock.ReentrantDLock;
+import com.noir.common.lock.excptions.LockExpiredException;
+import com.noir.common.lock.impl.support.AsyncLockTimer;
+import com.noir.common.lock.impl.support.DeadlineContext;
+import com.noir.common.lock.impl.support.ZookeeperConnectionManager;
+import com.noir.common.lock.impl.support.ZookeeperLockPaths;
+import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.Op;
+import org.apache.zookeeper.OpResult;
+import org.apache.zookeeper.Watcher;
+import org.apache.zookeeper.ZooDefs;
+import org.apache.zookeeper.ZooKeeper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+
+/**
+ * zookeeper multi lock
+ *
+ * 多资源的 {@link ZookeeperLock}，在一次 {@code multi} 事务中
+ * 创建全部锁目录下的顺序临时节点，随后以异步请求并行检查
+ * 每个目录，未排在首位的目录监听其前一节点，全部排在首位
+ * 时上锁成功；超时或失败时删除全部节点。
+ *
+ * multi事务在服务端串行执行，任意两个多资源锁在它们共同的
+ * 目录中的先后顺序一致，不会互相等待形成死锁。
+ */
+public class ZookeeperMultiLock extends ReentrantDLock {
+    private static final Logger log = LoggerFactory.getLogger(ZookeeperMultiLock.class);
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private final ZookeeperConnectionManager connections;
+
+    private final ZookeeperLockPaths paths;
+
+    private final List<String> lockNames;
+
+    public ZookeeperMultiLock(ZookeeperConnectionManager connections, Collection<String> names) {
+        this.connections = connections;
+        this.paths = connections.getPaths();
+        this.lockNames = new ArrayList<>(new LinkedHashSet<>(names));
+    }
+
+    private ZooKeeper zk() {
+        return connections.getZooKeeper();
+    }
+
+    /**
+     * 仅尝试一次，任一目录中未排在首位时删除全部节点
+     */
+    @Override
+    public boolean tryLock() {
+        List<String> names = unheldNames();
+        if (names.isEmpty()) {
+            // 全部重入
+            lockNames.forEach(this::enter);
+            return true;
+        }
+
+        Map<String, String> created = Collections.emptyMap();
+        try {
+            created = createNodes(names);
+            for (Map.Entry<String, String> entry : created.entrySet()) {
+                String dir = paths.lockDir(entry.getKey());
+                List<String> children = zk().getChildren(dir, false);
+                children.sort(ZookeeperLockPaths.BY_SEQUENCE);
+                if (!entry.getValue().equals(dir + "/" + children.get(0))) {
+                    created.values().forEach(this::deleteAsync);
+                    return false;
+                }
+            }
+            enterAll(created);
+            return true;
+        } catch (KeeperException e) {
+            log.error("try lock {} failed", names, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        created.values().forEach(this::deleteAsync);
+        return false;
+    }
+
+    /**
+     * 一次multi事务同步创建全部节点，目录不存在时创建后重试
+     */
+    private Map<String, String> createNodes(List<String> names) throws KeeperException, InterruptedException {
+        List<Op> ops = new ArrayList<>(names.size());
+        for (String name : names) {
+            ops.add(Op.create(paths.sequencePrefix(paths.lockDir(name)), EMPTY, ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.EPHEMERAL_SEQUENTIAL));
+        }
+        List<OpResult> results;
+        while (true) {
+            try {
+                results = zk().multi(ops);
+                break;
+            } catch (KeeperException.NoNodeException e) {
+                for (String name : names) {
+                    paths.createDir(paths.lockDir(name));
+                }
+            }
+        }
+        Map<String, String> created = new LinkedHashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            created.put(names.get(i), ((OpResult.CreateResult) results.get(i)).getPath());
+        }
+        return created;
+    }
+
+    /**
+     * 当前线程尚未持有的锁名
+     */
+    private List<String> unheldNames() {
+        List<String> names = new ArrayList<>(lockNames.size());
+        for (String lockName : lockNames) {
+            if (!isEntered(lockName)) {
+                names.add(lockName);
+            }
+        }
+        return names;
+    }
+
+    /**
+     * 尝试获取全部锁
+     * @param time 时间长度
+     * @param unit 单位
+     * @return 是否上锁成功
+     * @throws InterruptedException interruptedException
+     */
+    @Override
+    public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+        List<String> names = unheldNames();
+        if (names.isEmpty()) {
+            // 全部重入
+            lockNames.forEach(this::enter);
+            return true;
+        }
+
+        Acquisition acquisition = new Acquisition(names);
+        acquisition.start();
+        AsyncLockTimer.schedule(acquisition::cancel, DeadlineContext.remaining(time, unit));
+
+        boolean locked;
+        try {
+            locked = acquisition.result.get();
+        } catch (InterruptedException e) {
+            if (!acquisition.cancel()) {
+                acquisition.release();
+            }
+            throw e;
+        } catch (ExecutionException e) {
+            log.error("try lock {} failed", names, e.getCause());
+            return false;
+        }
+        if (locked) {
+            enterAll(acquisition.nodes);
+        }
+        return locked;
+    }
+
+    /**
+     * 记录一次获取，本次创建的节点作为该锁的持有者标识，已持有的锁仅累加持有次数
+     *
+     * @param created 本次创建的节点(锁名 -> 节点)
+     */
+    private void enterAll(Map<String, String> created) {
+        for (String lockName : lockNames) {
+            enter(lockName, created.get(lockName));
+        }
+    }
+
+    /**
+     * 解锁删除不再被当前线程持有的节点
+     */
+    @Override
+    public void unlock() {
+        List<String> released = new ArrayList<>(lockNames.size());
+        for (String lockName : lockNames) {
+            String node = (String) holdToken(lockName);
+            if (exit(lockName) && Objects.nonNull(node)) {
+                released.add(node);
+            }
+        }
+        if (released.isEmpty()) {
+            return;
+        }
+        List<Op> ops = new ArrayList<>(released.size());
+        for (String node : released) {
+            ops.add(Op.delete(node, -1));
+        }
+        try {
+            zk().multi(ops);
+        } catch (KeeperException e) {
+            // 部分节点已随会话过期删除，逐个删除其余节点
+            log.warn("multi unlock {} failed, deleting one by one", released, e);
+            released.forEach(this::deleteAsync);
+            if (e.code() == KeeperException.Code.NONODE || e.code() == KeeperException.Code.SESSIONEXPIRED) {
+                throw new LockExpiredException();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            released.forEach(this::deleteAsync);
+        }
+    }
+
+    private void deleteAsync(String node) {
+        zk().delete(node, -1, (rc, path, ctx) -> {
+            // pass
+        }, null);
+    }
+
+    @Override
+    public Condition newCondition() {
+        // pass
+        return null;
+    }
+
+    /**
+     * 一次获取的状态
+     */
+    private final class Acquisition {
+        private final CompletableFuture<Boolean> result = new CompletableFuture<>();
+
+        private final List<String> names;
+
+        private final List<String> dirs;
+
+        private final AtomicInteger pending;
+
+        private volatile Map<String, String> nodes = Collections.emptyMap();
+
+        private Acquisition(List<String> names) {
+            this.names = names;
+            this.dirs = new ArrayList<>(names.size());
+            for (String name : names) {
+                dirs.add(paths.lockDir(name));
+            }
+            this.pending = new AtomicInteger(names.size());
+        }
+
+        /**
+         * 一次multi事务创建全部节点
+         */
+        private void start() {
+            List<Op> ops = new ArrayList<>(dirs.size());
+            for (String dir : dirs) {
+                ops.add(Op.create(paths.sequencePrefix(dir), EMPTY, ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.EPHEMERAL_SEQUENTIAL));
+            }
+            zk().multi(ops, (rc, path, ctx, opResults) -> {
+                if (rc == KeeperException.Code.NONODE.intValue()) {
+                    // 锁目录不存在或已被回收，创建后重试
+                    createDirs(0);
+                    return;
+                }
+                if (rc != KeeperException.Code.OK.intValue()) {
+                    fail(KeeperException.create(KeeperException.Code.get(rc), path));
+                    return;
+                }
+                Map<String, String> created = new LinkedHashMap<>();
+                for (int i = 0; i < names.size(); i++) {
+                    created.put(names.get(i), ((OpResult.CreateResult) opResults.get(i)).getPath());
+                }
+                nodes = created;
+                if (result.isDone()) {
+                    // 创建完成前已超时
+                    release();
+                    return;
+                }
+                for (int i = 0; i < names.size(); i++) {
+                    check(dirs.get(i), created.get(names.get(i)));
+                }
+            }, null);
+        }
+
+        private void createDirs(int index) {
+            if (index == dirs.size()) {
+                start();
+                return;
+            }
+            paths.createDirAsync(dirs.get(index), rc -> {
+                if (rc != KeeperException.Code.OK.intValue()) {
+                    fail(KeeperException.create(KeeperException.Code.get(rc), dirs.get(index)));
+                    return;
+                }
+                createDirs(index + 1);
+            });
+        }
+
+        /**
+         * 检查节点在其目录中是否排在首位，否则监听前一节点
+         */
+        private void check(String dir, String node) {
+            zk().getChildren(dir, false, (rc, path, ctx, children) -> {
+                if (result.isDone()) {
+                    return;
+                }
+                if (rc != KeeperException.Code.OK.intValue()) {
+                    fail(KeeperException.create(KeeperException.Code.get(rc), path));
+                    return;
+                }
+                children.sort(ZookeeperLockPaths.BY_SEQUENCE);
+                int index = Collections.binarySearch(children, node.substring(node.lastIndexOf("/") + 1), ZookeeperLockPaths.BY_SEQUENCE);
+                if (index == 0) {
+                    if (pending.decrementAndGet() == 0) {
+                        result.complete(true);
+                    }
+                    return;
+                }
+                if (index < 0) {
+                    // 自身节点已丢失(会话过期)
+                    fail(KeeperException.create(KeeperException.Code.NONODE, node));
+                    return;
+                }
+                String lower = dir + "/" + children.get(index - 1);
+                onRetry();
+                Watcher watcher = event -> {
+                    if (event.getType() != Watcher.Event.EventType.None) {
+                        check(dir, node);
+                    } else if (event.getState() == Watcher.Event.KeeperState.Expired) {
+                        fail(KeeperException.create(KeeperException.Code.SESSIONEXPIRED));
+                    }
+                };
+                zk().exists(lower, watcher, (existsRc, existsPath, existsCtx, stat) -> {
+                    if (existsRc == KeeperException.Code.NONODE.intValue()) {
+                        // 前一节点已在注册监听前删除
+                        check(dir, node);
+                    } else if (existsRc != KeeperException.Code.OK.intValue()) {
+                        fail(KeeperException.create(KeeperException.Code.get(existsRc), existsPath));
+                    }
+                }, null);
+            }, null);
+        }
+
+        /**
+         * 以false完成并删除节点
+         *
+         * @return 是否由本次调用完成
+         */
+        private boolean cancel() {
+            if (!result.complete(false)) {
+                return false;
+            }
+            release();
+            return true;
+        }
+
+        private void fail(Throwable error) {
+            if (result.completeExceptionally(error)) {
+                release();
+            }
+        }
+
+        private void release() {
+            nodes.values().forEach(ZookeeperMultiLock.this::deleteAsync);
+        }
+    }
+}
@@ -0,0 +1,323 @@
+package com.noir.common.lock.impl.locks;
+
+import com.noir.common.lock.ReentrantDLock;
+import com.noir.common.lock.excptions.LockExpiredException;
+import com.noir.common.lock.impl.support.AsyncLockTimer;
+import com.noir.common.lock.impl.support.DeadlineContext;
+import com.noir.common.lock.impl.support.ZookeeperConnectionManager;
+import com.noir.common.lock.impl.support.ZookeeperLockPaths;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.Watcher;
+import org.apache.zookeeper.ZooKeeper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+
+/**
+ * zookeeper read write lock
+ *
+ * 读锁与写锁分别在锁目录下创建 {@code read-} 与 {@code write-}
+ * 前缀的顺序临时节点，按序号排序：
+ * 读节点之前没有写节点时获取读锁，否则监听之前最近的写节点，
+ * 读节点之间互不等待；写节点为最小节点时获取写锁，否则监听
+ * 前一节点。
+ *
+ * 持有的节点记录在当前线程的持有记录中，实例可被多个线程共用。
+ * 持有写锁的线程获取读锁时忽略自己的写节点(降级)，写节点按锁名
+ * 从持有记录中查找，不要求为同一实例；持有读锁的线程获取写锁
+ * 会一直等待。
+ *
+ * 读写锁使用独立于 {@link ZookeeperLock} 的目录，同名的互斥锁
+ * 与读写锁互不影响。
+ */
+public class ZookeeperReadWriteLock implements ReadWriteLock {
+    private static final Logger log = LoggerFactory.getLogger(ZookeeperReadWriteLock.class);
+
+    private static final String DIR_PREFIX = "rw:";
+
+    private static final String READ_PREFIX = "read-";
+
+    private static final String WRITE_PREFIX = "write-";
+
+    private final ZookeeperConnectionManager connections;
+
+    private final ZookeeperLockPaths paths;
+
+    private final String lockDir;
+
+    private final Mode readLock;
+
+    private final Mode writeLock;
+
+    public ZookeeperReadWriteLock(ZookeeperConnectionManager connections, String lockName) {
+        this.connections = connections;
+        this.paths = connections.getPaths();
+        this.lockDir = paths.lockDir(DIR_PREFIX + lockName);
+        this.readLock = new Mode(READ_PREFIX, lockDir + ":read");
+        this.writeLock = new Mode(WRITE_PREFIX, lockDir + ":write");
+    }
+
+    private ZooKeeper zk() {
+        return connections.getZooKeeper();
+    }
+
+    @Override
+    public Lock readLock() {
+        return readLock;
+    }
+
+    @Override
+    public Lock writeLock() {
+        return writeLock;
+    }
+
+    private void deleteAsync(String node) {
+        zk().delete(node, -1, (rc, path, ctx) -> {
+            // pass
+        }, null);
+    }
+
+    /**
+     * 读锁或写锁，读锁可被多个线程同时持有
+     */
+    private final class Mode extends ReentrantDLock {
+        private final String prefix;
+
+        private final String reentrantName;
+
+        private Mode(String prefix, String reentrantName) {
+            this.prefix = prefix;
+            this.reentrantName = reentrantName;
+        }
+
+        /**
+         * 仅尝试一次，未获取到时删除自身节点
+         */
+        @Override
+        public boolean tryLock() {
+            if (reenter(reentrantName)) {
+                return true;
+            }
+            String ownWrite = ownWrite();
+            String node = null;
+            boolean locked = false;
+            try {
+                node = paths.createSequential(lockDir, prefix);
+                List<String> children = zk().getChildren(lockDir, false);
+                children.sort(ZookeeperLockPaths.BY_SEQUENCE);
+                int index = children.indexOf(node.substring(node.lastIndexOf("/") + 1));
+                if (index >= 0 && blocker(this, ownWrite, children, index) == null) {
+                    enter(reentrantName, node);
+                    locked = true;
+                }
+            } catch (KeeperException e) {
+                log.error("try lock {} failed", reentrantName, e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                if (!locked && node != null) {
+                    // 含创建后查询失败或中断的情况
+                    deleteAsync(node);
+                }
+            }
+            return locked;
+        }
+
+        /**
+         * 降级时忽略当前线程持有的写节点
+         */
+        private String ownWrite() {
+            return this == readLock ? (String) holdToken(writeLock.reentrantName) : null;
+        }
+
+        @Override
+        public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+            if (reenter(reentrantName)) {
+                return true;
+            }
+            Acquisition acquisition = new Acquisition(this, ownWrite());
+            paths.createSequentialAsync(lockDir, prefix, (rc, path, ctx, name) -> {
+                if (rc != KeeperException.Code.OK.intValue()) {
+                    acquisition.fail(KeeperException.create(KeeperException.Code.get(rc), path));
+                    return;
+                }
+                acquisition.node.set(name);
+                if (acquisition.result.isDone()) {
+                    // 创建完成前已超时
+                    deleteAsync(name);
+                    return;
+                }
+                check(acquisition);
+            });
+            AsyncLockTimer.schedule(acquisition::cancel, DeadlineContext.remaining(time, unit));
+
+            boolean locked;
+            try {
+                locked = acquisition.result.get();
+            } catch (InterruptedException e) {
+                if (!acquisition.cancel()) {
+                    acquisition.release();
+                }
+                throw e;
+            } catch (ExecutionException e) {
+                log.error("try lock {} failed", reentrantName, e.getCause());
+                return false;
+            }
+            if (locked) {
+                enter(reentrantName, acquisition.node.get());
+            }
+            return locked;
+        }
+
+        @Override
+        public void unlock() {
+            String node = (String) holdToken(reentrantName);
+            if (!exit(reentrantName)) {
+                // 仍被当前线程重入持有
+                return;
+            }
+            try {
+                zk().delete(node, -1);
+            } catch (KeeperException e) {
+                if (e.code() == KeeperException.Code.NONODE || e.code() == KeeperException.Code.SESSIONEXPIRED) {
+                    // 节点已随过期的会话删除，锁在释放前已失效
+                    log.warn("lock node {} already removed, session may have expired", node);
+                    throw new LockExpiredException();
+                }
+                log.error("unlock {} failed", node, e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public Condition newCondition() {
+            // pass
+            return null;
+        }
+
+        private void retry() {
+            onRetry();
+        }
+    }
+
+    /**
+     * 检查是否可以获取，否则监听阻塞自己的节点
+     */
+    private void check(Acquisition acquisition) {
+        String node = acquisition.node.get();
+        String nodeName = node.substring(node.lastIndexOf("/") + 1);
+        zk().getChildren(lockDir, false, (rc, path, ctx, children) -> {
+            if (acquisition.result.isDone()) {
+                return;
+            }
+            if (rc != KeeperException.Code.OK.intValue()) {
+                acquisition.fail(KeeperException.create(KeeperException.Code.get(rc), path));
+                return;
+            }
+            children.sort(ZookeeperLockPaths.BY_SEQUENCE);
+            int index = children.indexOf(nodeName);
+            if (index < 0) {
+                // 自身节点已丢失(会话过期)
+                acquisition.fail(KeeperException.create(KeeperException.Code.NONODE, node));
+                return;
+            }
+            String blocker = blocker(acquisition.mode, acquisition.ownWrite, children, index);
+            if (blocker == null) {
+                acquisition.result.complete(true);
+                return;
+            }
+            acquisition.mode.retry();
+            zk().exists(lockDir + "/" + blocker, acquisition.watcher, (existsRc, existsPath, existsCtx, stat) -> {
+                if (existsRc == KeeperException.Code.NONODE.intValue()) {
+                    // 阻塞节点已在注册监听前删除
+                    check(acquisition);
+                } else if (existsRc != KeeperException.Code.OK.intValue()) {
+                    acquisition.fail(KeeperException.create(KeeperException.Code.get(existsRc), existsPath));
+                }
+            }, null);
+        }, null);
+    }
+
+    /**
+     * 写节点被前一节点阻塞，读节点被之前最近的写节点阻塞
+     *
+     * @return 阻塞节点名，可以获取时为null
+     */
+    private String blocker(Mode mode, String ownWrite, List<String> children, int index) {
+        if (mode == writeLock) {
+            return index == 0 ? null : children.get(index - 1);
+        }
+        for (int i = index - 1; i >= 0; i--) {
+            String child = children.get(i);
+            if (ZookeeperLockPaths.unprotect(child).startsWith(WRITE_PREFIX) && !(lockDir + "/" + child).equals(ownWrite)) {
+                return child;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 一次获取的状态，监听器仅属于本次获取
+     */
+    private final class Acquisition {
+        private final CompletableFuture<Boolean> result = new CompletableFuture<>();
+
+        private final AtomicReference<String> node = new AtomicReference<>();
+
+        private final Mode mode;
+
+        /**
+         * 当前线程持有的写节点，获取读锁时不等待
+         */
+        private final String ownWrite;
+
+        private final Watcher watcher = event -> {
+            if (event.getType() != Watcher.Event.EventType.None) {
+                // 阻塞节点变化后重新检查
+                check(this);
+            } else if (event.getState() == Watcher.Event.KeeperState.Expired) {
+                fail(KeeperException.create(KeeperException.Code.SESSIONEXPIRED));
+            }
+        };
+
+        private Acquisition(Mode mode, String ownWrite) {
+            this.mode = mode;
+            this.ownWrite = ownWrite;
+        }
+
+        /**
+         * 以false完成并删除节点
+         *
+         * @return 是否由本次调用完成
+         */
+        private boolean cancel() {
+            if (!result.complete(false)) {
+                return false;
+            }
+            release();
+            return true;
+        }
+
+        private void fail(Throwable error) {
+            if (result.completeExceptionally(error)) {
+                release();
+            }
+        }
+
+        private void release() {
+            String created = node.get();
+            if (created != null) {
+                deleteAsync(created);
+            }
+        }
+    }
+}
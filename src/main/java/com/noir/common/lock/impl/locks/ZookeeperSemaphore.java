@@ -0,0 +1,248 @@
+package com.noir.common.lock.impl.locks;
+
+import com.noir.common.lock.DistributedSemaphore;
+import com.noir.common.lock.excptions.LockExpiredException;
+import com.noir.common.lock.impl.support.AsyncLockTimer;
+import com.noir.common.lock.impl.support.DeadlineContext;
+import com.noir.common.lock.impl.support.ZookeeperConnectionManager;
+import com.noir.common.lock.impl.support.ZookeeperLockPaths;
+import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.Op;
+import org.apache.zookeeper.OpResult;
+import org.apache.zookeeper.Watcher;
+import org.apache.zookeeper.ZooDefs;
+import org.apache.zookeeper.ZooKeeper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * zookeeper semaphore
+ *
+ * 每个许可为信号量目录下的一个顺序临时节点，一次获取的
+ * 全部节点在一次 {@code multi} 事务中创建，序号连续；按
+ * 序号排序后自己的最后一个节点位于前limit个之内时获取成功，
+ * 否则监听目录的子节点变化后重新检查，先到先得。
+ *
+ * 许可节点随会话存在，持有者宕机后由服务端删除。
+ */
+public class ZookeeperSemaphore implements DistributedSemaphore {
+    private static final Logger log = LoggerFactory.getLogger(ZookeeperSemaphore.class);
+
+    private static final String DIR_PREFIX = "semaphore:";
+
+    private static final String PERMIT_PREFIX = "permit-";
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private final ZookeeperConnectionManager connections;
+
+    private final ZookeeperLockPaths paths;
+
+    private final String semaphoreDir;
+
+    private final int limit;
+
+    /**
+     * 通过本实例获取且未归还的许可节点
+     */
+    private final Queue<String> heldPermits = new ConcurrentLinkedQueue<>();
+
+    public ZookeeperSemaphore(ZookeeperConnectionManager connections, String name, int limit) {
+        this.connections = connections;
+        this.paths = connections.getPaths();
+        this.semaphoreDir = paths.lockDir(DIR_PREFIX + name);
+        this.limit = limit;
+    }
+
+    private ZooKeeper zk() {
+        return connections.getZooKeeper();
+    }
+
+    @Override
+    public boolean acquire(int permits, long timeout, TimeUnit unit) throws InterruptedException {
+        if (permits <= 0 || permits > limit) {
+            throw new IllegalArgumentException("permits must be between 1 and " + limit);
+        }
+        Acquisition acquisition = new Acquisition(permits);
+        acquisition.start();
+        AsyncLockTimer.schedule(acquisition::cancel, DeadlineContext.remaining(timeout, unit));
+
+        boolean acquired;
+        try {
+            acquired = acquisition.result.get();
+        } catch (InterruptedException e) {
+            if (!acquisition.cancel()) {
+                acquisition.release();
+            }
+            throw e;
+        } catch (ExecutionException e) {
+            log.error("acquire {} failed", semaphoreDir, e.getCause());
+            return false;
+        }
+        if (acquired) {
+            heldPermits.addAll(acquisition.nodes);
+        }
+        return acquired;
+    }
+
+    @Override
+    public void release(int permits) {
+        List<String> nodes = new ArrayList<>(permits);
+        for (int i = 0; i < permits; i++) {
+            String node = heldPermits.poll();
+            if (Objects.isNull(node)) {
+                break;
+            }
+            nodes.add(node);
+        }
+        if (nodes.size() < permits) {
+            heldPermits.addAll(nodes);
+            throw new IllegalStateException("release " + permits + " permits but only " + nodes.size() + " held");
+        }
+        List<Op> ops = new ArrayList<>(nodes.size());
+        for (String node : nodes) {
+            ops.add(Op.delete(node, -1));
+        }
+        try {
+            zk().multi(ops);
+        } catch (KeeperException e) {
+            // 部分节点已随会话过期删除，逐个删除其余节点
+            log.warn("multi release {} failed, deleting one by one", nodes, e);
+            nodes.forEach(this::deleteAsync);
+            if (e.code() == KeeperException.Code.NONODE || e.code() == KeeperException.Code.SESSIONEXPIRED) {
+                throw new LockExpiredException();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            nodes.forEach(this::deleteAsync);
+        }
+    }
+
+    private void deleteAsync(String node) {
+        zk().delete(node, -1, (rc, path, ctx) -> {
+            // pass
+        }, null);
+    }
+
+    /**
+     * 一次获取的状态，监听器仅属于本次获取
+     */
+    private final class Acquisition {
+        private final CompletableFuture<Boolean> result = new CompletableFuture<>();
+
+        private final int permits;
+
+        private volatile List<String> nodes = Collections.emptyList();
+
+        private final Watcher watcher = event -> {
+            if (event.getType() != Watcher.Event.EventType.None) {
+                // 子节点变化后重新检查
+                check();
+            } else if (event.getState() == Watcher.Event.KeeperState.Expired) {
+                fail(KeeperException.create(KeeperException.Code.SESSIONEXPIRED));
+            }
+        };
+
+        private Acquisition(int permits) {
+            this.permits = permits;
+        }
+
+        /**
+         * 一次multi事务创建全部许可节点
+         */
+        private void start() {
+            List<Op> ops = new ArrayList<>(permits);
+            for (int i = 0; i < permits; i++) {
+                ops.add(Op.create(paths.sequencePrefix(semaphoreDir, PERMIT_PREFIX), EMPTY, ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.EPHEMERAL_SEQUENTIAL));
+            }
+            zk().multi(ops, (rc, path, ctx, opResults) -> {
+                if (rc == KeeperException.Code.NONODE.intValue()) {
+                    // 信号量目录不存在或已被回收，创建后重试
+                    paths.createDirAsync(semaphoreDir, dirRc -> {
+                        if (dirRc != KeeperException.Code.OK.intValue()) {
+                            fail(KeeperException.create(KeeperException.Code.get(dirRc), semaphoreDir));
+                            return;
+                        }
+                        start();
+                    });
+                    return;
+                }
+                if (rc != KeeperException.Code.OK.intValue()) {
+                    fail(KeeperException.create(KeeperException.Code.get(rc), path));
+                    return;
+                }
+                List<String> created = new ArrayList<>(permits);
+                for (OpResult opResult : opResults) {
+                    created.add(((OpResult.CreateResult) opResult).getPath());
+                }
+                nodes = created;
+                if (result.isDone()) {
+                    // 创建完成前已超时
+                    release();
+                    return;
+                }
+                check();
+            }, null);
+        }
+
+        /**
+         * 检查最后一个许可节点是否位于前limit个之内，否则监听子节点变化
+         */
+        private void check() {
+            String last = nodes.get(nodes.size() - 1);
+            zk().getChildren(semaphoreDir, watcher, (rc, path, ctx, children) -> {
+                if (result.isDone()) {
+                    return;
+                }
+                if (rc != KeeperException.Code.OK.intValue()) {
+                    fail(KeeperException.create(KeeperException.Code.get(rc), path));
+                    return;
+                }
+                Collections.sort(children);
+                int index = Collections.binarySearch(children, last.substring(last.lastIndexOf("/") + 1));
+                if (index < 0) {
+                    // 自身节点已丢失(会话过期)
+                    fail(KeeperException.create(KeeperException.Code.NONODE, last));
+                    return;
+                }
+                if (index < limit) {
+                    result.complete(true);
+                }
+            }, null);
+        }
+
+        /**
+         * 以false完成并删除节点
+         *
+         * @return 是否由本次调用完成
+         */
+        private boolean cancel() {
+            if (!result.complete(false)) {
+                return false;
+            }
+            release();
+            return true;
+        }
+
+        private void fail(Throwable error) {
+            if (result.completeExceptionally(error)) {
+                release();
+            }
+        }
+
+        private void release() {
+            nodes.forEach(ZookeeperSemaphore.this::deleteAsync);
+        }
+    }
+}
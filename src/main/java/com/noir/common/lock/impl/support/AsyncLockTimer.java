@@ -0,0 +1,42 @@
+package com.noir.common.lock.impl.support;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 异步锁的共享定时器
+ *
+ * JVM内仅一个守护线程，用于异步等待的超时与重试调度，
+ * 以及zk会话过期后的重建，任务不得长时间阻塞。
+ */
+public final class AsyncLockTimer {
+
+    private static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "dlock-async-timer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private AsyncLockTimer() {
+    }
+
+    /**
+     * 延迟执行
+     *
+     * @param task 任务
+     * @param delayMillis 延迟(毫秒)
+     */
+    public static void schedule(Runnable task, long delayMillis) {
+        TIMER.schedule(task, Math.max(delayMillis, 0), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 立即在定时线程上执行
+     *
+     * @param task 任务
+     */
+    public static void execute(Runnable task) {
+        TIMER.execute(task);
+    }
+}
@@ -0,0 +1,57 @@
+package com.noir.common.lock.impl.support;
+
+import com.noir.common.lock.BackoffStrategy;
+
+import java.util.Objects;
+
+/**
+ * 当前线程指定的等待策略
+ *
+ * 优先于锁上配置的策略，用于注解等无法直接访问锁实例
+ * (可能被指标、合并等装饰)的场景，仅对同步获取生效。
+ *
+ * <pre>
+ * BackoffStrategy previous = BackoffContext.set(strategy);
+ * try {
+ *     lock.tryLock(...);
+ * } finally {
+ *     BackoffContext.restore(previous);
+ * }
+ * </pre>
+ */
+public final class BackoffContext {
+
+    private static final ThreadLocal<BackoffStrategy> current = new ThreadLocal<>();
+
+    private BackoffContext() {
+    }
+
+    /**
+     * 当前线程指定的策略，未指定时为null
+     */
+    public static BackoffStrategy current() {
+        return current.get();
+    }
+
+    /**
+     * 指定当前线程的策略
+     *
+     * @return 之前的策略，用于 {@link BackoffContext#restore(BackoffStrategy)}
+     */
+    public static BackoffStrategy set(BackoffStrategy strategy) {
+        BackoffStrategy previous = current.get();
+        current.set(strategy);
+        return previous;
+    }
+
+    /**
+     * 恢复之前的策略
+     */
+    public static void restore(BackoffStrategy previous) {
+        if (Objects.isNull(previous)) {
+            current.remove();
+        } else {
+            current.set(previous);
+        }
+    }
+}
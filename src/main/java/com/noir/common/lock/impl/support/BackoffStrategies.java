@@ -0,0 +1,47 @@
+package com.noir.common.lock.impl.support;
+
+import com.noir.common.lock.BackoffStrategy;
+import com.noir.common.lock.annotation.BackoffType;
+import com.noir.common.lock.properties.BackoffProperties;
+import com.noir.common.lock.properties.DLockProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import javax.annotation.PostConstruct;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * 按 {@code locker.backoff.*} 配置创建等待策略
+ */
+@Component
+public class BackoffStrategies {
+
+    @Autowired
+    private DLockProperties properties;
+
+    private final Map<BackoffType, BackoffStrategy> strategies = new EnumMap<>(BackoffType.class);
+
+    @PostConstruct
+    public void init() {
+        BackoffProperties backoff = properties.getBackoff();
+        strategies.put(BackoffType.FIXED, new FixedBackoffStrategy(backoff.getBase()));
+        strategies.put(BackoffType.EXPONENTIAL, new ExponentialBackoffStrategy(backoff.getBase(), backoff.getMax(), backoff.getJitter()));
+        strategies.put(BackoffType.TTL, TtlBackoffStrategy.INSTANCE);
+        if (StringUtils.hasText(backoff.getType())) {
+            BackoffType type = BackoffType.valueOf(backoff.getType().trim().toUpperCase());
+            strategies.put(BackoffType.DEFAULT, strategies.get(type));
+        }
+    }
+
+    /**
+     * 获取策略
+     *
+     * @param type 策略类型
+     * @return 未配置全局策略时DEFAULT为null，即使用锁的默认策略
+     */
+    public BackoffStrategy get(BackoffType type) {
+        return strategies.get(type);
+    }
+}
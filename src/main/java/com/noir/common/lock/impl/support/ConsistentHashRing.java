@@ -0,0 +1,87 @@
+package com.noir.common.lock.impl.support;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * 一致性哈希环
+ *
+ * 每个节点按 {@code id#序号} 在环上放置若干虚拟节点，key顺时针
+ * 归属到第一个虚拟节点。增删节点时只有相邻区间的key改变归属，
+ * 其余key保持不变。
+ *
+ * 节点的位置只取决于id，与配置顺序无关，构建后不可变。
+ */
+public class ConsistentHashRing<T> {
+
+    private final long[] points;
+
+    private final Object[] nodes;
+
+    /**
+     * @param nodes id -> 节点，id需稳定，变更id等同于更换节点
+     * @param virtualNodes 每个节点的虚拟节点数
+     */
+    public ConsistentHashRing(Map<String, T> nodes, int virtualNodes) {
+        if (nodes.isEmpty()) {
+            throw new IllegalArgumentException("consistent hash ring requires at least one node");
+        }
+        if (virtualNodes <= 0) {
+            throw new IllegalArgumentException("virtual nodes must be positive: " + virtualNodes);
+        }
+        int size = nodes.size() * virtualNodes;
+        long[] hashes = new long[size];
+        Object[] owners = new Object[size];
+        String[] ids = new String[size];
+        int i = 0;
+        for (Map.Entry<String, T> node : nodes.entrySet()) {
+            for (int v = 0; v < virtualNodes; v++) {
+                hashes[i] = hash(node.getKey() + "#" + v);
+                ids[i] = node.getKey();
+                owners[i++] = node.getValue();
+            }
+        }
+        // 按哈希值排序，哈希相同时按id有序以保证结果与配置顺序无关
+        Integer[] order = new Integer[size];
+        for (int j = 0; j < size; j++) {
+            order[j] = j;
+        }
+        Arrays.sort(order, (a, b) -> hashes[a] != hashes[b] ? Long.compare(hashes[a], hashes[b]) : ids[a].compareTo(ids[b]));
+        this.points = new long[size];
+        this.nodes = new Object[size];
+        for (int j = 0; j < size; j++) {
+            points[j] = hashes[order[j]];
+            this.nodes[j] = owners[order[j]];
+        }
+    }
+
+    /**
+     * key所属的节点
+     */
+    @SuppressWarnings("unchecked")
+    public T get(String key) {
+        int index = Arrays.binarySearch(points, hash(key));
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return (T) nodes[index == points.length ? 0 : index];
+    }
+
+    /**
+     * FNV-1a 64位哈希后以murmur3的fmix64打散，短字符串也能在环上均匀分布
+     */
+    static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b & 0xff;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb93fe51a34d9L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
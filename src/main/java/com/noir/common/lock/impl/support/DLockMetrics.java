@@ -0,0 +1,125 @@
+package com.noir.common.lock.impl.support;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+/**
+ * 锁的Micrometer指标
+ *
+ * 以后端类型(type)与锁名模式(name)为标签，锁名中的
+ * uuid、长十六进制串与数字分别归一为 {id}、{hex}、{n}，
+ * 不同模式超过上限后统一记为other，避免标签基数失控。
+ *
+ * 指标：
+ * dlock.acquire 获取耗时(result=acquired/timeout/error)
+ * dlock.hold 持有时长
+ * dlock.timeouts 等待超时次数
+ * dlock.expired 超过租期(LockExpiredException)次数
+ * dlock.retries 等待重试次数
+ * dlock.reentrant 重入次数
+ * dlock.held 当前持有数
+ * dlock.waiting 当前等待数
+ */
+public class DLockMetrics {
+    private static final String OTHER = "other";
+
+    private static final Pattern UUID_PATTERN = Pattern.compile("[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}");
+
+    private static final Pattern HEX_PATTERN = Pattern.compile("(?=[0-9a-fA-F]*\\d)[0-9a-fA-F]{16,}");
+
+    private static final Pattern NUMBER_PATTERN = Pattern.compile("\\d+");
+
+    private final MeterRegistry registry;
+
+    private final String type;
+
+    private final int maxNameTags;
+
+    private final Set<String> nameTags = ConcurrentHashMap.newKeySet();
+
+    private final AtomicInteger held = new AtomicInteger();
+
+    private final AtomicInteger waiting = new AtomicInteger();
+
+    public DLockMetrics(MeterRegistry registry, String type, int maxNameTags) {
+        this.registry = registry;
+        this.type = type;
+        this.maxNameTags = maxNameTags;
+        Gauge.builder("dlock.held", held, AtomicInteger::get)
+                .tag("type", type)
+                .description("currently held locks")
+                .register(registry);
+        Gauge.builder("dlock.waiting", waiting, AtomicInteger::get)
+                .tag("type", type)
+                .description("threads waiting for a lock")
+                .register(registry);
+    }
+
+    /**
+     * 锁名对应的name标签
+     *
+     * @param lockName 锁名
+     * @return 归一后的模式，超出上限时为other
+     */
+    public String nameTag(String lockName) {
+        String pattern = normalize(lockName);
+        if (nameTags.contains(pattern)) {
+            return pattern;
+        }
+        if (nameTags.size() < maxNameTags && nameTags.add(pattern)) {
+            return pattern;
+        }
+        return nameTags.contains(pattern) ? pattern : OTHER;
+    }
+
+    static String normalize(String lockName) {
+        String pattern = UUID_PATTERN.matcher(lockName).replaceAll("{id}");
+        pattern = HEX_PATTERN.matcher(pattern).replaceAll("{hex}");
+        return NUMBER_PATTERN.matcher(pattern).replaceAll("{n}");
+    }
+
+    public void recordAcquire(String nameTag, long nanos, String result) {
+        Timer.builder("dlock.acquire")
+                .tags("type", type, "name", nameTag, "result", result)
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordHold(String nameTag, long nanos) {
+        Timer.builder("dlock.hold")
+                .tags("type", type, "name", nameTag)
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void countTimeout(String nameTag) {
+        registry.counter("dlock.timeouts", "type", type, "name", nameTag).increment();
+    }
+
+    public void countExpired(String nameTag) {
+        registry.counter("dlock.expired", "type", type, "name", nameTag).increment();
+    }
+
+    public void countRetry(String nameTag) {
+        registry.counter("dlock.retries", "type", type, "name", nameTag).increment();
+    }
+
+    public void countReentrant(String nameTag) {
+        registry.counter("dlock.reentrant", "type", type, "name", nameTag).increment();
+    }
+
+    public AtomicInteger held() {
+        return held;
+    }
+
+    public AtomicInteger waiting() {
+        return waiting;
+    }
+}
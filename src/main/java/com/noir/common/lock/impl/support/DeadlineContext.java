@@ -0,0 +1,121 @@
+package com.noir.common.lock.impl.support;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * 当前线程的获取截止时间
+ *
+ * 各锁的等待均不超过该时间，用于让一个预算覆盖多个key的获取，
+ * 或以请求的剩余时间限制获取锁时占用线程的时长。嵌套设置时
+ * 取较早的时间，内层不能延长外层的预算。
+ *
+ * <pre>
+ * long previous = DeadlineContext.set(deadline);
+ * try {
+ *     lock.tryLock(...);
+ * } finally {
+ *     DeadlineContext.restore(previous);
+ * }
+ * </pre>
+ */
+public final class DeadlineContext {
+
+    /**
+     * 未设置截止时间
+     */
+    public static final long NONE = Long.MAX_VALUE;
+
+    private static final ThreadLocal<Long> current = new ThreadLocal<>();
+
+    private DeadlineContext() {
+    }
+
+    /**
+     * 当前线程的截止时间(毫秒时间戳)，未设置时为 {@link #NONE}
+     */
+    public static long current() {
+        Long deadline = current.get();
+        return Objects.isNull(deadline) ? NONE : deadline;
+    }
+
+    /**
+     * 设置当前线程的截止时间，已有更早的截止时间时保持不变
+     *
+     * @param deadline 毫秒时间戳
+     * @return 之前的截止时间，用于 {@link DeadlineContext#restore(long)}
+     */
+    public static long set(long deadline) {
+        long previous = current();
+        if (deadline < previous) {
+            current.set(deadline);
+        }
+        return previous;
+    }
+
+    /**
+     * 清除当前线程的截止时间，用于不限时的阻塞获取
+     *
+     * @return 之前的截止时间，用于 {@link DeadlineContext#restore(long)}
+     */
+    public static long clear() {
+        long previous = current();
+        current.remove();
+        return previous;
+    }
+
+    /**
+     * 恢复之前的截止时间
+     */
+    public static void restore(long previous) {
+        if (previous == NONE) {
+            current.remove();
+        } else {
+            current.set(previous);
+        }
+    }
+
+    /**
+     * 从现在起等待指定时间的截止时间，不晚于当前线程的截止时间
+     *
+     * @param time 等待时间
+     * @param unit 时间单位
+     * @return 毫秒时间戳
+     */
+    public static long deadline(long time, TimeUnit unit) {
+        long now = System.currentTimeMillis();
+        long millis = unit.toMillis(time);
+        long deadline = millis >= NONE - now ? NONE : now + millis;
+        return Math.min(deadline, current());
+    }
+
+    /**
+     * 等待指定时间时实际可等待的时间，不超过当前线程的剩余时间
+     *
+     * @param time 等待时间
+     * @param unit 时间单位
+     * @return 毫秒
+     */
+    public static long remaining(long time, TimeUnit unit) {
+        long deadline = deadline(time, unit);
+        return deadline == NONE ? NONE : Math.max(deadline - System.currentTimeMillis(), 0);
+    }
+
+    /**
+     * 在截止时间前获取锁，获取期间截止时间对锁的各层实现均生效
+     *
+     * @param lock 锁
+     * @param deadline 毫秒时间戳
+     * @return 是否获取成功
+     * @throws InterruptedException interruptedException
+     */
+    public static boolean tryLockUntil(Lock lock, long deadline) throws InterruptedException {
+        long previous = set(deadline);
+        try {
+            return lock.tryLock(Math.max(current() - System.currentTimeMillis(), 0), TimeUnit.MILLISECONDS);
+        } finally {
+            restore(previous);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.noir.common.lock.impl.support;
+
+import com.noir.common.lock.BackoffStrategy;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 指数退避与随机抖动
+ *
+ * 第n次等待为 {@code min(max, base * 2^(n-1))}，再随机减去其中
+ * 至多jitter比例的部分，避免同时失败的等待者在同一时刻重试。
+ */
+public class ExponentialBackoffStrategy implements BackoffStrategy {
+
+    private final long base;
+
+    private final long max;
+
+    private final double jitter;
+
+    /**
+     * @param base 首次等待(毫秒)
+     * @param max 单次等待上限(毫秒)
+     * @param jitter 抖动比例，0~1
+     */
+    public ExponentialBackoffStrategy(long base, long max, double jitter) {
+        if (base <= 0 || max < base) {
+            throw new IllegalArgumentException("backoff base must be positive and not greater than max");
+        }
+        if (jitter < 0 || jitter > 1) {
+            throw new IllegalArgumentException("backoff jitter must be between 0 and 1");
+        }
+        this.base = base;
+        this.max = max;
+        this.jitter = jitter;
+    }
+
+    @Override
+    public long nextDelay(int attempt, long ttl, long remaining) {
+        // 避免移位溢出
+        int shift = Math.min(Math.max(attempt - 1, 0), 30);
+        long delay = Math.min(max, base << shift);
+        if (jitter > 0) {
+            delay -= (long) (delay * jitter * ThreadLocalRandom.current().nextDouble());
+        }
+        return Math.min(delay, remaining);
+    }
+}
@@ -0,0 +1,23 @@
+package com.noir.common.lock.impl.support;
+
+import com.noir.common.lock.BackoffStrategy;
+
+/**
+ * 固定间隔等待
+ */
+public class FixedBackoffStrategy implements BackoffStrategy {
+
+    private final long interval;
+
+    /**
+     * @param interval 等待间隔(毫秒)
+     */
+    public FixedBackoffStrategy(long interval) {
+        this.interval = interval;
+    }
+
+    @Override
+    public long nextDelay(int attempt, long ttl, long remaining) {
+        return Math.min(interval, remaining);
+    }
+}
@@ -0,0 +1,136 @@
+package com.noir.common.lock.impl.support;
+
+import com.noir.common.lock.TransferableLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * JVM内按锁名划分的本地锁槽
+ *
+ * 每个锁名对应一个槽，槽内持有一把公平的本地
+ * {@link ReentrantLock} 与一把共享的分布式锁，
+ * 同一JVM内只有拿到本地锁的线程才会去竞争分布式锁，
+ * 其余线程在本地排队。
+ *
+ * 槽以引用计数管理，最后一个使用者离开时移除；
+ * 若此时分布式锁仍处于移交中的持有状态(排队线程已超时离开)，
+ * 则由最后离开的线程释放。
+ */
+public class LocalLockSlots {
+
+    private static final Logger log = LoggerFactory.getLogger(LocalLockSlots.class);
+
+    private final ConcurrentMap<String, Slot> slots = new ConcurrentHashMap<>();
+
+    /**
+     * 进入锁名对应的槽，不存在时以supplier创建分布式锁
+     *
+     * @param name 锁名称
+     * @param supplier 分布式锁创建
+     * @return 槽，使用完毕后务必 {@link #leave(Slot)}
+     */
+    public Slot enter(String name, Supplier<Lock> supplier) {
+        return slots.compute(name, (key, current) -> {
+            Slot target = current == null ? new Slot(key, supplier.get()) : current;
+            target.refs++;
+            return target;
+        });
+    }
+
+    /**
+     * 获取锁名当前的槽，仅在仍持有槽引用时调用
+     *
+     * @param name 锁名称
+     * @return 槽，不存在时为null
+     */
+    public Slot get(String name) {
+        return slots.get(name);
+    }
+
+    /**
+     * 离开槽
+     *
+     * @param slot 槽
+     */
+    public void leave(Slot slot) {
+        boolean[] removed = new boolean[1];
+        slots.computeIfPresent(slot.name, (key, current) -> {
+            if (current != slot || --current.refs > 0) {
+                return current;
+            }
+            removed[0] = true;
+            return null;
+        });
+        if (removed[0] && slot.owned) {
+            // 移交后无人接手，释放分布式锁
+            slot.owned = false;
+            try {
+                if (slot.inner instanceof TransferableLock) {
+                    ((TransferableLock) slot.inner).attach();
+                }
+                slot.inner.unlock();
+            } catch (RuntimeException e) {
+                log.warn("release abandoned dLock {} failed: {}", slot.name, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 单个锁名的本地槽
+     */
+    public static class Slot {
+        private final String name;
+
+        private final ReentrantLock local = new ReentrantLock(true);
+
+        private final Lock inner;
+
+        // 仅在slots.compute中修改
+        private int refs;
+
+        /**
+         * 分布式锁是否由本槽持有
+         */
+        private volatile boolean owned;
+
+        /**
+         * 连续移交次数，受local保护
+         */
+        private int handoffs;
+
+        private Slot(String name, Lock inner) {
+            this.name = name;
+            this.inner = inner;
+        }
+
+        public ReentrantLock getLocal() {
+            return local;
+        }
+
+        public Lock getInner() {
+            return inner;
+        }
+
+        public boolean isOwned() {
+            return owned;
+        }
+
+        public void setOwned(boolean owned) {
+            this.owned = owned;
+        }
+
+        public int getHandoffs() {
+            return handoffs;
+        }
+
+        public void setHandoffs(int handoffs) {
+            this.handoffs = handoffs;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.noir.common.lock.impl.support;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 锁实例缓存
+ *
+ * 工厂按锁名(与租期)缓存锁实例，重复获取同一资源的锁时
+ * 不再创建对象。值为弱引用，不再被使用的实例随GC回收；
+ * 缓存数量达到上限后新的实例不再缓存，直到已回收的条目被清理。
+ *
+ * 仅用于可被多个线程共用的锁实例
+ * @see com.noir.common.lock.ReentrantDLock
+ */
+public class LockHandleCache<V> {
+
+    private final int maxSize;
+
+    private final Map<String, HandleReference<V>> handles = new ConcurrentHashMap<>();
+
+    private final ReferenceQueue<V> queue = new ReferenceQueue<>();
+
+    /**
+     * @param maxSize 缓存上限，不大于0时不缓存
+     */
+    public LockHandleCache(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * 获取缓存的实例，不存在或已回收时创建
+     *
+     * @param key 锁名，带租期时应包含租期
+     * @param supplier 创建实例
+     * @return 锁实例
+     */
+    public V get(String key, Supplier<V> supplier) {
+        if (maxSize <= 0) {
+            return supplier.get();
+        }
+        HandleReference<V> reference = handles.get(key);
+        V handle = Objects.isNull(reference) ? null : reference.get();
+        if (Objects.nonNull(handle)) {
+            return handle;
+        }
+        expunge();
+        handle = supplier.get();
+        if (handles.size() >= maxSize) {
+            return handle;
+        }
+        HandleReference<V> created = new HandleReference<>(key, handle, queue);
+        while (true) {
+            HandleReference<V> existing = handles.putIfAbsent(key, created);
+            if (Objects.isNull(existing)) {
+                return handle;
+            }
+            // 并发创建时以先放入的实例为准
+            V current = existing.get();
+            if (Objects.nonNull(current)) {
+                return current;
+            }
+            if (handles.replace(key, existing, created)) {
+                return handle;
+            }
+        }
+    }
+
+    /**
+     * 带租期的缓存key
+     */
+    public static String key(String name, long expire, TimeUnit unit) {
+        return name + "@" + unit.toMillis(expire);
+    }
+
+    /**
+     * 清理已回收的条目
+     */
+    @SuppressWarnings("unchecked")
+    private void expunge() {
+        HandleReference<V> reference;
+        while ((reference = (HandleReference<V>) queue.poll()) != null) {
+            handles.remove(reference.key, reference);
+        }
+    }
+
+    private static final class HandleReference<V> extends WeakReference<V> {
+        private final String key;
+
+        private HandleReference(String key, V handle, ReferenceQueue<V> queue) {
+            super(handle, queue);
+            this.key = key;
+        }
+    }
+}
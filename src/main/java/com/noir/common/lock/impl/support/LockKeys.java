@@ -0,0 +1,37 @@
+package com.noir.common.lock.impl.support;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.TreeSet;
+
+/**
+ * 多资源锁的key规范化
+ *
+ * 去重后按字典序排列，所有节点、所有调用方对同一组资源
+ * 以相同顺序获取，逐个获取时不会因顺序相反而互相等待。
+ */
+public final class LockKeys {
+
+    private LockKeys() {
+    }
+
+    /**
+     * 去重并排序
+     *
+     * @param names 资源名称
+     * @return 规范顺序的资源名称
+     * @throws IllegalArgumentException 资源名称中含有null
+     */
+    public static List<String> canonical(Collection<String> names) {
+        TreeSet<String> sorted = new TreeSet<>();
+        for (String name : names) {
+            if (Objects.isNull(name)) {
+                throw new IllegalArgumentException("lock names must not contain null: " + names);
+            }
+            sorted.add(name);
+        }
+        return new ArrayList<>(sorted);
+    }
+}
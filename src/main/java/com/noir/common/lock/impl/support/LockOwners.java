@@ -0,0 +1,34 @@
+package com.noir.common.lock.impl.support;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 后端持有者标识
+ *
+ * 以JVM范围唯一的id加自增序号生成，每次获取仅拼接一次
+ * 字符串，不再为每个锁实例生成随机UUID。
+ */
+public final class LockOwners {
+
+    private static final String JVM_ID = UUID.randomUUID().toString();
+
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+
+    private LockOwners() {
+    }
+
+    /**
+     * 本JVM的标识
+     */
+    public static String jvmId() {
+        return JVM_ID;
+    }
+
+    /**
+     * 新的持有者标识
+     */
+    public static String next() {
+        return JVM_ID + ":" + SEQUENCE.incrementAndGet();
+    }
+}
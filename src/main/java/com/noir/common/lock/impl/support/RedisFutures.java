@@ -0,0 +1,47 @@
+package com.noir.common.lock.impl.support;
+
+import io.netty.util.concurrent.FutureListener;
+import org.redisson.api.RFuture;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * redisson异步结果的转换
+ */
+public final class RedisFutures {
+
+    private RedisFutures() {
+    }
+
+    /**
+     * 将 {@link RFuture} 转换为 {@link CompletableFuture}
+     *
+     * @param future redisson异步结果
+     * @param <V> 结果类型
+     * @return CompletableFuture
+     */
+    public static <V> CompletableFuture<V> toCompletable(RFuture<V> future) {
+        CompletableFuture<V> result = new CompletableFuture<>();
+        future.addListener((FutureListener<V>) f -> {
+            if (f.isSuccess()) {
+                result.complete(f.getNow());
+            } else {
+                result.completeExceptionally(f.cause());
+            }
+        });
+        return result;
+    }
+
+    /**
+     * 以异常完成的结果
+     *
+     * @param error 异常
+     * @param <V> 结果类型
+     * @return CompletableFuture
+     */
+    public static <V> CompletableFuture<V> failed(Throwable error) {
+        CompletableFuture<V> result = new CompletableFuture<>();
+        result.completeExceptionally(error);
+        return result;
+    }
+}
@@ -0,0 +1,364 @@
+package com.noir.common.lock.impl.support;
+
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * redis锁释放通知的订阅管理
+ *
+ * 解锁脚本会向锁对应的channel publish释放通知，
+ * 同一JVM内对同一个channel仅维持一个订阅，等待
+ * 同一把锁的线程共享该订阅，收到通知后唤醒等待者
+ * 重新竞争，以替代固定间隔的sleep轮询。
+ *
+ * 通知的内容为需要唤醒的等待者数量，至少唤醒一个；
+ * 为负数时唤醒全部等待者，用于读写锁释放写锁等可能
+ * 有多个等待者同时获取成功的场景。
+ *
+ * 异步等待者须在每次尝试前以 {@link Entry#newWaiter()} 登记，
+ * 尝试期间到达的通知会被记下，尝试失败后 {@link AsyncWaiter#arm(Runnable)}
+ * 时立即重试，不会错过；异步等待者不占用任何线程。
+ *
+ * 最后一个等待者退出时取消订阅。
+ *
+ * redisson的订阅与取消订阅会同步等待redis应答，异步获取使用
+ * {@link #subscribeAsync(String)} 与 {@link #unsubscribeAsync(Entry)}，
+ * 在独立的订阅线程上执行，不占用netty回调线程与 {@link AsyncLockTimer}。
+ */
+public class RedisLockReleaseSubscriber {
+
+    /**
+     * 唤醒全部等待者的通知
+     */
+    public static final int WAKE_ALL = -1;
+
+    private static final int SUBSCRIBE_THREADS = 2;
+
+    private static final ExecutorService SUBSCRIBE_EXECUTOR = Executors.newFixedThreadPool(SUBSCRIBE_THREADS, runnable -> {
+        Thread thread = new Thread(runnable, "dlock-redis-subscribe");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final RedissonClient client;
+
+    private final ConcurrentMap<String, Channel> channels = new ConcurrentHashMap<>();
+
+    public RedisLockReleaseSubscriber(RedissonClient client) {
+        this.client = client;
+    }
+
+    /**
+     * 订阅channel，同channel的订阅在JVM内共享
+     *
+     * @param channel channel名称
+     * @return 订阅项，使用完毕后务必 {@link #unsubscribe(Entry)}
+     */
+    public Entry subscribe(String channel) {
+        return subscribe(retain(channel));
+    }
+
+    /**
+     * 在订阅线程上订阅channel，不阻塞调用线程
+     *
+     * @param channel channel名称
+     * @return 订阅项，使用完毕后务必 {@link #unsubscribeAsync(Entry)}
+     */
+    public CompletableFuture<Entry> subscribeAsync(String channel) {
+        Channel target = retain(channel);
+        CompletableFuture<Entry> result = new CompletableFuture<>();
+        SUBSCRIBE_EXECUTOR.execute(() -> {
+            Entry entry;
+            try {
+                entry = subscribe(target);
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+                return;
+            }
+            result.complete(entry);
+        });
+        return result;
+    }
+
+    /**
+     * 退出订阅，引用归零时取消redis上的订阅
+     *
+     * @param entry 订阅项
+     */
+    public void unsubscribe(Entry entry) {
+        if (release(entry.channel)) {
+            entry.channel.unlisten();
+        }
+    }
+
+    /**
+     * 退出订阅，引用归零时在订阅线程上取消redis上的订阅，不阻塞调用线程
+     *
+     * @param entry 订阅项
+     */
+    public void unsubscribeAsync(Entry entry) {
+        if (release(entry.channel)) {
+            SUBSCRIBE_EXECUTOR.execute(entry.channel::unlisten);
+        }
+    }
+
+    private Entry subscribe(Channel target) {
+        try {
+            target.listen();
+        } catch (RuntimeException e) {
+            unsubscribe(new Entry(target));
+            throw e;
+        }
+        return new Entry(target);
+    }
+
+    private Channel retain(String channel) {
+        return channels.compute(channel, (key, current) -> {
+            Channel shared = current == null ? new Channel(key) : current;
+            shared.refs++;
+            return shared;
+        });
+    }
+
+    /**
+     * 减少引用
+     *
+     * @return 引用是否归零，归零时已移出共享表，需取消redis上的订阅
+     */
+    private boolean release(Channel channel) {
+        boolean[] released = new boolean[1];
+        channels.computeIfPresent(channel.name, (key, current) -> {
+            if (current != channel) {
+                return current;
+            }
+            if (--current.refs > 0) {
+                return current;
+            }
+            released[0] = true;
+            return null;
+        });
+        return released[0];
+    }
+
+    /**
+     * 一次订阅，由一个获取过程独占使用
+     */
+    public class Entry {
+        private final Channel channel;
+
+        /**
+         * 已观察到的全部唤醒次数，订阅后发生的全部唤醒不会错过
+         */
+        private long seen;
+
+        private Entry(Channel channel) {
+            this.channel = channel;
+            this.seen = channel.generation();
+        }
+
+        /**
+         * 等待释放通知
+         *
+         * @param millis 最长等待时间(毫秒)
+         * @return 是否收到通知
+         * @throws InterruptedException interruptedException
+         */
+        public boolean await(long millis) throws InterruptedException {
+            return channel.await(this, millis);
+        }
+
+        /**
+         * 登记异步等待者，须在发起尝试之前调用
+         *
+         * @return 异步等待者，尝试失败后 {@link AsyncWaiter#arm(Runnable)}，否则 {@link AsyncWaiter#cancel()}
+         */
+        public AsyncWaiter newWaiter() {
+            AsyncWaiter waiter = new AsyncWaiter(channel);
+            channel.asyncWaiters.add(waiter);
+            return waiter;
+        }
+    }
+
+    /**
+     * 单个channel的共享订阅
+     */
+    private class Channel {
+        private final String name;
+
+        private final Queue<AsyncWaiter> asyncWaiters = new ConcurrentLinkedQueue<>();
+
+        // 仅在channels.compute中修改
+        private volatile int refs;
+
+        private Integer listenerId;
+
+        /**
+         * 未被消费的单个唤醒，不超过订阅数
+         */
+        private int permits;
+
+        /**
+         * 全部唤醒的次数
+         */
+        private long generation;
+
+        private Channel(String name) {
+            this.name = name;
+        }
+
+        private synchronized long generation() {
+            return generation;
+        }
+
+        private synchronized boolean await(Entry entry, long millis) throws InterruptedException {
+            long now = System.currentTimeMillis();
+            long deadline = millis >= Long.MAX_VALUE - now ? Long.MAX_VALUE : now + millis;
+            while (true) {
+                if (generation != entry.seen) {
+                    entry.seen = generation;
+                    return true;
+                }
+                if (permits > 0) {
+                    permits--;
+                    return true;
+                }
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return false;
+                }
+                wait(remaining);
+            }
+        }
+
+        private void notifyRelease(String message) {
+            int count = wakeCount(message);
+            synchronized (this) {
+                if (count < 0) {
+                    generation++;
+                } else {
+                    permits = Math.min(permits + count, Math.max(refs, 1));
+                }
+                notifyAll();
+            }
+            // 跳过已被超时触发或已取消的等待者
+            int signalled = 0;
+            AsyncWaiter waiter;
+            while ((count < 0 || signalled < count) && (waiter = asyncWaiters.poll()) != null) {
+                if (waiter.signal()) {
+                    signalled++;
+                }
+            }
+        }
+
+        private synchronized void listen() {
+            if (listenerId == null) {
+                listenerId = topic().addListener((ch, msg) -> notifyRelease(msg));
+            }
+        }
+
+        private synchronized void unlisten() {
+            if (listenerId != null) {
+                topic().removeListener(listenerId);
+                listenerId = null;
+            }
+        }
+
+        private RTopic<String> topic() {
+            return client.getTopic(name, StringCodec.INSTANCE);
+        }
+    }
+
+    /**
+     * 通知需要唤醒的等待者数量，至少为1，负数为全部
+     */
+    private static int wakeCount(String message) {
+        try {
+            int count = Integer.parseInt(message.trim());
+            return count < 0 ? WAKE_ALL : Math.max(count, 1);
+        } catch (RuntimeException e) {
+            return 1;
+        }
+    }
+
+    /**
+     * 异步等待者，释放通知与超时重试仅会触发一次
+     *
+     * 尝试进行中(尚未arm)收到的通知会被记下，arm时立即触发。
+     */
+    public static class AsyncWaiter {
+        private static final int PENDING = 0;
+        private static final int SIGNALLED = 1;
+        private static final int ARMED = 2;
+        private static final int DONE = 3;
+
+        private final AtomicInteger state = new AtomicInteger(PENDING);
+
+        private final Channel channel;
+
+        private volatile Runnable callback;
+
+        private AsyncWaiter(Channel channel) {
+            this.channel = channel;
+        }
+
+        /**
+         * 尝试失败后设置重试回调，期间已收到通知时立即触发
+         *
+         * @param callback 重试回调
+         */
+        public void arm(Runnable callback) {
+            this.callback = callback;
+            if (state.compareAndSet(PENDING, ARMED)) {
+                return;
+            }
+            if (state.compareAndSet(SIGNALLED, DONE)) {
+                callback.run();
+            }
+        }
+
+        /**
+         * 超时触发，并移出等待队列
+         *
+         * @return 是否由本次调用触发
+         */
+        public boolean fire() {
+            channel.asyncWaiters.remove(this);
+            return run();
+        }
+
+        /**
+         * 尝试成功或放弃时取消，并移出等待队列
+         */
+        public void cancel() {
+            state.set(DONE);
+            channel.asyncWaiters.remove(this);
+        }
+
+        /**
+         * 释放通知触发
+         *
+         * @return 通知是否被本等待者消费
+         */
+        private boolean signal() {
+            return state.compareAndSet(PENDING, SIGNALLED) || run();
+        }
+
+        private boolean run() {
+            if (!state.compareAndSet(ARMED, DONE)) {
+                return false;
+            }
+            callback.run();
+            return true;
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.noir.common.lock.impl.support;
+
+import org.redisson.api.RBatch;
+import org.redisson.api.RScript;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.RedisException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * redis锁续约看门狗
+ *
+ * 每个JVM(工厂)仅有一个调度线程，登记当前持有的所有锁，
+ * 周期性地将到期需要续约的锁合并为一个batch，通过校验
+ * 持有者后PEXPIRE的脚本一次性管道提交，而非为每把锁
+ * 单独起定时器。
+ *
+ * 每把锁在租期的1/3处续约，这样可以使用较短的租期，
+ * 节点宕机后资源能尽快释放，长调用也不会因超过租期而回滚。
+ * 续约时发现持有者已变化(租期已过被他人获取)则停止续约，
+ * 由解锁时抛出 {@link com.noir.common.lock.excptions.LockExpiredException}。
+ */
+public class RedisLockWatchdog {
+
+    private static final Logger log = LoggerFactory.getLogger(RedisLockWatchdog.class);
+
+    private final RedissonClient client;
+
+    private final RedisScriptRegistry scripts;
+
+    private final long interval;
+
+    private final ConcurrentMap<String, Lease> leases = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService scheduler;
+
+    public RedisLockWatchdog(RedissonClient client, RedisScriptRegistry scripts, long interval) {
+        this.client = client;
+        this.scripts = scripts;
+        this.interval = interval;
+    }
+
+    /**
+     * 启动调度线程
+     */
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        scripts.load(SCRIPTS);
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "dlock-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::renew, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 停止调度线程
+     */
+    public synchronized void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * 登记已持有的锁
+     *
+     * @param key 锁key
+     * @param owner 持有者标识
+     * @param leaseMillis 租期(毫秒)
+     */
+    public void track(String key, Object owner, long leaseMillis) {
+        leases.put(key, new Lease(key, owner, leaseMillis));
+    }
+
+    /**
+     * 取消登记，仅在持有者一致时移除
+     *
+     * @param key 锁key
+     * @param owner 持有者标识
+     */
+    public void untrack(String key, Object owner) {
+        leases.computeIfPresent(key, (k, lease) -> lease.owner.equals(owner) ? null : lease);
+    }
+
+    private void renew() {
+        long now = System.currentTimeMillis();
+        List<Lease> due = new ArrayList<>();
+        for (Lease lease : leases.values()) {
+            if (lease.renewAt <= now) {
+                due.add(lease);
+            }
+        }
+        if (due.isEmpty()) {
+            return;
+        }
+
+        List<?> results;
+        try {
+            results = executeBatch(due, true);
+        } catch (RedisException e) {
+            if (!scripts.isNoScript(e)) {
+                log.warn("renew {} dLock lease failed: {}", due.size(), e.getMessage());
+                return;
+            }
+            results = executeBatch(due, false);
+        } catch (RuntimeException e) {
+            log.warn("renew {} dLock lease failed: {}", due.size(), e.getMessage());
+            return;
+        }
+
+        for (int i = 0; i < due.size(); i++) {
+            Lease lease = due.get(i);
+            Object renewed = results.get(i);
+            if (renewed instanceof Number && ((Number) renewed).longValue() > 0) {
+                lease.renewAt = now + lease.leaseMillis / 3;
+            } else {
+                log.warn("{} lost before renewal, stop watching", lease.key);
+                untrack(lease.key, lease.owner);
+            }
+        }
+    }
+
+    private List<?> executeBatch(List<Lease> due, boolean useDigest) {
+        RBatch batch = client.createBatch();
+        String digest = useDigest ? scripts.digest(RENEW_LUA_SCRIPT) : null;
+        for (Lease lease : due) {
+            List<Object> keys = Collections.singletonList(lease.key);
+            if (useDigest) {
+                batch.getScript().evalShaAsync(RScript.Mode.READ_WRITE, digest, RScript.ReturnType.INTEGER, keys, lease.owner, lease.leaseMillis);
+            } else {
+                batch.getScript().evalAsync(RScript.Mode.READ_WRITE, RENEW_LUA_SCRIPT, RScript.ReturnType.INTEGER, keys, lease.owner, lease.leaseMillis);
+            }
+        }
+        return batch.execute();
+    }
+
+    /**
+     * 持有中的锁
+     */
+    private static class Lease {
+        private final String key;
+
+        private final Object owner;
+
+        private final long leaseMillis;
+
+        private volatile long renewAt;
+
+        private Lease(String key, Object owner, long leaseMillis) {
+            this.key = key;
+            this.owner = owner;
+            this.leaseMillis = leaseMillis;
+            this.renewAt = System.currentTimeMillis() + leaseMillis / 3;
+        }
+    }
+
+    /**
+     * 校验持有者后续约，返回是否续约成功
+     */
+    private static final String RENEW_LUA_SCRIPT =
+            "if redis.call('get', KEYS[1]) == ARGV[1] then " +
+                "return redis.call('pexpire', KEYS[1], ARGV[2]); " +
+            "end; " +
+            "return 0;";
+
+    private static final List<String> SCRIPTS = Collections.singletonList(RENEW_LUA_SCRIPT);
+}
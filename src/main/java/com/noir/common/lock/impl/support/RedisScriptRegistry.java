@@ -0,0 +1,156 @@
+package com.noir.common.lock.impl.support;
+
+import org.redisson.api.RScript;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.RedisException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * redis lua脚本注册表
+ *
+ * 启动时通过 {@code SCRIPT LOAD} 预加载锁相关脚本，
+ * 之后所有调用均以 {@code EVALSHA} 携带摘要执行，
+ * 避免每次上锁解锁都传输脚本全文并由redis重新计算摘要。
+ *
+ * 发生主从切换或 {@code SCRIPT FLUSH} 导致脚本缓存丢失时，
+ * 收到 {@code NOSCRIPT} 后透明降级为 {@code EVAL}，
+ * 该次调用同时会将脚本重新写入redis的脚本缓存。
+ */
+public class RedisScriptRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(RedisScriptRegistry.class);
+
+    private static final String NO_SCRIPT_ERROR = "NOSCRIPT";
+
+    private final RedissonClient client;
+
+    /**
+     * 脚本全文 -> sha1摘要
+     */
+    private final ConcurrentMap<String, String> digests = new ConcurrentHashMap<>();
+
+    public RedisScriptRegistry(RedissonClient client) {
+        this.client = client;
+    }
+
+    /**
+     * 预加载脚本，加载失败时仅记录日志，
+     * 首次调用时将再次尝试加载
+     *
+     * @param scripts 脚本全文
+     */
+    public void load(Collection<String> scripts) {
+        for (String script : scripts) {
+            try {
+                loadScript(script);
+            } catch (RedisException e) {
+                log.warn("preload lua script failed, will retry on first call: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 以EVALSHA执行脚本
+     *
+     * @param mode 读写模式
+     * @param script 脚本全文
+     * @param returnType 返回值类型
+     * @param keys KEYS
+     * @param values ARGV
+     * @param <R> 返回值
+     * @return 脚本执行结果
+     */
+    public <R> R eval(RScript.Mode mode, String script, RScript.ReturnType returnType, List<Object> keys, Object... values) {
+        String digest = digest(script);
+        try {
+            return client.getScript().evalSha(mode, digest, returnType, keys, values);
+        } catch (RedisException e) {
+            if (!isNoScript(e)) {
+                throw e;
+            }
+            log.info("lua script {} missing on server, fallback to EVAL", digest);
+            return client.getScript().eval(mode, script, returnType, keys, values);
+        }
+    }
+
+    /**
+     * 以EVALSHA异步执行脚本
+     *
+     * 尚未加载摘要时直接EVAL，不在回调线程中同步加载
+     *
+     * @param mode 读写模式
+     * @param script 脚本全文
+     * @param returnType 返回值类型
+     * @param keys KEYS
+     * @param values ARGV
+     * @param <R> 返回值
+     * @return 脚本执行结果
+     */
+    public <R> CompletableFuture<R> evalAsync(RScript.Mode mode, String script, RScript.ReturnType returnType, List<Object> keys, Object... values) {
+        String digest = digests.get(script);
+        if (digest == null) {
+            return RedisFutures.toCompletable(client.getScript().<R>evalAsync(mode, script, returnType, keys, values));
+        }
+        CompletableFuture<R> result = new CompletableFuture<>();
+        RedisFutures.toCompletable(client.getScript().<R>evalShaAsync(mode, digest, returnType, keys, values))
+                .whenComplete((value, error) -> {
+                    if (error == null) {
+                        result.complete(value);
+                        return;
+                    }
+                    if (!isNoScript(error)) {
+                        result.completeExceptionally(error);
+                        return;
+                    }
+                    RedisFutures.toCompletable(client.getScript().<R>evalAsync(mode, script, returnType, keys, values))
+                            .whenComplete((retried, retryError) -> {
+                                if (retryError == null) {
+                                    result.complete(retried);
+                                } else {
+                                    result.completeExceptionally(retryError);
+                                }
+                            });
+                });
+        return result;
+    }
+
+    /**
+     * 获取脚本摘要，未加载时先行加载
+     *
+     * @param script 脚本全文
+     * @return sha1摘要
+     */
+    public String digest(String script) {
+        String digest = digests.get(script);
+        return digest != null ? digest : loadScript(script);
+    }
+
+    /**
+     * 是否为脚本缓存丢失导致的异常
+     *
+     * @param e 异常
+     * @return 是否为NOSCRIPT
+     */
+    public boolean isNoScript(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            String message = cause.getMessage();
+            if (message != null && message.contains(NO_SCRIPT_ERROR)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private String loadScript(String script) {
+        String digest = client.getScript().scriptLoad(script);
+        digests.put(script, digest);
+        return digest;
+    }
+}
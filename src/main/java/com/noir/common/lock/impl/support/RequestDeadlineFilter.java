@@ -0,0 +1,58 @@
+package com.noir.common.lock.impl.support;
+
+import com.noir.common.lock.properties.DLockProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 以请求的剩余时间作为请求内获取锁的截止时间
+ *
+ * 上游在 {@code locker.deadline.header} 请求头中传入剩余的
+ * 毫秒数，请求处理期间各锁的等待均不超过该时间，上游超时
+ * 放弃后不再有线程占用在锁等待上。传递相对时间以避免各节点
+ * 的时钟偏差。
+ * @see DeadlineContext
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "locker.deadline", value = "enabled", havingValue = "true")
+public class RequestDeadlineFilter extends OncePerRequestFilter {
+
+    @Autowired
+    private DLockProperties properties;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String timeout = request.getHeader(properties.getDeadline().getHeader());
+        if (!StringUtils.hasText(timeout)) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        long remaining;
+        try {
+            remaining = Long.parseLong(timeout.trim());
+        } catch (NumberFormatException e) {
+            log.warn("ignore invalid request timeout header: {}", timeout);
+            filterChain.doFilter(request, response);
+            return;
+        }
+        long previous = DeadlineContext.set(DeadlineContext.deadline(Math.max(remaining, 0), TimeUnit.MILLISECONDS));
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            DeadlineContext.restore(previous);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.noir.common.lock.impl.support;
+
+import com.noir.common.lock.BackoffStrategy;
+
+/**
+ * 等待至当前持有者的租期到期
+ *
+ * 适用于有释放通知的锁，持有者提前释放时由通知唤醒，
+ * 否则在租期到期、锁被自动回收时重试；锁永不过期时等待
+ * 全部剩余时间。租期未知时立即重试，没有释放通知的
+ * 轮询锁(get-set、红锁)忽略该策略，使用其默认的指数退避。
+ */
+public class TtlBackoffStrategy implements BackoffStrategy {
+
+    public static final TtlBackoffStrategy INSTANCE = new TtlBackoffStrategy();
+
+    @Override
+    public long nextDelay(int attempt, long ttl, long remaining) {
+        return ttl == -1 ? remaining : Math.min(Math.max(ttl, 0), remaining);
+    }
+}
@@ -0,0 +1,137 @@
+package com.noir.common.lock.impl.support;
+
+import org.apache.zookeeper.WatchedEvent;
+import org.apache.zookeeper.Watcher;
+import org.apache.zookeeper.ZooKeeper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * zookeeper会话管理
+ *
+ * 每个客户端维持一个长期会话，锁的获取与释放仅使用
+ * 当前会话，不在锁路径上建立或关闭连接。
+ *
+ * 断线期间由zk客户端自动重连并在同一会话内恢复监听；
+ * 会话过期后重建会话。旧会话的临时节点与监听均已失效：
+ * 等待中的获取由各自的监听器收到过期事件后失败，已持有
+ * 的锁在解锁时发现节点已删除，以
+ * {@link com.noir.common.lock.excptions.LockExpiredException} 告知持有者。
+ */
+public class ZookeeperConnectionManager implements Watcher {
+
+    private static final Logger log = LoggerFactory.getLogger(ZookeeperConnectionManager.class);
+
+    private static final long RECONNECT_DELAY_MILLIS = 1000;
+
+    private final String address;
+
+    private final int sessionTimeout;
+
+    private final ZookeeperLockPaths paths = new ZookeeperLockPaths(this);
+
+    private volatile ZooKeeper zk;
+
+    private volatile CountDownLatch connected;
+
+    private volatile boolean closed;
+
+    public ZookeeperConnectionManager(String address, int sessionTimeout) {
+        this.address = address;
+        this.sessionTimeout = sessionTimeout;
+    }
+
+    /**
+     * 建立会话并等待连接
+     */
+    public void start() throws IOException, InterruptedException {
+        connect();
+        if (!connected.await(sessionTimeout, TimeUnit.MILLISECONDS)) {
+            log.warn("zookeeper {} not connected within {}ms, keep retrying in background", address, sessionTimeout);
+        }
+        log.info("zookeeper session state: {}", zk.getState());
+    }
+
+    private synchronized void connect() throws IOException {
+        connected = new CountDownLatch(1);
+        zk = new ZooKeeper(address, sessionTimeout, this);
+    }
+
+    /**
+     * 当前会话
+     */
+    public ZooKeeper getZooKeeper() {
+        return zk;
+    }
+
+    /**
+     * 锁节点路径
+     */
+    public ZookeeperLockPaths getPaths() {
+        return paths;
+    }
+
+    /**
+     * 会话事件，节点事件由各自的监听器处理
+     */
+    @Override
+    public void process(WatchedEvent event) {
+        if (event.getType() != Event.EventType.None) {
+            return;
+        }
+        switch (event.getState()) {
+            case SyncConnected:
+                connected.countDown();
+                log.info("zookeeper {} connected", address);
+                break;
+            case Disconnected:
+                log.warn("zookeeper {} disconnected, waiting for reconnect", address);
+                break;
+            case Expired:
+                log.warn("zookeeper {} session expired, creating a new session", address);
+                // 不在事件线程中重建会话
+                AsyncLockTimer.execute(this::renewSession);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void renewSession() {
+        if (closed) {
+            return;
+        }
+        ZooKeeper expired = zk;
+        try {
+            connect();
+        } catch (IOException e) {
+            log.error("zookeeper {} reconnect failed, retry in {}ms", address, RECONNECT_DELAY_MILLIS, e);
+            AsyncLockTimer.schedule(this::renewSession, RECONNECT_DELAY_MILLIS);
+            return;
+        }
+        closeQuietly(expired);
+    }
+
+    /**
+     * 关闭会话
+     */
+    public void close() {
+        closed = true;
+        closeQuietly(zk);
+    }
+
+    private void closeQuietly(ZooKeeper zooKeeper) {
+        if (zooKeeper == null) {
+            return;
+        }
+        try {
+            zooKeeper.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,305 @@
+package com.noir.common.lock.impl.support;
+
+import org.apache.zookeeper.AsyncCallback;
+import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.ZooDefs;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.IntConsumer;
+
+/**
+ * zookeeper锁的节点路径
+ *
+ * 每个锁名拥有独立的目录 {@code /locks/<name>/seq-xxx}，获取时仅列出
+ * 同名锁的竞争者。目录以container节点创建，最后一个子节点删除后由
+ * 服务端回收，服务端不支持container时退化为持久节点。
+ *
+ * 顺序节点直接在目录下创建，目录不存在(首次使用或已被回收)时
+ * 创建目录后重试，常规路径上不产生额外的exists请求。
+ *
+ * 单个创建的节点名带有本次创建的guid({@code _c_<guid>-seq-xxx})，
+ * 连接丢失时请求可能已在服务端执行，按guid查找已创建的节点；
+ * 创建失败或中断时按guid异步删除，避免留下无人持有的节点。
+ * 节点名不再按字典序反映先后，竞争者须按 {@link #BY_SEQUENCE} 排序。
+ */
+public class ZookeeperLockPaths {
+    public static final String ROOT = "/locks";
+
+    private static final String SEQUENCE_PREFIX = "seq-";
+
+    private static final String PROTECTED_PREFIX = "_c_";
+
+    /**
+     * guid(36位)与其后的分隔符
+     */
+    private static final int PROTECTED_LENGTH = PROTECTED_PREFIX.length() + 37;
+
+    private static final long CLEANUP_RETRY_MILLIS = 1000;
+
+    /**
+     * 按序号排序，序号在同一目录下唯一
+     */
+    public static final Comparator<String> BY_SEQUENCE = Comparator.comparing(ZookeeperLockPaths::sequence);
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private final ZookeeperConnectionManager connections;
+
+    private volatile boolean containerSupported = true;
+
+    public ZookeeperLockPaths(ZookeeperConnectionManager connections) {
+        this.connections = connections;
+    }
+
+    /**
+     * 锁名对应的目录
+     *
+     * @param lockName 锁名
+     * @return 目录路径
+     */
+    public String lockDir(String lockName) {
+        try {
+            return ROOT + "/" + URLEncoder.encode(lockName, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 在锁目录下创建顺序临时节点
+     *
+     * @param dir 锁目录
+     * @return 创建的节点路径
+     */
+    public String createSequential(String dir) throws KeeperException, InterruptedException {
+        return createSequential(dir, SEQUENCE_PREFIX);
+    }
+
+    /**
+     * 在锁目录下创建指定前缀的顺序临时节点
+     *
+     * @param dir 锁目录
+     * @param prefix 节点名前缀
+     * @return 创建的节点路径
+     */
+    public String createSequential(String dir, String prefix) throws KeeperException, InterruptedException {
+        String guid = UUID.randomUUID().toString();
+        try {
+            while (true) {
+                try {
+                    return connections.getZooKeeper().create(sequencePrefix(dir, protect(guid, prefix)), EMPTY, ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.EPHEMERAL_SEQUENTIAL);
+                } catch (KeeperException.NoNodeException e) {
+                    createDir(dir);
+                } catch (KeeperException.ConnectionLossException e) {
+                    // 请求可能已在服务端执行
+                    String child = findProtected(connections.getZooKeeper().getChildren(dir, false), guid);
+                    if (child != null) {
+                        return dir + "/" + child;
+                    }
+                }
+            }
+        } catch (KeeperException | InterruptedException e) {
+            deleteProtectedAsync(dir, guid);
+            throw e;
+        }
+    }
+
+    /**
+     * 创建锁目录，已存在视为成功
+     *
+     * @param dir 锁目录
+     */
+    public void createDir(String dir) throws KeeperException, InterruptedException {
+        createIfAbsent(ROOT, CreateMode.PERSISTENT);
+        createIfAbsent(dir, CreateMode.CONTAINER);
+    }
+
+    /**
+     * 异步在锁目录下创建顺序临时节点
+     *
+     * @param dir 锁目录
+     * @param callback 创建结果
+     */
+    public void createSequentialAsync(String dir, AsyncCallback.StringCallback callback) {
+        createSequentialAsync(dir, SEQUENCE_PREFIX, callback);
+    }
+
+    /**
+     * 异步在锁目录下创建指定前缀的顺序临时节点
+     *
+     * @param dir 锁目录
+     * @param prefix 节点名前缀
+     * @param callback 创建结果
+     */
+    public void createSequentialAsync(String dir, String prefix, AsyncCallback.StringCallback callback) {
+        createProtectedAsync(dir, prefix, UUID.randomUUID().toString(), callback);
+    }
+
+    private void createProtectedAsync(String dir, String prefix, String guid, AsyncCallback.StringCallback callback) {
+        connections.getZooKeeper().create(sequencePrefix(dir, protect(guid, prefix)), EMPTY, ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.EPHEMERAL_SEQUENTIAL,
+                (rc, path, ctx, name) -> {
+                    if (rc == KeeperException.Code.CONNECTIONLOSS.intValue()) {
+                        // 请求可能已在服务端执行
+                        connections.getZooKeeper().getChildren(dir, false, (childrenRc, childrenPath, childrenCtx, children) -> {
+                            if (childrenRc != KeeperException.Code.OK.intValue()) {
+                                deleteProtectedAsync(dir, guid);
+                                callback.processResult(childrenRc, path, ctx, null);
+                                return;
+                            }
+                            String child = findProtected(children, guid);
+                            if (child != null) {
+                                callback.processResult(KeeperException.Code.OK.intValue(), path, ctx, dir + "/" + child);
+                            } else {
+                                createProtectedAsync(dir, prefix, guid, callback);
+                            }
+                        }, null);
+                        return;
+                    }
+                    if (rc != KeeperException.Code.NONODE.intValue()) {
+                        callback.processResult(rc, path, ctx, name);
+                        return;
+                    }
+                    createDirAsync(dir, dirRc -> {
+                        if (dirRc != KeeperException.Code.OK.intValue()) {
+                            callback.processResult(dirRc, path, ctx, null);
+                            return;
+                        }
+                        createProtectedAsync(dir, prefix, guid, callback);
+                    });
+                }, null);
+    }
+
+    /**
+     * 带guid的节点名前缀
+     */
+    private static String protect(String guid, String prefix) {
+        return PROTECTED_PREFIX + guid + "-" + prefix;
+    }
+
+    /**
+     * 去掉guid后的节点名，用于判断节点的前缀
+     *
+     * @param node 节点名
+     * @return 节点名
+     */
+    public static String unprotect(String node) {
+        return node.startsWith(PROTECTED_PREFIX) && node.length() > PROTECTED_LENGTH ? node.substring(PROTECTED_LENGTH) : node;
+    }
+
+    private static String findProtected(List<String> children, String guid) {
+        String prefix = PROTECTED_PREFIX + guid;
+        for (String child : children) {
+            if (child.startsWith(prefix)) {
+                return child;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 异步删除以guid创建的节点，连接丢失时稍后重试，会话过期后临时节点已随之删除
+     */
+    private void deleteProtectedAsync(String dir, String guid) {
+        connections.getZooKeeper().getChildren(dir, false, (rc, path, ctx, children) -> {
+            if (rc == KeeperException.Code.CONNECTIONLOSS.intValue()) {
+                AsyncLockTimer.schedule(() -> deleteProtectedAsync(dir, guid), CLEANUP_RETRY_MILLIS);
+                return;
+            }
+            if (rc != KeeperException.Code.OK.intValue()) {
+                return;
+            }
+            String child = findProtected(children, guid);
+            if (child != null) {
+                connections.getZooKeeper().delete(dir + "/" + child, -1, (deleteRc, deletePath, deleteCtx) -> {
+                    // pass
+                }, null);
+            }
+        }, null);
+    }
+
+    /**
+     * 顺序节点的路径前缀
+     *
+     * @param dir 锁目录
+     * @return 前缀
+     */
+    public String sequencePrefix(String dir) {
+        return sequencePrefix(dir, SEQUENCE_PREFIX);
+    }
+
+    /**
+     * 指定前缀的顺序节点路径前缀
+     *
+     * @param dir 锁目录
+     * @param prefix 节点名前缀
+     * @return 前缀
+     */
+    public String sequencePrefix(String dir, String prefix) {
+        return dir + "/" + prefix;
+    }
+
+    /**
+     * 顺序节点名中的序号，不同前缀的节点按序号比较先后
+     *
+     * @param node 节点名或路径
+     * @return 序号
+     */
+    public static String sequence(String node) {
+        return node.substring(node.lastIndexOf('-') + 1);
+    }
+
+    /**
+     * 异步创建锁目录，已存在视为成功
+     *
+     * @param dir 锁目录
+     * @param callback 结果码
+     */
+    public void createDirAsync(String dir, IntConsumer callback) {
+        createIfAbsentAsync(ROOT, CreateMode.PERSISTENT, rootRc -> {
+            if (rootRc != KeeperException.Code.OK.intValue()) {
+                callback.accept(rootRc);
+                return;
+            }
+            createIfAbsentAsync(dir, CreateMode.CONTAINER, callback);
+        });
+    }
+
+    private void createIfAbsent(String path, CreateMode mode) throws KeeperException, InterruptedException {
+        try {
+            connections.getZooKeeper().create(path, EMPTY, ZooDefs.Ids.OPEN_ACL_UNSAFE, resolve(mode));
+        } catch (KeeperException.NodeExistsException e) {
+            // pass
+        } catch (KeeperException.UnimplementedException e) {
+            if (mode != CreateMode.CONTAINER) {
+                throw e;
+            }
+            containerSupported = false;
+            createIfAbsent(path, CreateMode.PERSISTENT);
+        }
+    }
+
+    /**
+     * 异步创建节点，已存在视为成功
+     */
+    private void createIfAbsentAsync(String path, CreateMode mode, IntConsumer callback) {
+        connections.getZooKeeper().create(path, EMPTY, ZooDefs.Ids.OPEN_ACL_UNSAFE, resolve(mode), (rc, p, ctx, name) -> {
+            if (rc == KeeperException.Code.UNIMPLEMENTED.intValue() && mode == CreateMode.CONTAINER) {
+                containerSupported = false;
+                createIfAbsentAsync(path, CreateMode.PERSISTENT, callback);
+            } else if (rc == KeeperException.Code.NODEEXISTS.intValue()) {
+                callback.accept(KeeperException.Code.OK.intValue());
+            } else {
+                callback.accept(rc);
+            }
+        }, null);
+    }
+
+    private CreateMode resolve(CreateMode mode) {
+        return mode == CreateMode.CONTAINER && !containerSupported ? CreateMode.PERSISTENT : mode;
+    }
+}
@@ -0,0 +1,34 @@
+package com.noir.common.lock.properties;
+
+import lombok.Data;
+import lombok.ToString;
+
+@Data
+@ToString
+public class BackoffProperties {
+
+    /**
+     * 等待策略
+     *
+     * fixed 固定间隔
+     * exponential 指数退避与随机抖动
+     * ttl 等待至持有者的租期到期
+     * 为空时使用各锁的默认策略：redis-expire为ttl，redis-get-set与red-lock为exponential
+     */
+    private String type;
+
+    /**
+     * 固定间隔或指数退避的首次等待(毫秒)
+     */
+    private long base = 50;
+
+    /**
+     * 指数退避的单次等待上限(毫秒)
+     */
+    private long max = 2000;
+
+    /**
+     * 指数退避的抖动比例，0~1
+     */
+    private double jitter = 0.5;
+}
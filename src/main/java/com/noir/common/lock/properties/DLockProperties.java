@@ -18,8 +18,54 @@ public class DLockProperties {
      * redis-expire redis过期时间与上锁id标记
      * redis-get-set redis getSet 时间戳
      * red-lock redisson红锁
+     * redis-sharded 按一致性哈希分布到多个redis的redis-expire锁
      * zookeeper zk公平锁
      */
     private String type;
 
+    /**
+     * 是否使用公平锁(仅redis-expire与redis-sharded)
+     */
+    private boolean fair;
+
+    /**
+     * 工厂按锁名与租期缓存的锁实例上限，0为不缓存
+     */
+    private int handleCacheSize = 1024;
+
+    /**
+     * LockableService的等待时间(秒)，多个key共用
+     */
+    private long acquireTimeout = 30;
+
+    /**
+     * LockableService的锁租期(分钟)
+     */
+    private long leaseTime = 5;
+
+    /**
+     * 请求截止时间配置
+     */
+    private DeadlineProperties deadline = new DeadlineProperties();
+
+    /**
+     * 获取失败后的等待策略配置
+     */
+    private BackoffProperties backoff = new BackoffProperties();
+
+    /**
+     * 锁续约配置
+     */
+    private WatchdogProperties watchdog = new WatchdogProperties();
+
+    /**
+     * JVM内竞争合并配置
+     */
+    private LocalCoalescingProperties local = new LocalCoalescingProperties();
+
+    /**
+     * Micrometer指标配置
+     */
+    private MetricsProperties metrics = new MetricsProperties();
+
 }
@@ -0,0 +1,19 @@
+package com.noir.common.lock.properties;
+
+import lombok.Data;
+import lombok.ToString;
+
+@Data
+@ToString
+public class DeadlineProperties {
+
+    /**
+     * 是否以请求头中的剩余时间限制请求内获取锁的等待
+     */
+    private boolean enabled;
+
+    /**
+     * 携带请求剩余时间(毫秒)的请求头
+     */
+    private String header = "X-Request-Timeout";
+}
@@ -0,0 +1,20 @@
+package com.noir.common.lock.properties;
+
+import lombok.Data;
+import lombok.ToString;
+
+@Data
+@ToString
+public class LocalCoalescingProperties {
+
+    /**
+     * 是否开启JVM内的锁竞争合并
+     */
+    private boolean enabled;
+
+    /**
+     * 分布式锁在本JVM内连续移交的最大次数，
+     * 超过后释放后端资源，给其他节点获取的机会
+     */
+    private int maxHandoff = 16;
+}
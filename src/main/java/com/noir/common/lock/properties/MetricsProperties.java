@@ -0,0 +1,19 @@
+package com.noir.common.lock.properties;
+
+import lombok.Data;
+import lombok.ToString;
+
+@Data
+@ToString
+public class MetricsProperties {
+
+    /**
+     * 是否开启Micrometer指标
+     */
+    private boolean enabled;
+
+    /**
+     * name标签的最大取值数，超出后归入other
+     */
+    private int maxNameTags = 100;
+}
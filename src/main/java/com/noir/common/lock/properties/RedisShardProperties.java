@@ -0,0 +1,19 @@
+package com.noir.common.lock.properties;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+@Data
+@ToString(callSuper = true)
+@EqualsAndHashCode(callSuper = true)
+public class RedisShardProperties extends RedisDLockProperties {
+
+    /**
+     * 分片id，决定分片在哈希环上的位置，需保持稳定
+     *
+     * 更换同一分片的地址时保持id不变，锁的归属不受影响；
+     * 为空时为 shard-序号
+     */
+    private String id;
+}
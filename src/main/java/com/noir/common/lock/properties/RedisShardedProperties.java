@@ -0,0 +1,34 @@
+package com.noir.common.lock.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.List;
+
+@Data
+@ConfigurationProperties(prefix = "locker.sharded")
+public class RedisShardedProperties {
+
+    /**
+     * 全部可连接的分片，每个分片为独立的redis
+     */
+    private List<RedisShardProperties> shards;
+
+    /**
+     * 当前哈希环的分片id，为空时为全部分片
+     */
+    private List<String> ring;
+
+    /**
+     * 迁移前哈希环的分片id，为空时不在迁移中
+     *
+     * 增删分片时先带上旧环滚动发布，期间新旧环归属不同的锁
+     * 在两个分片上同时获取；全部实例发布后再去掉该配置滚动发布一次
+     */
+    private List<String> previousRing;
+
+    /**
+     * 每个分片的虚拟节点数
+     */
+    private int virtualNodes = 160;
+}
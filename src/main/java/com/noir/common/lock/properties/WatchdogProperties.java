@@ -0,0 +1,19 @@
+package com.noir.common.lock.properties;
+
+import lombok.Data;
+import lombok.ToString;
+
+@Data
+@ToString
+public class WatchdogProperties {
+
+    /**
+     * 是否开启redis-expire锁的自动续约
+     */
+    private boolean enabled;
+
+    /**
+     * 续约检查间隔(毫秒)，应明显小于锁租期的1/3
+     */
+    private long interval = 1000;
+}
@@ -0,0 +1,108 @@
+package com.noir.common.lock;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReentrantDLockTest {
+
+    /**
+     * 记录后端访问次数的锁
+     */
+    private static class CountingLock extends ReentrantDLock {
+        private final String name;
+
+        private final AtomicInteger acquires = new AtomicInteger();
+
+        private final AtomicInteger releases = new AtomicInteger();
+
+        private CountingLock(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public boolean tryLock() {
+            if (!reenter(name)) {
+                acquires.incrementAndGet();
+                enter(name);
+            }
+            return true;
+        }
+
+        @Override
+        public boolean tryLock(long time, TimeUnit unit) {
+            return tryLock();
+        }
+
+        @Override
+        public void unlock() {
+            if (exit(name)) {
+                releases.incrementAndGet();
+            }
+        }
+
+        boolean held() {
+            return isEntered(name);
+        }
+
+        @Override
+        public Condition newCondition() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    @Test
+    void nestedAcquireReachesBackendOnce() {
+        CountingLock lock = new CountingLock("nested");
+        lock.tryLock();
+        lock.tryLock();
+        lock.tryLock();
+        lock.unlock();
+        lock.unlock();
+        assertEquals(1, lock.acquires.get());
+        assertEquals(0, lock.releases.get());
+        assertTrue(lock.held());
+
+        lock.unlock();
+        assertEquals(1, lock.releases.get());
+        assertFalse(lock.held());
+    }
+
+    @Test
+    void holdsAreTrackedPerLockName() {
+        CountingLock first = new CountingLock("first");
+        CountingLock second = new CountingLock("second");
+        first.tryLock();
+        second.tryLock();
+        first.unlock();
+        assertFalse(first.held());
+        assertTrue(second.held());
+        second.unlock();
+        assertEquals(1, second.releases.get());
+    }
+
+    @Test
+    void holdsAreNotSharedAcrossThreads() throws Exception {
+        CountingLock lock = new CountingLock("threads");
+        lock.tryLock();
+        try {
+            // 其他线程使用同一实例时不视为重入
+            assertFalse(CompletableFuture.supplyAsync(lock::held).get(1, TimeUnit.SECONDS));
+            CompletableFuture.runAsync(() -> {
+                lock.tryLock();
+                lock.unlock();
+            }).get(1, TimeUnit.SECONDS);
+            assertEquals(2, lock.acquires.get());
+            assertTrue(lock.held());
+        } finally {
+            lock.unlock();
+        }
+    }
+}
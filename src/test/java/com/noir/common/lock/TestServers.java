@@ -0,0 +1,121 @@
+package com.noir.common.lock;
+
+import com.noir.common.lock.impl.support.ZookeeperConnectionManager;
+import org.apache.zookeeper.server.ServerCnxnFactory;
+import org.apache.zookeeper.server.ZooKeeperServer;
+import org.redisson.Redisson;
+import org.redisson.api.RedissonClient;
+import org.redisson.config.Config;
+import redis.embedded.RedisServer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+
+/**
+ * 测试使用的本地redis与进程内zookeeper
+ */
+public final class TestServers {
+
+    private TestServers() {
+    }
+
+    public static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    /**
+     * 嵌入式redis
+     */
+    public static class Redis implements AutoCloseable {
+        private final RedisServer server;
+
+        private final int port;
+
+        private final RedissonClient client;
+
+        public Redis() throws IOException {
+            port = freePort();
+            server = new RedisServer(port);
+            server.start();
+            client = client(port);
+        }
+
+        public RedissonClient client() {
+            return client;
+        }
+
+        /**
+         * 新的客户端，模拟另一个节点
+         */
+        public RedissonClient newClient() {
+            return client(port);
+        }
+
+        private static RedissonClient client(int port) {
+            Config config = new Config();
+            config.useSingleServer()
+                    .setAddress("redis://127.0.0.1:" + port)
+                    .setConnectionPoolSize(16)
+                    .setConnectionMinimumIdleSize(1);
+            return Redisson.create(config);
+        }
+
+        @Override
+        public void close() {
+            client.shutdown();
+            try {
+                server.stop();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * 进程内zookeeper
+     */
+    public static class Zookeeper implements AutoCloseable {
+        private final ZooKeeperServer server;
+
+        private final ServerCnxnFactory factory;
+
+        private final String address;
+
+        private final ZookeeperConnectionManager connections;
+
+        public Zookeeper() throws IOException, InterruptedException {
+            File dir = Files.createTempDirectory("dlock-zk-test").toFile();
+            int port = freePort();
+            server = new ZooKeeperServer(dir, dir, 2000);
+            factory = ServerCnxnFactory.createFactory(port, 1000);
+            factory.startup(server);
+            address = "127.0.0.1:" + port;
+            connections = newConnections();
+        }
+
+        public ZookeeperConnectionManager connections() {
+            return connections;
+        }
+
+        /**
+         * 新的会话，模拟另一个节点，由调用方关闭
+         */
+        public ZookeeperConnectionManager newConnections() throws IOException, InterruptedException {
+            ZookeeperConnectionManager manager = new ZookeeperConnectionManager(address, 30000);
+            manager.start();
+            return manager;
+        }
+
+        @Override
+        public void close() {
+            connections.close();
+            factory.shutdown();
+            server.shutdown();
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.noir.common.lock.aop;
+
+import com.noir.common.lock.DLockFactory;
+import com.noir.common.lock.annotation.DLock;
+import com.noir.common.lock.excptions.TryLockFailException;
+import org.aopalliance.intercept.MethodInvocation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.support.StaticApplicationContext;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DLockAnnotationAdviceTest {
+
+    private DLockFactory lockFactory;
+
+    private Lock lock;
+
+    private DLockAnnotationAdvice advice;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        lockFactory = mock(DLockFactory.class);
+        lock = mock(Lock.class);
+        when(lock.tryLock(anyLong(), any(TimeUnit.class))).thenReturn(true);
+        when(lockFactory.getLock(any())).thenReturn(lock);
+        when(lockFactory.getMultiLock(any())).thenReturn(lock);
+
+        LockKeyResolver keyResolver = new LockKeyResolver();
+        ReflectionTestUtils.setField(keyResolver, "applicationContext", new StaticApplicationContext());
+        advice = new DLockAnnotationAdvice();
+        ReflectionTestUtils.setField(advice, "lockFactory", lockFactory);
+        ReflectionTestUtils.setField(advice, "keyResolver", keyResolver);
+    }
+
+    private Object invoke(String methodName, Object... args) throws Throwable {
+        Method method = Service.class.getDeclaredMethod(methodName, String.class);
+        MethodInvocation invocation = mock(MethodInvocation.class);
+        when(invocation.getMethod()).thenReturn(method);
+        when(invocation.getArguments()).thenReturn(args);
+        when(invocation.proceed()).thenReturn("done");
+        return advice.invoke(invocation);
+    }
+
+    @Test
+    void nullArgumentLocksNullKey() throws Throwable {
+        assertEquals("done", invoke("bare", new Object[]{null}));
+        verify(lockFactory).getLock("null");
+        verify(lock).unlock();
+    }
+
+    @Test
+    void singleKeyIsUsedAsResolved() throws Throwable {
+        assertEquals("done", invoke("single", "1"));
+        verify(lockFactory).getLock("order_1");
+    }
+
+    @Test
+    void multipleKeysAreCanonical() throws Throwable {
+        assertEquals("done", invoke("multi", new Object[]{null}));
+        // 模板中的null拼接为空字符串
+        verify(lockFactory).getMultiLock(Arrays.asList("a_", "b_"));
+    }
+
+    @Test
+    void cachedKeyIsEvaluatedPerInvocation() throws Throwable {
+        assertEquals("done", invoke("single", "1"));
+        assertEquals("done", invoke("single", "2"));
+        verify(lockFactory).getLock("order_1");
+        verify(lockFactory).getLock("order_2");
+    }
+
+    @Test
+    void multipleKeysAreLockedTogether() throws Throwable {
+        assertEquals("done", invoke("pair", "1"));
+        verify(lockFactory).getMultiLock(Arrays.asList("a_1", "b_1"));
+        verify(lock).unlock();
+    }
+
+    @Test
+    void failedTryLockSkipsTheMethod() throws Throwable {
+        when(lock.tryLock(anyLong(), any(TimeUnit.class))).thenReturn(false);
+        assertThrows(TryLockFailException.class, () -> invoke("single", "1"));
+        verify(lock, never()).unlock();
+    }
+
+    static class Service {
+        @DLock("#{#id}")
+        public String bare(String id) {
+            return id;
+        }
+
+        @DLock("order_#{#id}")
+        public String single(String id) {
+            return id;
+        }
+
+        @DLock({"a_#{#id}", "b_#{#id}"})
+        public String pair(String id) {
+            return id;
+        }
+
+        @DLock({"b_#{#id}", "a_#{#id}", "b_#{#id}"})
+        public String multi(String id) {
+            return id;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.noir.common.lock.aop;
+
+import com.noir.common.lock.DLockFactory;
+import com.noir.common.lock.annotation.DLock;
+import com.noir.common.lock.annotation.DSemaphore;
+import com.noir.common.lock.annotation.LockMode;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class DLockFeatureVerifierTest {
+
+    @Test
+    void exclusiveLocksNeedNoFeature() {
+        assertDoesNotThrow(() -> verifier(false, false, ExclusiveService.class).afterSingletonsInstantiated());
+    }
+
+    @Test
+    void readWriteModeFailsWithoutSupport() {
+        assertThrows(IllegalStateException.class,
+                () -> verifier(false, true, ReadService.class).afterSingletonsInstantiated());
+        assertDoesNotThrow(() -> verifier(true, false, ReadService.class).afterSingletonsInstantiated());
+    }
+
+    @Test
+    void classLevelModeIsInherited() {
+        assertThrows(IllegalStateException.class,
+                () -> verifier(false, true, WriteClassService.class).afterSingletonsInstantiated());
+    }
+
+    @Test
+    void semaphoreFailsWithoutSupport() {
+        assertThrows(IllegalStateException.class,
+                () -> verifier(true, false, SemaphoreService.class).afterSingletonsInstantiated());
+        assertDoesNotThrow(() -> verifier(false, true, SemaphoreService.class).afterSingletonsInstantiated());
+    }
+
+    private static DLockFeatureVerifier verifier(boolean readWrite, boolean semaphore, Class<?> service) {
+        DLockFactory lockFactory = mock(DLockFactory.class);
+        when(lockFactory.supportsReadWriteLock()).thenReturn(readWrite);
+        when(lockFactory.supportsSemaphore()).thenReturn(semaphore);
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerBeanDefinition("service", new RootBeanDefinition(service));
+
+        DLockFeatureVerifier verifier = new DLockFeatureVerifier();
+        ReflectionTestUtils.setField(verifier, "lockFactory", lockFactory);
+        ReflectionTestUtils.setField(verifier, "beanFactory", beanFactory);
+        return verifier;
+    }
+
+    static class ExclusiveService {
+        @DLock("order_#{#id}")
+        public void run(String id) {
+            // pass
+        }
+    }
+
+    static class ReadService {
+        @DLock(value = "order_#{#id}", mode = LockMode.READ)
+        public void run(String id) {
+            // pass
+        }
+    }
+
+    @DLock(value = "order", mode = LockMode.WRITE)
+    static class WriteClassService {
+        public void run(String id) {
+            // pass
+        }
+    }
+
+    static class SemaphoreService {
+        @DSemaphore(value = "partner_#{#id}", limit = 2)
+        public void run(String id) {
+            // pass
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.noir.common.lock.impl;
+
+import com.noir.common.lock.AsyncDLock;
+import com.noir.common.lock.AsyncLockHandle;
+import com.noir.common.lock.DLockFactory;
+import com.noir.common.lock.excptions.TryLockFailException;
+import com.noir.common.lock.properties.DLockProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class LockableServiceImplTest {
+
+    private AsyncDLock lock;
+
+    private AsyncLockHandle handle;
+
+    private LockableServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        DLockFactory lockFactory = mock(DLockFactory.class);
+        lock = mock(AsyncDLock.class);
+        when(lockFactory.getLock(eq("key"), anyLong(), any(TimeUnit.class))).thenReturn(lock);
+        handle = mock(AsyncLockHandle.class);
+        when(handle.unlockAsync()).thenReturn(CompletableFuture.completedFuture(null));
+
+        service = new LockableServiceImpl();
+        ReflectionTestUtils.setField(service, "lockFactory", lockFactory);
+        ReflectionTestUtils.setField(service, "properties", new DLockProperties());
+    }
+
+    @Test
+    void lockIsReleasedAfterTheActionCompletes() throws Exception {
+        when(lock.tryLockAsync(anyLong(), any(TimeUnit.class))).thenReturn(CompletableFuture.completedFuture(handle));
+        CompletableFuture<String> action = new CompletableFuture<>();
+
+        CompletableFuture<String> result = service.lockAndExecuteAsync("key", () -> action);
+        // 动作完成前不释放
+        verify(handle, never()).unlockAsync();
+        assertFalse(result.isDone());
+
+        action.complete("done");
+        assertEquals("done", result.get(1, TimeUnit.SECONDS));
+        verify(handle).unlockAsync();
+    }
+
+    @Test
+    void failedActionStillReleasesTheLock() {
+        when(lock.tryLockAsync(anyLong(), any(TimeUnit.class))).thenReturn(CompletableFuture.completedFuture(handle));
+
+        CompletableFuture<String> result = service.lockAndExecuteAsync("key", () -> {
+            throw new IllegalStateException("boom");
+        });
+        ExecutionException e = assertThrows(ExecutionException.class, () -> result.get(1, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof IllegalStateException);
+        verify(handle).unlockAsync();
+    }
+
+    @Test
+    void nullStageStillReleasesTheLock() {
+        when(lock.tryLockAsync(anyLong(), any(TimeUnit.class))).thenReturn(CompletableFuture.completedFuture(handle));
+
+        CompletableFuture<String> result = service.lockAndExecuteAsync("key", () -> null);
+        ExecutionException e = assertThrows(ExecutionException.class, () -> result.get(1, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof NullPointerException);
+        verify(handle).unlockAsync();
+    }
+
+    @Test
+    void timeoutFailsWithoutRunningTheAction() {
+        when(lock.tryLockAsync(anyLong(), any(TimeUnit.class))).thenReturn(CompletableFuture.completedFuture(null));
+
+        CompletableFuture<String> result = service.lockAndExecuteAsync("key", () -> {
+            throw new AssertionError("action ran without the lock");
+        });
+        ExecutionException e = assertThrows(ExecutionException.class, () -> result.get(1, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof TryLockFailException);
+        verify(handle, never()).unlockAsync();
+    }
+
+    @Test
+    void heldLockFailsFastWithoutRunningTheAction() throws Exception {
+        when(lock.tryLock()).thenReturn(false);
+
+        AtomicBoolean ran = new AtomicBoolean();
+        assertThrows(TryLockFailException.class, () -> service.tryLockAndExecute("key", () -> ran.getAndSet(true)));
+        assertFalse(service.tryLockAndExecute("key", () -> ran.set(true)));
+        assertFalse(ran.get());
+        verify(lock, never()).tryLock(anyLong(), any(TimeUnit.class));
+        verify(lock, never()).unlock();
+    }
+}
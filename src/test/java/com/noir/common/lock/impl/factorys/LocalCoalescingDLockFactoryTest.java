@@ -0,0 +1,167 @@
+package com.noir.common.lock.impl.factorys;
+
+import com.noir.common.lock.DLockFactory;
+import com.noir.common.lock.TransferableLock;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class LocalCoalescingDLockFactoryTest {
+
+    /**
+     * 记录后端访问次数的锁
+     */
+    private static class CountingLock implements Lock {
+        final AtomicInteger acquires = new AtomicInteger();
+
+        final AtomicInteger releases = new AtomicInteger();
+
+        @Override
+        public void lock() {
+            acquires.incrementAndGet();
+        }
+
+        @Override
+        public void lockInterruptibly() {
+            lock();
+        }
+
+        @Override
+        public boolean tryLock() {
+            lock();
+            return true;
+        }
+
+        @Override
+        public boolean tryLock(long time, TimeUnit unit) {
+            return tryLock();
+        }
+
+        @Override
+        public void unlock() {
+            releases.incrementAndGet();
+        }
+
+        @Override
+        public Condition newCondition() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private static class TransferableCountingLock extends CountingLock implements TransferableLock {
+        @Override
+        public void detach() {
+            // pass
+        }
+
+        @Override
+        public void attach() {
+            // pass
+        }
+    }
+
+    /**
+     * 当前线程持有期间另起若干线程排队，全部依次获取并释放
+     */
+    private static void contend(DLockFactory factory, String name, int waiters) throws InterruptedException {
+        Lock first = factory.getLock(name);
+        first.lock();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < waiters; i++) {
+            Thread thread = new Thread(() -> {
+                Lock lock = factory.getLock(name);
+                lock.lock();
+                lock.unlock();
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        Thread.sleep(300);
+        first.unlock();
+        for (Thread thread : threads) {
+            thread.join(5000);
+        }
+    }
+
+    @Test
+    void queuedThreadsShareOneBackendAcquire() throws Exception {
+        DLockFactory delegate = mock(DLockFactory.class);
+        TransferableCountingLock backend = new TransferableCountingLock();
+        when(delegate.getLock("hot")).thenReturn(backend);
+
+        contend(new LocalCoalescingDLockFactory(delegate, 16), "hot", 3);
+
+        // 本地排队的线程之间直接移交
+        assertEquals(1, backend.acquires.get());
+        assertEquals(1, backend.releases.get());
+    }
+
+    @Test
+    void handoffLimitReleasesTheBackend() throws Exception {
+        DLockFactory delegate = mock(DLockFactory.class);
+        TransferableCountingLock backend = new TransferableCountingLock();
+        when(delegate.getLock("limited")).thenReturn(backend);
+
+        contend(new LocalCoalescingDLockFactory(delegate, 1), "limited", 3);
+
+        // 每移交一次后释放一次后端资源
+        assertEquals(2, backend.acquires.get());
+        assertEquals(2, backend.releases.get());
+    }
+
+    @Test
+    void nonTransferableLockIsReleasedByEachHolder() throws Exception {
+        DLockFactory delegate = mock(DLockFactory.class);
+        CountingLock backend = new CountingLock();
+        when(delegate.getLock("bound")).thenReturn(backend);
+
+        contend(new LocalCoalescingDLockFactory(delegate, 16), "bound", 3);
+
+        assertEquals(4, backend.acquires.get());
+        assertEquals(4, backend.releases.get());
+    }
+
+    @Test
+    void reentrantLockDoesNotReachTheBackend() {
+        DLockFactory delegate = mock(DLockFactory.class);
+        CountingLock backend = new CountingLock();
+        when(delegate.getLock("nested")).thenReturn(backend);
+        DLockFactory factory = new LocalCoalescingDLockFactory(delegate, 16);
+
+        Lock outer = factory.getLock("nested");
+        assertTrue(outer.tryLock());
+        Lock inner = factory.getLock("nested");
+        assertTrue(inner.tryLock());
+        inner.unlock();
+        outer.unlock();
+
+        assertEquals(1, backend.acquires.get());
+        assertEquals(1, backend.releases.get());
+    }
+
+    @Test
+    void multiLocksComeFromDelegate() {
+        DLockFactory delegate = mock(DLockFactory.class);
+        List<String> names = Arrays.asList("a", "b");
+        Lock multiLock = mock(Lock.class);
+        Lock leasedMultiLock = mock(Lock.class);
+        when(delegate.getMultiLock(names)).thenReturn(multiLock);
+        when(delegate.getMultiLock(names, 10, TimeUnit.SECONDS)).thenReturn(leasedMultiLock);
+
+        DLockFactory factory = new LocalCoalescingDLockFactory(delegate, 16);
+        assertSame(multiLock, factory.getMultiLock(names));
+        assertSame(leasedMultiLock, factory.getMultiLock(names, 10, TimeUnit.SECONDS));
+    }
+}
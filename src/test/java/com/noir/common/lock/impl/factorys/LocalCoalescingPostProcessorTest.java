@@ -0,0 +1,38 @@
+package com.noir.common.lock.impl.factorys;
+
+import com.noir.common.lock.DLockFactory;
+import com.noir.common.lock.properties.DLockProperties;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class LocalCoalescingPostProcessorTest {
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void wrapsFactoriesWithConfiguredHandoff() {
+        DLockProperties properties = new DLockProperties();
+        properties.getLocal().setMaxHandoff(4);
+        ObjectProvider<DLockProperties> provider = mock(ObjectProvider.class);
+        when(provider.getObject()).thenReturn(properties);
+        LocalCoalescingPostProcessor processor = new LocalCoalescingPostProcessor();
+        ReflectionTestUtils.setField(processor, "properties", provider);
+
+        DLockFactory factory = mock(DLockFactory.class);
+        Object wrapped = processor.postProcessAfterInitialization(factory, "factory");
+        assertTrue(wrapped instanceof LocalCoalescingDLockFactory);
+        assertSame(factory, ((LocalCoalescingDLockFactory) wrapped).getDelegate());
+        assertEquals(4, ReflectionTestUtils.getField(wrapped, "maxHandoff"));
+
+        // 已包装的工厂与其他bean保持不变
+        assertSame(wrapped, processor.postProcessAfterInitialization(wrapped, "factory"));
+        Object other = new Object();
+        assertSame(other, processor.postProcessAfterInitialization(other, "other"));
+    }
+}
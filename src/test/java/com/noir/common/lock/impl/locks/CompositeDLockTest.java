@@ -0,0 +1,120 @@
+package com.noir.common.lock.impl.locks;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompositeDLockTest {
+
+    private static ExecutorService executor;
+
+    @BeforeAll
+    static void setUp() {
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @AfterAll
+    static void tearDown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 在另一个线程中持有锁，直到release计数归零
+     */
+    private static void holdUntil(Lock lock, CountDownLatch release) throws Exception {
+        CountDownLatch held = new CountDownLatch(1);
+        executor.submit(() -> {
+            lock.lock();
+            try {
+                held.countDown();
+                release.await();
+            } finally {
+                lock.unlock();
+            }
+            return null;
+        });
+        assertTrue(held.await(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void waitsForBusyLockWithoutHoldingOthers() throws Exception {
+        ReentrantLock first = new ReentrantLock();
+        ReentrantLock second = new ReentrantLock();
+        CountDownLatch release = new CountDownLatch(1);
+        holdUntil(second, release);
+
+        Future<Boolean> composite = executor.submit(() -> {
+            Lock lock = new CompositeDLock(Arrays.asList(first, second));
+            boolean locked = lock.tryLock(5, TimeUnit.SECONDS);
+            if (locked) {
+                lock.unlock();
+            }
+            return locked;
+        });
+        Thread.sleep(200);
+        // 组合锁等待second期间不持有first
+        assertTrue(executor.submit(() -> {
+            boolean locked = first.tryLock(1, TimeUnit.SECONDS);
+            if (locked) {
+                first.unlock();
+            }
+            return locked;
+        }).get());
+
+        release.countDown();
+        assertTrue(composite.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void timeoutReleasesPartialAcquisition() throws Exception {
+        ReentrantLock first = new ReentrantLock();
+        ReentrantLock second = new ReentrantLock();
+        CountDownLatch release = new CountDownLatch(1);
+        holdUntil(second, release);
+        try {
+            assertFalse(new CompositeDLock(Arrays.asList(first, second)).tryLock(200, TimeUnit.MILLISECONDS));
+            assertFalse(first.isLocked());
+            assertFalse(new CompositeDLock(Arrays.asList(first, second)).tryLock());
+            assertFalse(first.isLocked());
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    void oppositeOrdersDoNotDeadlock() throws Exception {
+        ReentrantLock first = new ReentrantLock();
+        ReentrantLock second = new ReentrantLock();
+        Lock forward = new CompositeDLock(Arrays.asList(first, second));
+        Lock backward = new CompositeDLock(Arrays.asList(second, first));
+
+        Future<Integer> a = executor.submit(() -> repeat(forward, 200));
+        Future<Integer> b = executor.submit(() -> repeat(backward, 200));
+        assertEquals(200, a.get(10, TimeUnit.SECONDS));
+        assertEquals(200, b.get(10, TimeUnit.SECONDS));
+    }
+
+    private static int repeat(Lock lock, int times) throws InterruptedException {
+        int acquired = 0;
+        for (int i = 0; i < times; i++) {
+            if (lock.tryLock(5, TimeUnit.SECONDS)) {
+                acquired++;
+                lock.unlock();
+            }
+        }
+        return acquired;
+    }
+}
@@ -0,0 +1,183 @@
+package com.noir.common.lock.impl.locks;
+
+import com.noir.common.lock.AsyncDLock;
+import com.noir.common.lock.AsyncLockHandle;
+import com.noir.common.lock.ReentrantDLock;
+import com.noir.common.lock.excptions.LockExpiredException;
+import com.noir.common.lock.impl.support.DLockMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MeteredLockTest {
+
+    /**
+     * 可被多个线程同时持有的锁，每次带超时的获取记录一次重试
+     */
+    private static class SharedLock extends ReentrantDLock {
+        private volatile boolean free = true;
+
+        private volatile boolean expired;
+
+        @Override
+        public boolean tryLock() {
+            return free;
+        }
+
+        @Override
+        public boolean tryLock(long time, TimeUnit unit) {
+            onRetry();
+            return free;
+        }
+
+        @Override
+        public void unlock() {
+            if (expired) {
+                throw new LockExpiredException();
+            }
+        }
+
+        @Override
+        public Condition newCondition() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * 支持异步获取的共享锁
+     */
+    private static class AsyncSharedLock extends SharedLock implements AsyncDLock {
+        @Override
+        public CompletableFuture<AsyncLockHandle> tryLockAsync(long time, TimeUnit unit) {
+            return CompletableFuture.completedFuture(() -> CompletableFuture.completedFuture(null));
+        }
+    }
+
+    @Test
+    void concurrentHoldersAreTimedSeparately() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        MeteredLock lock = new MeteredLock(new SharedLock(), new DLockMetrics(registry, "test", 10), "shared");
+
+        assertTrue(lock.tryLock());
+        Thread.sleep(300);
+        // 另一个线程同时持有并释放，不影响当前线程的计时
+        Thread other = new Thread(() -> {
+            lock.tryLock();
+            lock.unlock();
+        });
+        other.start();
+        other.join();
+        lock.unlock();
+
+        assertEquals(2, registry.get("dlock.hold").timer().count());
+        assertTrue(registry.get("dlock.hold").timer().max(TimeUnit.MILLISECONDS) >= 300);
+        assertEquals(0, registry.get("dlock.held").gauge().value());
+    }
+
+    @Test
+    void reentrantAcquireIsTimedOnce() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        MeteredLock lock = new MeteredLock(new SharedLock(), new DLockMetrics(registry, "test", 10), "reentrant");
+
+        assertTrue(lock.tryLock());
+        assertTrue(lock.tryLock());
+        lock.unlock();
+        assertNull(registry.find("dlock.hold").timer());
+        lock.unlock();
+
+        assertEquals(1, registry.get("dlock.hold").timer().count());
+        assertEquals(1, registry.get("dlock.reentrant").counter().count());
+    }
+
+    @Test
+    void timeoutsAndRetriesAreCounted() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        SharedLock delegate = new SharedLock();
+        delegate.free = false;
+        MeteredLock lock = new MeteredLock(delegate, new DLockMetrics(registry, "test", 10), "busy");
+
+        assertFalse(lock.tryLock(1, TimeUnit.SECONDS));
+
+        assertEquals(1, registry.get("dlock.timeouts").counter().count());
+        assertEquals(1, registry.get("dlock.retries").counter().count());
+        assertEquals(1, registry.get("dlock.acquire").tag("result", "timeout").timer().count());
+        assertEquals(0, registry.get("dlock.held").gauge().value());
+    }
+
+    @Test
+    void expiredReleaseIsCounted() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        SharedLock delegate = new SharedLock();
+        delegate.expired = true;
+        MeteredLock lock = new MeteredLock(delegate, new DLockMetrics(registry, "test", 10), "expired");
+
+        assertTrue(lock.tryLock());
+        assertThrows(LockExpiredException.class, lock::unlock);
+
+        assertEquals(1, registry.get("dlock.expired").counter().count());
+        assertEquals(0, registry.get("dlock.held").gauge().value());
+    }
+
+    @Test
+    void lockNamesAreNormalizedIntoPatterns() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        DLockMetrics metrics = new DLockMetrics(registry, "test", 1);
+        assertEquals("order_{n}", metrics.nameTag("order_42"));
+        assertEquals("order_{n}", metrics.nameTag("order_7"));
+        // 超过上限的模式统一记为other
+        assertEquals("other", metrics.nameTag("user_3f2c6f5e-0b0e-4c55-9a53-2f1f54d5a1c7"));
+    }
+
+    @Test
+    void asyncAcquireRequiresAnAsyncDelegate() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        MeteredLock lock = new MeteredLock(new SharedLock(), new DLockMetrics(registry, "test", 10), "sync-only");
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> lock.tryLockAsync(1, TimeUnit.SECONDS).get(1, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof UnsupportedOperationException);
+        assertEquals(0, registry.get("dlock.waiting").gauge().value());
+    }
+
+    @Test
+    void asyncHandleIsTimedOncePerAcquire() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        MeteredLock lock = new MeteredLock(new AsyncSharedLock(), new DLockMetrics(registry, "test", 10), "async");
+
+        AsyncLockHandle first = lock.tryLockAsync(1, TimeUnit.SECONDS).get(1, TimeUnit.SECONDS);
+        AsyncLockHandle second = lock.tryLockAsync(1, TimeUnit.SECONDS).get(1, TimeUnit.SECONDS);
+        assertEquals(2, registry.get("dlock.held").gauge().value());
+
+        first.unlockAsync().get(1, TimeUnit.SECONDS);
+        first.unlockAsync().get(1, TimeUnit.SECONDS);
+        assertEquals(1, registry.get("dlock.hold").timer().count());
+        second.unlockAsync().get(1, TimeUnit.SECONDS);
+
+        assertEquals(2, registry.get("dlock.hold").timer().count());
+        assertEquals(0, registry.get("dlock.held").gauge().value());
+    }
+
+    @Test
+    void wrappingSharedHandleKeepsFirstRetryListener() throws Exception {
+        SharedLock shared = new SharedLock();
+        SimpleMeterRegistry first = new SimpleMeterRegistry();
+        SimpleMeterRegistry second = new SimpleMeterRegistry();
+        MeteredLock lock = new MeteredLock(shared, new DLockMetrics(first, "test", 10), "cached");
+        new MeteredLock(shared, new DLockMetrics(second, "test", 10), "cached");
+
+        assertTrue(lock.tryLock(1, TimeUnit.SECONDS));
+        lock.unlock();
+
+        assertEquals(1, first.get("dlock.retries").counter().count());
+        assertNull(second.find("dlock.retries").counter());
+    }
+}
@@ -0,0 +1,130 @@
+package com.noir.common.lock.impl.locks;
+
+import com.noir.common.lock.AsyncLockHandle;
+import com.noir.common.lock.TestServers;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RedLockWrapperTest {
+
+    private static final long LEASE_MILLIS = 30000;
+
+    private static TestServers.Redis[] servers;
+
+    /**
+     * 各节点上模拟另一个进程的客户端
+     */
+    private static RedissonClient[] others;
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        servers = new TestServers.Redis[3];
+        others = new RedissonClient[servers.length];
+        for (int i = 0; i < servers.length; i++) {
+            servers[i] = new TestServers.Redis();
+            others[i] = servers[i].newClient();
+        }
+    }
+
+    @AfterAll
+    static void tearDown() {
+        for (int i = 0; i < servers.length; i++) {
+            others[i].shutdown();
+            servers[i].close();
+        }
+    }
+
+    private static RedLockWrapper newLock(String name) {
+        RLock[] locks = new RLock[servers.length];
+        for (int i = 0; i < servers.length; i++) {
+            locks[i] = servers[i].client().getLock(name);
+        }
+        return new RedLockWrapper(name, LEASE_MILLIS, locks);
+    }
+
+    /**
+     * 由另一个进程持有前count个节点上的锁
+     */
+    private static RLock[] holdOn(String name, int count) {
+        RLock[] held = new RLock[count];
+        for (int i = 0; i < count; i++) {
+            held[i] = others[i].getLock(name);
+            assertTrue(held[i].tryLock());
+        }
+        return held;
+    }
+
+    private static void release(RLock[] held) {
+        for (RLock lock : held) {
+            lock.unlock();
+        }
+    }
+
+    @Test
+    void acquiresWithMajorityWhenMinorityIsHeld() throws Exception {
+        RLock[] held = holdOn("minority", 1);
+        try {
+            RedLockWrapper lock = newLock("minority");
+            assertTrue(lock.tryLock());
+            lock.unlock();
+            assertTrue(lock.tryLock(1, TimeUnit.SECONDS));
+            lock.unlock();
+        } finally {
+            release(held);
+        }
+    }
+
+    @Test
+    void failsWithoutMajorityAndReleasesAcquiredNodes() throws Exception {
+        RLock[] held = holdOn("majority", 2);
+        try {
+            RedLockWrapper lock = newLock("majority");
+            assertFalse(lock.tryLock());
+            assertFalse(lock.tryLock(300, TimeUnit.MILLISECONDS));
+            assertNull(lock.tryLockAsync(300, TimeUnit.MILLISECONDS).get(5, TimeUnit.SECONDS));
+        } finally {
+            release(held);
+        }
+        // 失败的一轮不会遗留第三个节点上的锁
+        Thread.sleep(100);
+        assertFalse(others[2].getLock("majority").isLocked());
+    }
+
+    @Test
+    void asyncHandleReleasesAllNodes() throws Exception {
+        AsyncLockHandle handle = newLock("async").tryLockAsync(1, TimeUnit.SECONDS).get(5, TimeUnit.SECONDS);
+        assertNotNull(handle);
+        assertFalse(newLock("async").tryLock());
+
+        handle.unlockAsync().get(5, TimeUnit.SECONDS);
+        for (RedissonClient other : others) {
+            assertFalse(other.getLock("async").isLocked());
+        }
+    }
+
+    @Test
+    void waiterAcquiresAfterMajorityIsReleased() throws Exception {
+        RLock[] held = holdOn("release", 2);
+        RedLockWrapper lock = newLock("release");
+        CompletableFuture<AsyncLockHandle> waiting = lock.tryLockAsync(10, TimeUnit.SECONDS);
+        Thread.sleep(300);
+        assertFalse(waiting.isDone());
+        held[1].unlock();
+
+        AsyncLockHandle handle = waiting.get(5, TimeUnit.SECONDS);
+        assertNotNull(handle);
+        handle.unlockAsync().get(5, TimeUnit.SECONDS);
+        held[0].unlock();
+    }
+}
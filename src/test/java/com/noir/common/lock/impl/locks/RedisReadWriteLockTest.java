@@ -0,0 +1,169 @@
+package com.noir.common.lock.impl.locks;
+
+import com.noir.common.lock.TestServers;
+import com.noir.common.lock.impl.support.RedisLockReleaseSubscriber;
+import com.noir.common.lock.impl.support.RedisScriptRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RedisReadWriteLockTest {
+
+    private static TestServers.Redis redis;
+
+    private static RedisScriptRegistry scripts;
+
+    private static RedisLockReleaseSubscriber subscriber;
+
+    private static ExecutorService executor;
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        redis = new TestServers.Redis();
+        scripts = new RedisScriptRegistry(redis.client());
+        scripts.load(RedisReadWriteLock.SCRIPTS);
+        subscriber = new RedisLockReleaseSubscriber(redis.client());
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @AfterAll
+    static void tearDown() {
+        executor.shutdownNow();
+        redis.close();
+    }
+
+    private static ReadWriteLock newLock(String name) {
+        return new RedisReadWriteLock(scripts, subscriber, "test", name);
+    }
+
+    @Test
+    void nestedWriteThenReadOnAnotherInstanceDowngrades() throws Exception {
+        ReadWriteLock outer = newLock("downgrade");
+        ReadWriteLock inner = newLock("downgrade");
+
+        assertTrue(outer.writeLock().tryLock(1, TimeUnit.SECONDS));
+        try {
+            assertTrue(inner.readLock().tryLock(1, TimeUnit.SECONDS));
+            inner.readLock().unlock();
+        } finally {
+            outer.writeLock().unlock();
+        }
+        // 全部释放后其他线程可以获取写锁
+        assertTrue(executor.submit(() -> {
+            ReadWriteLock other = newLock("downgrade");
+            boolean locked = other.writeLock().tryLock(1, TimeUnit.SECONDS);
+            other.writeLock().unlock();
+            return locked;
+        }).get());
+    }
+
+    @Test
+    void sharedInstanceReaderWaitsForWriterOnAnotherThread() throws Exception {
+        ReadWriteLock shared = newLock("shared");
+
+        assertTrue(shared.writeLock().tryLock(1, TimeUnit.SECONDS));
+        try {
+            assertFalse(executor.submit(() -> shared.readLock().tryLock(200, TimeUnit.MILLISECONDS)).get());
+        } finally {
+            shared.writeLock().unlock();
+        }
+        assertTrue(executor.submit(() -> {
+            boolean locked = shared.readLock().tryLock(1, TimeUnit.SECONDS);
+            shared.readLock().unlock();
+            return locked;
+        }).get());
+    }
+
+    @Test
+    void readersDoNotWaitForEachOther() throws Exception {
+        ReadWriteLock lock = newLock("readers");
+
+        assertTrue(lock.readLock().tryLock(1, TimeUnit.SECONDS));
+        try {
+            assertTrue(executor.submit(() -> {
+                boolean locked = lock.readLock().tryLock(200, TimeUnit.MILLISECONDS);
+                lock.readLock().unlock();
+                return locked;
+            }).get());
+            assertFalse(executor.submit(() -> lock.writeLock().tryLock(200, TimeUnit.MILLISECONDS)).get());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Test
+    void writeUnlockWakesEveryWaitingReader() throws Exception {
+        ReadWriteLock writer = newLock("wake-all");
+        assertTrue(writer.writeLock().tryLock(1, TimeUnit.SECONDS));
+
+        int readers = 5;
+        CountDownLatch allHeld = new CountDownLatch(readers);
+        List<Future<Long>> waiting = new ArrayList<>();
+        for (int i = 0; i < readers; i++) {
+            waiting.add(executor.submit(() -> {
+                ReadWriteLock lock = newLock("wake-all");
+                assertTrue(lock.readLock().tryLock(20, TimeUnit.SECONDS));
+                long acquiredAt = System.currentTimeMillis();
+                // 全部读锁同时持有
+                allHeld.countDown();
+                allHeld.await(5, TimeUnit.SECONDS);
+                lock.readLock().unlock();
+                return acquiredAt;
+            }));
+        }
+        Thread.sleep(300);
+        long releasedAt = System.currentTimeMillis();
+        writer.writeLock().unlock();
+
+        for (Future<Long> reader : waiting) {
+            assertTrue(reader.get(5, TimeUnit.SECONDS) - releasedAt < 2000);
+        }
+    }
+
+    @Test
+    void expiredReaderDoesNotStarveWriter() throws Exception {
+        // 持有读锁的节点退出，未释放
+        ReadWriteLock crashed = new RedisReadWriteLock(scripts, subscriber, "test", "crashed", 300, TimeUnit.MILLISECONDS);
+        assertTrue(executor.submit(() -> crashed.readLock().tryLock(1, TimeUnit.SECONDS)).get());
+
+        // 其他读锁持续获取与释放
+        AtomicBoolean stop = new AtomicBoolean();
+        Future<?> readers = executor.submit(() -> {
+            ReadWriteLock lock = newLock("crashed");
+            while (!stop.get()) {
+                if (lock.readLock().tryLock(1, TimeUnit.SECONDS)) {
+                    Thread.sleep(20);
+                    lock.readLock().unlock();
+                }
+                Thread.sleep(5);
+            }
+            return null;
+        });
+        try {
+            assertTrue(executor.submit(() -> {
+                ReadWriteLock lock = newLock("crashed");
+                boolean locked = lock.writeLock().tryLock(5, TimeUnit.SECONDS);
+                if (locked) {
+                    lock.writeLock().unlock();
+                }
+                return locked;
+            }).get());
+        } finally {
+            stop.set(true);
+            readers.get();
+        }
+    }
+}
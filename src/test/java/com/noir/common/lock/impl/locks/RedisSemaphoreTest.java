@@ -0,0 +1,148 @@
+package com.noir.common.lock.impl.locks;
+
+import com.noir.common.lock.DistributedSemaphore;
+import com.noir.common.lock.TestServers;
+import com.noir.common.lock.excptions.LockExpiredException;
+import com.noir.common.lock.impl.support.RedisLockReleaseSubscriber;
+import com.noir.common.lock.impl.support.RedisScriptRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.redisson.api.RScoredSortedSet;
+import org.redisson.client.codec.StringCodec;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RedisSemaphoreTest {
+
+    private static TestServers.Redis redis;
+
+    private static RedisScriptRegistry scripts;
+
+    private static RedisLockReleaseSubscriber subscriber;
+
+    private static ExecutorService executor;
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        redis = new TestServers.Redis();
+        scripts = new RedisScriptRegistry(redis.client());
+        scripts.load(RedisSemaphore.SCRIPTS);
+        subscriber = new RedisLockReleaseSubscriber(redis.client());
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @AfterAll
+    static void tearDown() {
+        executor.shutdownNow();
+        redis.close();
+    }
+
+    private static DistributedSemaphore newSemaphore(String name, int limit) {
+        return new RedisSemaphore(scripts, subscriber, "test", name, limit);
+    }
+
+    @Test
+    void permitsAreLimitedAndAcquiredAtomically() throws Exception {
+        DistributedSemaphore holder = newSemaphore("limit", 3);
+        DistributedSemaphore other = newSemaphore("limit", 3);
+
+        assertTrue(holder.acquire(2, 0, TimeUnit.MILLISECONDS));
+        // 剩余1个许可，不足时一个也不占用
+        assertFalse(other.acquire(2, 100, TimeUnit.MILLISECONDS));
+        assertTrue(other.acquire(1, 0, TimeUnit.MILLISECONDS));
+        assertFalse(other.acquire(1, 100, TimeUnit.MILLISECONDS));
+
+        holder.release(2);
+        assertTrue(other.acquire(2, 0, TimeUnit.MILLISECONDS));
+        other.release(3);
+    }
+
+    @Test
+    void releaseWakesWaiter() throws Exception {
+        DistributedSemaphore holder = newSemaphore("wake", 1);
+        assertTrue(holder.acquire(1, 0, TimeUnit.MILLISECONDS));
+
+        Future<Long> waiter = executor.submit(() -> {
+            DistributedSemaphore other = newSemaphore("wake", 1);
+            long start = System.currentTimeMillis();
+            assertTrue(other.acquire(1, 10, TimeUnit.SECONDS));
+            long elapsed = System.currentTimeMillis() - start;
+            other.release(1);
+            return elapsed;
+        });
+        Thread.sleep(200);
+        holder.release(1);
+        // 由释放通知唤醒，无需等待许可租期到期
+        assertTrue(waiter.get(5, TimeUnit.SECONDS) < 2000);
+    }
+
+    @Test
+    void releasingSeveralPermitsWakesAsManyWaiters() throws Exception {
+        DistributedSemaphore holder = newSemaphore("wake-many", 3);
+        assertTrue(holder.acquire(3, 0, TimeUnit.MILLISECONDS));
+
+        CountDownLatch allHeld = new CountDownLatch(3);
+        List<Future<Long>> waiters = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            waiters.add(executor.submit(() -> {
+                DistributedSemaphore other = newSemaphore("wake-many", 3);
+                assertTrue(other.acquire(1, 20, TimeUnit.SECONDS));
+                long acquiredAt = System.currentTimeMillis();
+                // 全部许可同时持有，不依赖其他等待者归还时的通知
+                allHeld.countDown();
+                allHeld.await(5, TimeUnit.SECONDS);
+                other.release(1);
+                return acquiredAt;
+            }));
+        }
+        Thread.sleep(300);
+        long releasedAt = System.currentTimeMillis();
+        holder.release(3);
+
+        for (Future<Long> waiter : waiters) {
+            assertTrue(waiter.get(5, TimeUnit.SECONDS) - releasedAt < 2000);
+        }
+    }
+
+    @Test
+    void expiredPermitsAreReclaimed() throws Exception {
+        DistributedSemaphore holder = new RedisSemaphore(scripts, subscriber, "test", "lease", 1, 300, TimeUnit.MILLISECONDS);
+        DistributedSemaphore other = newSemaphore("lease", 1);
+
+        assertTrue(holder.acquire(1, 0, TimeUnit.MILLISECONDS));
+        assertTrue(other.acquire(1, 2, TimeUnit.SECONDS));
+        assertThrows(LockExpiredException.class, () -> holder.release(1));
+        other.release(1);
+    }
+
+    @Test
+    void permitsAreExpiredByServerTime() throws Exception {
+        // 其他节点写入的许可，到期时间以redis服务端时间判断
+        RScoredSortedSet<String> permits = redis.client().getScoredSortedSet("test:stamped:semaphore", StringCodec.INSTANCE);
+        permits.add(0, "dead");
+        permits.add(Long.MAX_VALUE / 2, "live");
+        DistributedSemaphore semaphore = newSemaphore("stamped", 2);
+
+        assertTrue(semaphore.acquire(1, 0, TimeUnit.MILLISECONDS));
+        assertFalse(semaphore.acquire(1, 0, TimeUnit.MILLISECONDS));
+        semaphore.release(1);
+        permits.delete();
+    }
+
+    @Test
+    void releasingUnheldPermitsFails() {
+        DistributedSemaphore semaphore = newSemaphore("unheld", 1);
+        assertThrows(IllegalStateException.class, () -> semaphore.release(1));
+    }
+}
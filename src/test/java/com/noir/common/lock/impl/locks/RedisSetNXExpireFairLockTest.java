@@ -0,0 +1,189 @@
+package com.noir.common.lock.impl.locks;
+
+import com.noir.common.lock.TestServers;
+import com.noir.common.lock.impl.support.RedisLockReleaseSubscriber;
+import com.noir.common.lock.impl.support.RedisScriptRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.redisson.api.RList;
+import org.redisson.client.codec.StringCodec;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RedisSetNXExpireFairLockTest {
+
+    private static TestServers.Redis redis;
+
+    private static RedisScriptRegistry scripts;
+
+    private static RedisLockReleaseSubscriber subscriber;
+
+    private static ExecutorService executor;
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        redis = new TestServers.Redis();
+        scripts = new RedisScriptRegistry(redis.client());
+        scripts.load(RedisSetNXExpireLock.SCRIPTS);
+        scripts.load(RedisSetNXExpireFairLock.SCRIPTS);
+        subscriber = new RedisLockReleaseSubscriber(redis.client());
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @AfterAll
+    static void tearDown() {
+        executor.shutdownNow();
+        redis.close();
+    }
+
+    private static Lock newLock(String name) {
+        return new RedisSetNXExpireFairLock(scripts, subscriber, null, "test", name);
+    }
+
+    private Future<Boolean> enqueue(String name, int id, long holdMillis, List<Integer> order) {
+        return executor.submit(() -> {
+            Lock lock = newLock(name);
+            if (!lock.tryLock(10, TimeUnit.SECONDS)) {
+                return false;
+            }
+            try {
+                order.add(id);
+                Thread.sleep(holdMillis);
+            } finally {
+                lock.unlock();
+            }
+            return true;
+        });
+    }
+
+    @Test
+    void waitersAcquireInArrivalOrder() throws Exception {
+        Lock holder = newLock("order");
+        assertTrue(holder.tryLock());
+        List<Integer> order = new CopyOnWriteArrayList<>();
+        Future<?>[] waiters = new Future<?>[3];
+        try {
+            for (int i = 0; i < waiters.length; i++) {
+                waiters[i] = enqueue("order", i, 50, order);
+                // 等待者依次进入队列
+                Thread.sleep(200);
+            }
+        } finally {
+            holder.unlock();
+        }
+        for (Future<?> waiter : waiters) {
+            assertEquals(true, waiter.get(10, TimeUnit.SECONDS));
+        }
+        assertEquals(Arrays.asList(0, 1, 2), order);
+    }
+
+    @Test
+    void freeLockIsNotTakenAheadOfQueuedWaiter() throws Exception {
+        Lock holder = newLock("barging");
+        assertTrue(holder.tryLock());
+        List<Integer> order = new CopyOnWriteArrayList<>();
+        Future<Boolean> waiter;
+        try {
+            waiter = enqueue("barging", 0, 500, order);
+            Thread.sleep(200);
+        } finally {
+            holder.unlock();
+        }
+        // 队首等待者被唤醒前，新的获取者不能插队
+        assertFalse(executor.submit(() -> newLock("barging").tryLock()).get());
+        assertTrue(waiter.get(10, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList(0), order);
+    }
+
+    @Test
+    void blockingWaiterKeepsOneQueueEntry() throws Exception {
+        RList<String> queue = queue("blocking");
+        Lock holder = newLock("blocking");
+        assertTrue(holder.tryLock());
+        Future<?> waiter;
+        try {
+            waiter = executor.submit(() -> {
+                Lock lock = newLock("blocking");
+                lock.lock();
+                lock.unlock();
+                return null;
+            });
+            Thread.sleep(300);
+            List<String> queued = queue.readAll();
+            assertEquals(1, queued.size());
+            // 等待期间不会重新排队
+            Thread.sleep(300);
+            assertEquals(queued, queue.readAll());
+        } finally {
+            holder.unlock();
+        }
+        waiter.get(10, TimeUnit.SECONDS);
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    void interruptedWaiterLeavesTheQueue() throws Exception {
+        RList<String> queue = queue("interrupt");
+        Lock holder = newLock("interrupt");
+        assertTrue(holder.tryLock());
+        try {
+            Future<?> waiter = executor.submit(() -> {
+                newLock("interrupt").lockInterruptibly();
+                return null;
+            });
+            Thread.sleep(300);
+            assertEquals(1, queue.size());
+            waiter.cancel(true);
+
+            // 出队异步完成
+            long deadline = System.currentTimeMillis() + 2000;
+            while (queue.size() > 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            assertEquals(0, queue.size());
+        } finally {
+            holder.unlock();
+        }
+    }
+
+    @Test
+    void deadWaiterAtTheHeadIsEvicted() throws Exception {
+        // 未刷新存活期限的等待者，期限以redis服务端时间判断
+        queue("dead").add("ghost");
+        redis.client().getScoredSortedSet("test:dead:timeouts", StringCodec.INSTANCE).add(0, "ghost");
+        assertTrue(executor.submit(() -> {
+            Lock lock = newLock("dead");
+            boolean locked = lock.tryLock();
+            lock.unlock();
+            return locked;
+        }).get());
+        assertEquals(0, queue("dead").size());
+    }
+
+    @Test
+    void liveWaiterAtTheHeadIsNotBypassed() throws Exception {
+        queue("live").add("ghost");
+        redis.client().getScoredSortedSet("test:live:timeouts", StringCodec.INSTANCE).add(Long.MAX_VALUE / 2, "ghost");
+        try {
+            assertFalse(executor.submit(() -> newLock("live").tryLock()).get());
+        } finally {
+            redis.client().getKeys().delete("test:live:queue", "test:live:timeouts");
+        }
+    }
+
+    private static RList<String> queue(String name) {
+        return redis.client().getList("test:" + name + ":queue", StringCodec.INSTANCE);
+    }
+}
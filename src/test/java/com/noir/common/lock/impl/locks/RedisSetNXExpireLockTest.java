@@ -0,0 +1,212 @@
+package com.noir.common.lock.impl.locks;
+
+import com.noir.common.lock.AsyncLockHandle;
+import com.noir.common.lock.TestServers;
+import com.noir.common.lock.excptions.LockExpiredException;
+import com.noir.common.lock.impl.support.AsyncLockTimer;
+import com.noir.common.lock.impl.support.RedisLockReleaseSubscriber;
+import com.noir.common.lock.impl.support.RedisScriptRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RedisSetNXExpireLockTest {
+
+    private static TestServers.Redis redis;
+
+    private static RedisScriptRegistry scripts;
+
+    private static RedisLockReleaseSubscriber subscriber;
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        redis = new TestServers.Redis();
+        scripts = new RedisScriptRegistry(redis.client());
+        scripts.load(RedisSetNXExpireLock.SCRIPTS);
+        subscriber = new RedisLockReleaseSubscriber(redis.client());
+    }
+
+    @AfterAll
+    static void tearDown() {
+        redis.close();
+    }
+
+    private static RedisSetNXExpireLock newLock(String name) {
+        return new RedisSetNXExpireLock(scripts, subscriber, null, "test", name);
+    }
+
+    @Test
+    void waiterIsWokenByRelease() throws Exception {
+        RedisSetNXExpireLock holder = newLock("wake");
+        assertTrue(holder.tryLock(0, TimeUnit.MILLISECONDS));
+
+        CompletableFuture<Long> acquiredAt = CompletableFuture.supplyAsync(() -> {
+            RedisSetNXExpireLock waiter = newLock("wake");
+            try {
+                assertTrue(waiter.tryLock(10, TimeUnit.SECONDS));
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            long now = System.currentTimeMillis();
+            waiter.unlock();
+            return now;
+        });
+        Thread.sleep(300);
+        long releasedAt = System.currentTimeMillis();
+        holder.unlock();
+
+        // 由释放通知唤醒，无需等待30分钟的租期到期
+        assertTrue(acquiredAt.get(5, TimeUnit.SECONDS) - releasedAt < 1000);
+    }
+
+    @Test
+    void tryLockIsASingleAttempt() throws Exception {
+        RedisSetNXExpireLock holder = newLock("single");
+        assertTrue(holder.tryLock());
+        try {
+            long start = System.currentTimeMillis();
+            assertFalse(CompletableFuture.supplyAsync(() -> newLock("single").tryLock()).get(5, TimeUnit.SECONDS));
+            assertTrue(System.currentTimeMillis() - start < 1000);
+        } finally {
+            holder.unlock();
+        }
+    }
+
+    @Test
+    void sharedHandleKeepsTheOwnerPerThread() throws Exception {
+        RedisSetNXExpireLock shared = newLock("shared");
+        assertTrue(shared.tryLock());
+        try {
+            // 其他线程通过同一实例获取时不视为重入，也不能释放
+            assertFalse(CompletableFuture.supplyAsync(shared::tryLock).get(5, TimeUnit.SECONDS));
+            CompletableFuture<Void> foreignUnlock = CompletableFuture.runAsync(shared::unlock);
+            ExecutionException e = assertThrows(ExecutionException.class, () -> foreignUnlock.get(5, TimeUnit.SECONDS));
+            assertTrue(e.getCause() instanceof IllegalMonitorStateException);
+            assertFalse(CompletableFuture.supplyAsync(() -> newLock("shared").tryLock()).get(5, TimeUnit.SECONDS));
+        } finally {
+            shared.unlock();
+        }
+        assertTrue(CompletableFuture.supplyAsync(() -> {
+            RedisSetNXExpireLock other = newLock("shared");
+            boolean locked = other.tryLock();
+            other.unlock();
+            return locked;
+        }).get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void asyncWaiterIsWokenByRelease() throws Exception {
+        RedisSetNXExpireLock holder = newLock("async-wake");
+        assertTrue(holder.tryLock());
+
+        CompletableFuture<AsyncLockHandle> waiting = newLock("async-wake").tryLockAsync(10, TimeUnit.SECONDS);
+        Thread.sleep(200);
+        assertFalse(waiting.isDone());
+        holder.unlock();
+
+        // 由释放通知唤醒，无需等待30分钟的租期到期
+        AsyncLockHandle handle = waiting.get(5, TimeUnit.SECONDS);
+        assertNotNull(handle);
+        assertFalse(holder.tryLock());
+
+        handle.unlockAsync().get(1, TimeUnit.SECONDS);
+        assertTrue(holder.tryLock());
+        holder.unlock();
+    }
+
+    @Test
+    void asyncWaitDoesNotOccupyTheSharedTimer() throws Exception {
+        RedisSetNXExpireLock holder = newLock("async-timer-busy");
+        assertTrue(holder.tryLock());
+        // 占住共享定时线程，订阅与唤醒不应依赖它
+        CountDownLatch timerBlocked = new CountDownLatch(1);
+        AsyncLockTimer.execute(() -> {
+            try {
+                timerBlocked.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        try {
+            CompletableFuture<AsyncLockHandle> waiting = newLock("async-timer-busy").tryLockAsync(10, TimeUnit.SECONDS);
+            Thread.sleep(300);
+            holder.unlock();
+
+            AsyncLockHandle handle = waiting.get(3, TimeUnit.SECONDS);
+            assertNotNull(handle);
+            handle.unlockAsync().get(1, TimeUnit.SECONDS);
+        } finally {
+            timerBlocked.countDown();
+        }
+    }
+
+    @Test
+    void asyncWaitersAreWokenOneByOne() throws Exception {
+        RedisSetNXExpireLock holder = newLock("async-chain");
+        assertTrue(holder.tryLock());
+        CompletableFuture<AsyncLockHandle> first = newLock("async-chain").tryLockAsync(10, TimeUnit.SECONDS);
+        CompletableFuture<AsyncLockHandle> second = newLock("async-chain").tryLockAsync(10, TimeUnit.SECONDS);
+        Thread.sleep(200);
+        holder.unlock();
+
+        // 一次释放只有一个等待者获取，其释放后另一个等待者获取
+        CompletableFuture<Object> winner = CompletableFuture.anyOf(first, second);
+        AsyncLockHandle handle = (AsyncLockHandle) winner.get(5, TimeUnit.SECONDS);
+        assertNotNull(handle);
+        CompletableFuture<AsyncLockHandle> other = first.isDone() && first.join() == handle ? second : first;
+        Thread.sleep(100);
+        assertFalse(other.isDone());
+
+        handle.unlockAsync().get(1, TimeUnit.SECONDS);
+        other.get(5, TimeUnit.SECONDS).unlockAsync().get(1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void asyncTryLockTimesOutWithNull() throws Exception {
+        RedisSetNXExpireLock holder = newLock("async-timeout");
+        assertTrue(holder.tryLock());
+        try {
+            assertNull(newLock("async-timeout").tryLockAsync(200, TimeUnit.MILLISECONDS).get(5, TimeUnit.SECONDS));
+        } finally {
+            holder.unlock();
+        }
+    }
+
+    @Test
+    void releasingExpiredAsyncHoldFails() throws Exception {
+        RedisSetNXExpireLock lock = new RedisSetNXExpireLock(scripts, subscriber, null, "test", "async-expired", 200, TimeUnit.MILLISECONDS);
+        AsyncLockHandle handle = lock.tryLockAsync(0, TimeUnit.MILLISECONDS).get(1, TimeUnit.SECONDS);
+        assertNotNull(handle);
+        Thread.sleep(400);
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> handle.unlockAsync().get(1, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof LockExpiredException);
+    }
+
+    @Test
+    void asyncHandlesOnOneInstanceReleaseTheirOwnAcquire() throws Exception {
+        RedisSetNXExpireLock shared = new RedisSetNXExpireLock(scripts, subscriber, null, "test", "async-shared", 200, TimeUnit.MILLISECONDS);
+        AsyncLockHandle expired = shared.tryLockAsync(0, TimeUnit.MILLISECONDS).get(1, TimeUnit.SECONDS);
+        assertNotNull(expired);
+        Thread.sleep(400);
+        AsyncLockHandle current = shared.tryLockAsync(0, TimeUnit.MILLISECONDS).get(1, TimeUnit.SECONDS);
+        assertNotNull(current);
+
+        // 过期的凭证不会释放之后的获取
+        ExecutionException e = assertThrows(ExecutionException.class, () -> expired.unlockAsync().get(1, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof LockExpiredException);
+        assertFalse(newLock("async-shared").tryLock());
+        current.unlockAsync().get(1, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,89 @@
+package com.noir.common.lock.impl.locks;
+
+import com.noir.common.lock.TestServers;
+import com.noir.common.lock.impl.support.RedisLockReleaseSubscriber;
+import com.noir.common.lock.impl.support.RedisScriptRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.redisson.client.codec.StringCodec;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RedisSetNXExpireMultiLockTest {
+
+    private static TestServers.Redis redis;
+
+    private static RedisScriptRegistry scripts;
+
+    private static RedisLockReleaseSubscriber subscriber;
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        redis = new TestServers.Redis();
+        scripts = new RedisScriptRegistry(redis.client());
+        subscriber = new RedisLockReleaseSubscriber(redis.client());
+    }
+
+    @AfterAll
+    static void tearDown() {
+        redis.close();
+    }
+
+    private static RedisSetNXExpireMultiLock newMultiLock(String... names) {
+        return new RedisSetNXExpireMultiLock(scripts, subscriber, null, "test", Arrays.asList(names));
+    }
+
+    private static RedisSetNXExpireLock newLock(String name) {
+        return new RedisSetNXExpireLock(scripts, subscriber, null, "test", name);
+    }
+
+    private static boolean exists(String name) {
+        return redis.client().getBucket("test:" + name, StringCodec.INSTANCE).isExists();
+    }
+
+    @Test
+    void keysAreWrittenAllOrNothing() throws Exception {
+        // 其他节点持有all-b
+        redis.client().getBucket("test:all-b", StringCodec.INSTANCE).set("other", 30, TimeUnit.SECONDS);
+        RedisSetNXExpireMultiLock multi = newMultiLock("all-a", "all-b", "all-c");
+        assertFalse(multi.tryLock(0, TimeUnit.MILLISECONDS));
+        // 部分被占用时一个都不写入
+        assertFalse(exists("all-a"));
+        assertFalse(exists("all-c"));
+
+        redis.client().getBucket("test:all-b", StringCodec.INSTANCE).delete();
+        assertTrue(multi.tryLock(0, TimeUnit.MILLISECONDS));
+        assertTrue(exists("all-a") && exists("all-b") && exists("all-c"));
+        multi.unlock();
+        assertFalse(exists("all-a") || exists("all-b") || exists("all-c"));
+    }
+
+    @Test
+    void waiterIsWokenWhenTheBlockingKeyIsReleased() throws Exception {
+        RedisSetNXExpireLock holder = newLock("wake-y");
+        assertTrue(holder.tryLock(0, TimeUnit.MILLISECONDS));
+
+        CompletableFuture<Long> acquiredAt = CompletableFuture.supplyAsync(() -> {
+            RedisSetNXExpireMultiLock multi = newMultiLock("wake-x", "wake-y");
+            try {
+                assertTrue(multi.tryLock(10, TimeUnit.SECONDS));
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            long now = System.currentTimeMillis();
+            multi.unlock();
+            return now;
+        });
+        Thread.sleep(300);
+        long releasedAt = System.currentTimeMillis();
+        holder.unlock();
+
+        assertTrue(acquiredAt.get(5, TimeUnit.SECONDS) - releasedAt < 1000);
+    }
+}
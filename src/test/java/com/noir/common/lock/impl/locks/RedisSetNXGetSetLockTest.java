@@ -0,0 +1,110 @@
+package com.noir.common.lock.impl.locks;
+
+import com.noir.common.lock.BackoffStrategy;
+import com.noir.common.lock.TestServers;
+import com.noir.common.lock.impl.support.BackoffContext;
+import com.noir.common.lock.impl.support.RedisScriptRegistry;
+import com.noir.common.lock.impl.support.TtlBackoffStrategy;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.redisson.api.RBucket;
+import org.redisson.client.codec.StringCodec;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RedisSetNXGetSetLockTest {
+
+    private static TestServers.Redis redis;
+
+    private static RedisScriptRegistry scripts;
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        redis = new TestServers.Redis();
+        scripts = new RedisScriptRegistry(redis.client());
+        scripts.load(RedisSetNXGetSetLock.SCRIPTS);
+    }
+
+    @AfterAll
+    static void tearDown() {
+        redis.close();
+    }
+
+    private static RedisSetNXGetSetLock newLock(String name) {
+        return new RedisSetNXGetSetLock(scripts, "test", name);
+    }
+
+    private static RBucket<String> bucket(String name) {
+        return redis.client().getBucket("test:" + name, StringCodec.INSTANCE);
+    }
+
+    private static boolean otherCanLock(String name) throws Exception {
+        return CompletableFuture.supplyAsync(() -> {
+            RedisSetNXGetSetLock lock = newLock(name);
+            boolean locked = lock.tryLock();
+            if (locked) {
+                lock.unlock();
+            }
+            return locked;
+        }).get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void heldLockStoresExpiryAndOwner() throws Exception {
+        RedisSetNXGetSetLock lock = newLock("held");
+        assertTrue(lock.tryLock());
+        try {
+            assertTrue(bucket("held").get().matches("\\d+:.+"));
+            assertFalse(otherCanLock("held"));
+        } finally {
+            lock.unlock();
+        }
+        assertFalse(bucket("held").isExists());
+        assertTrue(otherCanLock("held"));
+    }
+
+    @Test
+    void expiredStampIsTakenOver() throws Exception {
+        bucket("expired").set(System.currentTimeMillis() - 1000 + ":crashed");
+        assertTrue(otherCanLock("expired"));
+    }
+
+    @Test
+    void plainStampFromOlderVersionIsHonoured() throws Exception {
+        bucket("legacy").set(String.valueOf(System.currentTimeMillis() + 60000));
+        assertFalse(otherCanLock("legacy"));
+
+        bucket("legacy").set(String.valueOf(System.currentTimeMillis() - 1000));
+        assertTrue(otherCanLock("legacy"));
+    }
+
+    @Test
+    void ttlBackoffIsIgnoredWhilePolling() throws Exception {
+        bucket("polling").set(System.currentTimeMillis() + 60000 + ":other");
+        CompletableFuture.runAsync(() -> {
+            try {
+                Thread.sleep(300);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            bucket("polling").delete();
+        });
+
+        // 没有释放通知，按租期等待会错过提前的释放
+        BackoffStrategy previous = BackoffContext.set(TtlBackoffStrategy.INSTANCE);
+        try {
+            RedisSetNXGetSetLock lock = newLock("polling");
+            long start = System.currentTimeMillis();
+            assertTrue(lock.tryLock(5, TimeUnit.SECONDS));
+            assertTrue(System.currentTimeMillis() - start < 2000);
+            lock.unlock();
+        } finally {
+            BackoffContext.restore(previous);
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package com.noir.common.lock.impl.locks;
+
+import com.noir.common.lock.AsyncLockHandle;
+import com.noir.common.lock.TestServers;
+import com.noir.common.lock.excptions.LockExpiredException;
+import com.noir.common.lock.impl.support.ZookeeperConnectionManager;
+import com.noir.common.lock.impl.support.ZookeeperLockPaths;
+import org.apache.zookeeper.ZooKeeper;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ZookeeperLockTest {
+
+    private static TestServers.Zookeeper zookeeper;
+
+    private static ExecutorService executor;
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        zookeeper = new TestServers.Zookeeper();
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @AfterAll
+    static void tearDown() throws Exception {
+        executor.shutdownNow();
+        zookeeper.close();
+    }
+
+    private static ZookeeperLock newLock(String name) throws Exception {
+        return new ZookeeperLock(zookeeper.newConnections(), name);
+    }
+
+    @Test
+    void eachLockNameHasItsOwnDirectory() throws Exception {
+        ZookeeperLockPaths paths = zookeeper.connections().getPaths();
+        assertEquals(ZookeeperLockPaths.ROOT + "/order%3A1", paths.lockDir("order:1"));
+
+        ZookeeperLock lock = newLock("order:1");
+        assertTrue(lock.tryLock());
+        try {
+            List<String> children = zookeeper.connections().getZooKeeper().getChildren(paths.lockDir("order:1"), false);
+            assertEquals(1, children.size());
+            assertTrue(ZookeeperLockPaths.unprotect(children.get(0)).startsWith("seq-"));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Test
+    void differentNamesDoNotContend() throws Exception {
+        ZookeeperLock first = newLock("dir-a");
+        ZookeeperLock second = newLock("dir-b");
+        assertTrue(first.tryLock());
+        try {
+            assertTrue(CompletableFuture.supplyAsync(() -> {
+                boolean locked = second.tryLock();
+                second.unlock();
+                return locked;
+            }).get(5, TimeUnit.SECONDS));
+        } finally {
+            first.unlock();
+        }
+    }
+
+    @Test
+    void sameNameContends() throws Exception {
+        ZookeeperLock holder = newLock("dir-same");
+        ZookeeperLock other = newLock("dir-same");
+        assertTrue(holder.tryLock());
+        try {
+            assertFalse(CompletableFuture.supplyAsync(other::tryLock).get(5, TimeUnit.SECONDS));
+        } finally {
+            holder.unlock();
+        }
+    }
+
+    @Test
+    void unlockKeepsTheSharedSession() throws Exception {
+        ZookeeperConnectionManager connections = zookeeper.newConnections();
+        try {
+            ZooKeeper session = connections.getZooKeeper();
+            ZookeeperLock first = new ZookeeperLock(connections, "shared-session");
+            assertTrue(first.tryLock());
+            first.unlock();
+
+            assertSame(session, connections.getZooKeeper());
+            assertTrue(session.getState().isConnected());
+            ZookeeperLock second = new ZookeeperLock(connections, "shared-session");
+            assertTrue(second.tryLock());
+            second.unlock();
+        } finally {
+            connections.close();
+        }
+    }
+
+    @Test
+    void failedTryLockLeavesNoNode() throws Exception {
+        ZookeeperLock holder = newLock("no-orphan");
+        ZookeeperLock other = newLock("no-orphan");
+        assertTrue(holder.tryLock());
+        try {
+            assertFalse(executor.submit(() -> other.tryLock()).get(5, TimeUnit.SECONDS));
+            // 未获取时节点异步删除
+            String dir = zookeeper.connections().getPaths().lockDir("no-orphan");
+            ZooKeeper session = zookeeper.connections().getZooKeeper();
+            long deadline = System.currentTimeMillis() + 2000;
+            while (session.getChildren(dir, false).size() > 1 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            assertEquals(1, session.getChildren(dir, false).size());
+        } finally {
+            holder.unlock();
+        }
+    }
+
+    @Test
+    void waiterIsWokenWhenThePredecessorIsDeleted() throws Exception {
+        ZookeeperLock holder = newLock("wake");
+        ZookeeperLock waiter = newLock("wake");
+        assertTrue(holder.tryLock());
+        Future<Long> waited = executor.submit(() -> {
+            long start = System.nanoTime();
+            boolean locked = waiter.tryLock(10, TimeUnit.SECONDS);
+            long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            if (locked) {
+                waiter.unlock();
+            }
+            return locked ? elapsed : -1L;
+        });
+        Thread.sleep(200);
+        holder.unlock();
+
+        long elapsed = waited.get(5, TimeUnit.SECONDS);
+        assertTrue(elapsed >= 0 && elapsed < 5000, "waited " + elapsed + "ms");
+    }
+
+    @Test
+    void timedWaitFailsAndRemovesItsNode() throws Exception {
+        ZookeeperLock holder = newLock("timeout");
+        ZookeeperLock waiter = newLock("timeout");
+        assertTrue(holder.tryLock());
+        try {
+            assertFalse(executor.submit(() -> waiter.tryLock(200, TimeUnit.MILLISECONDS))
+                    .get(5, TimeUnit.SECONDS));
+            // 超时后节点异步删除
+            String dir = zookeeper.connections().getPaths().lockDir("timeout");
+            ZooKeeper session = zookeeper.connections().getZooKeeper();
+            long deadline = System.currentTimeMillis() + 2000;
+            while (session.getChildren(dir, false).size() > 1 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            assertEquals(1, session.getChildren(dir, false).size());
+        } finally {
+            holder.unlock();
+        }
+    }
+
+    @Test
+    void blockingWaiterKeepsOneNode() throws Exception {
+        String dir = zookeeper.connections().getPaths().lockDir("blocking");
+        ZooKeeper session = zookeeper.connections().getZooKeeper();
+        ZookeeperLock holder = newLock("blocking");
+        assertTrue(holder.tryLock());
+        Future<?> waiter;
+        try {
+            waiter = executor.submit(() -> {
+                ZookeeperLock lock = newLock("blocking");
+                lock.lock();
+                lock.unlock();
+                return null;
+            });
+            Thread.sleep(300);
+            Set<String> queued = new HashSet<>(session.getChildren(dir, false));
+            assertEquals(2, queued.size());
+            // 等待期间不会重新排队
+            Thread.sleep(300);
+            assertEquals(queued, new HashSet<>(session.getChildren(dir, false)));
+        } finally {
+            holder.unlock();
+        }
+        waiter.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void lostNodeFailsUnlockAsExpired() throws Exception {
+        ZookeeperLock lock = newLock("lost");
+        assertTrue(lock.tryLock());
+        // 模拟节点随过期的会话删除
+        deleteChildren("lost");
+        assertThrows(LockExpiredException.class, lock::unlock);
+
+        AsyncLockHandle handle = lock.tryLockAsync(1, TimeUnit.SECONDS).get(5, TimeUnit.SECONDS);
+        assertNotNull(handle);
+        deleteChildren("lost");
+        ExecutionException e = assertThrows(ExecutionException.class, () -> handle.unlockAsync().get(5, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof LockExpiredException);
+    }
+
+    private static void deleteChildren(String name) throws Exception {
+        String dir = zookeeper.connections().getPaths().lockDir(name);
+        ZooKeeper session = zookeeper.connections().getZooKeeper();
+        for (String child : session.getChildren(dir, false)) {
+            session.delete(dir + "/" + child, -1);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.noir.common.lock.impl.locks;
+
+import com.noir.common.lock.TestServers;
+import com.noir.common.lock.impl.support.ZookeeperConnectionManager;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ZookeeperMultiLockTest {
+
+    private static TestServers.Zookeeper zookeeper;
+
+    /**
+     * 另一个节点的会话
+     */
+    private static ZookeeperConnectionManager other;
+
+    private static ExecutorService executor;
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        zookeeper = new TestServers.Zookeeper();
+        other = zookeeper.newConnections();
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @AfterAll
+    static void tearDown() {
+        executor.shutdownNow();
+        other.close();
+        zookeeper.close();
+    }
+
+    private static Lock newLock(String... names) {
+        return new ZookeeperMultiLock(zookeeper.connections(), Arrays.asList(names));
+    }
+
+    /**
+     * 由另一个节点持有单个锁，直到release计数归零
+     */
+    private static void holdUntil(String name, CountDownLatch release) throws Exception {
+        CountDownLatch held = new CountDownLatch(1);
+        executor.submit(() -> {
+            Lock lock = new ZookeeperLock(other, name);
+            assertTrue(lock.tryLock(1, TimeUnit.SECONDS));
+            try {
+                held.countDown();
+                release.await();
+            } finally {
+                lock.unlock();
+            }
+            return null;
+        });
+        assertTrue(held.await(5, TimeUnit.SECONDS));
+    }
+
+    /**
+     * 另一个节点能否在指定时间内获取单个锁
+     */
+    private static boolean otherCanLock(String name, long waitMillis) throws Exception {
+        return executor.submit(() -> {
+            Lock lock = new ZookeeperLock(other, name);
+            boolean locked = lock.tryLock(waitMillis, TimeUnit.MILLISECONDS);
+            if (locked) {
+                lock.unlock();
+            }
+            return locked;
+        }).get();
+    }
+
+    @Test
+    void failedAttemptLeavesNoNodes() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        holdUntil("partial-b", release);
+        try {
+            Lock lock = newLock("partial-a", "partial-b");
+            assertFalse(lock.tryLock());
+            assertFalse(lock.tryLock(200, TimeUnit.MILLISECONDS));
+            // 未获取全部时不占用其余的锁，节点异步删除
+            assertTrue(otherCanLock("partial-a", 1000));
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    void holdsAllLocksUntilUnlocked() throws Exception {
+        Lock lock = newLock("all-a", "all-b");
+        assertTrue(lock.tryLock(1, TimeUnit.SECONDS));
+        try {
+            assertFalse(otherCanLock("all-a", 0));
+            assertFalse(otherCanLock("all-b", 0));
+        } finally {
+            lock.unlock();
+        }
+        assertTrue(otherCanLock("all-a", 1000));
+        assertTrue(otherCanLock("all-b", 1000));
+    }
+
+    @Test
+    void waiterAcquiresWhenBusyLockIsReleased() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        holdUntil("wait-b", release);
+        executor.submit(() -> {
+            Thread.sleep(300);
+            release.countDown();
+            return null;
+        });
+
+        Lock lock = newLock("wait-a", "wait-b");
+        assertTrue(lock.tryLock(5, TimeUnit.SECONDS));
+        lock.unlock();
+    }
+
+    @Test
+    void reentrantHoldKeepsNodesUntilLastUnlock() throws Exception {
+        Lock lock = newLock("reenter-a", "reenter-b");
+        assertTrue(lock.tryLock());
+        assertTrue(lock.tryLock(1, TimeUnit.SECONDS));
+        lock.unlock();
+        assertFalse(otherCanLock("reenter-a", 0));
+        lock.unlock();
+        assertTrue(otherCanLock("reenter-a", 1000));
+    }
+}
@@ -0,0 +1,94 @@
+package com.noir.common.lock.impl.locks;
+
+import com.noir.common.lock.TestServers;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ZookeeperReadWriteLockTest {
+
+    private static TestServers.Zookeeper zookeeper;
+
+    private static ExecutorService executor;
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        zookeeper = new TestServers.Zookeeper();
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @AfterAll
+    static void tearDown() {
+        executor.shutdownNow();
+        zookeeper.close();
+    }
+
+    private static ReadWriteLock newLock(String name) {
+        return new ZookeeperReadWriteLock(zookeeper.connections(), name);
+    }
+
+    @Test
+    void nestedWriteThenReadOnAnotherInstanceDowngrades() throws Exception {
+        ReadWriteLock outer = newLock("downgrade");
+        ReadWriteLock inner = newLock("downgrade");
+
+        assertTrue(outer.writeLock().tryLock(1, TimeUnit.SECONDS));
+        try {
+            assertTrue(inner.readLock().tryLock(1, TimeUnit.SECONDS));
+            assertTrue(inner.readLock().tryLock());
+            inner.readLock().unlock();
+            inner.readLock().unlock();
+        } finally {
+            outer.writeLock().unlock();
+        }
+        assertTrue(executor.submit(() -> {
+            ReadWriteLock other = newLock("downgrade");
+            boolean locked = other.writeLock().tryLock(1, TimeUnit.SECONDS);
+            other.writeLock().unlock();
+            return locked;
+        }).get());
+    }
+
+    @Test
+    void sharedInstanceReaderWaitsForWriterOnAnotherThread() throws Exception {
+        ReadWriteLock shared = newLock("shared");
+
+        assertTrue(shared.writeLock().tryLock(1, TimeUnit.SECONDS));
+        try {
+            assertFalse(executor.submit(() -> shared.readLock().tryLock(200, TimeUnit.MILLISECONDS)).get());
+        } finally {
+            shared.writeLock().unlock();
+        }
+    }
+
+    @Test
+    void readersShareAndWriterExcludes() throws Exception {
+        ReadWriteLock reader = newLock("share");
+        assertTrue(reader.readLock().tryLock(1, TimeUnit.SECONDS));
+        try {
+            assertTrue(executor.submit(() -> {
+                ReadWriteLock other = newLock("share");
+                boolean locked = other.readLock().tryLock(200, TimeUnit.MILLISECONDS);
+                other.readLock().unlock();
+                return locked;
+            }).get());
+            assertFalse(executor.submit(() -> newLock("share").writeLock().tryLock(200, TimeUnit.MILLISECONDS)).get());
+        } finally {
+            reader.readLock().unlock();
+        }
+        assertTrue(executor.submit(() -> {
+            ReadWriteLock other = newLock("share");
+            boolean locked = other.writeLock().tryLock(1, TimeUnit.SECONDS);
+            other.writeLock().unlock();
+            return locked;
+        }).get());
+    }
+}
@@ -0,0 +1,94 @@
+package com.noir.common.lock.impl.support;
+
+import com.noir.common.lock.BackoffStrategy;
+import com.noir.common.lock.annotation.BackoffType;
+import com.noir.common.lock.properties.DLockProperties;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BackoffStrategiesTest {
+
+    @Test
+    void fixedDelayIsCappedToRemaining() {
+        FixedBackoffStrategy strategy = new FixedBackoffStrategy(100);
+        assertEquals(100, strategy.nextDelay(1, 5000, 1000));
+        assertEquals(100, strategy.nextDelay(9, 5000, 1000));
+        assertEquals(30, strategy.nextDelay(1, 5000, 30));
+    }
+
+    @Test
+    void exponentialDelayDoublesUpToMax() {
+        ExponentialBackoffStrategy strategy = new ExponentialBackoffStrategy(50, 300, 0);
+        assertEquals(50, strategy.nextDelay(1, -2, 10000));
+        assertEquals(100, strategy.nextDelay(2, -2, 10000));
+        assertEquals(200, strategy.nextDelay(3, -2, 10000));
+        assertEquals(300, strategy.nextDelay(4, -2, 10000));
+        // 次数很大时不溢出
+        assertEquals(300, strategy.nextDelay(Integer.MAX_VALUE, -2, 10000));
+        assertEquals(20, strategy.nextDelay(4, -2, 20));
+    }
+
+    @Test
+    void jitterOnlyShortensTheDelay() {
+        ExponentialBackoffStrategy strategy = new ExponentialBackoffStrategy(100, 1000, 0.5);
+        for (int i = 0; i < 100; i++) {
+            long delay = strategy.nextDelay(3, -2, 10000);
+            assertTrue(delay > 200 && delay <= 400, "delay " + delay);
+        }
+    }
+
+    @Test
+    void invalidExponentialSettingsAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new ExponentialBackoffStrategy(0, 100, 0));
+        assertThrows(IllegalArgumentException.class, () -> new ExponentialBackoffStrategy(200, 100, 0));
+        assertThrows(IllegalArgumentException.class, () -> new ExponentialBackoffStrategy(50, 100, 1.5));
+    }
+
+    @Test
+    void ttlDelayFollowsTheHoldersLease() {
+        BackoffStrategy strategy = TtlBackoffStrategy.INSTANCE;
+        assertEquals(300, strategy.nextDelay(1, 300, 1000));
+        assertEquals(1000, strategy.nextDelay(1, 5000, 1000));
+        // 永不过期时等待全部剩余时间，租期未知时立即重试
+        assertEquals(1000, strategy.nextDelay(1, -1, 1000));
+        assertEquals(0, strategy.nextDelay(1, -2, 1000));
+    }
+
+    @Test
+    void defaultIsUnsetUntilConfigured() {
+        assertNull(strategies(null).get(BackoffType.DEFAULT));
+
+        BackoffStrategies configured = strategies(" fixed ");
+        assertSame(configured.get(BackoffType.FIXED), configured.get(BackoffType.DEFAULT));
+        assertEquals(50, configured.get(BackoffType.DEFAULT).nextDelay(1, 5000, 1000));
+    }
+
+    @Test
+    void contextIsRestoredAfterNestedUse() {
+        BackoffStrategy outer = new FixedBackoffStrategy(10);
+        BackoffStrategy inner = new FixedBackoffStrategy(20);
+
+        BackoffStrategy none = BackoffContext.set(outer);
+        BackoffStrategy previous = BackoffContext.set(inner);
+        assertSame(inner, BackoffContext.current());
+        BackoffContext.restore(previous);
+        assertSame(outer, BackoffContext.current());
+        BackoffContext.restore(none);
+        assertNull(BackoffContext.current());
+    }
+
+    private static BackoffStrategies strategies(String type) {
+        DLockProperties properties = new DLockProperties();
+        properties.getBackoff().setType(type);
+        BackoffStrategies strategies = new BackoffStrategies();
+        ReflectionTestUtils.setField(strategies, "properties", properties);
+        strategies.init();
+        return strategies;
+    }
+}
@@ -0,0 +1,80 @@
+package com.noir.common.lock.impl.support;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConsistentHashRingTest {
+
+    private static final int KEYS = 10000;
+
+    private static Map<String, String> nodes(String... ids) {
+        Map<String, String> nodes = new LinkedHashMap<>();
+        for (String id : ids) {
+            nodes.put(id, id);
+        }
+        return nodes;
+    }
+
+    @Test
+    void routingDoesNotDependOnConfigurationOrder() {
+        ConsistentHashRing<String> ring = new ConsistentHashRing<>(nodes("a", "b", "c"), 160);
+        ConsistentHashRing<String> reordered = new ConsistentHashRing<>(nodes("c", "a", "b"), 160);
+        for (int i = 0; i < KEYS; i++) {
+            assertEquals(ring.get("lock:" + i), reordered.get("lock:" + i));
+        }
+    }
+
+    @Test
+    void keysAreSpreadAcrossNodes() {
+        ConsistentHashRing<String> ring = new ConsistentHashRing<>(nodes("a", "b", "c"), 160);
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < KEYS; i++) {
+            counts.merge(ring.get("lock:" + i), 1, Integer::sum);
+        }
+        assertEquals(3, counts.size());
+        counts.values().forEach(count -> assertTrue(count > KEYS / 6, "unbalanced: " + counts));
+    }
+
+    @Test
+    void addingNodeOnlyMovesKeysToIt() {
+        ConsistentHashRing<String> before = new ConsistentHashRing<>(nodes("a", "b", "c"), 160);
+        ConsistentHashRing<String> after = new ConsistentHashRing<>(nodes("a", "b", "c", "d"), 160);
+        int moved = 0;
+        for (int i = 0; i < KEYS; i++) {
+            String key = "lock:" + i;
+            String owner = after.get(key);
+            if (!owner.equals(before.get(key))) {
+                assertEquals("d", owner);
+                moved++;
+            }
+        }
+        // 约1/4的key迁移到新节点
+        assertTrue(moved > KEYS / 8 && moved < KEYS / 2, "moved " + moved);
+    }
+
+    @Test
+    void removingNodeOnlyMovesItsKeys() {
+        ConsistentHashRing<String> before = new ConsistentHashRing<>(nodes("a", "b", "c"), 160);
+        ConsistentHashRing<String> after = new ConsistentHashRing<>(nodes("a", "c"), 160);
+        for (int i = 0; i < KEYS; i++) {
+            String key = "lock:" + i;
+            String owner = before.get(key);
+            if (!"b".equals(owner)) {
+                assertEquals(owner, after.get(key));
+            }
+        }
+    }
+
+    @Test
+    void rejectsEmptyRing() {
+        assertThrows(IllegalArgumentException.class, () -> new ConsistentHashRing<>(nodes(), 160));
+        assertThrows(IllegalArgumentException.class, () -> new ConsistentHashRing<>(nodes("a"), 0));
+    }
+}
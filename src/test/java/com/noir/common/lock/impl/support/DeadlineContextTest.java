@@ -0,0 +1,103 @@
+package com.noir.common.lock.impl.support;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DeadlineContextTest {
+
+    @AfterEach
+    void tearDown() {
+        DeadlineContext.clear();
+    }
+
+    @Test
+    void innerDeadlineCannotExtendOuter() {
+        long outer = System.currentTimeMillis() + 1000;
+        long previous = DeadlineContext.set(outer);
+        try {
+            long inner = DeadlineContext.set(outer + 5000);
+            try {
+                assertEquals(outer, DeadlineContext.current());
+            } finally {
+                DeadlineContext.restore(inner);
+            }
+            assertEquals(outer, DeadlineContext.current());
+        } finally {
+            DeadlineContext.restore(previous);
+        }
+        assertEquals(DeadlineContext.NONE, DeadlineContext.current());
+    }
+
+    @Test
+    void earlierInnerDeadlineIsRestoredOnExit() {
+        long outer = System.currentTimeMillis() + 5000;
+        long previous = DeadlineContext.set(outer);
+        try {
+            long inner = DeadlineContext.set(outer - 4000);
+            try {
+                assertEquals(outer - 4000, DeadlineContext.current());
+            } finally {
+                DeadlineContext.restore(inner);
+            }
+            assertEquals(outer, DeadlineContext.current());
+        } finally {
+            DeadlineContext.restore(previous);
+        }
+    }
+
+    @Test
+    void waitIsBoundedByCurrentDeadline() {
+        long previous = DeadlineContext.set(System.currentTimeMillis() + 200);
+        try {
+            assertTrue(DeadlineContext.remaining(10, TimeUnit.SECONDS) <= 200);
+            assertTrue(DeadlineContext.remaining(Long.MAX_VALUE, TimeUnit.MILLISECONDS) <= 200);
+        } finally {
+            DeadlineContext.restore(previous);
+        }
+        assertEquals(DeadlineContext.NONE, DeadlineContext.remaining(Long.MAX_VALUE, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void clearSuspendsDeadlineUntilRestored() {
+        long outer = System.currentTimeMillis() + 1000;
+        long previous = DeadlineContext.set(outer);
+        try {
+            long suspended = DeadlineContext.clear();
+            try {
+                assertEquals(DeadlineContext.NONE, DeadlineContext.current());
+            } finally {
+                DeadlineContext.restore(suspended);
+            }
+            assertEquals(outer, DeadlineContext.current());
+        } finally {
+            DeadlineContext.restore(previous);
+        }
+    }
+
+    @Test
+    void tryLockUntilAppliesDeadlineToNestedWaits() throws Exception {
+        Lock lock = new ReentrantLock() {
+            @Override
+            public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+                // 内层按自己的超时等待时仍受外层截止时间限制
+                return super.tryLock(DeadlineContext.remaining(10, TimeUnit.SECONDS), TimeUnit.MILLISECONDS);
+            }
+        };
+        Thread holder = new Thread(lock::lock);
+        holder.start();
+        holder.join();
+
+        long start = System.currentTimeMillis();
+        assertFalse(DeadlineContext.tryLockUntil(lock, start + 200));
+        assertTrue(System.currentTimeMillis() - start < 2000);
+        assertEquals(DeadlineContext.NONE, DeadlineContext.current());
+    }
+}
@@ -0,0 +1,45 @@
+package com.noir.common.lock.impl.support;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class LockHandleCacheTest {
+
+    @Test
+    void sameKeyReturnsTheCachedHandle() {
+        LockHandleCache<Object> cache = new LockHandleCache<>(16);
+        Object first = cache.get("order:1", Object::new);
+        assertSame(first, cache.get("order:1", Object::new));
+        assertNotSame(first, cache.get("order:2", Object::new));
+    }
+
+    @Test
+    void disabledCacheCreatesEveryTime() {
+        LockHandleCache<Object> cache = new LockHandleCache<>(0);
+        assertNotSame(cache.get("order:1", Object::new), cache.get("order:1", Object::new));
+    }
+
+    @Test
+    void fullCacheStillReturnsNewHandles() {
+        LockHandleCache<Object> cache = new LockHandleCache<>(1);
+        Object cached = cache.get("order:1", Object::new);
+        Object uncached = cache.get("order:2", Object::new);
+
+        assertNotSame(uncached, cache.get("order:2", Object::new));
+        assertSame(cached, cache.get("order:1", Object::new));
+    }
+
+    @Test
+    void keyIncludesTheLease() {
+        assertEquals(LockHandleCache.key("order:1", 1, TimeUnit.SECONDS),
+                LockHandleCache.key("order:1", 1000, TimeUnit.MILLISECONDS));
+        assertNotEquals(LockHandleCache.key("order:1", 1, TimeUnit.SECONDS),
+                LockHandleCache.key("order:1", 2, TimeUnit.SECONDS));
+    }
+}
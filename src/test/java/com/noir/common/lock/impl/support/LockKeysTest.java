@@ -0,0 +1,25 @@
+package com.noir.common.lock.impl.support;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LockKeysTest {
+
+    @Test
+    void deduplicatesAndSorts() {
+        assertEquals(Arrays.asList("a", "b", "c"), LockKeys.canonical(Arrays.asList("c", "a", "b", "a")));
+    }
+
+    @Test
+    void rejectsNullNames() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> LockKeys.canonical(Arrays.asList("a", null)));
+        assertEquals("lock names must not contain null: [a, null]", e.getMessage());
+        assertThrows(IllegalArgumentException.class, () -> LockKeys.canonical(Collections.singletonList(null)));
+    }
+}
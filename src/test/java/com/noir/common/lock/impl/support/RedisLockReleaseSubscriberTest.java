@@ -0,0 +1,122 @@
+package com.noir.common.lock.impl.support;
+
+import com.noir.common.lock.TestServers;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.redisson.client.codec.StringCodec;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RedisLockReleaseSubscriberTest {
+
+    private static TestServers.Redis redis;
+
+    private static RedisLockReleaseSubscriber subscriber;
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        redis = new TestServers.Redis();
+        subscriber = new RedisLockReleaseSubscriber(redis.client());
+    }
+
+    @AfterAll
+    static void tearDown() {
+        redis.close();
+    }
+
+    private static void publish(String channel) {
+        redis.client().getTopic(channel, StringCodec.INSTANCE).publish("0");
+    }
+
+    private static long receivers(String channel) {
+        return redis.client().getTopic(channel, StringCodec.INSTANCE).publish("0");
+    }
+
+    @Test
+    void releaseDuringAttemptFiresOnArm() throws Exception {
+        RedisLockReleaseSubscriber.Entry entry = subscriber.subscribe("signal-before-arm");
+        try {
+            RedisLockReleaseSubscriber.AsyncWaiter waiter = entry.newWaiter();
+            // 尝试进行中收到通知
+            publish("signal-before-arm");
+            assertTrue(entry.await(1000));
+
+            CountDownLatch fired = new CountDownLatch(1);
+            waiter.arm(fired::countDown);
+            assertTrue(fired.await(1, TimeUnit.SECONDS));
+            assertFalse(waiter.fire());
+        } finally {
+            subscriber.unsubscribe(entry);
+        }
+    }
+
+    @Test
+    void asyncSubscriptionReceivesReleases() throws Exception {
+        RedisLockReleaseSubscriber.Entry entry = subscriber.subscribeAsync("async-subscribe").get(2, TimeUnit.SECONDS);
+        try {
+            publish("async-subscribe");
+            assertTrue(entry.await(1000));
+        } finally {
+            subscriber.unsubscribeAsync(entry);
+        }
+        // 取消订阅在订阅线程上完成，之后的通知无人接收
+        long deadline = System.currentTimeMillis() + 2000;
+        while (receivers("async-subscribe") > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(0, receivers("async-subscribe"));
+    }
+
+    @Test
+    void releaseWakesOneArmedWaiterOnce() throws Exception {
+        RedisLockReleaseSubscriber.Entry entry = subscriber.subscribe("single-wake");
+        try {
+            AtomicInteger runs = new AtomicInteger();
+            CountDownLatch fired = new CountDownLatch(1);
+            RedisLockReleaseSubscriber.AsyncWaiter first = entry.newWaiter();
+            RedisLockReleaseSubscriber.AsyncWaiter second = entry.newWaiter();
+            first.arm(() -> {
+                runs.incrementAndGet();
+                fired.countDown();
+            });
+            second.arm(runs::incrementAndGet);
+
+            publish("single-wake");
+            assertTrue(fired.await(1, TimeUnit.SECONDS));
+            // 已被通知触发的等待者不会再被超时触发
+            assertFalse(first.fire());
+            assertEquals(1, runs.get());
+            assertTrue(second.fire());
+            assertEquals(2, runs.get());
+        } finally {
+            subscriber.unsubscribe(entry);
+        }
+    }
+
+    @Test
+    void cancelledWaiterDoesNotConsumeRelease() throws Exception {
+        RedisLockReleaseSubscriber.Entry entry = subscriber.subscribe("skip-cancelled");
+        try {
+            CountDownLatch fired = new CountDownLatch(1);
+            RedisLockReleaseSubscriber.AsyncWaiter cancelled = entry.newWaiter();
+            RedisLockReleaseSubscriber.AsyncWaiter armed = entry.newWaiter();
+            cancelled.arm(() -> {
+                throw new AssertionError("cancelled waiter fired");
+            });
+            cancelled.cancel();
+            armed.arm(fired::countDown);
+
+            publish("skip-cancelled");
+            assertTrue(fired.await(1, TimeUnit.SECONDS));
+        } finally {
+            subscriber.unsubscribe(entry);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.noir.common.lock.impl.support;
+
+import com.noir.common.lock.TestServers;
+import com.noir.common.lock.impl.locks.RedisSetNXExpireLock;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.redisson.client.codec.StringCodec;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RedisLockWatchdogTest {
+
+    private static TestServers.Redis redis;
+
+    private static RedisScriptRegistry scripts;
+
+    private static RedisLockReleaseSubscriber subscriber;
+
+    private static RedisLockWatchdog watchdog;
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        redis = new TestServers.Redis();
+        scripts = new RedisScriptRegistry(redis.client());
+        scripts.load(RedisSetNXExpireLock.SCRIPTS);
+        subscriber = new RedisLockReleaseSubscriber(redis.client());
+        watchdog = new RedisLockWatchdog(redis.client(), scripts, 50);
+        watchdog.start();
+    }
+
+    @AfterAll
+    static void tearDown() {
+        watchdog.shutdown();
+        redis.close();
+    }
+
+    private static boolean exists(String key) {
+        return redis.client().getBucket(key, StringCodec.INSTANCE).isExists();
+    }
+
+    @Test
+    void heldLeaseIsRenewedUntilUnlock() throws Exception {
+        RedisSetNXExpireLock lock = new RedisSetNXExpireLock(scripts, subscriber, watchdog, "test", "renewed", 300, TimeUnit.MILLISECONDS);
+        assertTrue(lock.tryLock(0, TimeUnit.MILLISECONDS));
+        // 持有时间远超租期
+        Thread.sleep(1000);
+        assertTrue(exists("test:renewed"));
+
+        lock.unlock();
+        assertFalse(exists("test:renewed"));
+    }
+
+    @Test
+    void renewalSurvivesScriptFlush() throws Exception {
+        RedisSetNXExpireLock lock = new RedisSetNXExpireLock(scripts, subscriber, watchdog, "test", "flushed", 300, TimeUnit.MILLISECONDS);
+        assertTrue(lock.tryLock(0, TimeUnit.MILLISECONDS));
+        try {
+            redis.client().getScript().scriptFlush();
+            Thread.sleep(1000);
+            assertTrue(exists("test:flushed"));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Test
+    void leaseTakenByAnotherOwnerIsNotRenewed() throws Exception {
+        redis.client().getBucket("test:lost", StringCodec.INSTANCE).set("other", 300, TimeUnit.MILLISECONDS);
+        watchdog.track("test:lost", "me", 300);
+
+        Thread.sleep(600);
+        assertFalse(exists("test:lost"));
+    }
+}
@@ -0,0 +1,55 @@
+package com.noir.common.lock.impl.support;
+
+import com.noir.common.lock.TestServers;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.redisson.api.RScript;
+
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RedisScriptRegistryTest {
+
+    private static final String SCRIPT = "return redis.call('incr', KEYS[1])";
+
+    private static TestServers.Redis redis;
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        redis = new TestServers.Redis();
+    }
+
+    @AfterAll
+    static void tearDown() {
+        redis.close();
+    }
+
+    private static long incr(RedisScriptRegistry scripts, String key) {
+        Long value = scripts.eval(RScript.Mode.READ_WRITE, SCRIPT, RScript.ReturnType.INTEGER, Collections.singletonList(key));
+        return value;
+    }
+
+    @Test
+    void preloadedScriptRunsByDigest() {
+        RedisScriptRegistry scripts = new RedisScriptRegistry(redis.client());
+        scripts.load(Collections.singletonList(SCRIPT));
+        assertEquals(1, incr(scripts, "preloaded"));
+        assertEquals(2, incr(scripts, "preloaded"));
+    }
+
+    @Test
+    void flushedScriptFallsBackToEval() {
+        RedisScriptRegistry scripts = new RedisScriptRegistry(redis.client());
+        scripts.load(Collections.singletonList(SCRIPT));
+        redis.client().getScript().scriptFlush();
+
+        // NOSCRIPT时降级为EVAL，并重新写入脚本缓存
+        assertEquals(1, incr(scripts, "flushed"));
+        String digest = redis.client().getScript().scriptLoad(SCRIPT);
+        assertTrue(redis.client().getScript().scriptExists(digest).get(0));
+        assertEquals(2, incr(scripts, "flushed"));
+    }
+}
@@ -0,0 +1,33 @@
+package com.noir.common.lock.impl.support;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ZookeeperLockPathsTest {
+
+    private static final String GUID = "0f8fad5b-d9cb-469f-a165-70867728950e";
+
+    @Test
+    void unprotectStripsTheCreateGuid() {
+        assertEquals("seq-0000000007", ZookeeperLockPaths.unprotect("_c_" + GUID + "-seq-0000000007"));
+        assertEquals("read-0000000007", ZookeeperLockPaths.unprotect("read-0000000007"));
+    }
+
+    @Test
+    void nodesAreOrderedBySequenceAcrossPrefixes() {
+        List<String> nodes = Arrays.asList(
+                "_c_" + GUID + "-write-0000000003",
+                "read-0000000002",
+                "_c_" + GUID.replace('0', '9') + "-seq-0000000001");
+        nodes.sort(ZookeeperLockPaths.BY_SEQUENCE);
+
+        assertEquals(Arrays.asList("0000000001", "0000000002", "0000000003"),
+                Arrays.asList(ZookeeperLockPaths.sequence(nodes.get(0)),
+                        ZookeeperLockPaths.sequence(nodes.get(1)),
+                        ZookeeperLockPaths.sequence(nodes.get(2))));
+    }
+}